@@ -5,3 +5,5 @@ cd org.openbel.cytoscape.webservice/
 ant
 cd ../org.openbel.cytoscape.navigator/
 ant
+cd ../org.openbel.cytoscape.standin/
+ant
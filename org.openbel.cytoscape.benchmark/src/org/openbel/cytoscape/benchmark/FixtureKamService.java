@@ -0,0 +1,281 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.cytoscape.webservice.RequestMonitor;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link FixtureKamService} is an in-process {@link KamService} that answers
+ * from a single {@link KamSnapshot KAM snapshot}, so benchmarks measure the
+ * navigator without a Web API round trip.
+ *
+ * <p>
+ * Namespace operations answer with empty lists and interconnect only
+ * returns the direct edges between the sources.
+ * </p>
+ */
+public class FixtureKamService implements KamService {
+    private final KamSnapshot snapshot;
+    private final Kam kam;
+    private final KamHandle handle;
+
+    public FixtureKamService(final KamSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("snapshot is null");
+        }
+        this.snapshot = snapshot;
+        this.kam = snapshot.getKam();
+        this.handle = new KamHandle();
+        this.handle.setHandle(kam.getName());
+    }
+
+    public KamSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Kam getKam() {
+        return kam;
+    }
+
+    public KamHandle getKamHandle() {
+        return handle;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reloadClientConnector() {
+        // nothing to reconnect
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return new ArrayList<KamNode>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        return new ArrayList<NamespaceValue>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        return new ArrayList<NamespaceDescriptor>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        return new ArrayList<Kam>(Collections.singletonList(
+                snapshot.getKam()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        final DialectHandle dialect = new DialectHandle();
+        dialect.setHandle(kamHandle.getHandle());
+        return dialect;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        if (kam == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+        final LoadKamResponse res = new LoadKamResponse();
+        if (this.kam.getName().equals(kam.getName())) {
+            res.setHandle(handle);
+            res.setLoadStatus(KAMLoadStatus.COMPLETE);
+        } else {
+            res.setLoadStatus(KAMLoadStatus.FAILED);
+        }
+        return res;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        final int n = snapshot.findNode(node.getId());
+        return n == KamSnapshot.NULL ? new ArrayList<BelTerm>() : snapshot
+                .terms(n);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge is null");
+        }
+        final int e = snapshot.findEdge(edge.getId());
+        return e == KamSnapshot.NULL ? new ArrayList<BelStatement>()
+                : snapshot.statements(e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        if (function == null) {
+            throw new IllegalArgumentException("function is null");
+        }
+        return snapshot.nodesByFunction(function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        if (regex == null) {
+            throw new IllegalArgumentException("regex is null");
+        }
+        return snapshot.nodesByPattern(Pattern.compile(regex), nf);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        if (node == null || direction == null) {
+            throw new IllegalArgumentException("node or direction is null");
+        }
+        final int n = snapshot.findNode(node.getId());
+        return n == KamSnapshot.NULL ? new ArrayList<KamEdge>() : snapshot
+                .adjacent(n, direction, ef);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final Collection<KamNode> nodes,
+            final EdgeDirectionType direction, final EdgeFilter ef,
+            final RequestMonitor monitor) {
+        if (nodes == null) {
+            throw new IllegalArgumentException("nodes is null");
+        }
+        final Map<String, KamEdge> ret = new LinkedHashMap<String, KamEdge>();
+        int completed = 0;
+        for (final KamNode node : nodes) {
+            if (monitor != null && monitor.isCanceled()) {
+                break;
+            }
+            for (final KamEdge edge : getAdjacentKamEdges(dialectHandle,
+                    node, direction, ef)) {
+                ret.put(edge.getId(), edge);
+            }
+            if (monitor != null) {
+                monitor.requestCompleted(++completed, nodes.size());
+            }
+        }
+        return new ArrayList<KamEdge>(ret.values());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        final List<Integer> ns = new ArrayList<Integer>();
+        for (final KamNode source : sources) {
+            final int n = snapshot.findNode(source.getId());
+            if (n != KamSnapshot.NULL) {
+                ns.add(n);
+            }
+        }
+
+        final List<SimplePath> ret = new ArrayList<SimplePath>();
+        for (final int e : snapshot.edgesAmong(ns)) {
+            final KamEdge edge = snapshot.edge(e);
+            final SimplePath path = new SimplePath();
+            path.setSource(edge.getSource());
+            path.setTarget(edge.getTarget());
+            path.getEdges().add(edge);
+            ret.add(path);
+        }
+        return ret;
+    }
+}
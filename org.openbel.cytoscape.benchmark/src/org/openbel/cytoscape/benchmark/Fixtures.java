@@ -0,0 +1,220 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.standin.SyntheticKam;
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+
+import cytoscape.CyNetwork;
+import cytoscape.Cytoscape;
+
+/**
+ * {@link Fixtures} provides the data the benchmarks run against: a
+ * {@link SyntheticKam synthetic KAM} served by a {@link FixtureKamService},
+ * neighborhoods around its hubs, and headless Cytoscape networks.
+ *
+ * <p>
+ * The synthetic KAM is generated once into the temporary directory and
+ * reused by later runs and forks.  Cytoscape's own in-memory node and edge
+ * attribute stores are used; no desktop is created.
+ * </p>
+ */
+public final class Fixtures {
+    public static final String WSDL_URL =
+            "http://localhost:8181/openbel-ws/belframework.wsdl";
+    public static final int EDGES = 1000000;
+    public static final long SEED = 1;
+
+    private static final Map<String, FixtureKamService> services =
+            new HashMap<String, FixtureKamService>();
+    private static int networks;
+
+    /**
+     * Returns the {@link FixtureKamService service} of the default
+     * {@value #EDGES} edge synthetic KAM.
+     *
+     * @return the {@link FixtureKamService service}
+     * @throws IOException Thrown if the KAM cannot be generated or opened
+     */
+    public static FixtureKamService kamService() throws IOException {
+        return kamService(EDGES, SEED);
+    }
+
+    /**
+     * Returns the {@link FixtureKamService service} of a synthetic KAM,
+     * generating its snapshot if no earlier run did.
+     *
+     * @param edges the edge count of the KAM
+     * @param seed the seed of the KAM
+     * @return the {@link FixtureKamService service}
+     * @throws IOException Thrown if the KAM cannot be generated or opened
+     */
+    public static synchronized FixtureKamService kamService(final int edges,
+            final long seed) throws IOException {
+        final String key = edges + ":" + seed;
+        FixtureKamService service = services.get(key);
+        if (service == null) {
+            final SyntheticKam generator = new SyntheticKam(edges, seed);
+            final File file = new File(System.getProperty("java.io.tmpdir"),
+                    generator.getKam().getName() + KamSnapshot.EXTENSION);
+            if (!file.exists()) {
+                generator.write(file);
+            }
+            service = new FixtureKamService(KamSnapshot.open(file));
+            services.put(key, service);
+        }
+        return service;
+    }
+
+    public static KamIdentifier kamId(final Kam kam) {
+        return new KamIdentifier(kam, WSDL_URL);
+    }
+
+    /**
+     * Returns the nodes of the KAM ordered by decreasing degree.
+     *
+     * @param snapshot the {@link KamSnapshot snapshot}
+     * @param count the number of nodes to return
+     * @return the {@link KamNode kam nodes} with the most edges
+     */
+    public static List<KamNode> hubs(final KamSnapshot snapshot,
+            final int count) {
+        final int[] degree = new int[snapshot.nodeCount()];
+        for (int e = 0; e < snapshot.edgeCount(); e++) {
+            degree[snapshot.source(e)]++;
+            degree[snapshot.target(e)]++;
+        }
+
+        // (degree, node) pairs, sorted ascending
+        final long[] order = new long[degree.length];
+        for (int n = 0; n < degree.length; n++) {
+            order[n] = ((long) degree[n] << 32) | n;
+        }
+        Arrays.sort(order);
+
+        final int size = Math.min(count, order.length);
+        final List<KamNode> ret = new ArrayList<KamNode>(size);
+        for (int i = 0; i < size; i++) {
+            ret.add(snapshot.node((int) order[order.length - 1 - i]));
+        }
+        return ret;
+    }
+
+    /**
+     * Loads the knowledge neighborhood of the KAM's hubs, one hub at a time
+     * through the {@link FixtureKamService service}, until it has
+     * {@code edges} edges.
+     *
+     * @param service the {@link FixtureKamService service}
+     * @param edges the number of edges wanted
+     * @return the {@link Neighborhood neighborhood}
+     */
+    public static Neighborhood neighborhood(final FixtureKamService service,
+            final int edges) {
+        final Map<String, KamEdge> found = new LinkedHashMap<String, KamEdge>();
+        final List<KamNode> selected = new ArrayList<KamNode>();
+        for (final KamNode hub : hubs(service.getSnapshot(), edges)) {
+            if (found.size() >= edges) {
+                break;
+            }
+            selected.add(hub);
+            for (final KamEdge edge : service.getAdjacentKamEdges(null, hub,
+                    EdgeDirectionType.BOTH, null)) {
+                found.put(edge.getId(), edge);
+            }
+        }
+
+        final List<KamEdge> ret = new ArrayList<KamEdge>(found.values());
+        return new Neighborhood(selected, ret.subList(0, Math.min(edges,
+                ret.size())));
+    }
+
+    /**
+     * Creates a network without a view.
+     *
+     * @return the {@link CyNetwork network}
+     */
+    public static synchronized CyNetwork createNetwork() {
+        return Cytoscape.createNetwork("benchmark " + (++networks), false);
+    }
+
+    public static void destroyNetwork(final CyNetwork network) {
+        if (network != null) {
+            Cytoscape.destroyNetwork(network);
+        }
+    }
+
+    /**
+     * The edges around a set of selected nodes, as loaded by the Knowledge
+     * Neighborhood dialog.
+     */
+    public static final class Neighborhood {
+        private final List<KamNode> selected;
+        private final List<KamEdge> edges;
+
+        private Neighborhood(final List<KamNode> selected,
+                final List<KamEdge> edges) {
+            this.selected = Collections.unmodifiableList(selected);
+            this.edges = Collections.unmodifiableList(
+                    new ArrayList<KamEdge>(edges));
+        }
+
+        public List<KamNode> getSelected() {
+            return selected;
+        }
+
+        public List<KamEdge> getEdges() {
+            return edges;
+        }
+
+        /**
+         * Returns the distinct end points of the edges.
+         *
+         * @return the {@link KamNode kam nodes}
+         */
+        public List<KamNode> getNodes() {
+            final Map<String, KamNode> ret = new LinkedHashMap<String, KamNode>();
+            for (final KamEdge edge : edges) {
+                ret.put(edge.getSource().getId(), edge.getSource());
+                ret.put(edge.getTarget().getId(), edge.getTarget());
+            }
+            return new ArrayList<KamNode>(ret.values());
+        }
+    }
+
+    private Fixtures() {
+        // static utility
+    }
+}
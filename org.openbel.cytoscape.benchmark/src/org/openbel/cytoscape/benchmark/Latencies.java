@@ -0,0 +1,86 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * {@link Latencies} collects request latencies, in nanoseconds, and reports
+ * their exact percentiles.  Each {@link LoadTest} analyst records into its
+ * own instance and the instances are merged for the report.
+ */
+class Latencies {
+    private long[] values = new long[1024];
+    private int size;
+    private long errors;
+    private boolean sorted;
+
+    synchronized void record(final long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+        sorted = false;
+    }
+
+    synchronized void error() {
+        errors++;
+    }
+
+    synchronized void addAll(final Latencies other) {
+        synchronized (other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2,
+                        size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+            errors += other.errors;
+            sorted = false;
+        }
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    synchronized long errors() {
+        return errors;
+    }
+
+    /**
+     * Returns the latency below which {@code percentile} percent of the
+     * recorded latencies fall, or 0 if none were recorded.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency in nanoseconds
+     */
+    synchronized long percentile(final double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(values, 0, size);
+            sorted = true;
+        }
+        final int rank = (int) Math.ceil(percentile / 100 * size);
+        return values[Math.max(0, Math.min(size, rank) - 1)];
+    }
+}
@@ -0,0 +1,661 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.openbel.cytoscape.standin.StandInServer;
+import org.openbel.cytoscape.webservice.ClientConnector;
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.cytoscape.webservice.TrafficRecorder;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+
+import cytoscape.data.webservice.WebServiceClientManager;
+
+/**
+ * {@link LoadTest} drives the plugin's {@link KamService} from many
+ * simulated analysts at once and reports throughput, latency percentiles,
+ * error rates and heap and GC activity.
+ *
+ * <p>
+ * Each analyst loads a KAM and then repeatedly searches for nodes, expands
+ * the neighborhood of nodes it has seen and fetches their supporting terms
+ * and evidence, choosing each step by the weights of the operation mix.
+ * Requests go through the same {@link KamServiceFactory service} stack the
+ * plugin uses, so its caches, pools and timeouts are part of the
+ * measurement.
+ * </p>
+ *
+ * <p>
+ * Without {@code -wsdl} an embedded {@link StandInServer stand-in} serving
+ * a synthetic KAM is started.  With {@code -replay} requests are answered
+ * from a {@link TrafficRecorder recording} instead.
+ * </p>
+ */
+public final class LoadTest {
+    private static final String USAGE = "usage: LoadTest [-wsdl url | "
+            + "-edges n -latency ms -jitter ms] [-kam name]\n"
+            + "    [-users n] [-duration s] [-warmup s] [-think ms]\n"
+            + "    [-mix search=2,load=1,expand=4,details=3] "
+            + "[-pattern regex]...\n"
+            + "    [-timeout s] [-request-threads n] [-pool-size n]\n"
+            + "    [-cache-entries n] [-cache-size mb] [-csv file]\n"
+            + "    [-record file | -replay file [-replay-fast]]";
+    // matches KamLoader
+    private static final long LOAD_POLL_MS = 1000;
+    // nodes and edges each analyst remembers to expand and detail
+    private static final int MEMORY = 1000;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    /**
+     * The steps of an analyst's session.
+     */
+    public enum Operation {
+        SEARCH, LOAD, EXPAND, DETAILS
+    }
+
+    private final KamService service;
+    private final String kamName;
+    private final int users;
+    private final long warmup;
+    private final long duration;
+    private final long think;
+    private final int[] weights;
+    private final List<String> patterns;
+    private final List<Analyst> analysts = new ArrayList<Analyst>();
+    private volatile boolean running;
+    private volatile boolean recording;
+
+    /**
+     * Creates a load test.
+     *
+     * @param service the {@link KamService service} to drive
+     * @param kamName the name of the KAM to load, or {@code null} for the
+     * first KAM of the catalog
+     * @param users the number of concurrent analysts
+     * @param warmup the time to run before recording, in milliseconds
+     * @param duration the time to record, in milliseconds
+     * @param think the pause between an analyst's requests, in milliseconds
+     * @param mix the relative weight of each {@link Operation operation}
+     * @param patterns the node label patterns analysts search for
+     */
+    public LoadTest(final KamService service, final String kamName,
+            final int users, final long warmup, final long duration,
+            final long think, final Map<Operation, Integer> mix,
+            final List<String> patterns) {
+        if (service == null) {
+            throw new IllegalArgumentException("service is null");
+        }
+        if (users < 1 || duration <= 0) {
+            throw new IllegalArgumentException("users or duration is not "
+                    + "positive");
+        }
+        if (patterns == null || patterns.isEmpty()) {
+            throw new IllegalArgumentException("patterns is empty");
+        }
+        this.service = service;
+        this.kamName = kamName;
+        this.users = users;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.think = think;
+        this.patterns = new ArrayList<String>(patterns);
+
+        final Operation[] ops = Operation.values();
+        this.weights = new int[ops.length];
+        int total = 0;
+        for (int i = 0; i < ops.length; i++) {
+            final Integer weight = mix.get(ops[i]);
+            total += weights[i] = weight == null ? 0 : weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("mix has no weight");
+        }
+    }
+
+    /**
+     * Runs the analysts for the warm-up and the recorded duration and
+     * returns the {@link Report report} of the recorded part.
+     *
+     * @return the {@link Report report}
+     * @throws InterruptedException Thrown if interrupted while waiting
+     */
+    public Report run() throws InterruptedException {
+        running = true;
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < users; i++) {
+            final Analyst analyst = new Analyst(i);
+            analysts.add(analyst);
+            final Thread thread = new Thread(analyst, "analyst " + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(warmup);
+        final Report report = new Report();
+        report.start();
+        recording = true;
+        Thread.sleep(duration);
+        recording = false;
+        report.stop();
+        running = false;
+
+        // requests still in flight are no longer recorded, do not wait for
+        // them longer than the request timeout
+        final long deadline = System.currentTimeMillis()
+                + Configuration.getInstance().getTimeout() * 1000L;
+        for (final Thread thread : threads) {
+            thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        for (final Analyst analyst : analysts) {
+            for (final Operation op : Operation.values()) {
+                report.latencies(op).addAll(analyst.latencies.get(op));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * A simulated analyst, one per thread.
+     */
+    private final class Analyst implements Runnable {
+        private final Random random;
+        private final Map<Operation, Latencies> latencies =
+                new EnumMap<Operation, Latencies>(Operation.class);
+        private final List<KamNode> nodes = new ArrayList<KamNode>();
+        private final List<KamEdge> edges = new ArrayList<KamEdge>();
+        private KamHandle kamHandle;
+        private DialectHandle dialectHandle;
+
+        private Analyst(final int index) {
+            this.random = new Random(index);
+            for (final Operation op : Operation.values()) {
+                latencies.put(op, new Latencies());
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                final Operation op = next();
+                final long start = System.nanoTime();
+                try {
+                    perform(op);
+                    if (recording) {
+                        latencies.get(op).record(System.nanoTime() - start);
+                    }
+                } catch (RuntimeException e) {
+                    if (recording) {
+                        latencies.get(op).error();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                if (think > 0) {
+                    try {
+                        Thread.sleep(think);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Picks the next operation by weight.  Steps that need an earlier
+         * step, a loaded KAM or known nodes, fall back to that step.
+         */
+        private Operation next() {
+            if (kamHandle == null) {
+                return Operation.LOAD;
+            }
+
+            int pick = random.nextInt(sum(weights));
+            Operation op = Operation.values()[0];
+            for (int i = 0; i < weights.length; i++) {
+                if ((pick -= weights[i]) < 0) {
+                    op = Operation.values()[i];
+                    break;
+                }
+            }
+            if (nodes.isEmpty()
+                    && (op == Operation.EXPAND || op == Operation.DETAILS)) {
+                return Operation.SEARCH;
+            }
+            return op;
+        }
+
+        private void perform(final Operation op) throws InterruptedException {
+            switch (op) {
+            case LOAD:
+                load();
+                break;
+            case SEARCH:
+                final String pattern = patterns.get(random.nextInt(patterns
+                        .size()));
+                for (final KamNode node : service.findKamNodesByPatterns(
+                        kamHandle, dialectHandle, pattern, null)) {
+                    remember(nodes, node);
+                }
+                break;
+            case EXPAND:
+                for (final KamEdge edge : service.getAdjacentKamEdges(
+                        dialectHandle, pick(nodes), EdgeDirectionType.BOTH,
+                        null)) {
+                    remember(edges, edge);
+                    remember(nodes, edge.getSource());
+                    remember(nodes, edge.getTarget());
+                }
+                break;
+            case DETAILS:
+                if (!edges.isEmpty() && random.nextBoolean()) {
+                    service.getSupportingEvidence(pick(edges));
+                } else {
+                    service.getSupportingTerms(pick(nodes));
+                }
+                break;
+            }
+        }
+
+        /**
+         * Loads the KAM as {@code KamLoader} does, polling until the Web API
+         * has finished loading it, and starts a new session.
+         */
+        private void load() throws InterruptedException {
+            final Kam kam = findKam();
+            LoadKamResponse res = service.loadKam(kam);
+            while (running && res.getLoadStatus() == KAMLoadStatus.IN_PROCESS) {
+                Thread.sleep(LOAD_POLL_MS);
+                res = service.loadKam(kam);
+            }
+            if (res.getLoadStatus() != KAMLoadStatus.COMPLETE) {
+                throw new IllegalStateException("KAM " + kam.getName()
+                        + " did not load");
+            }
+
+            kamHandle = res.getHandle();
+            dialectHandle = service.getDefaultDialect(kamHandle);
+            nodes.clear();
+            edges.clear();
+        }
+
+        private Kam findKam() {
+            for (final Kam kam : service.getCatalog()) {
+                if (kamName == null || kamName.equals(kam.getName())) {
+                    return kam;
+                }
+            }
+            throw new IllegalStateException("KAM "
+                    + (kamName == null ? "" : kamName + " ")
+                    + "not in catalog");
+        }
+
+        private <T> void remember(final List<T> memory, final T item) {
+            if (memory.size() < MEMORY) {
+                memory.add(item);
+            } else {
+                memory.set(random.nextInt(MEMORY), item);
+            }
+        }
+
+        private <T> T pick(final List<T> memory) {
+            return memory.get(random.nextInt(memory.size()));
+        }
+    }
+
+    /**
+     * The results of a {@link LoadTest load test}: latencies and errors per
+     * {@link Operation operation}, and the heap and GC activity while
+     * recording.
+     */
+    public static final class Report {
+        private final Map<Operation, Latencies> latencies =
+                new EnumMap<Operation, Latencies>(Operation.class);
+        private final Map<String, long[]> gc =
+                new LinkedHashMap<String, long[]>();
+        private long startedAt;
+        private long elapsed;
+        private long heapPeak;
+        private MemoryUsage heap;
+
+        private Report() {
+            for (final Operation op : Operation.values()) {
+                latencies.put(op, new Latencies());
+            }
+        }
+
+        private Latencies latencies(final Operation op) {
+            return latencies.get(op);
+        }
+
+        private void start() {
+            for (final MemoryPoolMXBean pool : ManagementFactory
+                    .getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+            for (final GarbageCollectorMXBean gcBean : ManagementFactory
+                    .getGarbageCollectorMXBeans()) {
+                gc.put(gcBean.getName(), new long[] {
+                        gcBean.getCollectionCount(),
+                        gcBean.getCollectionTime() });
+            }
+            startedAt = System.nanoTime();
+        }
+
+        private void stop() {
+            elapsed = System.nanoTime() - startedAt;
+            for (final GarbageCollectorMXBean gcBean : ManagementFactory
+                    .getGarbageCollectorMXBeans()) {
+                final long[] before = gc.get(gcBean.getName());
+                if (before != null) {
+                    before[0] = gcBean.getCollectionCount() - before[0];
+                    before[1] = gcBean.getCollectionTime() - before[1];
+                }
+            }
+            for (final MemoryPoolMXBean pool : ManagementFactory
+                    .getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPeak += pool.getPeakUsage().getUsed();
+                }
+            }
+            heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        }
+
+        /**
+         * Prints the report as a table.
+         *
+         * @param out the {@link PrintWriter writer} to print to
+         */
+        public void print(final PrintWriter out) {
+            final double seconds = elapsed / 1e9;
+            out.printf(Locale.US, "%-8s %9s %7s %9s", "op", "calls",
+                    "errors", "req/s");
+            for (final double p : PERCENTILES) {
+                out.printf(Locale.US, " %9s", "p" + format(p) + " ms");
+            }
+            out.printf(Locale.US, " %9s%n", "max ms");
+
+            final Latencies total = new Latencies();
+            for (final Operation op : Operation.values()) {
+                print(out, op.name().toLowerCase(Locale.US), latencies.get(op),
+                        seconds);
+                total.addAll(latencies.get(op));
+            }
+            print(out, "total", total, seconds);
+
+            out.println();
+            out.printf(Locale.US, "heap: %d MB used, %d MB peak, "
+                    + "%d MB committed, %d MB max%n", mb(heap.getUsed()),
+                    mb(heapPeak), mb(heap.getCommitted()), mb(heap.getMax()));
+            for (final Map.Entry<String, long[]> e : gc.entrySet()) {
+                out.printf(Locale.US, "gc %s: %d collections, %d ms%n",
+                        e.getKey(), e.getValue()[0], e.getValue()[1]);
+            }
+            out.flush();
+        }
+
+        /**
+         * Writes one line per operation, and a total line, as CSV.
+         *
+         * @param file the CSV {@link File file}
+         * @throws IOException Thrown if the file cannot be written
+         */
+        public void writeCSV(final File file) throws IOException {
+            final double seconds = elapsed / 1e9;
+            final PrintWriter out = new PrintWriter(new FileWriter(file));
+            try {
+                out.print("operation,calls,errors,throughput");
+                for (final double p : PERCENTILES) {
+                    out.print(",p" + format(p).replace('.', '_') + "_ms");
+                }
+                out.println(",max_ms");
+
+                final Latencies total = new Latencies();
+                for (final Operation op : Operation.values()) {
+                    csv(out, op.name().toLowerCase(Locale.US),
+                            latencies.get(op), seconds);
+                    total.addAll(latencies.get(op));
+                }
+                csv(out, "total", total, seconds);
+            } finally {
+                out.close();
+            }
+        }
+
+        private static void print(final PrintWriter out, final String name,
+                final Latencies l, final double seconds) {
+            out.printf(Locale.US, "%-8s %9d %7d %9.1f", name, l.count(),
+                    l.errors(), l.count() / seconds);
+            for (final double p : PERCENTILES) {
+                out.printf(Locale.US, " %9.1f", l.percentile(p) / 1e6);
+            }
+            out.printf(Locale.US, " %9.1f%n", l.percentile(100) / 1e6);
+        }
+
+        private static void csv(final PrintWriter out, final String name,
+                final Latencies l, final double seconds) {
+            out.printf(Locale.US, "%s,%d,%d,%.2f", name, l.count(),
+                    l.errors(), l.count() / seconds);
+            for (final double p : PERCENTILES) {
+                out.printf(Locale.US, ",%.3f", l.percentile(p) / 1e6);
+            }
+            out.printf(Locale.US, ",%.3f%n", l.percentile(100) / 1e6);
+        }
+
+        private static String format(final double p) {
+            return p == (long) p ? Long.toString((long) p) : Double
+                    .toString(p);
+        }
+
+        private static long mb(final long bytes) {
+            return bytes / (1024 * 1024);
+        }
+    }
+
+    private static int sum(final int[] values) {
+        int ret = 0;
+        for (final int v : values) {
+            ret += v;
+        }
+        return ret;
+    }
+
+    /**
+     * Parses an operation mix such as {@code search=2,load=1,expand=4}.
+     */
+    private static Map<Operation, Integer> parseMix(final String mix) {
+        final Map<Operation, Integer> ret = new EnumMap<Operation, Integer>(
+                Operation.class);
+        for (final String entry : mix.split(",")) {
+            final String[] kv = entry.split("=");
+            ret.put(Operation.valueOf(kv[0].trim().toUpperCase(Locale.US)),
+                    Integer.parseInt(kv[1].trim()));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the default search patterns: proteins whose HGNC symbol starts
+     * with each two letter prefix.
+     */
+    private static List<String> defaultPatterns() {
+        final List<String> ret = new ArrayList<String>();
+        for (char a = 'A'; a <= 'Z'; a++) {
+            for (char b = 'A'; b <= 'Z'; b++) {
+                ret.add("p\\(HGNC:" + a + b + ".*");
+            }
+        }
+        return ret;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Configuration cfg = Configuration.getInstance();
+        String wsdl = null;
+        int edges = Fixtures.EDGES;
+        long latency = 0;
+        long jitter = 0;
+        String kamName = null;
+        int users = 16;
+        long duration = 60;
+        long warmup = 10;
+        long think = 0;
+        Map<Operation, Integer> mix = parseMix(
+                "search=2,load=1,expand=4,details=3");
+        final List<String> patterns = new ArrayList<String>();
+        File csv = null;
+        File record = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if ("-wsdl".equals(arg)) {
+                    wsdl = args[++i];
+                } else if ("-edges".equals(arg)) {
+                    edges = Integer.parseInt(args[++i]);
+                } else if ("-latency".equals(arg)) {
+                    latency = Long.parseLong(args[++i]);
+                } else if ("-jitter".equals(arg)) {
+                    jitter = Long.parseLong(args[++i]);
+                } else if ("-kam".equals(arg)) {
+                    kamName = args[++i];
+                } else if ("-users".equals(arg)) {
+                    users = Integer.parseInt(args[++i]);
+                } else if ("-duration".equals(arg)) {
+                    duration = Long.parseLong(args[++i]);
+                } else if ("-warmup".equals(arg)) {
+                    warmup = Long.parseLong(args[++i]);
+                } else if ("-think".equals(arg)) {
+                    think = Long.parseLong(args[++i]);
+                } else if ("-mix".equals(arg)) {
+                    mix = parseMix(args[++i]);
+                } else if ("-pattern".equals(arg)) {
+                    patterns.add(args[++i]);
+                } else if ("-timeout".equals(arg)) {
+                    cfg.setTimeout(Integer.valueOf(args[++i]));
+                } else if ("-request-threads".equals(arg)) {
+                    cfg.setRequestThreads(Integer.valueOf(args[++i]));
+                } else if ("-pool-size".equals(arg)) {
+                    cfg.setClientPoolSize(Integer.valueOf(args[++i]));
+                } else if ("-cache-entries".equals(arg)) {
+                    cfg.setCacheEntries(Integer.valueOf(args[++i]));
+                } else if ("-cache-size".equals(arg)) {
+                    cfg.setCacheSize(Integer.valueOf(args[++i]));
+                } else if ("-csv".equals(arg)) {
+                    csv = new File(args[++i]);
+                } else if ("-record".equals(arg)) {
+                    record = new File(args[++i]);
+                } else if ("-replay".equals(arg)) {
+                    System.setProperty(KamServiceFactory.REPLAY_PROPERTY,
+                            args[++i]);
+                } else if ("-replay-fast".equals(arg)) {
+                    System.setProperty(
+                            KamServiceFactory.REPLAY_LATENCY_PROPERTY, "none");
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            // unknown option, or missing or malformed option value
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (patterns.isEmpty()) {
+            patterns.addAll(defaultPatterns());
+        }
+
+        final boolean replay = System
+                .getProperty(KamServiceFactory.REPLAY_PROPERTY) != null;
+        StandInServer server = null;
+        if (wsdl == null && !replay) {
+            final KamSnapshot snapshot = Fixtures.kamService(edges,
+                    Fixtures.SEED).getSnapshot();
+            server = new StandInServer(0, Collections.singletonList(snapshot),
+                    latency, jitter, 0);
+            server.start();
+            wsdl = server.getWSDLURL();
+        }
+
+        if (replay) {
+            wsdl = System.getProperty(KamServiceFactory.REPLAY_PROPERTY);
+        } else {
+            cfg.setWSDLURL(wsdl);
+            final ClientConnector connector = ClientConnector.getInstance();
+            WebServiceClientManager.registerClient(connector);
+            connector.reconfigure();
+            if (!connector.isValid()) {
+                System.err.println("Cannot connect to " + wsdl);
+                System.exit(1);
+            }
+        }
+        if (record != null) {
+            TrafficRecorder.getInstance().start(record);
+        }
+
+        System.out.printf(Locale.US, "%s: %d users, %d s warm-up, %d s, "
+                + "mix %s, %d request threads, %d clients, %d s timeout%n",
+                wsdl, users, warmup, duration, mix, cfg.getRequestThreads(),
+                cfg.getClientPoolSize(), cfg.getTimeout());
+
+        final LoadTest test = new LoadTest(KamServiceFactory.getInstance()
+                .getKAMService(), kamName, users, warmup * 1000,
+                duration * 1000, think, mix, patterns);
+        final Report report = test.run();
+        report.print(new PrintWriter(System.out));
+        if (csv != null) {
+            report.writeCSV(csv);
+        }
+
+        TrafficRecorder.getInstance().stop();
+        if (server != null) {
+            server.stop();
+        }
+        // the request pool threads are not daemons
+        System.exit(0);
+    }
+}
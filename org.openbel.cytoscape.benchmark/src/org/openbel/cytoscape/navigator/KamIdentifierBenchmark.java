@@ -0,0 +1,110 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openbel.cytoscape.benchmark.FixtureKamService;
+import org.openbel.cytoscape.benchmark.Fixtures;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cytoscape.CyNetwork;
+import cytoscape.CyNode;
+
+/**
+ * Benchmarks creating, hashing and looking up {@link KamIdentifier kam
+ * identifiers}, which the navigator does for every KAM in the catalog and
+ * every selected node.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class KamIdentifierBenchmark {
+    // KAMs in the lookup map, as in a catalog of a few dozen KAMs
+    private static final int CATALOG = 32;
+
+    private Kam kam;
+    private KamIdentifier kamId;
+    private CyNetwork network;
+    private CyNode cynode;
+    private Map<KamIdentifier, Kam> catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final FixtureKamService service = Fixtures.kamService();
+        kam = service.getKam();
+        kamId = Fixtures.kamId(kam);
+
+        final KamNode node = service.getSnapshot().node(0);
+        network = Fixtures.createNetwork();
+        cynode = NetworkUtility.addNode(network, kamId, node);
+
+        catalog = new HashMap<KamIdentifier, Kam>();
+        for (int i = 0; i < CATALOG; i++) {
+            catalog.put(new KamIdentifier(kam, Fixtures.WSDL_URL + "?" + i),
+                    kam);
+        }
+        catalog.put(kamId, kam);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.destroyNetwork(network);
+    }
+
+    @Benchmark
+    public KamIdentifier fromKam() {
+        return new KamIdentifier(kam, Fixtures.WSDL_URL);
+    }
+
+    @Benchmark
+    public KamIdentifier fromCyNode() {
+        return new KamIdentifier(cynode);
+    }
+
+    @Benchmark
+    public int hash() {
+        return kamId.hashCode();
+    }
+
+    @Benchmark
+    public Kam lookup() {
+        return catalog.get(new KamIdentifier(kam, Fixtures.WSDL_URL));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openbel.cytoscape.benchmark.FixtureKamService;
+import org.openbel.cytoscape.benchmark.Fixtures;
+import org.openbel.cytoscape.benchmark.Fixtures.Neighborhood;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cytoscape.CyNetwork;
+import cytoscape.CyNode;
+
+/**
+ * Benchmarks adding KAM elements to a network through {@link NetworkUtility}
+ * and reading them back.
+ *
+ * <p>
+ * The writes add the neighborhood of the synthetic KAM's hubs to a fresh
+ * network on each invocation; the reads map the nodes of a network built
+ * once per trial.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class NetworkUtilityBenchmark {
+    @Param({ "1000", "10000" })
+    public int edges;
+
+    private KamIdentifier kamId;
+    private List<KamNode> kamNodes;
+    private List<KamEdge> kamEdges;
+    private CyNetwork populated;
+    private List<CyNode> cynodes;
+    private CyNetwork network;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final FixtureKamService service = Fixtures.kamService();
+        final Neighborhood neighborhood = Fixtures.neighborhood(service, edges);
+        kamId = Fixtures.kamId(service.getKam());
+        kamEdges = neighborhood.getEdges();
+        kamNodes = neighborhood.getNodes();
+
+        populated = Fixtures.createNetwork();
+        NetworkUtility.batch(populated, kamId).addEdges(kamEdges).apply();
+        @SuppressWarnings("unchecked")
+        final List<CyNode> nodes = populated.nodesList();
+        cynodes = new ArrayList<CyNode>(nodes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.destroyNetwork(populated);
+    }
+
+    @Setup(Level.Invocation)
+    public void createNetwork() {
+        network = Fixtures.createNetwork();
+    }
+
+    @TearDown(Level.Invocation)
+    public void destroyNetwork() {
+        Fixtures.destroyNetwork(network);
+    }
+
+    @Benchmark
+    public CyNetwork addNode() {
+        for (final KamNode node : kamNodes) {
+            NetworkUtility.addNode(network, kamId, node);
+        }
+        return network;
+    }
+
+    @Benchmark
+    public CyNetwork addEdge() {
+        for (final KamEdge edge : kamEdges) {
+            NetworkUtility.addEdge(network, kamId, edge);
+        }
+        return network;
+    }
+
+    @Benchmark
+    public CyNetwork batch() {
+        NetworkUtility.batch(network, kamId).addEdges(kamEdges).apply();
+        return network;
+    }
+
+    @Benchmark
+    public Map<KamIdentifier, Set<CyNode>> getKamNodeIds() {
+        return NetworkUtility.getKamNodeIds(cynodes);
+    }
+
+    @Benchmark
+    public Set<KamNode> getKAMNodes() {
+        return NetworkUtility.getKAMNodes(cynodes);
+    }
+}
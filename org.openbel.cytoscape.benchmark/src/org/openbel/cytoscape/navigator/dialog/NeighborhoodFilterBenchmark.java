@@ -0,0 +1,118 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.dialog;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.table.TableRowSorter;
+
+import org.openbel.cytoscape.benchmark.Fixtures;
+import org.openbel.cytoscape.benchmark.Fixtures.Neighborhood;
+import org.openbel.cytoscape.navigator.dialog.KnowledgeNeighborhoodDialog.EdgeRowFilter;
+import org.openbel.cytoscape.navigator.dialog.KnowledgeNeighborhoodDialog.EdgeTableModel;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks filtering the {@link KnowledgeNeighborhoodDialog knowledge
+ * neighborhood} table, which is refiltered on every keystroke in the label
+ * fields and every change of the filter combo boxes.
+ *
+ * <p>
+ * The criteria are taken from the first edge of the neighborhood so every
+ * filter matches some rows.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class NeighborhoodFilterBenchmark {
+    @Param({ "100000" })
+    public int edges;
+
+    @Param({ "none", "function", "relationship", "direction", "label", "all" })
+    public String criteria;
+
+    private TableRowSorter<EdgeTableModel> sorter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Neighborhood neighborhood = Fixtures.neighborhood(
+                Fixtures.kamService(), edges);
+        final Set<String> selectedKamNodeIds = new HashSet<String>();
+        for (final KamNode node : neighborhood.getSelected()) {
+            selectedKamNodeIds.add(node.getId());
+        }
+
+        final EdgeTableModel model = new EdgeTableModel();
+        model.addEdges(neighborhood.getEdges());
+
+        final KamEdge sample = neighborhood.getEdges().get(0);
+        final String label = sample.getTarget().getLabel();
+        final String fragment = label.substring(0, Math.min(3, label.length()));
+
+        final EdgeRowFilter filter = new EdgeRowFilter(selectedKamNodeIds);
+        if ("function".equals(criteria)) {
+            filter.update(null, sample.getTarget().getFunction(), null,
+                    EdgeDirectionType.BOTH, null, null);
+        } else if ("relationship".equals(criteria)) {
+            filter.update(null, null, sample.getRelationship(),
+                    EdgeDirectionType.BOTH, null, null);
+        } else if ("direction".equals(criteria)) {
+            filter.update(null, null, null, EdgeDirectionType.FORWARD, null,
+                    null);
+        } else if ("label".equals(criteria)) {
+            filter.update(null, null, null, EdgeDirectionType.BOTH, null,
+                    fragment);
+        } else if ("all".equals(criteria)) {
+            filter.update(sample.getSource().getFunction(), sample.getTarget()
+                    .getFunction(), sample.getRelationship(),
+                    EdgeDirectionType.BOTH, null, fragment);
+        }
+
+        sorter = new TableRowSorter<EdgeTableModel>(model);
+        sorter.setRowFilter(filter);
+    }
+
+    @Benchmark
+    public int filter() {
+        sorter.sort();
+        return sorter.getViewRowCount();
+    }
+}
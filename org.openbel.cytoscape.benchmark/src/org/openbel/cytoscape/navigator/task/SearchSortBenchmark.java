@@ -0,0 +1,84 @@
+/*
+ * KAM Navigator Benchmarks
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openbel.cytoscape.benchmark.Fixtures;
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.framework.ws.model.KamNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the label sort applied to search results by
+ * {@link AbstractSearchKamTask}.  {@link #copy()} measures the copy each
+ * sort starts from, to be subtracted from {@link #sortByLabel()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class SearchSortBenchmark {
+    @Param({ "10000", "100000" })
+    public int nodes;
+
+    private List<KamNode> results;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final KamSnapshot snapshot = Fixtures.kamService().getSnapshot();
+        final int size = Math.min(nodes, snapshot.nodeCount());
+        results = new ArrayList<KamNode>(size);
+        for (int n = 0; n < size; n++) {
+            results.add(snapshot.node(n));
+        }
+        Collections.shuffle(results, new Random(Fixtures.SEED));
+    }
+
+    @Benchmark
+    public List<KamNode> copy() {
+        return new ArrayList<KamNode>(results);
+    }
+
+    @Benchmark
+    public List<KamNode> sortByLabel() {
+        final List<KamNode> sorted = new ArrayList<KamNode>(results);
+        AbstractSearchKamTask.sortByLabel(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.framework.ws.model.Kam;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link KamCatalog} caches the {@link Kam KAM} catalog of the configured
+ * Web API and indexes it by {@link KamIdentifier}.
+ *
+ * <p>
+ * The catalog is fetched synchronously the first time it is needed or when
+ * the configured WSDL changes.  Once older than
+ * {@link Configuration#getCatalogTTL()} the cached copy is still returned
+ * immediately while a fresh copy is fetched in the background.
+ * </p>
+ */
+public class KamCatalog {
+    private static final CyLogger log = CyLogger.getLogger(KamCatalog.class);
+    private static KamCatalog instance;
+
+    private final KamService kamService;
+    private List<Kam> kams = Collections.emptyList();
+    private Map<KamIdentifier, Kam> index = Collections.emptyMap();
+    private String wsdlUrl;
+    private long fetchedAt;
+    private boolean refreshing = false;
+
+    public static synchronized KamCatalog getInstance() {
+        if (instance == null) {
+            instance = new KamCatalog();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the {@link Kam KAMs} of the catalog.  The returned list is a
+     * copy and can be freely modified.
+     *
+     * @return the {@link List list} of {@link Kam KAMs}
+     */
+    public List<Kam> getKams() {
+        synchronized (this) {
+            if (isCurrent()) {
+                refreshIfStale();
+                return new ArrayList<Kam>(kams);
+            }
+        }
+
+        refresh();
+        synchronized (this) {
+            return new ArrayList<Kam>(kams);
+        }
+    }
+
+    /**
+     * Finds the {@link Kam KAM} identified by {@code kamId}.  If the KAM is
+     * not in the cached catalog, the catalog is fetched once more in case
+     * the KAM was compiled after the last fetch.
+     *
+     * @param kamId the {@link KamIdentifier kam identifier}
+     * @return the {@link Kam KAM}, or {@code null} if it is not in the catalog
+     */
+    public Kam getKam(KamIdentifier kamId) {
+        if (kamId == null) {
+            throw new IllegalArgumentException("kamId is null");
+        }
+
+        synchronized (this) {
+            if (isCurrent()) {
+                refreshIfStale();
+                Kam kam = index.get(kamId);
+                if (kam != null) {
+                    return kam;
+                }
+            }
+        }
+
+        refresh();
+        synchronized (this) {
+            return index.get(kamId);
+        }
+    }
+
+    /**
+     * Discards the cached catalog, the next lookup will fetch it again.
+     */
+    public synchronized void invalidate() {
+        wsdlUrl = null;
+    }
+
+    /**
+     * Fetches the catalog from the Web API and replaces the cached copy.
+     */
+    public void refresh() {
+        String url = Configuration.getInstance().getWSDLURL();
+        List<Kam> fetched = kamService.getCatalog();
+
+        Map<KamIdentifier, Kam> fetchedIndex = new HashMap<KamIdentifier, Kam>(
+                fetched.size() * 2);
+        for (Kam kam : fetched) {
+            KamIdentifier kamId = new KamIdentifier(kam, url);
+            fetchedIndex.put(kamId, kam);
+            // drops search results of recompiled KAMs
+            SearchResultCache.getInstance().observe(kamId);
+        }
+
+        synchronized (this) {
+            this.kams = new ArrayList<Kam>(fetched);
+            this.index = fetchedIndex;
+            this.wsdlUrl = url;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+    }
+
+    private boolean isCurrent() {
+        return wsdlUrl != null
+                && wsdlUrl.equals(Configuration.getInstance().getWSDLURL());
+    }
+
+    private void refreshIfStale() {
+        long ttl = Configuration.getInstance().getCatalogTTL() * 1000L;
+        if (refreshing || System.currentTimeMillis() - fetchedAt < ttl) {
+            return;
+        }
+
+        refreshing = true;
+        try {
+            NavigatorExecutor.getInstance().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        // keep serving the cached copy
+                        log.warn("Error refreshing KAM catalog", e);
+                    } finally {
+                        synchronized (KamCatalog.this) {
+                            refreshing = false;
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // busy, try again on the next lookup
+            refreshing = false;
+        }
+    }
+
+    private KamCatalog() {
+        // singleton. use get instance
+        this.kamService = KamServiceFactory.getInstance().getKAMService();
+    }
+}
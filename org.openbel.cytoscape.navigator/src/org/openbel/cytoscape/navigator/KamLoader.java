@@ -19,8 +19,6 @@
  */
 package org.openbel.cytoscape.navigator;
 
-import java.util.List;
-
 import org.openbel.cytoscape.webservice.Configuration;
 import org.openbel.cytoscape.webservice.KamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
@@ -59,16 +57,7 @@ public class KamLoader {
                     + " does not match KAM WSDL " + kamId.getWsdlUrl());
         }
 
-        List<Kam> kamCatalog = kamService.getCatalog();
-        Kam kam = null;
-        for (Kam k : kamCatalog) {
-            if (k.getName().equals(kamId.getName())
-                    && k.getLastCompiled().toGregorianCalendar()
-                            .getTimeInMillis() == kamId.getCompiledTime()) {
-                kam = k;
-                break;
-            }
-        }
+        Kam kam = KamCatalog.getInstance().getKam(kamId);
         if (kam == null) {
             throw new KAMLoadException("Couldn't find KAM " + kamId.getName()
                     + " in KAM catalog");
@@ -117,9 +106,19 @@ public class KamLoader {
         if (kamHandle == null) {
             return;
         }
-        // load default dialect handle
-        DialectHandle dialectHandle = kamService.getDefaultDialect(kamHandle);
-        KamSession.getInstance().addKam(kam, kamHandle, dialectHandle);
+        KamSession session = KamSession.getInstance();
+        KamIdentifier kamId = new KamIdentifier(kam, Configuration
+                .getInstance().getWSDLURL());
+
+        // reuse the default dialect handle if the kam handle has not changed
+        DialectHandle dialectHandle = session.getDialectHandle(kamId);
+        KamHandle knownHandle = session.getKamHandle(kamId);
+        if (dialectHandle == null || knownHandle == null
+                || !knownHandle.getHandle().equals(kamHandle.getHandle())) {
+            // load default dialect handle
+            dialectHandle = kamService.getDefaultDialect(kamHandle);
+        }
+        session.addKam(kam, kamHandle, dialectHandle);
     }
 
     public static class KAMLoadException extends Exception {
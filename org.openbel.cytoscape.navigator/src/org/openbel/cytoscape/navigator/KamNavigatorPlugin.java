@@ -33,9 +33,13 @@ import java.net.URISyntaxException;
 
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 
 import org.openbel.cytoscape.navigator.dialog.SearchKamDialog;
 import org.openbel.cytoscape.navigator.dialog.SearchKamListDialog;
+import org.openbel.cytoscape.navigator.task.KamTasks;
+import org.openbel.cytoscape.webservice.ServiceUnavailableException;
+import org.openbel.cytoscape.webservice.TrafficRecorder;
 import org.openbel.cytoscape.webservice.dialog.SettingsDialog;
 
 import cytoscape.CyNetwork;
@@ -43,7 +47,9 @@ import cytoscape.Cytoscape;
 import cytoscape.CytoscapeVersion;
 import cytoscape.logger.CyLogger;
 import cytoscape.plugin.CytoscapePlugin;
+import cytoscape.util.CyFileFilter;
 import cytoscape.util.CytoscapeAction;
+import cytoscape.util.FileUtil;
 import cytoscape.view.CyNetworkView;
 import cytoscape.view.CytoscapeDesktop;
 import cytoscape.visual.CalculatorCatalog;
@@ -58,6 +64,8 @@ import cytoscape.visual.VisualStyle;
  * <li>Add KAM nodes to network with
  * Plugins -> KAM Navigator -> Add KAM Nodes</li>
  * <li>Expand existing network nodes with context-sensitive node actions</li>
+ * <li>Export the KAM of a network for offline use with
+ * Plugins -> KAM Navigator -> Export KAM Snapshot</li>
  * </ul>
  *
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
@@ -137,11 +145,17 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
         // add "Add Kam List" action to submenu
         kiMenu.add(new SearchKAMListDialogAction());
 
+        // add "Export KAM Snapshot" action to submenu
+        kiMenu.add(new ExportSnapshotAction());
+
         // add separator before bel configuration entry
         kiMenu.addSeparator();
 
         // add to "KAM Navigator" menu if KAM Plugin is available
         kiMenu.add(new SettingsDialogAction());
+
+        // add "Record Web API Traffic" action to submenu
+        kiMenu.add(new RecordTrafficAction());
         
         // add "Send Feedback" action to submenu
         JMenuItem feedbackItem = kiMenu.add(new FeedbackMailToAction());
@@ -179,6 +193,7 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
         JMenu kiMenu = getKamPluginMenu();
         JMenuItem addNodesItem = kiMenu.getItem(0);
         JMenuItem addListItem = kiMenu.getItem(1);
+        JMenuItem exportItem = kiMenu.getItem(2);
 
         boolean hasNetworks = !Cytoscape.getNetworkSet().isEmpty();
         
@@ -190,6 +205,22 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
         // disable / enable items that require networks
         addNodesItem.setEnabled(hasNetworks);
         addListItem.setEnabled(hasNetworks);
+        exportItem.setEnabled(hasNetworks);
+    }
+
+    /**
+     * Reports that the BEL Framework Web API could not be reached.
+     * 
+     * @param e the {@link ServiceUnavailableException exception} raised by
+     * the kam service
+     */
+    private static void showConnectionError(ServiceUnavailableException e) {
+        log.warn("Error connecting to the BEL Framework Web Services", e);
+        JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
+                "Error connecting to the BEL Framework Web Services.\n"
+                        + "Please check the BEL Framework Web Services "
+                        + "Configuration.", "Connection Error",
+                JOptionPane.ERROR_MESSAGE);
     }
 
     private static JMenu getKamPluginMenu() {
@@ -361,8 +392,12 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
          */
         @Override
         public void actionPerformed(ActionEvent event) {
-            SearchKamDialog kcdialog = new SearchKamDialog();
-            kcdialog.setVisible(true);
+            try {
+                SearchKamDialog kcdialog = new SearchKamDialog();
+                kcdialog.setVisible(true);
+            } catch (ServiceUnavailableException e) {
+                showConnectionError(e);
+            }
         }
     }
 
@@ -383,8 +418,40 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
          */
         @Override
         public void actionPerformed(ActionEvent event) {
-            SearchKamListDialog dialog = new SearchKamListDialog();
-            dialog.setVisible(true);
+            try {
+                SearchKamListDialog dialog = new SearchKamListDialog();
+                dialog.setVisible(true);
+            } catch (ServiceUnavailableException e) {
+                showConnectionError(e);
+            }
+        }
+    }
+
+    /**
+     * The {@link CytoscapeAction action} to export the KAM of the current
+     * network to a snapshot file.
+     */
+    private static final class ExportSnapshotAction extends CytoscapeAction {
+        private static final long serialVersionUID = -2877042468411409383L;
+
+        public ExportSnapshotAction() {
+            super("Export KAM Snapshot");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            KamIdentifier kamId = KamSession.getInstance()
+                    .getCurrentNetworkKamIdentifier();
+            if (kamId == null) {
+                JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
+                        "The current network has no KAM nodes.",
+                        "Export KAM Snapshot", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            KamTasks.exportSnapshot(kamId);
         }
     }
 
@@ -411,4 +478,54 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
             settingsDialog.setVisible(true);
         }
     }
+
+    /**
+     * The {@link CytoscapeAction action} to start and stop
+     * {@link TrafficRecorder recording} the requests sent to the BELFramework
+     * Web API.
+     */
+    private static final class RecordTrafficAction extends CytoscapeAction {
+        private static final long serialVersionUID = 2718530391738652214L;
+        private static final String START = "Record Web API Traffic";
+        private static final String STOP = "Stop Recording Web API Traffic";
+
+        public RecordTrafficAction() {
+            super(TrafficRecorder.getInstance().isRecording() ? STOP : START);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            TrafficRecorder recorder = TrafficRecorder.getInstance();
+            if (recorder.isRecording()) {
+                recorder.stop();
+            } else {
+                File file = FileUtil.getFile("Record Web API traffic to",
+                        FileUtil.SAVE, new CyFileFilter[] { new CyFileFilter(
+                                new String[] { TrafficRecorder.EXTENSION },
+                                "Web API recordings") });
+                if (file == null) {
+                    // no file was selected
+                    return;
+                }
+                if (!file.getName().contains(".")) {
+                    file = new File(file.getPath() + "."
+                            + TrafficRecorder.EXTENSION);
+                }
+
+                try {
+                    recorder.start(file);
+                } catch (IOException e) {
+                    log.warn("Unable to record Web API traffic", e);
+                    JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
+                            "Unable to record to " + file + ":\n"
+                                    + e.getMessage(), START,
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+            putValue(NAME, recorder.isRecording() ? STOP : START);
+        }
+    }
 }
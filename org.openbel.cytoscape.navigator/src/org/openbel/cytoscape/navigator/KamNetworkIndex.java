@@ -0,0 +1,196 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import static org.openbel.cytoscape.navigator.KamNavigatorPlugin.KAM_EDGE_ID_ATTR;
+import static org.openbel.cytoscape.navigator.KamNavigatorPlugin.KAM_NODE_ID_ATTR;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import cytoscape.CyEdge;
+import cytoscape.CyNetwork;
+import cytoscape.CyNode;
+import cytoscape.Cytoscape;
+import cytoscape.data.CyAttributes;
+import giny.model.Edge;
+import giny.model.GraphPerspectiveChangeEvent;
+import giny.model.GraphPerspectiveChangeListener;
+import giny.model.Node;
+
+/**
+ * {@link KamNetworkIndex} maps the KAM node and edge ids of a
+ * {@link CyNetwork cytoscape network} to its {@link CyNode cytoscape nodes}
+ * and {@link CyEdge cytoscape edges}.
+ * 
+ * <p>
+ * The index is built from the network the first time it is requested and is
+ * kept current by listening to the network's add and remove events.  It is
+ * discarded when the network is destroyed.
+ * </p>
+ */
+public class KamNetworkIndex implements GraphPerspectiveChangeListener {
+    private static final CyAttributes nodeAtt = Cytoscape.getNodeAttributes();
+    private static final CyAttributes edgeAtt = Cytoscape.getEdgeAttributes();
+    private static final Map<CyNetwork, KamNetworkIndex> indexes = new HashMap<CyNetwork, KamNetworkIndex>();
+    private static boolean listening = false;
+
+    private final Map<String, CyNode> nodes = new HashMap<String, CyNode>();
+    private final Map<String, CyEdge> edges = new HashMap<String, CyEdge>();
+
+    /**
+     * Returns the index for {@code cyn}, building it if necessary.
+     * 
+     * @param cyn the {@link CyNetwork cytoscape network}
+     * @return the {@link KamNetworkIndex index} of the network
+     */
+    public static synchronized KamNetworkIndex getIndex(CyNetwork cyn) {
+        if (!listening) {
+            Cytoscape.getPropertyChangeSupport().addPropertyChangeListener(
+                    Cytoscape.NETWORK_DESTROYED, new NetworkDestroyedListener());
+            listening = true;
+        }
+
+        KamNetworkIndex index = indexes.get(cyn);
+        if (index == null) {
+            index = new KamNetworkIndex(cyn);
+            cyn.addGraphPerspectiveChangeListener(index);
+            indexes.put(cyn, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the {@link CyNode cytoscape node} in the network for a KAM node
+     * id.
+     * 
+     * @param kamNodeId the KAM node id
+     * @return the {@link CyNode cytoscape node}, or {@code null} if the KAM
+     *         node is not in the network
+     */
+    public synchronized CyNode getNode(String kamNodeId) {
+        return nodes.get(kamNodeId);
+    }
+
+    /**
+     * Returns the {@link CyEdge cytoscape edge} in the network for a KAM edge
+     * id.
+     * 
+     * @param kamEdgeId the KAM edge id
+     * @return the {@link CyEdge cytoscape edge}, or {@code null} if the KAM
+     *         edge is not in the network
+     */
+    public synchronized CyEdge getEdge(String kamEdgeId) {
+        return edges.get(kamEdgeId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void graphPerspectiveChanged(
+            GraphPerspectiveChangeEvent e) {
+        if (e.isNodesRestoredType()) {
+            for (Node n : e.getRestoredNodes()) {
+                indexNode(n);
+            }
+        }
+        if (e.isEdgesRestoredType()) {
+            for (Edge ed : e.getRestoredEdges()) {
+                indexEdge(ed);
+            }
+        }
+        if (e.isNodesHiddenType()) {
+            for (Node n : e.getHiddenNodes()) {
+                String id = nodeAtt.getStringAttribute(n.getIdentifier(),
+                        KAM_NODE_ID_ATTR);
+                if (id != null && nodes.get(id) == n) {
+                    nodes.remove(id);
+                }
+            }
+        }
+        if (e.isEdgesHiddenType()) {
+            for (Edge ed : e.getHiddenEdges()) {
+                String id = edgeAtt.getStringAttribute(ed.getIdentifier(),
+                        KAM_EDGE_ID_ATTR);
+                if (id != null && edges.get(id) == ed) {
+                    edges.remove(id);
+                }
+            }
+        }
+    }
+
+    private void indexNode(Node n) {
+        String id = nodeAtt.getStringAttribute(n.getIdentifier(),
+                KAM_NODE_ID_ATTR);
+        // if the id is null, the node isn't a kam node
+        if (id != null) {
+            nodes.put(id, (CyNode) n);
+        }
+    }
+
+    private void indexEdge(Edge e) {
+        String id = edgeAtt.getStringAttribute(e.getIdentifier(),
+                KAM_EDGE_ID_ATTR);
+        // if the id is null, the edge isn't a kam edge
+        if (id != null) {
+            edges.put(id, (CyEdge) e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private KamNetworkIndex(CyNetwork cyn) {
+        for (CyNode n : (List<CyNode>) cyn.nodesList()) {
+            indexNode(n);
+        }
+        for (CyEdge e : (List<CyEdge>) cyn.edgesList()) {
+            indexEdge(e);
+        }
+    }
+
+    /**
+     * Drops the index of a destroyed network.  The event value is the
+     * identifier of the network.
+     */
+    private static final class NetworkDestroyedListener implements
+            PropertyChangeListener {
+
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            Object id = evt.getNewValue();
+            synchronized (KamNetworkIndex.class) {
+                for (Iterator<Map.Entry<CyNetwork, KamNetworkIndex>> it = indexes
+                        .entrySet().iterator(); it.hasNext();) {
+                    Map.Entry<CyNetwork, KamNetworkIndex> entry = it.next();
+                    CyNetwork cyn = entry.getKey();
+                    if (cyn.getIdentifier().equals(id)) {
+                        cyn.removeGraphPerspectiveChangeListener(entry
+                                .getValue());
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+}
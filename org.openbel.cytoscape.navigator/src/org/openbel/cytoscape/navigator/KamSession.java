@@ -23,7 +23,11 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.ws.WebServiceException;
+
+import org.openbel.cytoscape.navigator.KamLoader.KAMLoadException;
 import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.Faults;
 
 import org.openbel.framework.ws.model.DialectHandle;
 import org.openbel.framework.ws.model.Kam;
@@ -38,15 +42,26 @@ import cytoscape.Cytoscape;
  * {@link KAMNetwork kam networks}.
  * 
  * <p>
+ * A {@link KamHandle kam handle} is treated as a lease.  Once loaded it is
+ * reused until {@link #HANDLE_LEASE_MS} has passed or the Web API reports it
+ * as invalid, at which point the KAM is loaded again.
+ * </p>
+ * 
+ * <p>
  * This object is a singleton.
  * </p>
  * 
  * @author James McMahon &lt;jmcmahon@selventa.com&gt;
  */
 public class KamSession {
+    // how long a loaded kam handle is trusted before it is revalidated
+    private static final long HANDLE_LEASE_MS = 10 * 60 * 1000;
     private static KamSession instance;
     private Map<KamIdentifier, KamHandle> kamHandles = new HashMap<KamIdentifier, KamHandle>();
     private Map<KamIdentifier, DialectHandle> dialectHandles = new HashMap<KamIdentifier, DialectHandle>();
+    private Map<KamIdentifier, Long> leaseExpirations = new HashMap<KamIdentifier, Long>();
+    // one lock per kam so that concurrent callers only load a kam once
+    private Map<KamIdentifier, Object> loadLocks = new HashMap<KamIdentifier, Object>();
     // right there should only be one kam associated with any given network
     private Map<CyNetwork, KamIdentifier> networkKamIds = new HashMap<CyNetwork, KamIdentifier>();
 
@@ -68,6 +83,86 @@ public class KamSession {
         if (dialectHandle != null) {
             dialectHandles.put(kamId, dialectHandle);
         }
+        leaseExpirations.put(kamId, System.currentTimeMillis()
+                + HANDLE_LEASE_MS);
+    }
+
+    /**
+     * Returns a {@link KamHandle kam handle} for the kam, loading the kam if
+     * it was never loaded or if its lease has expired.
+     * 
+     * @param kamId the {@link KamIdentifier kam identifier}
+     * @return the {@link KamHandle kam handle}, or {@code null} if the load
+     * was canceled
+     * @throws KAMLoadException Thrown if the kam could not be loaded
+     */
+    public KamHandle acquireKamHandle(KamIdentifier kamId)
+            throws KAMLoadException {
+        KamHandle kamHandle = getLeasedHandle(kamId);
+        if (kamHandle != null) {
+            return kamHandle;
+        }
+
+        synchronized (getLoadLock(kamId)) {
+            // another thread may have loaded the kam while we waited
+            kamHandle = getLeasedHandle(kamId);
+            if (kamHandle == null) {
+                kamHandle = new KamLoader().load(kamId);
+            }
+            return kamHandle;
+        }
+    }
+
+    /**
+     * Runs {@code operation} against a leased {@link KamHandle kam handle}.
+     * If the Web API rejects the handle the lease is dropped, the kam is
+     * reloaded and the operation is retried once.
+     * 
+     * @param kamId the {@link KamIdentifier kam identifier}
+     * @param operation the {@link KamOperation operation} to run
+     * @return the result of the operation
+     * @throws KAMLoadException Thrown if the kam could not be loaded
+     */
+    public <T> T execute(KamIdentifier kamId, KamOperation<T> operation)
+            throws KAMLoadException {
+        KamHandle kamHandle = acquireKamHandle(kamId);
+        if (kamHandle == null) {
+            throw new KAMLoadException("Loading of KAM " + kamId.getName()
+                    + " was canceled");
+        }
+
+        try {
+            return operation.execute(kamHandle, getDialectHandle(kamId));
+        } catch (WebServiceException e) {
+            if (!Faults.isInvalidHandle(e)) {
+                throw e;
+            }
+            releaseLease(kamId, kamHandle);
+        }
+
+        kamHandle = acquireKamHandle(kamId);
+        if (kamHandle == null) {
+            throw new KAMLoadException("Loading of KAM " + kamId.getName()
+                    + " was canceled");
+        }
+        return operation.execute(kamHandle, getDialectHandle(kamId));
+    }
+
+    /**
+     * Drops the lease on {@code kamHandle} so that the next request for the
+     * kam reloads it.  Nothing happens if the kam has since been given a
+     * different handle.
+     * 
+     * @param kamId the {@link KamIdentifier kam identifier}
+     * @param kamHandle the {@link KamHandle kam handle} that is no longer valid
+     */
+    public synchronized void releaseLease(KamIdentifier kamId,
+            KamHandle kamHandle) {
+        KamHandle current = kamHandles.get(kamId);
+        if (current != null && kamHandle != null
+                && current.getHandle().equals(kamHandle.getHandle())) {
+            leaseExpirations.remove(kamId);
+        }
     }
 
     public synchronized KamHandle getKamHandle(KamIdentifier kamIdentifier) {
@@ -115,7 +210,42 @@ public class KamSession {
         networkKamIds.put(network, kamId);
     }
 
+    private synchronized KamHandle getLeasedHandle(KamIdentifier kamId) {
+        Long expiration = leaseExpirations.get(kamId);
+        if (expiration == null || expiration < System.currentTimeMillis()) {
+            return null;
+        }
+        return kamHandles.get(kamId);
+    }
+
+    private synchronized Object getLoadLock(KamIdentifier kamId) {
+        Object lock = loadLocks.get(kamId);
+        if (lock == null) {
+            lock = new Object();
+            loadLocks.put(kamId, lock);
+        }
+        return lock;
+    }
+
     private KamSession() {
         // singleton. use get instance
     }
+
+    /**
+     * An operation that requires a loaded kam.
+     * 
+     * @see KamSession#execute(KamIdentifier, KamOperation)
+     */
+    public interface KamOperation<T> {
+
+        /**
+         * Executes the operation.
+         * 
+         * @param kamHandle the leased {@link KamHandle kam handle}
+         * @param dialectHandle the kam's default {@link DialectHandle dialect
+         * handle}
+         * @return the result of the operation
+         */
+        T execute(KamHandle kamHandle, DialectHandle dialectHandle);
+    }
 }
@@ -0,0 +1,250 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link NavigatorExecutor} is the single pool of worker threads used for
+ * background work in the navigator, such as web service calls made on behalf
+ * of tasks and dialogs.
+ * 
+ * <p>
+ * Workers are named daemon threads, and both the number of workers and the
+ * number of waiting submissions are bounded.  Submissions beyond the queue
+ * limit are rejected with a {@link RejectedExecutionException}.  Pool
+ * metrics are published as the {@link NavigatorExecutorMBean MBean}
+ * {@value #OBJECT_NAME}.
+ * </p>
+ * 
+ * <p>
+ * This object is a singleton.
+ * </p>
+ */
+public class NavigatorExecutor implements NavigatorExecutorMBean {
+    public static final String OBJECT_NAME =
+            "org.openbel.cytoscape.navigator:type=NavigatorExecutor";
+    private static final CyLogger log = CyLogger
+            .getLogger(NavigatorExecutor.class);
+    private static final int WORKERS = 4;
+    private static final int QUEUE_CAPACITY = 100;
+    private static NavigatorExecutor instance;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong canceled = new AtomicLong();
+
+    public static synchronized NavigatorExecutor getInstance() {
+        if (instance == null) {
+            instance = new NavigatorExecutor();
+            instance.register();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Submits {@code callable} to run on a worker.  Cancelling the returned
+     * {@link Future future} with {@code mayInterruptIfRunning} interrupts the
+     * worker running it.
+     * 
+     * @param callable the work to run
+     * @return the {@link Future future} of the work
+     * @throws RejectedExecutionException Thrown if the queue is full
+     */
+    public <T> Future<T> submit(Callable<T> callable) {
+        try {
+            return pool.submit(callable);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Submits {@code runnable} to run on a worker.
+     * 
+     * @param runnable the work to run
+     * @return the {@link Future future} of the work
+     * @throws RejectedExecutionException Thrown if the queue is full
+     */
+    public Future<?> submit(Runnable runnable) {
+        try {
+            return pool.submit(runnable);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for {@code future} to complete.  If the future is canceled, for
+     * example because the owning task was halted, {@code null} is returned.
+     * If the waiting thread is interrupted the future is canceled as well so
+     * the worker does not keep running.
+     * 
+     * @param future the {@link Future future} to wait for
+     * @return the result, or {@code null} if canceled
+     * @throws ExecutionException Thrown if the work failed
+     */
+    public <T> T await(Future<T> future) throws ExecutionException {
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            canceled.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            canceled.incrementAndGet();
+            // keep the interrupt for the caller
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Stops accepting work and interrupts the running workers.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLargestPoolSize() {
+        return pool.getLargestPoolSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaximumPoolSize() {
+        return pool.getMaximumPoolSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueSize() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueCapacity() {
+        return QUEUE_CAPACITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCompletedCount() {
+        return pool.getCompletedTaskCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCanceledCount() {
+        return canceled.get();
+    }
+
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // metrics are not essential
+            log.warn("Unable to register navigator executor metrics", e);
+        }
+    }
+
+    private NavigatorExecutor() {
+        // singleton. use get instance
+        pool = new ThreadPoolExecutor(WORKERS, WORKERS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new WorkerThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates named daemon workers so that background work never keeps
+     * Cytoscape from exiting.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "KAM Navigator worker "
+                    + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
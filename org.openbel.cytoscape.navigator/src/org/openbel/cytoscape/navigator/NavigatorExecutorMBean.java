@@ -0,0 +1,72 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+/**
+ * Management interface publishing the metrics of the
+ * {@link NavigatorExecutor navigator executor}.
+ */
+public interface NavigatorExecutorMBean {
+
+    /**
+     * @return the number of workers currently running work
+     */
+    int getActiveCount();
+
+    /**
+     * @return the number of workers currently in the pool
+     */
+    int getPoolSize();
+
+    /**
+     * @return the largest number of workers that were ever in the pool
+     */
+    int getLargestPoolSize();
+
+    /**
+     * @return the maximum number of workers
+     */
+    int getMaximumPoolSize();
+
+    /**
+     * @return the number of submissions waiting for a worker
+     */
+    int getQueueSize();
+
+    /**
+     * @return the maximum number of submissions that can wait for a worker
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of submissions that have completed
+     */
+    long getCompletedCount();
+
+    /**
+     * @return the number of submissions rejected because the queue was full
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of submissions that were canceled
+     */
+    long getCanceledCount();
+}
@@ -53,6 +53,7 @@ public class NetworkDetailsListener implements SelectEventListener {
                 case SINGLE_NODE:
                     final CyNode cynode = (CyNode) e.getTarget();
                     DetailsView.getInstance().showNodeDetails(cynode);
+                    break;
                 case NODE_SET:
                     Set<CyNode> nodesSelected = (Set<CyNode>) e.getTarget();
                     Iterator<CyNode> nit = nodesSelected.iterator();
@@ -63,6 +64,7 @@ public class NetworkDetailsListener implements SelectEventListener {
                 case SINGLE_EDGE:
                     final CyEdge cyedge = (CyEdge) e.getTarget();
                     DetailsView.getInstance().showEdgeDetails(cyedge);
+                    break;
                 case EDGE_SET:
                     Set<CyEdge> edgesSelected = (Set<CyEdge>) e.getTarget();
                     Iterator<CyEdge> eit = edgesSelected.iterator();
@@ -31,6 +31,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,6 +71,32 @@ public class NetworkUtility {
      */
     public static CyNode addNode(CyNetwork cyn, KamIdentifier kamId,
             KamNode kamNode) {
+        CyNode cynode = createNode(kamId, kamNode);
+        cyn.addNode(cynode);
+        return cynode;
+    }
+
+    /**
+     * Creates a {@link Batch batch} that adds many {@link KamNode kam nodes}
+     * and {@link KamEdge kam edges} to the {@link CyNetwork cytoscape network}
+     * at once.
+     * 
+     * @param cyn
+     *            the {@link CyNetwork cytoscape network} to add to
+     * @param kamId
+     *            the {@link KamIdentifier kam} the elements belong to
+     * @return a new, empty {@link Batch batch}
+     */
+    public static Batch batch(CyNetwork cyn, KamIdentifier kamId) {
+        return new Batch(cyn, kamId);
+    }
+
+    /**
+     * Creates a {@link CyNode cytoscape node} in the root graph for a
+     * {@link KamNode kam node} and attaches the KAM attributes, without adding
+     * it to any network.
+     */
+    private static CyNode createNode(KamIdentifier kamId, KamNode kamNode) {
         // create cytoscape node and attach KAM attributes
         CyNode cynode = Cytoscape.getCyNode(kamNode.getLabel(), true);
         nodeAtt.setAttribute(cynode.getIdentifier(), KAM_NODE_ID_ATTR,
@@ -83,8 +111,6 @@ public class NetworkUtility {
                 Long.toString(kamId.getCompiledTime()));
         nodeAtt.setAttribute(cynode.getIdentifier(), WSDL_URL_ATTR,
                 kamId.getWsdlUrl());
-
-        cyn.addNode(cynode);
         return cynode;
     }
 
@@ -92,13 +118,24 @@ public class NetworkUtility {
      * Adds a {@link KamEdge kam edge} to the {@link CyNetwork cytoscape
      * network} and returns the equivalent {@link CyEdge cytoscape edge}.
      * 
+     * <p>
+     * If the {@link KamEdge kam edge} is already in the network the existing
+     * {@link CyEdge cytoscape edge} is returned.
+     * </p>
+     * 
      * @param edge
      *            the {@link KamEdge kam edge} to add
-     * @return the {@link CyEdge cytoscape edge} created for the specific
+     * @return the {@link CyEdge cytoscape edge} for the specific
      *         {@link KamEdge kam edge}
      */
     public static CyEdge addEdge(CyNetwork cyn, KamIdentifier kamId,
             KamEdge edge) {
+        // skip edges that are already in the network
+        CyEdge existing = KamNetworkIndex.getIndex(cyn).getEdge(edge.getId());
+        if (existing != null) {
+            return existing;
+        }
+
         // link up the source node
         final KamNode srckn = (KamNode) edge.getSource();
 
@@ -115,15 +152,24 @@ public class NetworkUtility {
             cyntarget = addNode(cyn, kamId, tgtkn);
         }
 
+        CyEdge cye = createEdge(cynsource, cyntarget, edge);
+        cyn.addEdge(cye);
+
+        return cye;
+    }
+
+    /**
+     * Creates a {@link CyEdge cytoscape edge} in the root graph for a
+     * {@link KamEdge kam edge}, without adding it to any network.
+     */
+    private static CyEdge createEdge(CyNode cynsource, CyNode cyntarget,
+            KamEdge edge) {
         // create cytoscape edge and attach KAM edge id as hidden attribute
         CyEdge cye = Cytoscape.getCyEdge(cynsource, cyntarget,
                 Semantics.INTERACTION, edge.getRelationship().toString(), true,
                 true);
         edgeAtt.setAttribute(cye.getIdentifier(), KAM_EDGE_ID_ATTR,
                 edge.getId());
-
-        cyn.addEdge(cye);
-
         return cye;
     }
 
@@ -292,17 +338,135 @@ public class NetworkUtility {
     }
 
     private static CyNode findCyNode(CyNetwork cyn, KamNode kamNode) {
-        @SuppressWarnings("unchecked")
-        final List<CyNode> nodes = cyn.nodesList();
-        for (final CyNode node : nodes) {
-            final String kamNodeId = nodeAtt.getStringAttribute(
-                    node.getIdentifier(), KAM_NODE_ID_ATTR);
-            // if the kamNodeId is null, the node isn't a kam node
-            if (kamNodeId != null && kamNodeId.equals(kamNode.getId())) {
-                return node;
+        return KamNetworkIndex.getIndex(cyn).getNode(kamNode.getId());
+    }
+
+    /**
+     * Collects {@link KamNode kam nodes} and {@link KamEdge kam edges} and
+     * adds them to a {@link CyNetwork cytoscape network} in one step.
+     * 
+     * <p>
+     * {@link #apply()} creates all elements and writes their attributes before
+     * anything is added to the network.  Nodes and edges are then restored
+     * into the network with one call each, so network listeners and views are
+     * notified once per batch rather than once per element.  Edges already in
+     * the network are skipped, and missing edge endpoints are added as well.
+     * </p>
+     * 
+     * @see NetworkUtility#batch(CyNetwork, KamIdentifier)
+     */
+    public static final class Batch {
+        private final CyNetwork cyn;
+        private final KamIdentifier kamId;
+        private final Map<String, KamNode> kamNodes = new LinkedHashMap<String, KamNode>();
+        private final Map<String, KamEdge> kamEdges = new LinkedHashMap<String, KamEdge>();
+        private final Set<CyNode> nodes = new LinkedHashSet<CyNode>();
+        private final Set<CyEdge> edges = new LinkedHashSet<CyEdge>();
+
+        private Batch(CyNetwork cyn, KamIdentifier kamId) {
+            this.cyn = cyn;
+            this.kamId = kamId;
+        }
+
+        public Batch addNodes(Collection<KamNode> nodes) {
+            for (KamNode node : nodes) {
+                kamNodes.put(node.getId(), node);
             }
+            return this;
         }
 
-        return null;
+        public Batch addEdges(Collection<KamEdge> edges) {
+            for (KamEdge edge : edges) {
+                kamEdges.put(edge.getId(), edge);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the collected elements to the network and fires a single
+         * {@link Cytoscape#NETWORK_MODIFIED} event.
+         * 
+         * @return this {@link Batch batch}
+         */
+        public Batch apply() {
+            KamNetworkIndex index = KamNetworkIndex.getIndex(cyn);
+            // cytoscape nodes by kam node id, for nodes in this batch
+            Map<String, CyNode> created = new HashMap<String, CyNode>();
+            List<CyNode> newNodes = new ArrayList<CyNode>();
+
+            for (KamNode kamNode : kamNodes.values()) {
+                nodes.add(resolveNode(index, created, newNodes, kamNode));
+            }
+
+            List<CyEdge> newEdges = new ArrayList<CyEdge>();
+            for (KamEdge kamEdge : kamEdges.values()) {
+                CyEdge existing = index.getEdge(kamEdge.getId());
+                if (existing != null) {
+                    edges.add(existing);
+                    continue;
+                }
+
+                CyNode src = resolveNode(index, created, newNodes,
+                        (KamNode) kamEdge.getSource());
+                CyNode tgt = resolveNode(index, created, newNodes,
+                        (KamNode) kamEdge.getTarget());
+                CyEdge cye = createEdge(src, tgt, kamEdge);
+                newEdges.add(cye);
+                edges.add(cye);
+            }
+
+            // nodes must be in the network before the edges between them
+            if (!newNodes.isEmpty()) {
+                int[] indices = new int[newNodes.size()];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = newNodes.get(i).getRootGraphIndex();
+                }
+                cyn.restoreNodes(indices);
+            }
+            if (!newEdges.isEmpty()) {
+                int[] indices = new int[newEdges.size()];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = newEdges.get(i).getRootGraphIndex();
+                }
+                cyn.restoreEdges(indices);
+            }
+
+            if (!newNodes.isEmpty() || !newEdges.isEmpty()) {
+                Cytoscape.firePropertyChange(Cytoscape.NETWORK_MODIFIED, null,
+                        cyn);
+            }
+            return this;
+        }
+
+        /**
+         * @return the {@link CyNode cytoscape nodes} of the
+         *         {@link KamNode kam nodes} in this batch
+         */
+        public Set<CyNode> getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @return the {@link CyEdge cytoscape edges} of the
+         *         {@link KamEdge kam edges} in this batch
+         */
+        public Set<CyEdge> getEdges() {
+            return edges;
+        }
+
+        private CyNode resolveNode(KamNetworkIndex index,
+                Map<String, CyNode> created, List<CyNode> newNodes,
+                KamNode kamNode) {
+            CyNode cynode = index.getNode(kamNode.getId());
+            if (cynode == null) {
+                cynode = created.get(kamNode.getId());
+            }
+            if (cynode == null) {
+                cynode = createNode(kamId, kamNode);
+                created.put(kamNode.getId(), cynode);
+                newNodes.add(cynode);
+            }
+            return cynode;
+        }
     }
 }
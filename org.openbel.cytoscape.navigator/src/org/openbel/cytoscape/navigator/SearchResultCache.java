@@ -0,0 +1,301 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.Digests;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.Namespace;
+
+/**
+ * {@link SearchResultCache} keeps the sorted results of recent
+ * {@link KamNode kam node} searches so that repeating a search does not
+ * query the Web API again.
+ *
+ * <p>
+ * Results are keyed by {@link KamIdentifier}, {@link FunctionType function},
+ * {@link Namespace namespace} and a digest of the searched identifiers, which
+ * ignores their order and duplicates.  The least recently used results are
+ * evicted once the cache holds more than
+ * {@link Configuration#getSearchCacheNodes()} nodes.  When a KAM is seen with
+ * a new compile time the results of its earlier compilation are dropped.
+ * </p>
+ *
+ * <p>
+ * This object is a singleton.
+ * </p>
+ */
+public class SearchResultCache {
+    private static SearchResultCache instance;
+
+    private final LinkedHashMap<Key, Result> results =
+            new LinkedHashMap<Key, Result>(16, 0.75f, true);
+    // last seen compile time by KAM name and WSDL URL
+    private final Map<String, Long> compiledTimes = new HashMap<String, Long>();
+    private long nodes = 0;
+
+    public static synchronized SearchResultCache getInstance() {
+        if (instance == null) {
+            instance = new SearchResultCache();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Builds the cache key of a search.
+     * 
+     * @param kamId
+     *            the {@link KamIdentifier kam identifier} searched
+     * @param function
+     *            the {@link FunctionType function}, or {@code null}
+     * @param namespace
+     *            the {@link Namespace namespace}, or {@code null}
+     * @param identifiers
+     *            the identifiers searched, or {@code null}
+     * @param exactMatch
+     *            whether identifiers were matched exactly
+     * @return the {@link Key key}
+     */
+    public static Key key(KamIdentifier kamId, FunctionType function,
+            Namespace namespace, Collection<String> identifiers,
+            boolean exactMatch) {
+        if (kamId == null) {
+            throw new IllegalArgumentException("kamId is null");
+        }
+
+        String location = namespace == null ? null : namespace
+                .getResourceLocation();
+        // digest the distinct identifiers in sorted order
+        String digest = identifiers == null ? null : Digests
+                .sha1(new TreeSet<String>(identifiers));
+        return new Key(kamId, function, location, digest, exactMatch);
+    }
+
+    /**
+     * Returns the cached result of a search.
+     * 
+     * @param key
+     *            the {@link Key key} of the search
+     * @return the {@link Result result}, or {@code null} if not cached
+     */
+    public synchronized Result get(Key key) {
+        observe(key.kamId);
+        Result result = results.get(key);
+        if (result == null) {
+            return null;
+        }
+        return new Result(new ArrayList<KamNode>(result.nodes),
+                result.unmatched);
+    }
+
+    /**
+     * Caches the result of a search, evicting the least recently used
+     * results if the cache grows too large.  Results of an outdated
+     * compilation of a KAM are not cached.
+     * 
+     * @param key
+     *            the {@link Key key} of the search
+     * @param sortedNodes
+     *            the {@link KamNode kam nodes} found, sorted
+     * @param unmatched
+     *            the identifiers that matched no namespace value
+     */
+    public synchronized void put(Key key, List<KamNode> sortedNodes,
+            List<String> unmatched) {
+        if (!observe(key.kamId)) {
+            // results of an outdated compilation
+            return;
+        }
+
+        long max = Configuration.getInstance().getSearchCacheNodes();
+        Result result = new Result(new ArrayList<KamNode>(sortedNodes),
+                unmatched == null ? Collections.<String> emptyList()
+                        : new ArrayList<String>(unmatched));
+        if (result.size() > max) {
+            return;
+        }
+
+        remove(key);
+        results.put(key, result);
+        nodes += result.size();
+
+        Iterator<Result> it = results.values().iterator();
+        while (nodes > max && it.hasNext()) {
+            nodes -= it.next().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Records the compile time of a KAM, dropping the results cached for an
+     * earlier compilation of it.
+     * 
+     * @param kamId
+     *            the {@link KamIdentifier kam identifier}
+     * @return {@code false} if a later compilation of the KAM has been seen
+     */
+    public synchronized boolean observe(KamIdentifier kamId) {
+        String kam = kamId.getName() + '\n' + kamId.getWsdlUrl();
+        Long seen = compiledTimes.get(kam);
+        if (seen != null && seen >= kamId.getCompiledTime()) {
+            return seen == kamId.getCompiledTime();
+        }
+
+        compiledTimes.put(kam, kamId.getCompiledTime());
+        if (seen == null) {
+            return true;
+        }
+
+        Iterator<Map.Entry<Key, Result>> it = results.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Result> e = it.next();
+            KamIdentifier cached = e.getKey().kamId;
+            if (cached.getName().equals(kamId.getName())
+                    && cached.getWsdlUrl().equals(kamId.getWsdlUrl())
+                    && cached.getCompiledTime() != kamId.getCompiledTime()) {
+                nodes -= e.getValue().size();
+                it.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops all cached results.
+     */
+    public synchronized void clear() {
+        results.clear();
+        nodes = 0;
+    }
+
+    private void remove(Key key) {
+        Result old = results.remove(key);
+        if (old != null) {
+            nodes -= old.size();
+        }
+    }
+
+    private SearchResultCache() {
+        // singleton. use get instance
+    }
+
+    /**
+     * Identifies a search, see
+     * {@link SearchResultCache#key(KamIdentifier, FunctionType, Namespace, Collection, boolean)}.
+     */
+    public static final class Key {
+        private final KamIdentifier kamId;
+        private final FunctionType function;
+        private final String namespace;
+        private final String identifiers;
+        private final boolean exactMatch;
+
+        private Key(KamIdentifier kamId, FunctionType function,
+                String namespace, String identifiers, boolean exactMatch) {
+            this.kamId = kamId;
+            this.function = function;
+            this.namespace = namespace;
+            this.identifiers = identifiers;
+            this.exactMatch = exactMatch;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = kamId.hashCode();
+            result = prime * result
+                    + ((function == null) ? 0 : function.hashCode());
+            result = prime * result
+                    + ((namespace == null) ? 0 : namespace.hashCode());
+            result = prime * result
+                    + ((identifiers == null) ? 0 : identifiers.hashCode());
+            result = prime * result + (exactMatch ? 1 : 0);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return kamId.equals(other.kamId) && function == other.function
+                    && equal(namespace, other.namespace)
+                    && equal(identifiers, other.identifiers)
+                    && exactMatch == other.exactMatch;
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * The cached result of a search.
+     */
+    public static final class Result {
+        private final List<KamNode> nodes;
+        private final List<String> unmatched;
+
+        private Result(List<KamNode> nodes, List<String> unmatched) {
+            this.nodes = nodes;
+            this.unmatched = unmatched;
+        }
+
+        /**
+         * Returns the {@link KamNode kam nodes} found, sorted.  The list is a
+         * copy and can be freely modified.
+         * 
+         * @return the {@link KamNode kam nodes}
+         */
+        public List<KamNode> getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the identifiers that matched no namespace value.
+         * 
+         * @return the unmatched identifiers
+         */
+        public List<String> getUnmatched() {
+            return Collections.unmodifiableList(unmatched);
+        }
+
+        // empty results still take a slot
+        private int size() {
+            return Math.max(nodes.size(), 1);
+        }
+    }
+}
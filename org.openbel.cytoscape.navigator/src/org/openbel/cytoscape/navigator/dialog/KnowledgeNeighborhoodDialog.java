@@ -33,8 +33,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
@@ -65,16 +66,20 @@ import javax.swing.table.TableRowSorter;
 
 import org.openbel.cytoscape.webservice.KamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamLoader;
+import org.openbel.cytoscape.webservice.RequestMonitor;
 import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.navigator.KamSession.KamOperation;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
+import org.openbel.cytoscape.navigator.NavigatorExecutor;
 import org.openbel.cytoscape.navigator.KamLoader.KAMLoadException;
 import org.openbel.cytoscape.navigator.task.KamTasks;
 
+import org.openbel.framework.ws.model.DialectHandle;
 import org.openbel.framework.ws.model.EdgeDirectionType;
 import org.openbel.framework.ws.model.FunctionType;
 import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
 import org.openbel.framework.ws.model.KamNode;
 import org.openbel.framework.ws.model.RelationshipType;
 
@@ -111,10 +116,12 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
     // kam that nodes were last selected on
     private KamIdentifier currentKamId;
     
-    // Executor for loading the knowledge neighborhood
-    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
-    private volatile boolean loading = false;
-    private volatile boolean haltLoading = false;
+    // in-flight load of the knowledge neighborhood, canceled when superseded
+    private volatile Future<?> load;
+    // incremented for every load so superseded loads discard their results
+    private final AtomicInteger loadGeneration = new AtomicInteger();
+    // filters the rows of the results table
+    private EdgeRowFilter rowFilter;
     
     /**
      * Construct the {@link JDialog dialog} and initialize the UI.
@@ -165,13 +172,8 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
             }
         }
 
-        if (loading) {
-            haltLoading = true;
-            while (loading) {
-                // wait until previous task finishes
-            }
-        }
-        loadExecutor.shutdown();
+        loadGeneration.incrementAndGet();
+        cancelLoad();
     }
 
     /**
@@ -279,20 +281,12 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
                     }
                 });
 
-        // register the filters with the sorter
-        Collection<RowFilter<EdgeTableModel, Integer>> filters = new HashSet<RowFilter<EdgeTableModel, Integer>>();
-        filters.add(new SourceFunctionFilter());
-        filters.add(new TargetFunctionFilter());
-        filters.add(new RelationshipFilter());
-        filters.add(new SourceLabelFilter());
-        filters.add(new TargetLabelFilter());
-        filters.add(new DirectionFilter());
-        RowFilter<EdgeTableModel, Integer> andFilter = RowFilter
-                .andFilter(filters);
+        // register the filter with the sorter
+        rowFilter = new EdgeRowFilter(selectedKamNodeIds);
         // sorter has alphabetical column sort on by default
         TableRowSorter<EdgeTableModel> rowSorter = new TableRowSorter<EdgeTableModel>(
                 (EdgeTableModel) resultsTable.getModel());
-        rowSorter.setRowFilter(andFilter);
+        rowSorter.setRowFilter(rowFilter);
         resultsTable.setRowSorter(rowSorter);
 
         // filter options
@@ -344,24 +338,45 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
      */
     @SuppressWarnings("unchecked")
     private synchronized void sort() {
+        EdgeDirectionType direction = EdgeDirectionType.BOTH;
+        if (expandUpstreamButton.isSelected()) {
+            direction = EdgeDirectionType.REVERSE;
+        } else if (expandDownstreamButton.isSelected()) {
+            direction = EdgeDirectionType.FORWARD;
+        }
+        String source = selection(sourceFunctionCombo);
+        String target = selection(targetFunctionCombo);
+        String relationship = selection(edgeRelationshipCombo);
+        rowFilter.update(source == null ? null : FunctionType.valueOf(source),
+                target == null ? null : FunctionType.valueOf(target),
+                relationship == null ? null : RelationshipType
+                        .valueOf(relationship), direction,
+                sourceLabelField.getText(), targetLabelField.getText());
+
         ((TableRowSorter<EdgeTableModel>) resultsTable.getRowSorter()).sort();
         // number of found reflects the number of rows post filter
         resultsLabel.setText("Found " + resultsTable.getRowCount() + " edges");
     }
 
+    /**
+     * Returns the selected item of a filter combo box, or {@code null} if all
+     * items are selected.
+     */
+    private static String selection(JComboBox combo) {
+        String selected = (String) combo.getSelectedItem();
+        if (selected == null || ALL_SELECTION.equals(selected)) {
+            return null;
+        }
+        return selected;
+    }
+
     /**
      * Load (or reload) the edges around the selected nodes, update UI to match
      */
     private void loadNeighborhood() {
-        if (loading) {
-            // halt previous load
-            haltLoading = true;
-            while (loading) {
-                // wait until previous task finishes
-            }
-            // reset halt for new load
-            haltLoading = false;
-        }
+        // halt previous load, it discards its results once superseded
+        final int generation = loadGeneration.incrementAndGet();
+        cancelLoad();
         
         // Quick and dirty indication that the table is loading
         resultsLabel.setText("Loading...");
@@ -411,40 +426,51 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
         }
         
         // put this a thread so it doesn't lock the UI
-        loadExecutor.execute(new Runnable() {
+        final KamIdentifier kamId = currentKamId;
+        try {
+            load = NavigatorExecutor.getInstance().submit(new Runnable() {
             
-            @Override
-            public void run() {
-                // start loading
-                loading = true;
-                
-                try {
+                @Override
+                public void run() {
+                    final List<KamEdge> edges;
                     try {
-                        // No need to hold on the KamHandle
-                        // just need to load to work on KamNode
-                        new KamLoader().load(currentKamId);
+                        // reuses the leased kam handle, the kam is only
+                        // reloaded if the lease expired or was rejected
+                        edges = KamSession.getInstance().execute(kamId,
+                                new KamOperation<List<KamEdge>>() {
+
+                            @Override
+                            public List<KamEdge> execute(KamHandle kamHandle,
+                                    DialectHandle dialectHandle) {
+                                return kamService.getAdjacentKamEdges(
+                                        dialectHandle, kamNodes,
+                                        EdgeDirectionType.BOTH, null,
+                                        new RequestMonitor() {
+
+                                    @Override
+                                    public void requestCompleted(
+                                            int completed, int total) {
+                                        // results are shown once all complete
+                                    }
+
+                                    @Override
+                                    public boolean isCanceled() {
+                                        return isSuperseded(generation);
+                                    }
+                                });
+                            }
+                        });
                     } catch (KAMLoadException e) {
-                        JOptionPane.showMessageDialog(getContentPane(),
-                                "Error loading \"" + currentKamId.getName()
-                                        + "\" KAM.\n", "Kam Load Error",
-                                JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    
-                    final List<KamEdge> edges = new ArrayList<KamEdge>();
-                    for (KamNode kamNode : kamNodes) {
-                        if (haltLoading) {
-                            break;
+                        if (!isSuperseded(generation)) {
+                            JOptionPane.showMessageDialog(getContentPane(),
+                                    "Error loading \"" + kamId.getName()
+                                            + "\" KAM.\n", "Kam Load Error",
+                                    JOptionPane.ERROR_MESSAGE);
                         }
-
-                        edges.addAll(kamService.getAdjacentKamEdges(
-                                KamSession.getInstance().getDialectHandle(currentKamId), 
-                                kamNode,
-                                EdgeDirectionType.BOTH, null));
+                        return;
                     }
-                    model.addEdges(edges);
 
-                    if (!haltLoading) {
+                    if (!isSuperseded(generation)) {
                         try {
                             // Execute UI updates inside swing thread to prevent
                             //  issues
@@ -452,6 +478,12 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
                                 
                                 @Override
                                 public void run() {
+                                    // the table is cleared on the swing
+                                    // thread, check again before touching it
+                                    if (isSuperseded(generation)) {
+                                        return;
+                                    }
+                                    model.addEdges(edges);
                                     model.fireTableDataChanged();
                                     // update filters combo boxes
                                     // TODO separate function box data update 
@@ -468,27 +500,42 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
                                 }
                             });
                         } catch (InterruptedException e) {
-                            log.warn("Error loading knowledge neighborhood", e);
+                            // canceled by a newer load
+                            Thread.currentThread().interrupt();
                         } catch (InvocationTargetException e) {
                             log.warn("Error loading knowledge neighborhood", e);
                         }
                         
                     }
-                } finally {
-                    // finished loading
-                    loading = false;
                 }
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Error loading knowledge neighborhood", e);
+            resultsLabel.setText("Too many requests, try again");
+        }
         
     }
 
+    /**
+     * Cancels the in-flight load, interrupting its web service call.
+     */
+    private void cancelLoad() {
+        final Future<?> f = load;
+        if (f != null) {
+            f.cancel(true);
+        }
+    }
+
+    private boolean isSuperseded(final int generation) {
+        return generation != loadGeneration.get();
+    }
+
     /**
      * {@link TableModel} to keep track of added edges and row strings
      * 
      * @author James McMahon &lt;jmcmahon@selventa.com&gt;
      */
-    private static final class EdgeTableModel extends AbstractTableModel {
+    static final class EdgeTableModel extends AbstractTableModel {
         private static final long serialVersionUID = 56833762228520599L;
         private static final String[] COLUMNS = new String[] { "Source",
                 "Relationship", "Target" };
@@ -692,51 +739,40 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
         protected abstract String getName(KamEdge e);
     }
 
-    private class SourceFunctionFilter extends
-            RowFilter<EdgeTableModel, Integer> {
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean include(
-                javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            String selected = (String) sourceFunctionCombo.getSelectedItem();
-            if (selected == null || ALL_SELECTION.equals(selected)) {
-                return true;
-            }
-
-            KamEdge edge = entry.getModel().getEdges()
-                    .get(entry.getIdentifier());
-            FunctionType function = FunctionType.valueOf(selected);
-
-            return function.equals(edge.getSource().getFunction());
+    /**
+     * Package-protected {@link RowFilter row filter} of the results table.
+     * Each criterion left {@code null} matches every edge.  The criteria are
+     * set by {@link #update} before the table is sorted, so a sort of many
+     * rows does not read the filter components once per row.
+     */
+    static final class EdgeRowFilter extends RowFilter<EdgeTableModel, Integer> {
+        // ids of the nodes the neighborhood was loaded for
+        private final Set<String> selectedKamNodeIds;
+        private FunctionType sourceFunction;
+        private FunctionType targetFunction;
+        private RelationshipType relationship;
+        private EdgeDirectionType direction = EdgeDirectionType.BOTH;
+        private String sourceLabel;
+        private String targetLabel;
+
+        EdgeRowFilter(Set<String> selectedKamNodeIds) {
+            this.selectedKamNodeIds = selectedKamNodeIds;
         }
-    }
-
-    private class TargetFunctionFilter extends
-            RowFilter<EdgeTableModel, Integer> {
 
         /**
-         * {@inheritDoc}
+         * Sets the filter criteria.  Labels match case-insensitively anywhere
+         * in the node label.
          */
-        @Override
-        public boolean include(
-                javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            String selected = (String) targetFunctionCombo.getSelectedItem();
-            if (selected == null || ALL_SELECTION.equals(selected)) {
-                return true;
-            }
-
-            KamEdge edge = entry.getModel().getEdges()
-                    .get(entry.getIdentifier());
-            FunctionType function = FunctionType.valueOf(selected);
-
-            return function.equals(edge.getTarget().getFunction());
+        void update(FunctionType sourceFunction, FunctionType targetFunction,
+                RelationshipType relationship, EdgeDirectionType direction,
+                String sourceLabel, String targetLabel) {
+            this.sourceFunction = sourceFunction;
+            this.targetFunction = targetFunction;
+            this.relationship = relationship;
+            this.direction = direction;
+            this.sourceLabel = lowerCase(sourceLabel);
+            this.targetLabel = lowerCase(targetLabel);
         }
-    }
-
-    private class RelationshipFilter extends RowFilter<EdgeTableModel, Integer> {
 
         /**
          * {@inheritDoc}
@@ -744,89 +780,47 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
         @Override
         public boolean include(
                 javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            String selected = (String) edgeRelationshipCombo.getSelectedItem();
-            if (selected == null || ALL_SELECTION.equals(selected)) {
-                return true;
-            }
-
             KamEdge edge = entry.getModel().getEdges()
                     .get(entry.getIdentifier());
-            RelationshipType relationship = RelationshipType.valueOf(selected);
 
-            return relationship.equals(edge.getRelationship());
-        }
-    }
-    
-    private class DirectionFilter extends RowFilter<EdgeTableModel, Integer> {
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean include(
-                javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            EdgeDirectionType direction = EdgeDirectionType.BOTH;
-            if (expandUpstreamButton.isSelected()) {
-                direction = EdgeDirectionType.REVERSE;
-            } else if (expandDownstreamButton.isSelected()) {
-                direction = EdgeDirectionType.FORWARD;
+            if (sourceFunction != null
+                    && !sourceFunction.equals(edge.getSource().getFunction())) {
+                return false;
             }
-            if (EdgeDirectionType.BOTH.equals(direction)) {
-                return true;
+            if (targetFunction != null
+                    && !targetFunction.equals(edge.getTarget().getFunction())) {
+                return false;
             }
-
-            KamEdge edge = entry.getModel().getEdges()
-                    .get(entry.getIdentifier());
-            KamNode node = null;
-            if (EdgeDirectionType.FORWARD.equals(direction)) {
-                node = (KamNode) edge.getSource();
-            } else {
-                node = (KamNode) edge.getTarget();
+            if (relationship != null
+                    && !relationship.equals(edge.getRelationship())) {
+                return false;
             }
-
-            return selectedKamNodeIds.contains(node.getId());
-        }
-    }
-
-    private class SourceLabelFilter extends RowFilter<EdgeTableModel, Integer> {
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean include(
-                javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            String filterText = sourceLabelField.getText();
-            if (filterText == null || filterText.isEmpty()) {
-                return true;
+            if (EdgeDirectionType.FORWARD.equals(direction)
+                    && !selectedKamNodeIds.contains(edge.getSource().getId())) {
+                return false;
             }
-
-            KamEdge edge = entry.getModel().getEdges()
-                    .get(entry.getIdentifier());
-
-            return edge.getSource().getLabel().toLowerCase()
-                    .contains(filterText.toLowerCase());
+            if (EdgeDirectionType.REVERSE.equals(direction)
+                    && !selectedKamNodeIds.contains(edge.getTarget().getId())) {
+                return false;
+            }
+            if (sourceLabel != null
+                    && !edge.getSource().getLabel().toLowerCase()
+                            .contains(sourceLabel)) {
+                return false;
+            }
+            if (targetLabel != null
+                    && !edge.getTarget().getLabel().toLowerCase()
+                            .contains(targetLabel)) {
+                return false;
+            }
+            return true;
         }
-    }
 
-    private class TargetLabelFilter extends RowFilter<EdgeTableModel, Integer> {
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean include(
-                javax.swing.RowFilter.Entry<? extends EdgeTableModel, ? extends Integer> entry) {
-            String filterText = targetLabelField.getText();
-            if (filterText == null || filterText.isEmpty()) {
-                return true;
+        private static String lowerCase(String text) {
+            if (text == null || text.isEmpty()) {
+                return null;
             }
-
-            KamEdge edge = entry.getModel().getEdges()
-                    .get(entry.getIdentifier());
-
-            return edge.getTarget().getLabel().toLowerCase()
-                    .contains(filterText.toLowerCase());
+            return text.toLowerCase();
         }
     }
 
@@ -30,7 +30,6 @@ import java.awt.event.KeyListener;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 import javax.swing.DefaultComboBoxModel;
@@ -52,9 +51,8 @@ import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableRowSorter;
 
 import org.openbel.cytoscape.webservice.Configuration;
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
 import org.openbel.cytoscape.navigator.EdgeOption;
+import org.openbel.cytoscape.navigator.KamCatalog;
 import org.openbel.cytoscape.navigator.KamOption;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.KamSession;
@@ -83,7 +81,6 @@ public class SearchKamDialog extends JDialog implements ActionListener {
     private TableRowSorter<ResultsTableModel> rowSorter;
     private CyNetwork lastSearchedNetwork = null;
     private KamIdentifier lastSearchedKamId = null;
-    private final KamService kamService;
     
     // swing components
     private JTable resultsTable;
@@ -106,7 +103,6 @@ public class SearchKamDialog extends JDialog implements ActionListener {
      */
     public SearchKamDialog() {
         super(Cytoscape.getDesktop(), DIALOG_TITLE, true);
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
         
         initUI();
     }
@@ -445,26 +441,20 @@ public class SearchKamDialog extends JDialog implements ActionListener {
     }
 
     private List<KamOption> buildKamOptions() {
-        List<Kam> kamCatalog = kamService.getCatalog();
+        List<Kam> kamCatalog;
 
         // If there is a kam associated with the current network, it should
         // be the only kam shown
         KamIdentifier currentKamId = KamSession.getInstance()
                 .getCurrentNetworkKamIdentifier();
-        // quick and dirty method to filter out kams that don't match
-        // might not be that quick, but is very dirty
         if (currentKamId != null) {
-            String wsdlUrl = Configuration.getInstance().getWSDLURL();
-
-            for (Iterator<Kam> it = kamCatalog.iterator(); it.hasNext();) {
-                Kam kam = it.next();
-                // XXX creating an object each iteration is probably not the
-                // best thing, but it will work in a pinch
-                KamIdentifier kamId = new KamIdentifier(kam, wsdlUrl);
-                if (!kamId.equals(currentKamId)) {
-                    it.remove();
-                }
+            kamCatalog = new ArrayList<Kam>(1);
+            Kam kam = KamCatalog.getInstance().getKam(currentKamId);
+            if (kam != null) {
+                kamCatalog.add(kam);
             }
+        } else {
+            kamCatalog = KamCatalog.getInstance().getKams();
         }
 
         List<KamOption> kamOptions = new ArrayList<KamOption>(kamCatalog.size());
@@ -21,43 +21,49 @@ package org.openbel.cytoscape.navigator.dialog;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.GroupLayout;
 import javax.swing.GroupLayout.Alignment;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.LayoutStyle.ComponentPlacement;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableRowSorter;
+import javax.xml.ws.WebServiceException;
 
 import org.openbel.cytoscape.webservice.Configuration;
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.NamespaceDictionary;
 import org.openbel.cytoscape.navigator.EdgeOption;
+import org.openbel.cytoscape.navigator.KamCatalog;
 import org.openbel.cytoscape.navigator.KamOption;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.navigator.NavigatorExecutor;
 import org.openbel.cytoscape.navigator.Utility;
 import org.openbel.cytoscape.navigator.task.AbstractSearchKamTask;
 import org.openbel.cytoscape.navigator.task.KamTasks;
+import org.openbel.cytoscape.navigator.task.ReadIdentifiersTask;
 
 import org.openbel.framework.ws.model.EdgeDirectionType;
 import org.openbel.framework.ws.model.FunctionType;
@@ -86,8 +92,7 @@ public final class SearchKamListDialog extends JDialog {
     public static final String TITLE = "Add KAM Nodes From List";
     private static final String ALL_SELECTION = "ALL";
 
-    private final KamService kamService;
-    private final List<String> identifiers = new ArrayList<String>();
+    private Set<String> identifiers = Collections.emptySet();
     private final CyFileFilter csvAndTxtFilter;
     
     private CyNetwork lastSearchedNetwork = null;
@@ -99,6 +104,7 @@ public final class SearchKamListDialog extends JDialog {
     private JLabel browseResultsLabel;
     private JButton cancelButton;
     private JComboBox edgeComboBox;
+    private JCheckBox exactMatchCheckBox;
     private JLabel edgeLabel;
     private JTextField fileTextField;
     private JComboBox functionComboBox;
@@ -116,7 +122,6 @@ public final class SearchKamListDialog extends JDialog {
     public SearchKamListDialog() {
         super(Cytoscape.getDesktop(), TITLE, true);
 
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
         initUI();
         
         // TODO other files besides CSV and TXT are still selectable
@@ -152,9 +157,10 @@ public final class SearchKamListDialog extends JDialog {
         kamComboBox.setModel(new DefaultComboBoxModel(kamOptions
                 .toArray(new KamOption[kamOptions.size()])));
 
-        // namespace options
-        namespaceComboBox.setModel(new DefaultComboBoxModel(
-                new Vector<NamespaceOption>(getNamespaceOptions())));
+        // namespace options, fetched off the event dispatch thread
+        namespaceComboBox.setModel(new DefaultComboBoxModel());
+        namespaceComboBox.setEnabled(false);
+        loadNamespaceOptions();
 
         // file text field
         fileTextField.setText("");
@@ -241,28 +247,54 @@ public final class SearchKamListDialog extends JDialog {
         }
 
         // clear previous identifiers whenever selecting a new file
-        this.identifiers.clear();
+        this.identifiers = Collections.emptySet();
         
         fileTextField.setText(file.getName());
 
-        List<String> fileIdentifiers = null;
+        int column;
         try {
-            fileIdentifiers = readIdentifiersFromFile(file);
+            column = selectColumn(file);
         } catch (IOException ex) {
             log.warn("Error reading identifiers from file", ex);
+            column = -1;
         }
 
-        if (!Utility.isEmpty(fileIdentifiers)) {
-            this.identifiers.addAll(fileIdentifiers);
+        if (column != -1) {
+            ReadIdentifiersTask task = new ReadIdentifiersTask(file, column);
+            Utility.executeTask(task);
+            if (task.isComplete()) {
+                this.identifiers = task.getIdentifiers();
+            }
         }
 
-        searchButton.setEnabled(!Utility.isEmpty(identifiers));
+        updateSearchButton();
         
-        int results = 0;
-        if (identifiers != null) {
-            results = identifiers.size();
+        browseResultsLabel.setText(identifiers.size() + " identifiers in file");
+    }
+
+    /**
+     * Asks for the column of the identifiers if {@code file} has more than
+     * one, offering the fields of its first line.
+     * 
+     * @return the zero-based column, or -1 if none was chosen
+     */
+    private int selectColumn(File file) throws IOException {
+        List<String> firstRow = ReadIdentifiersTask.readFirstRow(file);
+        if (firstRow.size() <= 1) {
+            return 0;
         }
-        browseResultsLabel.setText(results + " identifiers in file");
+
+        String[] columns = new String[firstRow.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = (i + 1) + ": " + firstRow.get(i);
+        }
+        Object selected = JOptionPane.showInputDialog(this,
+                "Column with the identifiers:", TITLE,
+                JOptionPane.QUESTION_MESSAGE, null, columns, columns[0]);
+        if (selected == null) {
+            return -1;
+        }
+        return Arrays.asList(columns).indexOf(selected);
     }
 
     private void cancelButtonActionPerformed(ActionEvent e) {
@@ -292,25 +324,128 @@ public final class SearchKamListDialog extends JDialog {
             functionType = FunctionType.valueOf((String) functionComboBox
                     .getSelectedItem());
         }
-        
+
+        // identifiers of batches that failed to search
+        final AtomicInteger failed = new AtomicInteger();
+        // identifiers not in the namespace
+        final AtomicInteger unmatched = new AtomicInteger();
         final Task task = new AbstractSearchKamTask(lastSearchedKamId, functionType,
-                namespace, identifiers) {
+                namespace, identifiers, exactMatchCheckBox.isSelected()) {
+
+            @Override
+            protected void updatePartialResults(final Collection<KamNode> nodes) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        model.addData(nodes);
+                        resultsFoundLabel.setText(foundText(model.getRowCount(),
+                                failed.get(), unmatched.get()));
+                        resultsFoundLabel.setVisible(true);
+                    }
+                });
+            }
 
             @Override
-            protected void updateUI(Collection<KamNode> nodes) {
-                model.setData(nodes);
-                addButton.setEnabled(!Utility.isEmpty(nodes));
-            
-                resultsFoundLabel.setText(nodes.size() + " found");
-                resultsFoundLabel.setVisible(true);
+            protected void identifiersUnmatched(final List<String> identifiers) {
+                unmatched.set(identifiers.size());
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        resultsFoundLabel.setText(foundText(model.getRowCount(),
+                                failed.get(), unmatched.get()));
+                        resultsFoundLabel.setVisible(true);
+                    }
+                });
+            }
+
+            @Override
+            protected void chunkFailed(List<String> identifiers, Throwable cause) {
+                failed.addAndGet(identifiers.size());
+            }
+
+            @Override
+            protected void updateUI(final Collection<KamNode> nodes) {
+                // queued behind any partial results still to be shown
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        model.setData(nodes);
+                        addButton.setEnabled(!Utility.isEmpty(nodes));
+
+                        resultsFoundLabel.setText(foundText(nodes.size(),
+                                failed.get(), unmatched.get()));
+                        resultsFoundLabel.setVisible(true);
+                    }
+                });
             }
         };
         Utility.executeTask(task);
     }
 
+    private static String foundText(int found, int failed, int unmatched) {
+        StringBuilder text = new StringBuilder();
+        text.append(found).append(" found");
+        if (unmatched != 0) {
+            text.append(", ").append(unmatched).append(
+                    " identifiers not in namespace");
+        }
+        if (failed != 0) {
+            text.append(", ").append(failed).append(" identifiers failed");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Fills the namespace options once the namespaces have been fetched by
+     * the {@link NavigatorExecutor}.
+     */
+    private void loadNamespaceOptions() {
+        NavigatorExecutor.getInstance().submit(new Runnable() {
+            @Override
+            public void run() {
+                final List<NamespaceOption> options;
+                try {
+                    options = getNamespaceOptions();
+                } catch (final WebServiceException ex) {
+                    log.warn("Error fetching namespaces", ex);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            JOptionPane.showMessageDialog(
+                                    SearchKamListDialog.this,
+                                    "Error fetching namespaces: "
+                                            + ex.getMessage(), TITLE,
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    });
+                    return;
+                }
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        namespaceComboBox.setModel(new DefaultComboBoxModel(
+                                new Vector<NamespaceOption>(options)));
+                        namespaceComboBox.setEnabled(true);
+                        updateSearchButton();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Searching needs identifiers and a namespace.
+     */
+    private void updateSearchButton() {
+        searchButton.setEnabled(!Utility.isEmpty(identifiers)
+                && namespaceComboBox.getSelectedItem() != null);
+    }
+
     private List<NamespaceOption> getNamespaceOptions() {
         List<NamespaceOption> options = new ArrayList<NamespaceOption>();
-        for (NamespaceDescriptor desc : kamService.getAllNamespaces()) {
+        for (NamespaceDescriptor desc : NamespaceDictionary.getInstance()
+                .getNamespaces()) {
             options.add(new NamespaceOption(desc));
         }
         Collections.sort(options);
@@ -319,26 +454,20 @@ public final class SearchKamListDialog extends JDialog {
     
 
     private List<KamOption> buildKamOptions() {
-        List<Kam> kamCatalog = kamService.getCatalog();
+        List<Kam> kamCatalog;
 
         // If there is a kam associated with the current network, it should
         // be the only kam shown
         KamIdentifier currentKamId = KamSession.getInstance()
                 .getCurrentNetworkKamIdentifier();
-        // quick and dirty method to filter out kams that don't match
-        // might not be that quick, but is very dirty
         if (currentKamId != null) {
-            String wsdlUrl = Configuration.getInstance().getWSDLURL();
-
-            for (Iterator<Kam> it = kamCatalog.iterator(); it.hasNext();) {
-                Kam kam = it.next();
-                // XXX creating an object each iteration is probably not the
-                // best thing, but it will work in a pinch
-                KamIdentifier kamId = new KamIdentifier(kam, wsdlUrl);
-                if (!kamId.equals(currentKamId)) {
-                    it.remove();
-                }
+            kamCatalog = new ArrayList<Kam>(1);
+            Kam kam = KamCatalog.getInstance().getKam(currentKamId);
+            if (kam != null) {
+                kamCatalog.add(kam);
             }
+        } else {
+            kamCatalog = KamCatalog.getInstance().getKams();
         }
 
         List<KamOption> kamOptions = new ArrayList<KamOption>(kamCatalog.size());
@@ -364,6 +493,7 @@ public final class SearchKamListDialog extends JDialog {
         resultsTable = new JTable();
         resultsFoundLabel = new JLabel();
         searchButton = new JButton();
+        exactMatchCheckBox = new JCheckBox();
         edgeComboBox = new JComboBox();
         edgeLabel = new JLabel();
         kamLabel = new JLabel();
@@ -401,6 +531,10 @@ public final class SearchKamListDialog extends JDialog {
 
         searchButton.setText("Search");
 
+        exactMatchCheckBox.setText("Exact identifiers");
+        exactMatchCheckBox.setToolTipText(
+                "Match identifiers exactly, searching as prefixes only those not found");
+
         edgeLabel.setLabelFor(edgeComboBox);
         edgeLabel.setText("Expand Edges:");
 
@@ -417,6 +551,7 @@ public final class SearchKamListDialog extends JDialog {
                         .addGap(18, 18, 18)
                         .addComponent(edgeComboBox, 0, GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                     .addGroup(Alignment.TRAILING, resultsPanelLayout.createSequentialGroup()
+                        .addComponent(exactMatchCheckBox)
                         .addGap(0, 0, Short.MAX_VALUE)
                         .addComponent(cancelButton)
                         .addGap(18, 18, 18)
@@ -441,6 +576,7 @@ public final class SearchKamListDialog extends JDialog {
                     .addComponent(edgeLabel))
                 .addGap(18, 18, 18)
                 .addGroup(resultsPanelLayout.createParallelGroup(Alignment.BASELINE)
+                    .addComponent(exactMatchCheckBox)
                     .addComponent(addButton)
                     .addComponent(cancelButton)
                     .addComponent(searchButton))
@@ -512,58 +648,6 @@ public final class SearchKamListDialog extends JDialog {
         pack();
     }
 
-    private static List<String> readIdentifiersFromFile(final File file)
-            throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(file));
-
-        List<String> identifiers = new ArrayList<String>();
-        // this is null so it can be determined by the first iteration
-        Boolean csv = null;
-        try {
-            for (String line = null; (line = reader.readLine()) != null;) {
-                if (isBlank(line)) {
-                    // ignore blank lines
-                    continue;
-                }
-
-                if (csv == null) {
-                    csv = (line.indexOf(",") != -1);
-                }
-
-                if (csv) {
-                    // if csv take first column as identifier
-                    String[] split = line.split(",");
-                    String firstColumn = split[0];
-                    if (!isBlank(firstColumn)) { // don't add blank identifiers
-                        identifiers.add(firstColumn.trim());
-                    }
-                } else {
-                    // else just take entire line as identifier
-                    identifiers.add(line.trim());
-                }
-            }
-        } finally {
-            Utility.closeSilently(reader);
-        }
-        return identifiers;
-    }
-
-    /**
-     * Returns true if string is null, empty, or all whitespace
-     */
-    private static boolean isBlank(final String string) {
-        if (string == null || string.isEmpty()) {
-            return true;
-        }
-
-        for (char c : string.toCharArray()) {
-            if (!Character.isWhitespace(c)) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     private static final class NamespaceOption implements
             Comparable<NamespaceOption> {
         private final NamespaceDescriptor descriptor;
@@ -614,6 +698,12 @@ public final class SearchKamListDialog extends JDialog {
             fireTableDataChanged();
         }
 
+        public void addData(final Collection<KamNode> nodes) {
+            final int first = this.nodes.size();
+            this.nodes.addAll(nodes);
+            fireTableRowsInserted(first, this.nodes.size() - 1);
+        }
+
         public void clear() {
             nodes.clear();
             fireTableDataChanged();
@@ -19,22 +19,39 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
-import org.openbel.cytoscape.webservice.KamService;
+import javax.xml.ws.WebServiceException;
+
+import org.openbel.cytoscape.webservice.AsyncKamService;
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamFuture;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.NamespaceDictionary;
+import org.openbel.cytoscape.webservice.RequestMonitor;
 import org.openbel.cytoscape.navigator.KamLoader;
 import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.navigator.NavigatorExecutor;
+import org.openbel.cytoscape.navigator.SearchResultCache;
 import org.openbel.cytoscape.navigator.Utility;
 import org.openbel.cytoscape.navigator.KamLoader.KAMLoadException;
 
@@ -57,23 +74,65 @@ import cytoscape.task.TaskMonitor;
  * 
  * Any needed UI updates will have to be implemented by subclasses
  * 
+ * Identifier searches are split into batches of
+ * {@link Configuration#getSearchBatchSize()} identifiers that are searched
+ * concurrently, at most {@link Configuration#getRequestThreads()} at a time.
+ * Subclasses are told about the nodes found by each batch as it completes
+ * and about batches that failed.
+ * 
+ * In exact match mode identifiers that are values of the namespace are
+ * looked up as namespace values directly, skipping the pattern search for
+ * namespace values.  Only the identifiers that are not values of the
+ * namespace are searched as prefixes.
+ * 
+ * Identifiers are first resolved to namespace values with the local
+ * {@link NamespaceDictionary}.  Identifiers that match no value are reported
+ * before the search starts, and only the resolved values are sent to the
+ * Web API.  If the dictionary is unavailable the Web API resolves the
+ * identifiers instead.
+ * 
+ * Complete results are kept in the {@link SearchResultCache}, and a search
+ * found there is answered without asking the Web API.
+ * 
  * @author James McMahon &lt;jmcmahon@selventa.com&gt;
  */
 public abstract class AbstractSearchKamTask implements Task {
     
     private static final CyLogger log = CyLogger.getLogger(AbstractSearchKamTask.class);
+    // orders nodes by label, null nodes first
+    private static final Comparator<KamNode> LABEL_ORDER = new Comparator<KamNode>() {
+        @Override
+        public int compare(KamNode o1, KamNode o2) {
+            if (o1 == null ^ o2 == null) {
+                return (o1 == null) ? -1 : 1;
+            }
+            if (o1 == null && o2 == null) {
+                return 0;
+            }
+
+            return o1.getLabel().compareTo(o2.getLabel());
+        }
+    };
 
     private final KamIdentifier kamId;
     private final FunctionType function;
     private final Namespace namespace;
     private final Collection<String> identifiers;
-    private final KamService kamService;
+    private final AsyncKamService kamService;
     private final boolean functionOnly;
+    private final boolean exactMatch;
 
     private TaskMonitor monitor;
 
     // marked as volatile in case halt is called by multiple threads
     private volatile boolean halt = false;
+    // set if any batch failed, the results are then incomplete
+    private volatile boolean failed = false;
+    // identifiers that matched no namespace value
+    private List<String> unmatched = Collections.emptyList();
+    // the in-flight searches, canceled on halt
+    private final List<Future<List<KamNode>>> searches =
+            new CopyOnWriteArrayList<Future<List<KamNode>>>();
 
     public AbstractSearchKamTask(KamIdentifier kamId,
             FunctionType function) {
@@ -82,7 +141,37 @@ public abstract class AbstractSearchKamTask implements Task {
 
     public AbstractSearchKamTask(KamIdentifier kamId,
             FunctionType function, Namespace namespace,
-            List<String> identifiers) {
+            Collection<String> identifiers) {
+        this(kamId, function, namespace, identifiers, false);
+    }
+
+    /**
+     * Creates a search for the {@link KamNode kam nodes} of
+     * {@code identifiers} in {@code namespace}.
+     * 
+     * @param kamId
+     *            the KAM to search
+     * @param function
+     *            the function of the nodes, or {@code null} for any
+     * @param namespace
+     *            the namespace of the identifiers
+     * @param identifiers
+     *            the identifiers to search for
+     * @param exactMatch
+     *            {@code true} to look the identifiers up as namespace values
+     *            first, searching only unmatched identifiers as prefixes;
+     *            {@code false} to search all identifiers as prefixes
+     */
+    public AbstractSearchKamTask(KamIdentifier kamId,
+            FunctionType function, Namespace namespace,
+            Collection<String> identifiers, boolean exactMatch) {
+        this(kamId, function, namespace, identifiers, exactMatch,
+                KamServiceFactory.getInstance().getAsyncKAMService());
+    }
+
+    AbstractSearchKamTask(KamIdentifier kamId, FunctionType function,
+            Namespace namespace, Collection<String> identifiers,
+            boolean exactMatch, AsyncKamService kamService) {
         if (namespace != null && Utility.isEmpty(identifiers)) {
             throw new IllegalArgumentException(
                     "Can't search namespace without identifiers");
@@ -96,8 +185,9 @@ public abstract class AbstractSearchKamTask implements Task {
         this.function = function;
         this.namespace = namespace;
         this.identifiers = identifiers;
+        this.exactMatch = exactMatch;
 
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.kamService = kamService;
         if (function != null && namespace == null) {
             functionOnly = true;
         } else {
@@ -113,6 +203,44 @@ public abstract class AbstractSearchKamTask implements Task {
      */
     protected abstract void updateUI(Collection<KamNode> nodes);
 
+    /**
+     * Called as each batch of an identifier search completes, possibly from
+     * several threads at once and never on the event dispatch thread.  All
+     * nodes found are still passed to {@link #updateUI(Collection)} once the
+     * search has finished.  The default implementation does nothing.
+     * 
+     * @param nodes
+     *            nodes found by the batch that no earlier batch had found
+     */
+    protected void updatePartialResults(Collection<KamNode> nodes) {
+    }
+
+    /**
+     * Called before an identifier search starts with the identifiers that
+     * match no value of the namespace, and so will not be searched.  The
+     * default implementation does nothing.
+     * 
+     * @param identifiers
+     *            the unmatched identifiers
+     */
+    protected void identifiersUnmatched(List<String> identifiers) {
+    }
+
+    /**
+     * Called when a batch of an identifier search fails, possibly from
+     * several threads at once and never on the event dispatch thread.  The
+     * remaining batches are still searched.  The default implementation does
+     * nothing.
+     * 
+     * @param identifiers
+     *            the identifiers of the failed batch, or its namespace values
+     *            if the identifiers were resolved locally
+     * @param cause
+     *            the failure
+     */
+    protected void chunkFailed(List<String> identifiers, Throwable cause) {
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -136,6 +264,10 @@ public abstract class AbstractSearchKamTask implements Task {
     @Override
     public void halt() {
         this.halt = true;
+
+        for (Future<List<KamNode>> f : searches) {
+            f.cancel(true);
+        }
     }
 
     /**
@@ -159,6 +291,19 @@ public abstract class AbstractSearchKamTask implements Task {
             monitor.setPercentCompleted(100);
         }
         
+        SearchResultCache.Key cacheKey = SearchResultCache.key(kamId,
+                function, namespace, identifiers, exactMatch);
+        SearchResultCache.Result cached = SearchResultCache.getInstance()
+                .get(cacheKey);
+        if (cached != null) {
+            if (!cached.getUnmatched().isEmpty()) {
+                identifiersUnmatched(cached.getUnmatched());
+            }
+            updateUI(cached.getNodes());
+            monitor.setPercentCompleted(100);
+            return;
+        }
+
         monitor.setStatus("Searching for KAM Nodes");
 
         monitor.setPercentCompleted(0);
@@ -167,91 +312,344 @@ public abstract class AbstractSearchKamTask implements Task {
         // TODO update UI should still be called if the halt command is issued
         // to perform clean up, etc
         if (!halt && nodes != null) {
-            // sort nodes by label
-            Collections.sort(nodes, new Comparator<KamNode>() {
-                @Override
-                public int compare(KamNode o1, KamNode o2) {
-                    if (o1 == null ^ o2 == null) {
-                        return (o1 == null) ? -1 : 1;
-                    }
-                    if (o1 == null && o2 == null) {
-                        return 0;
-                    }
-
-                    return o1.getLabel().compareTo(o2.getLabel());
-                }
-            });
-            
+            sortByLabel(nodes);
+            if (!failed) {
+                SearchResultCache.getInstance().put(cacheKey, nodes,
+                        unmatched);
+            }
             updateUI(nodes);
         }
         monitor.setPercentCompleted(100);
     }
 
     private List<KamNode> searchKAMNodes() {
-        ExecutorService e = Executors.newSingleThreadExecutor();
-        Future<List<KamNode>> future = e.submit(buildCallable());
+        KamHandle kamHandle = KamSession.getInstance().getKamHandle(kamId);
+        DialectHandle dialectHandle = KamSession.getInstance()
+                .getDialectHandle(kamId);
 
-        while (!(future.isDone() || future.isCancelled()) && !e.isShutdown()) {
-            try {
-                if (halt) {
-                    // this should not block
-                    // but be aware that if the thread in the executor is
-                    // blocked it will continue to live on
-                    e.shutdownNow();
+        if (functionOnly) {
+            return awaitSearch(kamService.findKamNodesByFunction(kamHandle,
+                    dialectHandle, function));
+        }
 
-                    future.cancel(true);
-                }
-                // sleep thread to enable interrupt
-                Thread.sleep(100);
-            } catch (InterruptedException ex) {
-                halt = true;
-            }
+        NodeFilter nodeFilter = null;
+        if (function != null) {
+            nodeFilter = buildFunctionFilter(function);
+        }
+
+        List<Namespace> namespaces = null;
+        if (namespace != null) {
+            namespaces = new ArrayList<Namespace>();
+            namespaces.add(namespace);
+        }
+
+        if (Utility.isEmpty(identifiers)) {
+            return awaitSearch(kamService.findKamNodesByNamespacePatterns(
+                    kamHandle, dialectHandle, null, namespaces, nodeFilter));
         }
 
-        if (future.isCancelled()) {
+        List<String> values = resolveIdentifiers();
+        if (halt) {
             return null;
         }
+        return searchBatches(kamHandle, dialectHandle, namespaces, nodeFilter,
+                values);
+    }
+
+    /**
+     * Resolves the identifiers with the {@link NamespaceDictionary}.
+     * 
+     * @return the distinct values resolved, or {@code null} if the
+     *         identifiers must be resolved by the Web API
+     */
+    private List<String> resolveIdentifiers() {
+        monitor.setStatus("Resolving identifiers");
+        NamespaceDictionary.Resolution resolution;
         try {
-            return future.get();
-        } catch (InterruptedException ex) {
-            log.warn("Error searching kam nodes", ex);
+            resolution = NamespaceDictionary.getInstance().resolve(namespace,
+                    identifiers, exactMatch, new RequestMonitor() {
+                        @Override
+                        public void requestCompleted(int completed, int total) {
+                            monitor.setStatus("Downloading namespace values");
+                            monitor.setPercentCompleted(completed * 100 / total);
+                        }
+
+                        @Override
+                        public boolean isCanceled() {
+                            return halt;
+                        }
+                    });
+        } catch (InterruptedIOException ex) {
+            // halted while downloading the namespace values
+            return null;
+        } catch (IOException ex) {
+            log.warn("Unable to resolve identifiers locally", ex);
+            return null;
+        } catch (WebServiceException ex) {
+            log.warn("Unable to resolve identifiers locally", ex);
             return null;
+        }
+
+        unmatched = resolution.getUnmatched();
+        if (!unmatched.isEmpty()) {
+            identifiersUnmatched(unmatched);
+        }
+
+        Set<String> values = new LinkedHashSet<String>();
+        for (final NamespaceValue value : resolution.getValues()) {
+            values.add(value.getValue());
+        }
+        return new ArrayList<String>(values);
+    }
+
+    private List<KamNode> awaitSearch(KamFuture<List<KamNode>> search) {
+        searches.add(search);
+        // halt may have been called before the search was published
+        if (halt) {
+            search.cancel(true);
+        }
+
+        try {
+            return NavigatorExecutor.getInstance().await(search);
         } catch (ExecutionException ex) {
             log.warn("Error searching kam nodes", ex);
             return null;
+        } finally {
+            searches.remove(search);
         }
     }
 
-    private Callable<List<KamNode>> buildCallable() {
-        KamHandle kamHandle = KamSession.getInstance().getKamHandle(kamId);
-        DialectHandle dialectHandle = KamSession.getInstance()
-                .getDialectHandle(kamId);
+    /**
+     * Searches for the nodes of the identifiers batch by batch, or for the
+     * nodes of {@code values} if the identifiers were resolved locally.
+     */
+    private List<KamNode> searchBatches(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final List<Namespace> namespaces,
+            final NodeFilter nodeFilter, final List<String> values) {
+        final List<List<String>> batches = partition(values != null ? values
+                : identifiers, Configuration.getInstance().getSearchBatchSize());
+        if (batches.isEmpty()) {
+            return new ArrayList<KamNode>();
+        }
+        final int permits = Configuration.getInstance().getRequestThreads();
+        final Semaphore inFlight = new Semaphore(permits);
+        final AtomicInteger searched = new AtomicInteger();
+        // found nodes by id, guarded by itself
+        final Map<String, KamNode> found = new LinkedHashMap<String, KamNode>();
 
-        if (functionOnly) {
-            return new SingleFunctionSearch(kamHandle, dialectHandle, function,
-                    kamService);
+        try {
+            for (final List<String> batch : batches) {
+                inFlight.acquire();
+                if (halt) {
+                    inFlight.release();
+                    break;
+                }
+
+                final KamFuture<List<KamNode>> search;
+                if (values != null) {
+                    search = searchValues(kamHandle, dialectHandle, batch,
+                            nodeFilter);
+                } else if (exactMatch) {
+                    search = searchExact(kamHandle, dialectHandle, batch,
+                            namespaces, nodeFilter);
+                } else {
+                    search = searchPrefixes(kamHandle, dialectHandle, batch,
+                            namespaces, nodeFilter);
+                }
+                searches.add(search);
+                // halt may have been called before the search was published
+                if (halt) {
+                    search.cancel(true);
+                }
+
+                search.addCallback(new KamFuture.Callback<List<KamNode>>() {
+                    @Override
+                    public void completed(List<KamNode> nodes) {
+                        List<KamNode> added = new ArrayList<KamNode>();
+                        synchronized (found) {
+                            for (KamNode node : nodes) {
+                                if (!found.containsKey(node.getId())) {
+                                    found.put(node.getId(), node);
+                                    added.add(node);
+                                }
+                            }
+                        }
+                        if (!halt && !added.isEmpty()) {
+                            updatePartialResults(added);
+                        }
+                        batchDone();
+                    }
+
+                    @Override
+                    public void failed(Throwable t) {
+                        failed = true;
+                        if (!halt && !(t instanceof CancellationException)) {
+                            log.warn("Error searching kam nodes", t);
+                            chunkFailed(batch, t);
+                        }
+                        batchDone();
+                    }
+
+                    private void batchDone() {
+                        searches.remove(search);
+                        int n = searched.incrementAndGet();
+                        monitor.setStatus("Searched " + n + " of "
+                                + batches.size() + " identifier batches");
+                        monitor.setPercentCompleted(n * 100 / batches.size());
+                        inFlight.release();
+                    }
+                });
+            }
+
+            // wait for the batches still in flight
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            halt();
+            // keep the interrupt for the caller
+            Thread.currentThread().interrupt();
         }
 
-        NodeFilter nodeFilter = null;
-        if (function != null) {
-            nodeFilter = buildFunctionFilter(function);
+        if (halt) {
+            return null;
+        }
+        synchronized (found) {
+            return new ArrayList<KamNode>(found.values());
         }
+    }
 
-        List<Namespace> namespaces = null;
-        if (namespace != null) {
-            namespaces = new ArrayList<Namespace>();
-            namespaces.add(namespace);
+    private KamFuture<List<KamNode>> searchPrefixes(KamHandle kamHandle,
+            DialectHandle dialectHandle, List<String> batch,
+            List<Namespace> namespaces, NodeFilter nodeFilter) {
+        boolean rightOnlyWildcard = true;
+        // TODO implement logic for when to use right side only wildcards
+        return kamService.findKamNodesByNamespacePatterns(kamHandle,
+                dialectHandle, buildRegexPatterns(batch, rightOnlyWildcard),
+                namespaces, nodeFilter);
+    }
+
+    private KamFuture<List<KamNode>> searchValues(KamHandle kamHandle,
+            DialectHandle dialectHandle, List<String> batch,
+            NodeFilter nodeFilter) {
+        List<NamespaceValue> values = new ArrayList<NamespaceValue>(
+                batch.size());
+        for (final String identifier : batch) {
+            NamespaceValue value = new NamespaceValue();
+            value.setNamespace(namespace);
+            value.setValue(identifier);
+            values.add(value);
         }
+        return kamService.findKamNodesByNamespaceValues(kamHandle,
+                dialectHandle, values, nodeFilter);
+    }
+
+    /**
+     * Looks up the identifiers of {@code batch} that are values of the
+     * namespace as namespace values and searches the others as prefixes.
+     * Which identifiers are values is asked of the Web API rather than read
+     * from the nodes found, since an equivalenced node may be labelled with
+     * a value of another namespace.
+     */
+    KamFuture<List<KamNode>> searchExact(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final List<String> batch,
+            final List<Namespace> namespaces, final NodeFilter nodeFilter) {
+        return kamService.findNamespaceValues(buildExactPatterns(batch),
+                namespaces).compose(
+                new KamFuture.Continuation<List<NamespaceValue>, List<KamNode>>() {
+                    @Override
+                    public KamFuture<List<KamNode>> apply(
+                            final List<NamespaceValue> values) {
+                        Set<String> known = new HashSet<String>();
+                        if (values != null) {
+                            for (final NamespaceValue value : values) {
+                                known.add(value.getValue());
+                            }
+                        }
+                        List<String> exact = new ArrayList<String>();
+                        final List<String> missing = new ArrayList<String>();
+                        for (final String identifier : batch) {
+                            if (known.contains(identifier)) {
+                                exact.add(identifier);
+                            } else {
+                                missing.add(identifier);
+                            }
+                        }
+
+                        if (exact.isEmpty()) {
+                            return searchPrefixes(kamHandle, dialectHandle,
+                                    missing, namespaces, nodeFilter);
+                        }
+                        return searchValues(kamHandle, dialectHandle, exact,
+                                nodeFilter).compose(
+                                new KamFuture.Continuation<List<KamNode>, List<KamNode>>() {
+                                    @Override
+                                    public KamFuture<List<KamNode>> apply(
+                                            List<KamNode> found) {
+                                        return searchMissing(kamHandle,
+                                                dialectHandle, found,
+                                                missing, namespaces,
+                                                nodeFilter);
+                                    }
+                                });
+                    }
+                });
+    }
 
-        List<String> patterns = null;
-        if (!Utility.isEmpty(identifiers)) {
-            boolean rightOnlyWildcard = true;
-            // TODO implement logic for when to use right side only wildcards
-            patterns = buildRegexPatterns(identifiers, rightOnlyWildcard);
+    /**
+     * Searches {@code missing} as prefixes, adding the nodes found to
+     * {@code found}.
+     */
+    private KamFuture<List<KamNode>> searchMissing(KamHandle kamHandle,
+            DialectHandle dialectHandle, List<KamNode> found,
+            List<String> missing, List<Namespace> namespaces,
+            NodeFilter nodeFilter) {
+        final List<KamNode> nodes = new ArrayList<KamNode>();
+        if (found != null) {
+            nodes.addAll(found);
+        }
+        if (missing.isEmpty()) {
+            return KamFuture.completed(nodes);
         }
 
-        return new NamespaceSearch(kamHandle, dialectHandle, nodeFilter,
-                namespaces, patterns, kamService);
+        // fall back to prefixes for what is not a value
+        return searchPrefixes(kamHandle, dialectHandle, missing, namespaces,
+                nodeFilter).compose(
+                new KamFuture.Continuation<List<KamNode>, List<KamNode>>() {
+                    @Override
+                    public KamFuture<List<KamNode>> apply(
+                            List<KamNode> prefixed) {
+                        if (prefixed != null) {
+                            nodes.addAll(prefixed);
+                        }
+                        return KamFuture.completed(nodes);
+                    }
+                });
+    }
+
+    /**
+     * Sorts search results by label, in place.
+     * 
+     * @param nodes
+     *            the {@link KamNode kam nodes} to sort
+     */
+    static void sortByLabel(List<KamNode> nodes) {
+        Collections.sort(nodes, LABEL_ORDER);
+    }
+
+    private static List<List<String>> partition(Collection<String> values,
+            int size) {
+        List<List<String>> batches = new ArrayList<List<String>>();
+        List<String> batch = new ArrayList<String>(size);
+        for (final String value : values) {
+            batch.add(value);
+            if (batch.size() == size) {
+                batches.add(batch);
+                batch = new ArrayList<String>(size);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
     }
 
     private static NodeFilter buildFunctionFilter(FunctionType function) {
@@ -263,6 +661,19 @@ public abstract class AbstractSearchKamTask implements Task {
         return nf;
     }
 
+    /**
+     * Builds patterns matching exactly {@code identifiers}; the Web API
+     * matches patterns as Java regular expressions.
+     */
+    private static List<String> buildExactPatterns(
+            Collection<String> identifiers) {
+        List<String> patterns = new ArrayList<String>();
+        for (final String identifier : identifiers) {
+            patterns.add(Pattern.quote(identifier));
+        }
+        return patterns;
+    }
+
     private static List<String> buildRegexPatterns(
             Collection<String> identifiers, boolean rightOnlyWildcard) {
         final String wildCard = ".*";
@@ -279,81 +690,4 @@ public abstract class AbstractSearchKamTask implements Task {
         }
         return patterns;
     }
-
-    private static class SingleFunctionSearch implements
-            Callable<List<KamNode>> {
-
-        private final KamHandle kamHandle;
-        private final DialectHandle dialectHandle;
-        private final FunctionType function;
-        private final KamService kamService;
-
-        public SingleFunctionSearch(KamHandle kamHandle,
-                DialectHandle dialectHandle, FunctionType function,
-                KamService kamService) {
-            if (kamHandle == null || dialectHandle == null || function == null
-                    || kamService == null) {
-                throw new IllegalArgumentException("Null parameter");
-            }
-
-            this.kamHandle = kamHandle;
-            this.dialectHandle = dialectHandle;
-            this.function = function;
-            this.kamService = kamService;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public List<KamNode> call() throws Exception {
-            // find kam nodes by function
-            return kamService.findKamNodesByFunction(kamHandle, dialectHandle,
-                    function);
-        }
-    }
-
-    // TODO we don't need to use patterns, can construct namespace value
-    // directly, at least for existing searches
-    private class NamespaceSearch implements Callable<List<KamNode>> {
-
-        private final KamHandle kamHandle;
-        private final DialectHandle dialectHandle;
-        private final NodeFilter nodeFilter;
-        private final Collection<Namespace> namespaces;
-        private final Collection<String> patterns;
-        private final KamService kamService;
-
-        public NamespaceSearch(KamHandle kamHandle,
-                DialectHandle dialectHandle, NodeFilter nodeFilter,
-                Collection<Namespace> namespaces, Collection<String> patterns,
-                KamService kamService) {
-            this.kamHandle = kamHandle;
-            this.dialectHandle = dialectHandle;
-            this.nodeFilter = nodeFilter;
-            this.namespaces = namespaces;
-            this.patterns = patterns;
-            this.kamService = kamService;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public List<KamNode> call() throws Exception {
-            List<NamespaceValue> namespaceValues = kamService
-                    .findNamespaceValues(patterns, namespaces);
-            if (halt) {
-                return null;
-            }
-
-            if (Utility.isEmpty(namespaceValues)) {
-                // nothing found, different from null being returned
-                return new ArrayList<KamNode>();
-            }
-
-            return kamService.findKamNodesByNamespaceValues(kamHandle,
-                    dialectHandle, namespaceValues, nodeFilter);
-        }
-    }
 }
@@ -20,7 +20,6 @@
 package org.openbel.cytoscape.navigator.task;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -53,7 +52,7 @@ import cytoscape.view.CyNetworkView;
  */
 class AddEdgesTask implements Task {
     private static final String TITLE = "Adding Edges";
-    private TaskMonitor monitor;
+    protected TaskMonitor monitor;
     protected boolean halt = false;
     protected final CyNetwork cyNetwork;
     protected final KamIdentifier kamId;
@@ -76,42 +75,12 @@ class AddEdgesTask implements Task {
         }
         
         monitor.setStatus("Adding " + edgesToAdd.size() + " edges");
-        int percentage = 0;
-        // TODO percentages should take into account previous operations
-        // used by getEdgesToAdd
-        monitor.setPercentCompleted(percentage);
-
-        Set<CyEdge> addedEdges = new HashSet<CyEdge>();
-        // use current percentage to keep track of values less then 1
-        double currentPercentage = 0.0;
-        double nodePercent = (1.0 / edgesToAdd.size()) * 100;
-        for (final KamEdge edge : edgesToAdd) {
-            if (halt) {
-                // stop if halted
-                break;
-            }
-
-            KamSession.getInstance().associateNetworkWithKam(cyNetwork, kamId);
-            CyEdge cyEdge = NetworkUtility.addEdge(cyNetwork, kamId, edge);
-            addedEdges.add(cyEdge);
-            
-            // TODO move percentage code (used by this and add nodes)
-            // to some shared location
-            currentPercentage += nodePercent;
-            if (currentPercentage >= 1.0) {
-                // only add to the percent complete if can be rounded to 1 or
-                // greater
-                int round = (int) Math.round(currentPercentage);
-                percentage += round;
-                monitor.setPercentCompleted(percentage);
-                // set to remainder to even out percentages
-                currentPercentage = currentPercentage - round;
-            }
-        }
+        monitor.setPercentCompleted(0);
 
-        if (halt) {
-            return;
-        }
+        // Add the KAM edges, and any missing endpoints, in one batch
+        KamSession.getInstance().associateNetworkWithKam(cyNetwork, kamId);
+        Set<CyEdge> addedEdges = NetworkUtility.batch(cyNetwork, kamId)
+                .addEdges(edgesToAdd).apply().getEdges();
 
         cyNetwork.unselectAllEdges();
         cyNetwork.setSelectedEdgeState(addedEdges, true);
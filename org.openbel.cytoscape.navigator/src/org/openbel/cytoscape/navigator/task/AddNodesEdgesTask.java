@@ -94,26 +94,22 @@ final class AddNodesEdgesTask extends AddNodesTask {
 
         setStatus();
 
-        for (final KamNode selectedNode : kamNodes) {
-            if (halt) {
-                // stop if halted
-                break;
-            }
-            
-            final List<KamEdge> edges = kamService.getAdjacentKamEdges(
-                    KamSession.getInstance().getDialectHandle(kamId),
-                    selectedNode, direction,
-                    null);
-
-            for (final KamEdge edge : edges) {
-                NetworkUtility.addEdge(cyNetwork, kamId, edge);
-            }
-        }
-        
+        final List<KamEdge> edges = kamService.getAdjacentKamEdges(
+                KamSession.getInstance().getDialectHandle(kamId), kamNodes,
+                direction, null, new TaskRequestMonitor(m) {
+
+                    @Override
+                    public boolean isCanceled() {
+                        return halt;
+                    }
+                });
+
         if (halt) {
             return;
         }
 
+        NetworkUtility.batch(cyNetwork, kamId).addEdges(edges).apply();
+
         cyNetwork.unselectAllNodes();
         cyNetwork.setSelectedNodeState(cynodes, true);
 
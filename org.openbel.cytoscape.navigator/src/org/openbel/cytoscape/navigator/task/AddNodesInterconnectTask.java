@@ -19,6 +19,7 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -97,29 +98,34 @@ final class AddNodesInterconnectTask extends AddNodesTask {
         // If more than one node selected, link up shared edges
         int numNodes = kamNodes.size();
         if (numNodes > 1) {
-            for (final KamNode selectedNode : kamNodes) {
-                if (halt) {
-                    // stop if halted
-                    break;
-                }
-                
-                // TODO this should use the backend interconnect method
-                final List<KamEdge> edges = kamService
-                        .getAdjacentKamEdges(
-                                KamSession.getInstance().getDialectHandle(kamId), 
-                                selectedNode, EdgeDirectionType.BOTH, null);
-
-                for (final KamEdge edge : edges) {
-                    final KamNode esrc = (KamNode) edge.getSource();
-                    final KamNode etgt = (KamNode) edge.getTarget();
-
-                    // filter out adjacent edges not between selected nodes
-                    if (kamNodeIds.contains(esrc.getId())
-                            && kamNodeIds.contains(etgt.getId())) {
-                        NetworkUtility.addEdge(cyNetwork, kamId, edge);
-                    }
+            // TODO this should use the backend interconnect method
+            final List<KamEdge> edges = kamService.getAdjacentKamEdges(
+                    KamSession.getInstance().getDialectHandle(kamId),
+                    kamNodes, EdgeDirectionType.BOTH, null,
+                    new TaskRequestMonitor(m) {
+
+                        @Override
+                        public boolean isCanceled() {
+                            return halt;
+                        }
+                    });
+
+            final List<KamEdge> shared = new ArrayList<KamEdge>();
+            for (final KamEdge edge : edges) {
+                final KamNode esrc = (KamNode) edge.getSource();
+                final KamNode etgt = (KamNode) edge.getTarget();
+
+                // filter out adjacent edges not between selected nodes
+                if (kamNodeIds.contains(esrc.getId())
+                        && kamNodeIds.contains(etgt.getId())) {
+                    shared.add(edge);
                 }
             }
+
+            if (!halt) {
+                NetworkUtility.batch(cyNetwork, kamId).addEdges(shared)
+                        .apply();
+            }
         }
         
         if (halt) {
@@ -108,35 +108,16 @@ class AddNodesTask implements Task {
      */
     protected Set<CyNode> addNodes() {
         m.setStatus("Adding " + kamNodes.size() + " selected nodes.");
-        int percentage = 0;
-        m.setPercentCompleted(percentage);
-
-        // Add the KAM nodes and keep track
-        Set<CyNode> cynodes = new HashSet<CyNode>();
-        // use current percentage to keep track of values less then 1
-        double currentPercentage = 0.0;
-        double nodePercent = (1.0 / kamNodes.size()) * 100;
-        for (final KamNode node : kamNodes) {
-            if (halt) {
-                // stop if halted
-                break;
-            }
-            
-            KamSession.getInstance().associateNetworkWithKam(cyNetwork, kamId);
-            CyNode cyn = NetworkUtility.addNode(cyNetwork, kamId, node);
-            cynodes.add(cyn);
-            currentPercentage += nodePercent;
-            if (currentPercentage >= 1.0) {
-                // only add to the percent complete if can be rounded to 1 or greater
-                int round = (int) Math.round(currentPercentage);
-                percentage += round;
-                m.setPercentCompleted(percentage);
-                // set to remainder to even out percentages
-                currentPercentage = currentPercentage - round;
-            }
+        m.setPercentCompleted(0);
+
+        if (halt || kamNodes.isEmpty()) {
+            return new HashSet<CyNode>();
         }
-        
-        return cynodes;
+
+        // Add the KAM nodes in one batch and keep track
+        KamSession.getInstance().associateNetworkWithKam(cyNetwork, kamId);
+        return NetworkUtility.batch(cyNetwork, kamId).addNodes(kamNodes)
+                .apply().getNodes();
     }
 
     @Override
@@ -19,9 +19,7 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Set;
 
 import org.openbel.cytoscape.webservice.KamService;
@@ -69,17 +67,18 @@ final class ExpandNodesTask extends AddEdgesTask {
     @Override
     protected Collection<KamEdge> getEdgesToAdd() {
         final Collection<KamNode> kamNodes = NetworkUtility.getKAMNodes(cynodes);
-        List<KamEdge> edges = new ArrayList<KamEdge>();
-        for (KamNode kamNode : kamNodes) {
-            if (halt) {
-                break;
-            }
+        monitor.setStatus("Expanding " + kamNodes.size() + " nodes");
+        monitor.setPercentCompleted(0);
 
-            edges.addAll(kamService.getAdjacentKamEdges(
-                    KamSession.getInstance().getDialectHandle(kamId), 
-                    kamNode, direction, null));
-        }
-        return edges;
+        return kamService.getAdjacentKamEdges(
+                KamSession.getInstance().getDialectHandle(kamId), kamNodes,
+                direction, null, new TaskRequestMonitor(monitor) {
+
+                    @Override
+                    public boolean isCanceled() {
+                        return halt;
+                    }
+                });
     }
 
 }
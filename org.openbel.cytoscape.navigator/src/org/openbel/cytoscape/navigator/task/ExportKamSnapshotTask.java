@@ -0,0 +1,351 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.openbel.cytoscape.navigator.KamCatalog;
+import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.navigator.KamSession.KamOperation;
+import org.openbel.cytoscape.navigator.NavigatorExecutor;
+import org.openbel.cytoscape.navigator.Utility;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamSnapshotWriter;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+
+import cytoscape.logger.CyLogger;
+import cytoscape.task.Task;
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Package-protected {@link Task task} to download a whole {@link Kam kam}
+ * into a snapshot file that the Web API plugin answers requests from.
+ *
+ * <p>
+ * Nodes are fetched per {@link FunctionType function}, then the terms, the
+ * outgoing edges and the edge evidence are fetched for chunks of nodes in
+ * parallel.  Every completed step is written to disk, so a halted or
+ * failed export picks up where it stopped when run again.
+ * </p>
+ *
+ * <p>
+ * This {@link Task task} should be called by
+ * {@link KamTasks#exportSnapshot(KamIdentifier)}.
+ * </p>
+ */
+final class ExportKamSnapshotTask implements Task {
+    private static final CyLogger log = CyLogger
+            .getLogger(ExportKamSnapshotTask.class);
+    private static final String TITLE = "Exporting KAM Snapshot";
+    private static final String FUNCTION_STEP = "function:";
+    private static final String CHUNK_STEP = "chunk:";
+    private static final int CHUNK_SIZE = 256;
+    // leaves a navigator worker free for interactive requests
+    private static final int MAX_IN_FLIGHT = 3;
+
+    private final KamIdentifier kamId;
+    private final KamService kamService;
+    // steps submitted and not yet awaited, oldest first
+    private final LinkedList<Future<?>> inFlight = new LinkedList<Future<?>>();
+    private TaskMonitor monitor;
+    private volatile boolean halt = false;
+
+    ExportKamSnapshotTask(KamIdentifier kamId) {
+        if (kamId == null) {
+            throw new IllegalArgumentException("kamId is null");
+        }
+        this.kamId = kamId;
+        this.kamService = KamServiceFactory.getInstance().getKAMService();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        Kam kam = KamCatalog.getInstance().getKam(kamId);
+        if (kam == null) {
+            monitor.setException(new IllegalStateException(), "KAM "
+                    + kamId.getName() + " is no longer in the catalog.");
+            return;
+        }
+
+        File file = KamSnapshotWriter.getSnapshotFile(kam);
+        if (file.exists()) {
+            monitor.setStatus(kamId.getName() + " is already exported to "
+                    + file);
+            monitor.setPercentCompleted(100);
+            return;
+        }
+
+        KamSnapshotWriter writer = null;
+        try {
+            writer = KamSnapshotWriter.open(kam);
+            fetchNodes(writer);
+            fetchChunks(writer);
+            if (halt) {
+                return;
+            }
+
+            monitor.setStatus("Writing " + file);
+            writer.finish();
+            writer = null;
+            monitor.setPercentCompleted(100);
+        } catch (IOException e) {
+            log.warn("Error writing KAM snapshot", e);
+            monitor.setException(e, "Error writing KAM snapshot.");
+        } catch (ExecutionException e) {
+            log.warn("Error exporting KAM", e.getCause());
+            monitor.setException(e.getCause(), "Error exporting KAM, "
+                    + "run the export again to resume.");
+        } finally {
+            cancelInFlight();
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    log.warn("Error closing KAM snapshot", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        halt = true;
+        cancelInFlight();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTaskMonitor(TaskMonitor monitor)
+            throws IllegalThreadStateException {
+        this.monitor = monitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getTitle() {
+        return TITLE;
+    }
+
+    private void fetchNodes(final KamSnapshotWriter writer)
+            throws ExecutionException {
+        monitor.setStatus("Fetching nodes of " + kamId.getName());
+        monitor.setPercentCompleted(0);
+
+        for (final FunctionType function : Utility.getFunctions()) {
+            final String step = FUNCTION_STEP + function.name();
+            if (halt || writer.isDone(step)) {
+                continue;
+            }
+
+            submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    List<KamNode> nodes = KamSession.getInstance().execute(
+                            kamId, new KamOperation<List<KamNode>>() {
+                                @Override
+                                public List<KamNode> execute(
+                                        KamHandle kamHandle,
+                                        DialectHandle dialectHandle) {
+                                    return kamService.findKamNodesByFunction(
+                                            kamHandle, dialectHandle, function);
+                                }
+                            });
+                    if (!halt) {
+                        writer.addNodes(step, nodes);
+                    }
+                    return null;
+                }
+            });
+        }
+        awaitInFlight(0);
+    }
+
+    private void fetchChunks(final KamSnapshotWriter writer)
+            throws IOException, ExecutionException {
+        // chunks done by an earlier run, by first node
+        TreeMap<Integer, Integer> done = new TreeMap<Integer, Integer>();
+        for (String step : writer.getDone()) {
+            if (step.startsWith(CHUNK_STEP)) {
+                String[] range = step.substring(CHUNK_STEP.length()).split("-");
+                done.put(Integer.valueOf(range[0]), Integer.valueOf(range[1]));
+            }
+        }
+
+        int from = 0;
+        while (!halt) {
+            Integer to = done.get(from);
+            if (to != null) {
+                from = to;
+                continue;
+            }
+
+            int nodeCount = writer.nodeCount();
+            if (from >= nodeCount) {
+                if (!awaitOldest()) {
+                    break;
+                }
+                // edges of the finished chunk may have added nodes
+                continue;
+            }
+
+            to = Math.min(from + CHUNK_SIZE, nodeCount);
+            Integer next = done.higherKey(from);
+            if (next != null && next < to) {
+                to = next;
+            }
+
+            monitor.setStatus("Fetching edges and evidence of "
+                    + kamId.getName() + " (" + from + " of " + nodeCount
+                    + " nodes)");
+            monitor.setPercentCompleted(from * 100 / nodeCount);
+            submitChunk(writer, from, to);
+            from = to;
+        }
+        awaitInFlight(0);
+    }
+
+    private void submitChunk(final KamSnapshotWriter writer, final int from,
+            final int to) throws IOException, ExecutionException {
+        final List<KamNode> nodes = writer.getNodes(from, to);
+        final String step = CHUNK_STEP + from + "-" + to;
+        submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                Map<KamNode, List<BelTerm>> terms = new HashMap<KamNode, List<BelTerm>>();
+                Map<KamEdge, List<BelStatement>> evidence = new HashMap<KamEdge, List<BelStatement>>();
+                for (final KamNode node : nodes) {
+                    if (halt) {
+                        return null;
+                    }
+                    terms.put(node, kamService.getSupportingTerms(node));
+
+                    // outgoing only, so every edge is fetched once
+                    List<KamEdge> edges = KamSession.getInstance().execute(
+                            kamId, new KamOperation<List<KamEdge>>() {
+                                @Override
+                                public List<KamEdge> execute(
+                                        KamHandle kamHandle,
+                                        DialectHandle dialectHandle) {
+                                    return kamService.getAdjacentKamEdges(
+                                            dialectHandle, node,
+                                            EdgeDirectionType.FORWARD, null);
+                                }
+                            });
+                    for (KamEdge edge : edges) {
+                        evidence.put(edge,
+                                kamService.getSupportingEvidence(edge));
+                    }
+                }
+                if (!halt) {
+                    writer.addChunk(step, terms, evidence);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Submits a step, first waiting for the oldest step if too many are
+     * running.
+     */
+    private void submit(Callable<Void> step) throws ExecutionException {
+        awaitInFlight(MAX_IN_FLIGHT - 1);
+        synchronized (inFlight) {
+            if (!halt) {
+                inFlight.add(NavigatorExecutor.getInstance().submit(step));
+            }
+        }
+    }
+
+    /**
+     * Waits for the oldest steps until at most {@code remaining} are running.
+     */
+    private void awaitInFlight(int remaining) throws ExecutionException {
+        while (true) {
+            Future<?> oldest;
+            synchronized (inFlight) {
+                if (inFlight.size() <= remaining) {
+                    return;
+                }
+                oldest = inFlight.peek();
+            }
+            NavigatorExecutor.getInstance().await(oldest);
+            synchronized (inFlight) {
+                inFlight.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * Waits for the oldest running step.
+     *
+     * @return {@code false} if no step was running
+     */
+    private boolean awaitOldest() throws ExecutionException {
+        int running;
+        synchronized (inFlight) {
+            running = inFlight.size();
+        }
+        if (running == 0) {
+            return false;
+        }
+        awaitInFlight(running - 1);
+        return true;
+    }
+
+    private void cancelInFlight() {
+        synchronized (inFlight) {
+            for (Future<?> step : inFlight) {
+                step.cancel(true);
+            }
+            inFlight.clear();
+        }
+    }
+}
@@ -23,16 +23,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
-import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.AsyncKamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
 import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.navigator.NavigatorExecutor;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
 import org.openbel.framework.ws.model.KamEdge;
@@ -63,12 +61,14 @@ final class InterconnectNodesTask extends AddEdgesTask {
     private static final int INTERCONNECT_DEPTH = 1;
 
     private final Set<CyNode> cynodes;
-    private final KamService kamService;
+    private final AsyncKamService kamService;
+    // the in-flight interconnect, canceled on halt
+    private volatile Future<List<SimplePath>> request;
 
     InterconnectNodesTask(CyNetwork cyNetwork, KamIdentifier kamId, Set<CyNode> cynodes) {
         super(cyNetwork, kamId, null);
         this.cynodes = cynodes;
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.kamService = KamServiceFactory.getInstance().getAsyncKAMService();
 
         if (cynodes == null || cynodes.size() < 2) {
             throw new IllegalArgumentException(
@@ -98,49 +98,34 @@ final class InterconnectNodesTask extends AddEdgesTask {
         return edges;
     }
 
-    // TODO this method of interrupting the executor is taken directly
-    // from the node search, can we push it up somewhere?
-    private List<SimplePath> interconnect(final Collection<KamNode> kamNodes) {
-        ExecutorService e = Executors.newSingleThreadExecutor();
-        Future<List<SimplePath>> future = e
-                .submit(new Callable<List<SimplePath>>() {
-                    @Override
-                    public List<SimplePath> call() throws Exception {
-                        return kamService.interconnect(
-                                KamSession.getInstance().getDialectHandle(kamId),
-                                kamNodes,
-                                INTERCONNECT_DEPTH);
-                    }
-                });
-
-        while (!(future.isDone() || future.isCancelled()) && !e.isShutdown()) {
-            try {
-                if (halt) {
-                    // this should not block
-                    // but be aware that if the thread in the executor is
-                    // blocked it will continue to live on
-                    e.shutdownNow();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        super.halt();
 
-                    future.cancel(true);
-                }
-                // sleep thread to enable interrupt
-                Thread.sleep(100);
-            } catch (InterruptedException ex) {
-                halt = true;
-            }
+        Future<List<SimplePath>> f = request;
+        if (f != null) {
+            f.cancel(true);
         }
+    }
 
-        if (future.isCancelled()) {
-            return null;
+    private List<SimplePath> interconnect(final Collection<KamNode> kamNodes) {
+        request = kamService.interconnect(KamSession.getInstance()
+                .getDialectHandle(kamId), kamNodes, INTERCONNECT_DEPTH);
+        // halt may have been called before the request was published
+        if (halt) {
+            request.cancel(true);
         }
+
         try {
-            return future.get();
-        } catch (InterruptedException ex) {
-            log.warn("Error interconnecting nodes", ex);
-            return null;
+            return NavigatorExecutor.getInstance().await(request);
         } catch (ExecutionException ex) {
             log.warn("Error interconnecting nodes", ex);
             return null;
+        } finally {
+            request = null;
         }
     }
 }
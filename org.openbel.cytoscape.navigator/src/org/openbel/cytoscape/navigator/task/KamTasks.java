@@ -131,6 +131,16 @@ public class KamTasks {
         Utility.executeTask(new InterconnectNodesTask(cyNetwork, kamId, cynodes));
     }
 
+    /**
+     * Call the {@link ExportKamSnapshotTask}.
+     * 
+     * @param kamId
+     *            the {@link KamIdentifier kam identifier} of the kam to export
+     */
+    public static void exportSnapshot(KamIdentifier kamId) {
+        Utility.executeTask(new ExportKamSnapshotTask(kamId));
+    }
+
     private KamTasks() {
         // prevent instantiation
     }
@@ -0,0 +1,334 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openbel.cytoscape.navigator.Utility;
+
+import cytoscape.logger.CyLogger;
+import cytoscape.task.Task;
+import cytoscape.task.TaskMonitor;
+
+/**
+ * {@link Task Cytoscape task} to read the identifiers of a list search from
+ * one column of a comma or tab separated file.
+ * 
+ * The file is streamed through a fixed buffer and only the chosen column is
+ * kept, so neither the file nor its lines are held in memory.  Identifiers
+ * are trimmed, stripped of surrounding quotes and de-duplicated in file
+ * order.
+ */
+public final class ReadIdentifiersTask implements Task {
+    private static final CyLogger log = CyLogger
+            .getLogger(ReadIdentifiersTask.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final int column;
+    private final Set<String> identifiers = new LinkedHashSet<String>();
+
+    private TaskMonitor monitor;
+    private IOException error;
+
+    // marked as volatile in case halt is called by multiple threads
+    private volatile boolean halt = false;
+
+    /**
+     * Creates a task to read the identifiers of {@code file}.
+     * 
+     * @param file
+     *            the file to read
+     * @param column
+     *            the zero-based column of the identifiers
+     */
+    public ReadIdentifiersTask(File file, int column) {
+        if (file == null) {
+            throw new IllegalArgumentException("file is null");
+        }
+        if (column < 0) {
+            throw new IllegalArgumentException("column is negative");
+        }
+        this.file = file;
+        this.column = column;
+    }
+
+    /**
+     * Reads the fields of the first non-blank line of {@code file}, e.g. to
+     * offer its columns for selection.
+     * 
+     * @param file
+     *            the file to read
+     * @return the fields of the first line, empty if the file is blank
+     * @throws IOException
+     *             Thrown if the file cannot be read
+     */
+    public static List<String> readFirstRow(File file) throws IOException {
+        final List<String> row = new ArrayList<String>();
+        Reader reader = new FileReader(file);
+        try {
+            LineParser parser = new LineParser(-1) {
+                @Override
+                boolean field(int index, StringBuilder value) {
+                    row.add(normalize(value));
+                    return true;
+                }
+
+                @Override
+                boolean endLine() {
+                    // stop at the first line with content
+                    for (String field : row) {
+                        if (!field.isEmpty()) {
+                            return false;
+                        }
+                    }
+                    row.clear();
+                    return true;
+                }
+            };
+            char[] buffer = new char[1024];
+            for (int n; (n = reader.read(buffer)) != -1;) {
+                if (!parser.parse(buffer, n)) {
+                    return row;
+                }
+            }
+            parser.finish();
+        } finally {
+            Utility.closeSilently(reader);
+        }
+        return row;
+    }
+
+    /**
+     * Returns the identifiers read, in file order.  Only complete if the
+     * task was neither halted nor failed.
+     * 
+     * @return the identifiers
+     */
+    public Set<String> getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * Returns the error that stopped the task.
+     * 
+     * @return the {@link IOException error}, or {@code null} if none
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Returns {@code true} if the whole file was read.
+     * 
+     * @return {@code true} if the task was neither halted nor failed
+     */
+    public boolean isComplete() {
+        return !halt && error == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getTitle() {
+        return "Reading Identifiers";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTaskMonitor(TaskMonitor monitor)
+            throws IllegalThreadStateException {
+        this.monitor = monitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        this.halt = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        monitor.setStatus("Reading " + file.getName());
+        monitor.setPercentCompleted(0);
+
+        final long length = Math.max(file.length(), 1);
+        Reader reader = null;
+        try {
+            reader = new FileReader(file);
+            LineParser parser = new LineParser(column) {
+                @Override
+                boolean field(int index, StringBuilder value) {
+                    String identifier = normalize(value);
+                    if (!identifier.isEmpty()) {
+                        identifiers.add(identifier);
+                    }
+                    return true;
+                }
+
+                @Override
+                boolean endLine() {
+                    return !halt;
+                }
+            };
+
+            char[] buffer = new char[BUFFER_SIZE];
+            // characters, close enough to bytes for progress
+            long read = 0;
+            for (int n; (n = reader.read(buffer)) != -1;) {
+                if (!parser.parse(buffer, n)) {
+                    return;
+                }
+                read += n;
+                monitor.setPercentCompleted((int) Math.min(99, read * 100
+                        / length));
+                monitor.setStatus("Read " + identifiers.size()
+                        + " identifiers");
+            }
+            parser.finish();
+        } catch (IOException e) {
+            log.warn("Error reading identifiers from file", e);
+            error = e;
+        } finally {
+            Utility.closeSilently(reader);
+        }
+        monitor.setPercentCompleted(100);
+    }
+
+    /**
+     * Trims {@code value} and strips one pair of surrounding quotes.
+     */
+    private static String normalize(StringBuilder value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && Character.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && value.charAt(start) == '"'
+                && value.charAt(end - 1) == '"') {
+            // quotes within quoted fields are doubled
+            return value.substring(start + 1, end - 1).replace("\"\"", "\"");
+        }
+        return value.substring(start, end);
+    }
+
+    /**
+     * Splits characters into comma or tab separated fields, one line at a
+     * time, without allocating per line.  Delimiters within double quotes
+     * are part of the field; the quotes are kept for
+     * {@link ReadIdentifiersTask#normalize(StringBuilder)} to strip.
+     */
+    private abstract static class LineParser {
+        // the column to collect, -1 for all
+        private final int column;
+        private final StringBuilder value = new StringBuilder();
+        private int index = 0;
+        private boolean quoted = false;
+
+        LineParser(int column) {
+            this.column = column;
+        }
+
+        /**
+         * Called with each collected field.
+         * 
+         * @return {@code false} to stop parsing
+         */
+        abstract boolean field(int index, StringBuilder value);
+
+        /**
+         * Called at the end of each line.
+         * 
+         * @return {@code false} to stop parsing
+         */
+        abstract boolean endLine();
+
+        /**
+         * Parses the first {@code n} characters of {@code buffer}.
+         * 
+         * @return {@code false} if parsing was stopped
+         */
+        final boolean parse(char[] buffer, int n) {
+            for (int i = 0; i < n; i++) {
+                final char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    if (!endField() || !endLine()) {
+                        return false;
+                    }
+                    index = 0;
+                    quoted = false;
+                } else if (c == '"') {
+                    quoted = !quoted;
+                    collect(c);
+                } else if ((c == ',' || c == '\t') && !quoted) {
+                    if (!endField()) {
+                        return false;
+                    }
+                    index++;
+                } else {
+                    collect(c);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Ends the last line if the input does not end with a line break.
+         */
+        final void finish() {
+            if (endField()) {
+                endLine();
+            }
+        }
+
+        private void collect(char c) {
+            if (column == -1 || index == column) {
+                value.append(c);
+            }
+        }
+
+        private boolean endField() {
+            boolean more = true;
+            if (column == -1 || index == column) {
+                more = field(index, value);
+            }
+            value.setLength(0);
+            return more;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import org.openbel.cytoscape.webservice.RequestMonitor;
+
+import cytoscape.task.Task;
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Package-protected {@link RequestMonitor request monitor} that reports the
+ * progress of a bulk request to the {@link TaskMonitor task monitor} of a
+ * {@link Task task}.  Subclasses decide when the requests are canceled,
+ * typically when the task is halted.
+ */
+abstract class TaskRequestMonitor implements RequestMonitor {
+    private final TaskMonitor monitor;
+
+    TaskRequestMonitor(TaskMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void requestCompleted(int completed, int total) {
+        monitor.setPercentCompleted((int) ((completed * 100L) / total));
+    }
+}
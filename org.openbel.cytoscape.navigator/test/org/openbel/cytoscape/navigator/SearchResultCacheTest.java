@@ -0,0 +1,157 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamNode;
+
+/**
+ * Tests the eviction of {@link SearchResultCache} and the dropping of results
+ * of outdated KAM compilations.
+ */
+public class SearchResultCacheTest {
+    private static final String WSDL = "http://localhost/ws?wsdl";
+
+    private final SearchResultCache cache = SearchResultCache.getInstance();
+    private Integer maxNodes;
+
+    @Before
+    public void limitCache() {
+        maxNodes = Configuration.getInstance().getSearchCacheNodes();
+        Configuration.getInstance().setSearchCacheNodes(4);
+        cache.clear();
+    }
+
+    @After
+    public void restoreCache() {
+        cache.clear();
+        Configuration.getInstance().setSearchCacheNodes(maxNodes);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedResultsBeyondMaxNodes()
+            throws Exception {
+        final KamIdentifier kamId = kamId("eviction", 1000);
+        final SearchResultCache.Key a = key(kamId, "a");
+        final SearchResultCache.Key b = key(kamId, "b");
+        final SearchResultCache.Key c = key(kamId, "c");
+        cache.put(a, nodes(2), null);
+        cache.put(b, nodes(2), null);
+        // touch a so b becomes the least recently used
+        assertNotNull(cache.get(a));
+        cache.put(c, nodes(2), null);
+
+        assertEquals(2, cache.get(a).getNodes().size());
+        assertNull(cache.get(b));
+        assertEquals(2, cache.get(c).getNodes().size());
+    }
+
+    @Test
+    public void emptyResultsTakeASlot() throws Exception {
+        final KamIdentifier kamId = kamId("empty", 1000);
+        for (int i = 0; i < 5; i++) {
+            cache.put(key(kamId, "id" + i), new ArrayList<KamNode>(),
+                    Arrays.asList("id" + i));
+        }
+
+        assertNull(cache.get(key(kamId, "id0")));
+        assertEquals(Arrays.asList("id4"), cache.get(key(kamId, "id4"))
+                .getUnmatched());
+    }
+
+    @Test
+    public void skipsResultsLargerThanMaxNodes() throws Exception {
+        final KamIdentifier kamId = kamId("large", 1000);
+        cache.put(key(kamId, "a"), nodes(1), null);
+        cache.put(key(kamId, "b"), nodes(5), null);
+
+        assertNull(cache.get(key(kamId, "b")));
+        assertNotNull(cache.get(key(kamId, "a")));
+    }
+
+    @Test
+    public void newerCompilationDropsEarlierResults() throws Exception {
+        final KamIdentifier first = kamId("compiled", 1000);
+        final KamIdentifier second = kamId("compiled", 2000);
+        cache.put(key(first, "a"), nodes(1), null);
+
+        assertNull(cache.get(key(second, "a")));
+        assertNull(cache.get(key(first, "a")));
+
+        // results of the earlier compilation are refused once outdated
+        cache.put(key(first, "a"), nodes(1), null);
+        assertNull(cache.get(key(first, "a")));
+    }
+
+    @Test
+    public void keyIgnoresOrderAndDuplicates() throws Exception {
+        final KamIdentifier kamId = kamId("identifiers", 1000);
+        cache.put(SearchResultCache.key(kamId, null, null,
+                Arrays.asList("AKT1", "AKT2"), false), nodes(1), null);
+
+        assertNotNull(cache.get(SearchResultCache.key(kamId, null, null,
+                Arrays.asList("AKT2", "AKT1", "AKT2"), false)));
+        assertNull(cache.get(SearchResultCache.key(kamId, null, null,
+                Arrays.asList("AKT2", "AKT1"), true)));
+    }
+
+    private static SearchResultCache.Key key(final KamIdentifier kamId,
+            final String identifier) {
+        return SearchResultCache.key(kamId, null, null,
+                Collections.singletonList(identifier), false);
+    }
+
+    private static List<KamNode> nodes(final int count) {
+        final List<KamNode> ret = new ArrayList<KamNode>();
+        for (int i = 0; i < count; i++) {
+            final KamNode node = new KamNode();
+            node.setId(String.valueOf(i));
+            ret.add(node);
+        }
+        return ret;
+    }
+
+    private static KamIdentifier kamId(final String name,
+            final long compiled) throws Exception {
+        final GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(compiled);
+        final Kam kam = new Kam();
+        kam.setName(name);
+        kam.setLastCompiled(DatatypeFactory.newInstance()
+                .newXMLGregorianCalendar(cal));
+        return new KamIdentifier(kam, WSDL);
+    }
+}
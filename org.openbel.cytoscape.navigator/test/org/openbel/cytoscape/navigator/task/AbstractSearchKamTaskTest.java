@@ -0,0 +1,191 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Test;
+import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.webservice.AsyncKamService;
+import org.openbel.cytoscape.webservice.KamFuture;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceValue;
+
+/**
+ * Tests which identifiers an exact match search of
+ * {@link AbstractSearchKamTask} falls back to search as prefixes.
+ */
+public class AbstractSearchKamTaskTest {
+    // searched prefix patterns, in call order
+    private final List<String> prefixPatterns = new ArrayList<String>();
+    // nodes by namespace value, or by prefix pattern
+    private final Map<String, KamNode> nodes = new HashMap<String, KamNode>();
+    private final List<String> values = new ArrayList<String>();
+
+    @Test
+    public void equivalencedNodeCountsAsExactMatch() throws Exception {
+        // EGID 207 is equivalenced to, and labelled as, HGNC AKT1
+        values.add("207");
+        nodes.put("207", node("1", "p(HGNC:AKT1)"));
+        nodes.put("99.*", node("2", "p(EG:991)"));
+        final Namespace egid = namespace("EG");
+
+        final List<KamNode> found = search(egid, "207", "99");
+
+        assertEquals(Arrays.asList("1", "2"), ids(found));
+        assertEquals(Arrays.asList("99.*"), prefixPatterns);
+    }
+
+    @Test
+    public void namespaceWithoutPrefixChecksEachIdentifier()
+            throws Exception {
+        values.add("A");
+        nodes.put("A", node("1", "p(A)"));
+        nodes.put("B.*", node("2", "p(B1)"));
+
+        final List<KamNode> found = search(namespace(null), "A", "B");
+
+        assertEquals(Arrays.asList("1", "2"), ids(found));
+        assertEquals(Arrays.asList("B.*"), prefixPatterns);
+    }
+
+    @Test
+    public void searchesNoPrefixesWhenAllAreValues() throws Exception {
+        values.add("A");
+        values.add("B");
+        nodes.put("A", node("1", "p(A)"));
+
+        final List<KamNode> found = search(namespace("NS"), "A", "B");
+
+        assertEquals(Arrays.asList("1"), ids(found));
+        assertEquals(Collections.<String> emptyList(), prefixPatterns);
+    }
+
+    private List<KamNode> search(final Namespace namespace,
+            final String... identifiers) throws Exception {
+        final List<String> batch = Arrays.asList(identifiers);
+        final AbstractSearchKamTask task = new AbstractSearchKamTask(kamId(),
+                null, namespace, batch, true, kamService()) {
+            @Override
+            protected void updateUI(Collection<KamNode> nodes) {
+            }
+        };
+        return task.searchExact(null, null, batch,
+                Collections.singletonList(namespace), null).get(5,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * An {@link AsyncKamService} over {@link #values} and {@link #nodes}.
+     */
+    private AsyncKamService kamService() {
+        return (AsyncKamService) Proxy.newProxyInstance(
+                AsyncKamService.class.getClassLoader(),
+                new Class<?>[] { AsyncKamService.class },
+                new InvocationHandler() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Object invoke(final Object proxy,
+                            final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        final List<Object> ret = new ArrayList<Object>();
+                        if (name.equals("findNamespaceValues")) {
+                            for (final String pattern : (Collection<String>) args[0]) {
+                                for (final String value : values) {
+                                    if (Pattern.matches(pattern, value)) {
+                                        final NamespaceValue nv = new NamespaceValue();
+                                        nv.setValue(value);
+                                        ret.add(nv);
+                                    }
+                                }
+                            }
+                        } else if (name.equals("findKamNodesByNamespaceValues")) {
+                            for (final NamespaceValue nv : (List<NamespaceValue>) args[2]) {
+                                addIfPresent(ret, nv.getValue());
+                            }
+                        } else if (name.equals("findKamNodesByNamespacePatterns")) {
+                            for (final String pattern : (Collection<String>) args[2]) {
+                                prefixPatterns.add(pattern);
+                                addIfPresent(ret, pattern);
+                            }
+                        } else {
+                            throw new UnsupportedOperationException(name);
+                        }
+                        return KamFuture.completed(ret);
+                    }
+                });
+    }
+
+    private void addIfPresent(final List<Object> ret, final String key) {
+        if (nodes.containsKey(key)) {
+            ret.add(nodes.get(key));
+        }
+    }
+
+    private static List<String> ids(final List<KamNode> nodes) {
+        final List<String> ret = new ArrayList<String>();
+        for (final KamNode node : nodes) {
+            ret.add(node.getId());
+        }
+        return ret;
+    }
+
+    private static KamNode node(final String id, final String label) {
+        final KamNode node = new KamNode();
+        node.setId(id);
+        node.setLabel(label);
+        return node;
+    }
+
+    private static Namespace namespace(final String prefix) {
+        final Namespace namespace = new Namespace();
+        namespace.setPrefix(prefix);
+        namespace.setResourceLocation("http://example.org/ns.belns");
+        return namespace;
+    }
+
+    private static KamIdentifier kamId() throws Exception {
+        final GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(1000);
+        final Kam kam = new Kam();
+        kam.setName("test");
+        kam.setLastCompiled(DatatypeFactory.newInstance()
+                .newXMLGregorianCalendar(cal));
+        return new KamIdentifier(kam, "http://localhost/ws?wsdl");
+    }
+}
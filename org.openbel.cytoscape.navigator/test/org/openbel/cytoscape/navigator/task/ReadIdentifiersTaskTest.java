@@ -0,0 +1,122 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Tests the parsing of {@link ReadIdentifiersTask}.
+ */
+public class ReadIdentifiersTaskTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("identifiers", ".csv");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void keepsDelimitersWithinQuotes() throws IOException {
+        write("1,\"AKT1, AKT2\",x\n2,\"say \"\"hi\"\"\"\t,y\n");
+
+        assertEquals(Arrays.asList("AKT1, AKT2", "say \"hi\""), read(1));
+    }
+
+    @Test
+    public void splitsCrLfLines() throws IOException {
+        write("a,AKT1\r\nb,AKT2\r\n\r\nc, AKT3 \r\n");
+
+        assertEquals(Arrays.asList("AKT1", "AKT2", "AKT3"), read(1));
+    }
+
+    @Test
+    public void readsLastLineWithoutLineBreak() throws IOException {
+        write("AKT1\nAKT2\nAKT1\nAKT3");
+
+        assertEquals(Arrays.asList("AKT1", "AKT2", "AKT3"), read(0));
+    }
+
+    @Test
+    public void firstRowSkipsBlankLines() throws IOException {
+        write("\r\n ,\r\nid,\"name, full\"\tspecies\r\n1,2,3\r\n");
+
+        assertEquals(Arrays.asList("id", "name, full", "species"),
+                ReadIdentifiersTask.readFirstRow(file));
+    }
+
+    private void write(final String content) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private ArrayList<String> read(final int column) {
+        final ReadIdentifiersTask task = new ReadIdentifiersTask(file, column);
+        task.setTaskMonitor(new NullTaskMonitor());
+        task.run();
+        assertTrue(task.isComplete());
+        return new ArrayList<String>(task.getIdentifiers());
+    }
+
+    private static final class NullTaskMonitor implements TaskMonitor {
+
+        @Override
+        public void setPercentCompleted(int percent) {
+        }
+
+        @Override
+        public void setEstimatedTimeRemaining(long time) {
+        }
+
+        @Override
+        public void setException(Throwable t, String message) {
+        }
+
+        // declared by later Cytoscape releases
+        public void setException(Throwable t, String message, String tip) {
+        }
+
+        @Override
+        public void setStatus(String message) {
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * BEL Framework Web API Stand-in
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.standin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link StandInKams} answers Web API operations from a set of
+ * {@link KamSnapshot KAM snapshots}, one per {@link Kam KAM} in the catalog.
+ *
+ * <p>
+ * Loading a KAM is simulated: {@link #load(Kam)} reports
+ * {@link KAMLoadStatus#IN_PROCESS} until the configured load delay has passed
+ * since the first request and {@link KAMLoadStatus#COMPLETE} afterwards, so
+ * clients exercise the same polling they do against a real BEL Framework.
+ * </p>
+ */
+final class StandInKams {
+    private static final String HANDLE_PREFIX = "standin:";
+    private static final String DIALECT_PREFIX = "dialect:";
+    private static final int DEFAULT_DEPTH = 2;
+
+    private final Map<String, KamSnapshot> snapshots;
+    private final long loadDelay;
+    private final Map<String, Long> loadStarted =
+            new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Creates the stand-in KAMs.
+     *
+     * @param snapshots the {@link KamSnapshot snapshots} to serve, a later
+     * snapshot of the same KAM name replaces an earlier one
+     * @param loadDelay the simulated load time in milliseconds
+     */
+    StandInKams(final Collection<KamSnapshot> snapshots, final long loadDelay) {
+        if (snapshots == null) {
+            throw new IllegalArgumentException("snapshots is null");
+        }
+        this.snapshots = new LinkedHashMap<String, KamSnapshot>();
+        for (final KamSnapshot snapshot : snapshots) {
+            this.snapshots.put(snapshot.getKam().getName(), snapshot);
+        }
+        this.loadDelay = loadDelay;
+    }
+
+    List<Kam> catalog() {
+        final List<Kam> ret = new ArrayList<Kam>(snapshots.size());
+        for (final KamSnapshot snapshot : snapshots.values()) {
+            ret.add(snapshot.getKam());
+        }
+        return ret;
+    }
+
+    LoadKamResponse load(final Kam kam) {
+        if (kam == null || kam.getName() == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+        final LoadKamResponse res = new LoadKamResponse();
+        if (!snapshots.containsKey(kam.getName())) {
+            res.setLoadStatus(KAMLoadStatus.FAILED);
+            return res;
+        }
+
+        final long now = System.currentTimeMillis();
+        Long started = loadStarted.get(kam.getName());
+        if (started == null) {
+            loadStarted.put(kam.getName(), now);
+            started = now;
+        }
+        if (now - started < loadDelay) {
+            res.setLoadStatus(KAMLoadStatus.IN_PROCESS);
+            return res;
+        }
+
+        final KamHandle handle = new KamHandle();
+        handle.setHandle(HANDLE_PREFIX + kam.getName());
+        res.setHandle(handle);
+        res.setLoadStatus(KAMLoadStatus.COMPLETE);
+        return res;
+    }
+
+    void release(final KamHandle kamHandle) {
+        loadStarted.remove(snapshotName(kamHandle));
+    }
+
+    DialectHandle defaultDialect(final KamHandle kamHandle) {
+        snapshot(kamHandle);
+        final DialectHandle dialect = new DialectHandle();
+        dialect.setHandle(DIALECT_PREFIX + kamHandle.getHandle());
+        return dialect;
+    }
+
+    List<KamNode> findByPatterns(final KamHandle kamHandle,
+            final Collection<String> patterns, final NodeFilter nf) {
+        final KamSnapshot snapshot = snapshot(kamHandle);
+        final Map<String, KamNode> ret = new LinkedHashMap<String, KamNode>();
+        for (final String pattern : patterns) {
+            for (final KamNode node : snapshot.nodesByPattern(
+                    Pattern.compile(pattern), nf)) {
+                ret.put(node.getId(), node);
+            }
+        }
+        return new ArrayList<KamNode>(ret.values());
+    }
+
+    List<KamEdge> adjacent(final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        for (final KamSnapshot snapshot : snapshots.values()) {
+            final int n = snapshot.findNode(node.getId());
+            if (n != KamSnapshot.NULL) {
+                return snapshot.adjacent(n, direction == null
+                        ? EdgeDirectionType.BOTH : direction, ef);
+            }
+        }
+        return new ArrayList<KamEdge>();
+    }
+
+    List<BelTerm> terms(final KamNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        for (final KamSnapshot snapshot : snapshots.values()) {
+            final int n = snapshot.findNode(node.getId());
+            if (n != KamSnapshot.NULL) {
+                return snapshot.terms(n);
+            }
+        }
+        return new ArrayList<BelTerm>();
+    }
+
+    List<BelStatement> evidence(final KamEdge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge is null");
+        }
+        for (final KamSnapshot snapshot : snapshots.values()) {
+            final int e = snapshot.findEdge(edge.getId());
+            if (e != KamSnapshot.NULL) {
+                return snapshot.statements(e);
+            }
+        }
+        return new ArrayList<BelStatement>();
+    }
+
+    /**
+     * Finds a shortest path of at most {@code maxDepth} edges, followed in
+     * either direction, between each pair of {@code sources}.
+     *
+     * @param sources the {@link KamNode kam nodes} to interconnect
+     * @param maxDepth the maximum path length, if {@code null} a default of
+     * {@value #DEFAULT_DEPTH} is used
+     * @return the {@link List list} of {@link SimplePath paths}
+     */
+    List<SimplePath> interconnect(final Collection<KamNode> sources,
+            final Integer maxDepth) {
+        final List<SimplePath> ret = new ArrayList<SimplePath>();
+        if (sources == null || sources.isEmpty()) {
+            return ret;
+        }
+
+        KamSnapshot snapshot = null;
+        final Set<Integer> ns = new LinkedHashSet<Integer>();
+        for (final KamSnapshot s : snapshots.values()) {
+            for (final KamNode source : sources) {
+                final int n = s.findNode(source.getId());
+                if (n != KamSnapshot.NULL) {
+                    ns.add(n);
+                }
+            }
+            if (!ns.isEmpty()) {
+                snapshot = s;
+                break;
+            }
+        }
+        if (snapshot == null) {
+            return ret;
+        }
+
+        final int depth = maxDepth == null ? DEFAULT_DEPTH : maxDepth;
+        if (depth == 1) {
+            for (final int e : snapshot.edgesAmong(ns)) {
+                ret.add(path(snapshot, snapshot.source(e), snapshot.target(e),
+                        new int[] { e }));
+            }
+            return ret;
+        }
+
+        for (final int from : ns) {
+            // breadth first, remembering the edge each node was reached by
+            final Map<Integer, Integer> via = new HashMap<Integer, Integer>();
+            final Set<Integer> seen = new HashSet<Integer>();
+            Deque<Integer> level = new ArrayDeque<Integer>();
+            level.add(from);
+            seen.add(from);
+            for (int d = 0; d < depth && !level.isEmpty(); d++) {
+                final Deque<Integer> next = new ArrayDeque<Integer>();
+                for (final int n : level) {
+                    for (final KamEdge edge : snapshot.adjacent(n,
+                            EdgeDirectionType.BOTH, null)) {
+                        final int e = snapshot.findEdge(edge.getId());
+                        final int m = snapshot.source(e) == n
+                                ? snapshot.target(e) : snapshot.source(e);
+                        if (seen.add(m)) {
+                            via.put(m, e);
+                            next.add(m);
+                        }
+                    }
+                }
+                level = next;
+            }
+
+            for (final int to : ns) {
+                // report each pair once
+                if (to <= from || !via.containsKey(to)) {
+                    continue;
+                }
+                final Deque<Integer> edges = new ArrayDeque<Integer>();
+                int n = to;
+                while (n != from) {
+                    final int e = via.get(n);
+                    edges.addFirst(e);
+                    n = snapshot.source(e) == n
+                            ? snapshot.target(e) : snapshot.source(e);
+                }
+                final int[] es = new int[edges.size()];
+                int i = 0;
+                for (final int e : edges) {
+                    es[i++] = e;
+                }
+                ret.add(path(snapshot, from, to, es));
+            }
+        }
+        return ret;
+    }
+
+    private static SimplePath path(final KamSnapshot snapshot,
+            final int source, final int target, final int[] edges) {
+        final SimplePath path = new SimplePath();
+        path.setSource(snapshot.node(source));
+        path.setTarget(snapshot.node(target));
+        for (final int e : edges) {
+            path.getEdges().add(snapshot.edge(e));
+        }
+        return path;
+    }
+
+    private KamSnapshot snapshot(final KamHandle kamHandle) {
+        final KamSnapshot snapshot = snapshots.get(snapshotName(kamHandle));
+        if (snapshot == null) {
+            throw new IllegalArgumentException("unknown kam handle: "
+                    + kamHandle.getHandle());
+        }
+        return snapshot;
+    }
+
+    private static String snapshotName(final KamHandle kamHandle) {
+        if (kamHandle == null || kamHandle.getHandle() == null) {
+            throw new IllegalArgumentException("kamHandle is null");
+        }
+        final String handle = kamHandle.getHandle();
+        return handle.startsWith(HANDLE_PREFIX)
+                ? handle.substring(HANDLE_PREFIX.length()) : handle;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * BEL Framework Web API Stand-in
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.ws.Endpoint;
+
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.framework.ws.model.ObjectFactory;
+import org.w3c.dom.Document;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link StandInServer} runs a local stand-in for the BEL Framework Web API
+ * that serves {@link KamSnapshot KAM snapshots}, so the plugins can be
+ * developed and measured without a BEL Framework installation.  Snapshots
+ * are read from files or generated as {@link SyntheticKam synthetic KAMs}.
+ *
+ * <p>
+ * The server listens on the loopback interface only.  Point the plugins at
+ * it by setting the {@link Configuration#getWSDLURL() WSDL URL} to
+ * {@link #getWSDLURL()}.  Catalog, KAM loading, default dialect, node
+ * pattern search, adjacency, interconnect, supporting terms and supporting
+ * evidence are answered from the snapshots; namespace operations answer
+ * with empty lists.  Every request is delayed by the configured latency plus
+ * a random jitter.
+ * </p>
+ */
+public class StandInServer {
+    public static final String ENDPOINT_PATH = "/openbel-ws/webapi";
+    public static final String WSDL_PATH = "/openbel-ws/belframework.wsdl";
+    public static final int DEFAULT_PORT = 8181;
+
+    private static final String USAGE = "usage: StandInServer [-port n] "
+            + "[-latency ms] [-jitter ms] [-load-delay ms] "
+            + "[-generate edges[:seed]]... [snapshot.kams...]";
+
+    private final int port;
+    private final StandInKams kams;
+    private final long latency;
+    private final long jitter;
+    private HttpServer server;
+    private Endpoint endpoint;
+    private ExecutorService executor;
+
+    /**
+     * Creates a stopped stand-in server.
+     *
+     * @param port the port to listen on, {@code 0} for any free port
+     * @param snapshots the {@link KamSnapshot snapshots} to serve
+     * @param latency the delay added to every request in milliseconds
+     * @param jitter the upper bound of a random delay added on top of
+     * {@code latency} in milliseconds
+     * @param loadDelay the time a KAM takes to load in milliseconds
+     */
+    public StandInServer(final int port, final List<KamSnapshot> snapshots,
+            final long latency, final long jitter, final long loadDelay) {
+        if (snapshots == null) {
+            throw new IllegalArgumentException("snapshots is null");
+        }
+        if (latency < 0 || jitter < 0 || loadDelay < 0) {
+            throw new IllegalArgumentException("delays must not be negative");
+        }
+        this.port = port;
+        this.kams = new StandInKams(snapshots, loadDelay);
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Starts serving the endpoint and its WSDL.
+     *
+     * @throws IOException Thrown if the port cannot be bound or the WSDL
+     * cannot be generated
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+
+        final JAXBContext context;
+        try {
+            context = JAXBContext.newInstance(ObjectFactory.class);
+        } catch (JAXBException e) {
+            throw new IOException("Cannot load the Web API model", e);
+        }
+
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getByName("localhost"), port), 0);
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "BEL Framework stand-in "
+                        + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+
+        final String address = "http://localhost:"
+                + server.getAddress().getPort() + ENDPOINT_PATH;
+        final byte[] wsdl = serialize(WsdlGenerator.generate(context,
+                ObjectFactory.class, address));
+        server.createContext(WSDL_PATH, new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type",
+                        "text/xml; charset=UTF-8");
+                exchange.sendResponseHeaders(200, wsdl.length);
+                final OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(wsdl);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+
+        endpoint = Endpoint.create(new StandInWebAPI(context, kams, latency,
+                jitter));
+        endpoint.publish(server.createContext(ENDPOINT_PATH));
+        server.start();
+    }
+
+    /**
+     * Stops the server, requests in progress are abandoned.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        endpoint.stop();
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        endpoint = null;
+        executor = null;
+    }
+
+    /**
+     * Returns the URL of the WSDL of the running server.
+     *
+     * @return the WSDL URL
+     * @throws IllegalStateException Thrown if the server is not running
+     */
+    public synchronized String getWSDLURL() {
+        if (server == null) {
+            throw new IllegalStateException("server is not running");
+        }
+        return "http://localhost:" + server.getAddress().getPort() + WSDL_PATH;
+    }
+
+    private static byte[] serialize(final Document doc)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            final Transformer t = TransformerFactory.newInstance()
+                    .newTransformer();
+            t.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            t.setOutputProperty(OutputKeys.INDENT, "yes");
+            t.transform(new DOMSource(doc), new StreamResult(out));
+        } catch (TransformerException e) {
+            throw new IOException("Cannot write the WSDL", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Opens the snapshot of the {@link SyntheticKam synthetic KAM} described
+     * by {@code spec}, {@code edges[:seed]}, generating it into the
+     * temporary directory unless an earlier run already did.
+     */
+    private static KamSnapshot generate(final String spec) throws IOException {
+        final int colon = spec.indexOf(':');
+        final int edges = Integer.parseInt(colon == -1 ? spec : spec
+                .substring(0, colon));
+        final long seed = colon == -1 ? 1 : Long.parseLong(spec
+                .substring(colon + 1));
+
+        final SyntheticKam generator = new SyntheticKam(edges, seed);
+        final File file = new File(System.getProperty("java.io.tmpdir"),
+                generator.getKam().getName() + KamSnapshot.EXTENSION);
+        if (!file.exists()) {
+            System.out.println("Generating " + file);
+            generator.write(file);
+        }
+        return KamSnapshot.open(file);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long latency = 0;
+        long jitter = 0;
+        long loadDelay = 0;
+        final List<KamSnapshot> snapshots = new ArrayList<KamSnapshot>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-port".equals(args[i])) {
+                    port = Integer.parseInt(args[++i]);
+                } else if ("-latency".equals(args[i])) {
+                    latency = Long.parseLong(args[++i]);
+                } else if ("-jitter".equals(args[i])) {
+                    jitter = Long.parseLong(args[++i]);
+                } else if ("-load-delay".equals(args[i])) {
+                    loadDelay = Long.parseLong(args[++i]);
+                } else if ("-generate".equals(args[i])) {
+                    snapshots.add(generate(args[++i]));
+                } else {
+                    snapshots.add(KamSnapshot.open(new File(args[i])));
+                }
+            }
+        } catch (RuntimeException e) {
+            // missing or malformed option value
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (snapshots.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        final StandInServer server = new StandInServer(port, snapshots,
+                latency, jitter, loadDelay);
+        server.start();
+        System.out.println("Serving " + snapshots.size() + " KAM(s), WSDL at "
+                + server.getWSDLURL());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * BEL Framework Web API Stand-in
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.standin;
+
+import java.util.Random;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.util.JAXBSource;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.ws.Provider;
+import javax.xml.ws.Service;
+import javax.xml.ws.ServiceMode;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.WebServiceProvider;
+
+import org.openbel.framework.ws.model.FindKamNodesByPatternsRequest;
+import org.openbel.framework.ws.model.FindKamNodesByPatternsResponse;
+import org.openbel.framework.ws.model.FindNamespaceValuesRequest;
+import org.openbel.framework.ws.model.FindNamespaceValuesResponse;
+import org.openbel.framework.ws.model.GetAdjacentKamEdgesRequest;
+import org.openbel.framework.ws.model.GetAdjacentKamEdgesResponse;
+import org.openbel.framework.ws.model.GetAllNamespacesRequest;
+import org.openbel.framework.ws.model.GetAllNamespacesResponse;
+import org.openbel.framework.ws.model.GetCatalogRequest;
+import org.openbel.framework.ws.model.GetCatalogResponse;
+import org.openbel.framework.ws.model.GetDefaultDialectRequest;
+import org.openbel.framework.ws.model.GetDefaultDialectResponse;
+import org.openbel.framework.ws.model.GetSupportingEvidenceRequest;
+import org.openbel.framework.ws.model.GetSupportingEvidenceResponse;
+import org.openbel.framework.ws.model.GetSupportingTermsRequest;
+import org.openbel.framework.ws.model.GetSupportingTermsResponse;
+import org.openbel.framework.ws.model.InterconnectRequest;
+import org.openbel.framework.ws.model.InterconnectResponse;
+import org.openbel.framework.ws.model.LoadKamRequest;
+import org.openbel.framework.ws.model.ReleaseKamRequest;
+import org.openbel.framework.ws.model.ReleaseKamResponse;
+import org.openbel.framework.ws.model.WebAPI;
+
+/**
+ * {@link StandInWebAPI} is the {@link WebAPI} endpoint of the
+ * {@link StandInServer stand-in server}.
+ *
+ * <p>
+ * The endpoint works on message payloads rather than implementing the
+ * generated {@link WebAPI} interface, so it serves whichever version of the
+ * Web API model is on the classpath.  Each request is unmarshalled, held for
+ * the configured latency and answered by {@link StandInKams}.  Operations the
+ * stand-in does not support are answered with a SOAP fault.
+ * </p>
+ */
+@WebServiceProvider(serviceName = WsdlGenerator.SERVICE,
+        portName = WsdlGenerator.PORT,
+        targetNamespace = WsdlGenerator.NAMESPACE)
+@ServiceMode(Service.Mode.PAYLOAD)
+public class StandInWebAPI implements Provider<Source> {
+    private static final String REQUEST = "Request";
+    private static final String RESPONSE = "Response";
+
+    private final JAXBContext context;
+    private final StandInKams kams;
+    private final long latency;
+    private final long jitter;
+    private final Random random = new Random();
+
+    StandInWebAPI(final JAXBContext context, final StandInKams kams,
+            final long latency, final long jitter) {
+        this.context = context;
+        this.kams = kams;
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Source invoke(final Source request) {
+        final QName name;
+        final Object req;
+        try {
+            final Object o = context.createUnmarshaller().unmarshal(request);
+            name = context.createJAXBIntrospector().getElementName(o);
+            req = JAXBIntrospector.getValue(o);
+        } catch (JAXBException e) {
+            throw new WebServiceException("Cannot read request", e);
+        }
+
+        pause();
+        final Object res = dispatch(name, req);
+
+        final String local = name.getLocalPart();
+        final QName resName = new QName(name.getNamespaceURI(),
+                local.substring(0, local.length() - REQUEST.length())
+                        + RESPONSE);
+        try {
+            return new JAXBSource(context, element(resName, res));
+        } catch (JAXBException e) {
+            throw new WebServiceException("Cannot write response", e);
+        }
+    }
+
+    private Object dispatch(final QName name, final Object req) {
+        if (req instanceof GetCatalogRequest) {
+            final GetCatalogResponse res = new GetCatalogResponse();
+            res.getKams().addAll(kams.catalog());
+            return res;
+        } else if (req instanceof LoadKamRequest) {
+            return kams.load(((LoadKamRequest) req).getKam());
+        } else if (req instanceof ReleaseKamRequest) {
+            kams.release(((ReleaseKamRequest) req).getKam());
+            return new ReleaseKamResponse();
+        } else if (req instanceof GetDefaultDialectRequest) {
+            final GetDefaultDialectResponse res =
+                    new GetDefaultDialectResponse();
+            res.setDialect(kams.defaultDialect(
+                    ((GetDefaultDialectRequest) req).getKam()));
+            return res;
+        } else if (req instanceof FindKamNodesByPatternsRequest) {
+            final FindKamNodesByPatternsRequest r =
+                    (FindKamNodesByPatternsRequest) req;
+            final FindKamNodesByPatternsResponse res =
+                    new FindKamNodesByPatternsResponse();
+            res.getKamNodes().addAll(kams.findByPatterns(r.getHandle(),
+                    r.getPatterns(), r.getFilter()));
+            return res;
+        } else if (req instanceof GetAdjacentKamEdgesRequest) {
+            final GetAdjacentKamEdgesRequest r =
+                    (GetAdjacentKamEdgesRequest) req;
+            final GetAdjacentKamEdgesResponse res =
+                    new GetAdjacentKamEdgesResponse();
+            res.getKamEdges().addAll(kams.adjacent(r.getKamNode(),
+                    r.getDirection(), r.getFilter()));
+            return res;
+        } else if (req instanceof GetSupportingTermsRequest) {
+            final GetSupportingTermsResponse res =
+                    new GetSupportingTermsResponse();
+            res.getTerms().addAll(kams.terms(
+                    ((GetSupportingTermsRequest) req).getKamNode()));
+            return res;
+        } else if (req instanceof GetSupportingEvidenceRequest) {
+            final GetSupportingEvidenceResponse res =
+                    new GetSupportingEvidenceResponse();
+            res.getStatements().addAll(kams.evidence(
+                    ((GetSupportingEvidenceRequest) req).getKamEdge()));
+            return res;
+        } else if (req instanceof InterconnectRequest) {
+            final InterconnectRequest r = (InterconnectRequest) req;
+            final InterconnectResponse res = new InterconnectResponse();
+            res.getPaths().addAll(kams.interconnect(r.getSources(),
+                    r.getMaxDepth()));
+            return res;
+        } else if (req instanceof GetAllNamespacesRequest) {
+            // snapshots carry no namespaces
+            return new GetAllNamespacesResponse();
+        } else if (req instanceof FindNamespaceValuesRequest) {
+            return new FindNamespaceValuesResponse();
+        }
+
+        throw new WebServiceException("Operation not supported by the "
+                + "stand-in: " + name.getLocalPart());
+    }
+
+    private void pause() {
+        long ms = latency;
+        if (jitter > 0) {
+            synchronized (random) {
+                ms += (long) (random.nextDouble() * jitter);
+            }
+        }
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JAXBElement<Object> element(final QName name,
+            final Object value) {
+        return new JAXBElement<Object>(name,
+                (Class<Object>) value.getClass(), value);
+    }
+}
@@ -0,0 +1,598 @@
+/*
+ * BEL Framework Web API Stand-in
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.standin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openbel.cytoscape.webservice.KamSnapshot;
+import org.openbel.cytoscape.webservice.KamSnapshotWriter;
+import org.openbel.framework.ws.model.Annotation;
+import org.openbel.framework.ws.model.AnnotationType;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.Citation;
+import org.openbel.framework.ws.model.CitationType;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.RelationshipType;
+
+/**
+ * {@link SyntheticKam} generates a KAM-shaped graph of a given size from a
+ * seed, for benchmarks and the {@link StandInServer stand-in server}.
+ *
+ * <p>
+ * Edge end points are drawn with probability proportional to
+ * {@code (rank + 1)^-1/(}{@value #GAMMA}{@code  - 1)}, which gives a
+ * power-law degree distribution with exponent {@value #GAMMA}.  The
+ * best-ranked nodes become hubs; from a few hundred thousand edges up the
+ * largest hubs have more than 10,000 edges.  Node functions and edge
+ * relationships follow a mix typical of compiled KAMs, labels are BEL terms
+ * and every edge carries one to three statements with a citation and
+ * annotations.
+ * </p>
+ *
+ * <p>
+ * Every node, edge and statement is derived from the seed and its own
+ * index, so the same size and seed always produce the same KAM and any part
+ * of it can be regenerated without generating the rest.  Only the degree
+ * tables are held in memory, about 16 bytes per node.
+ * </p>
+ */
+public final class SyntheticKam {
+    public static final double GAMMA = 2.2;
+    public static final int EDGES_PER_NODE = 3;
+
+    private static final int NODE_CHUNK = 10000;
+    private static final int EDGE_CHUNK = 20000;
+    private static final String USAGE = "usage: SyntheticKam -edges n "
+            + "[-seed s] [-out file.kams]";
+
+    private static final FunctionType[] FUNCTIONS = {
+            FunctionType.PROTEIN_ABUNDANCE, FunctionType.RNA_ABUNDANCE,
+            FunctionType.GENE_ABUNDANCE, FunctionType.ABUNDANCE,
+            FunctionType.COMPLEX_ABUNDANCE, FunctionType.KINASE_ACTIVITY,
+            FunctionType.BIOLOGICAL_PROCESS, FunctionType.PATHOLOGY,
+            FunctionType.MICRORNA_ABUNDANCE, FunctionType.COMPOSITE_ABUNDANCE,
+            FunctionType.TRANSLOCATION, FunctionType.DEGRADATION,
+            FunctionType.REACTION };
+    private static final int[] FUNCTION_WEIGHTS = {
+            35, 12, 6, 10, 6, 8, 8, 4, 2, 3, 3, 2, 1 };
+
+    private static final RelationshipType[] RELATIONSHIPS = {
+            RelationshipType.INCREASES, RelationshipType.DECREASES,
+            RelationshipType.DIRECTLY_INCREASES,
+            RelationshipType.DIRECTLY_DECREASES,
+            RelationshipType.POSITIVE_CORRELATION,
+            RelationshipType.NEGATIVE_CORRELATION,
+            RelationshipType.ASSOCIATION, RelationshipType.HAS_MEMBER,
+            RelationshipType.BIOMARKER_FOR,
+            RelationshipType.RATE_LIMITING_STEP_OF };
+    private static final int[] RELATIONSHIP_WEIGHTS = {
+            30, 15, 15, 6, 6, 3, 8, 3, 2, 1 };
+
+    private static final String[] TISSUES = { "Liver", "Lung", "Heart",
+            "Kidney", "Brain", "Skin", "Blood", "Colon", "Breast",
+            "Pancreas" };
+    private static final String[] CELLS = { "Hepatocytes", "Fibroblasts",
+            "Macrophages", "T-Lymphocytes", "Endothelial Cells",
+            "Epithelial Cells", "Keratinocytes", "Myocytes, Cardiac" };
+    private static final String[] SPECIES = { "9606", "10090", "10116" };
+    private static final String[] AUTHORS = { "Smith J", "Garcia M",
+            "Chen L", "Muller K", "Ivanova A", "Tanaka H", "Okafor C",
+            "Rossi G", "Kowalski P", "Nguyen T", "Silva R", "Patel S" };
+    private static final String[] PROCESSES = { "apoptosis",
+            "cell proliferation", "inflammatory response", "angiogenesis",
+            "cell migration", "autophagy", "DNA repair", "glycolysis",
+            "response to hypoxia", "cell cycle arrest" };
+    private static final String[] DISEASES = { "Neoplasms",
+            "Inflammation", "Atherosclerosis", "Diabetes Mellitus",
+            "Fibrosis", "Hypertension", "Obesity", "Asthma" };
+    private static final AnnotationType SPECIES_TYPE = annotationType(
+            "Species", "NCBI Taxonomy");
+    private static final AnnotationType TISSUE_TYPE = annotationType(
+            "Tissue", "MeSH Anatomy");
+    private static final AnnotationType CELL_TYPE = annotationType(
+            "Cell", "MeSH Cell");
+
+    private final long seed;
+    private final int nodes;
+    private final int citations;
+    private final String prefix;
+    private final Kam kam;
+    // node index of each rank, and cumulative end point weight by rank
+    private final int[] byRank;
+    private final double[] cumulative;
+    // outgoing edges to draw per node
+    private final int[] out;
+    private final XMLGregorianCalendar published;
+
+    /**
+     * Creates the generator.  Construction draws the out-degree of every
+     * node, nodes and edges are generated on demand.
+     *
+     * @param edges the number of edges to aim for, slightly fewer are
+     * generated when a node runs out of distinct targets
+     * @param seed the seed
+     */
+    public SyntheticKam(final int edges, final long seed) {
+        if (edges < 1) {
+            throw new IllegalArgumentException("edges must be positive");
+        }
+        this.seed = seed;
+        this.nodes = Math.max(2, edges / EDGES_PER_NODE);
+        this.citations = Math.max(100, edges / 20);
+        this.prefix = Long.toString(seed, 36) + ":" + edges;
+
+        final Random random = new Random(seed);
+        byRank = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            byRank[n] = n;
+        }
+        for (int i = nodes - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int t = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = t;
+        }
+
+        final double alpha = 1 / (GAMMA - 1);
+        cumulative = new double[nodes];
+        double total = 0;
+        for (int r = 0; r < nodes; r++) {
+            total += Math.pow(r + 1, -alpha);
+            cumulative[r] = total;
+        }
+
+        // one edge from every node so none is isolated, the rest by weight
+        out = new int[nodes];
+        Arrays.fill(out, 1);
+        for (int e = nodes; e < edges; e++) {
+            out[draw(random)]++;
+        }
+
+        final GregorianCalendar date = new GregorianCalendar(
+                TimeZone.getTimeZone("UTC"));
+        date.clear();
+        date.set(2012, 0, 1);
+        try {
+            published = DatatypeFactory.newInstance().newXMLGregorianCalendar(
+                    date);
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        kam = new Kam();
+        kam.setId(prefix);
+        kam.setName("synthetic-" + edges + "-" + seed);
+        kam.setDescription("Synthetic scale-free KAM, " + edges
+                + " edges, seed " + seed);
+        kam.setLastCompiled(published);
+    }
+
+    /**
+     * Returns the {@link Kam kam} describing the generated graph.  The
+     * compile time is fixed so the KAM is the same on every run.
+     *
+     * @return the {@link Kam kam}
+     */
+    public Kam getKam() {
+        return kam;
+    }
+
+    public int nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node with index {@code n}.
+     *
+     * @param n the node index
+     * @return the {@link KamNode kam node}
+     */
+    public KamNode node(final int n) {
+        final Random random = random(n, 0);
+        final KamNode node = new KamNode();
+        node.setId(prefix + ":n:" + n);
+        node.setFunction(pick(random, FUNCTIONS, FUNCTION_WEIGHTS));
+        node.setLabel(label(node.getFunction(), n, random));
+        return node;
+    }
+
+    /**
+     * Returns the supporting terms of node {@code n}, one in most cases and
+     * never more than three.
+     *
+     * @param n the node index
+     * @return the {@link List list} of {@link BelTerm terms}
+     */
+    public List<BelTerm> terms(final int n) {
+        final KamNode node = node(n);
+        final Random random = random(n, 1);
+        // most nodes are backed by a single term
+        final int count = random.nextInt(4) == 0 ? 2 + random.nextInt(2) : 1;
+        final List<BelTerm> ret = new ArrayList<BelTerm>(count);
+        for (int i = 0; i < count; i++) {
+            final BelTerm term = new BelTerm();
+            term.setId(prefix + ":t:" + n + "." + i);
+            // later terms are equivalent spellings of the same term
+            term.setLabel(i == 0 ? node.getLabel() : longForm(node
+                    .getLabel(), i));
+            ret.add(term);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the outgoing edges of node {@code n}.
+     *
+     * @param n the node index
+     * @return the {@link List list} of {@link KamEdge kam edges}
+     */
+    public List<KamEdge> outgoing(final int n) {
+        final KamNode source = node(n);
+        final Random random = random(n, 2);
+        final int degree = Math.min(out[n], nodes - 1);
+        final List<KamEdge> ret = new ArrayList<KamEdge>(degree);
+        final Set<Integer> targets = new HashSet<Integer>();
+        int attempts = 4 * degree + 16;
+        while (ret.size() < degree && attempts-- > 0) {
+            final int t = draw(random);
+            if (t == n || !targets.add(t)) {
+                continue;
+            }
+            final KamNode target = node(t);
+            final KamEdge edge = new KamEdge();
+            edge.setId(prefix + ":e:" + n + "." + ret.size());
+            edge.setSource(source);
+            edge.setTarget(target);
+            edge.setRelationship(relationship(source, target, random));
+            ret.add(edge);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the one to three supporting statements of {@code edge}, which
+     * must be an edge of this KAM.
+     *
+     * @param edge the {@link KamEdge kam edge}
+     * @return the {@link List list} of {@link BelStatement statements}
+     */
+    public List<BelStatement> evidence(final KamEdge edge) {
+        final Random random = new Random(seed ^ edge.getId().hashCode()
+                * 0x9E3779B97F4A7C15L);
+        final int count = 1 + random.nextInt(3);
+        final List<BelStatement> ret = new ArrayList<BelStatement>(count);
+        for (int i = 0; i < count; i++) {
+            final BelStatement stmt = new BelStatement();
+            stmt.setId(edge.getId() + ".s" + i);
+            stmt.setSubjectTerm(term(edge.getSource()));
+            stmt.setRelationship(edge.getRelationship());
+            stmt.setObjectTerm(term(edge.getTarget()));
+            stmt.setCitation(citation(random.nextInt(citations)));
+            stmt.getAnnotations().add(annotation(SPECIES_TYPE,
+                    SPECIES[random.nextInt(SPECIES.length)]));
+            if (random.nextBoolean()) {
+                stmt.getAnnotations().add(annotation(TISSUE_TYPE,
+                        TISSUES[random.nextInt(TISSUES.length)]));
+            }
+            if (random.nextInt(3) == 0) {
+                stmt.getAnnotations().add(annotation(CELL_TYPE,
+                        CELLS[random.nextInt(CELLS.length)]));
+            }
+            ret.add(stmt);
+        }
+        return ret;
+    }
+
+    /**
+     * Writes the KAM as a snapshot.  An interrupted write of the same KAM to
+     * the same file is resumed.
+     *
+     * @param target the snapshot {@link File file}
+     * @return the number of edges written
+     * @throws IOException Thrown if the snapshot could not be written
+     */
+    public int write(final File target) throws IOException {
+        final KamSnapshotWriter writer = KamSnapshotWriter.open(kam, target);
+        boolean finished = false;
+        try {
+            int edges = 0;
+            for (int from = 0; from < nodes; from += NODE_CHUNK) {
+                final int to = Math.min(nodes, from + NODE_CHUNK);
+                final String key = "nodes:" + from + "-" + to;
+                if (writer.isDone(key)) {
+                    continue;
+                }
+                final Map<KamNode, List<BelTerm>> terms =
+                        new LinkedHashMap<KamNode, List<BelTerm>>();
+                final List<KamNode> chunk = new ArrayList<KamNode>(to - from);
+                for (int n = from; n < to; n++) {
+                    final KamNode node = node(n);
+                    chunk.add(node);
+                    terms.put(node, terms(n));
+                }
+                // nodes first so snapshot indices follow generator indices
+                writer.addNodes(key + ":ids", chunk);
+                writer.addChunk(key, terms,
+                        new LinkedHashMap<KamEdge, List<BelStatement>>());
+            }
+
+            final Map<KamNode, List<BelTerm>> none =
+                    new LinkedHashMap<KamNode, List<BelTerm>>();
+            Map<KamEdge, List<BelStatement>> evidence =
+                    new LinkedHashMap<KamEdge, List<BelStatement>>();
+            // chunk boundaries depend only on the graph, so a resumed
+            // write finds the same keys
+            int from = 0;
+            int pending = 0;
+            for (int n = 0; n < nodes; n++) {
+                final List<KamEdge> outgoing = outgoing(n);
+                edges += outgoing.size();
+                pending += outgoing.size();
+                for (final KamEdge edge : outgoing) {
+                    evidence.put(edge, evidence(edge));
+                }
+                if (pending >= EDGE_CHUNK || n == nodes - 1) {
+                    final String key = "edges:" + from + "-" + (n + 1);
+                    if (!writer.isDone(key)) {
+                        writer.addChunk(key, none, evidence);
+                    }
+                    evidence = new LinkedHashMap<KamEdge, List<BelStatement>>();
+                    from = n + 1;
+                    pending = 0;
+                }
+            }
+
+            writer.finish();
+            finished = true;
+            return edges;
+        } finally {
+            if (!finished) {
+                writer.close();
+            }
+        }
+    }
+
+    private static String label(final FunctionType function, final int n,
+            final Random random) {
+        final String p = "p(HGNC:" + symbol(n) + ")";
+        switch (function) {
+        case PROTEIN_ABUNDANCE:
+            return p;
+        case RNA_ABUNDANCE:
+            return "r(HGNC:" + symbol(n) + ")";
+        case GENE_ABUNDANCE:
+            return "g(HGNC:" + symbol(n) + ")";
+        case MICRORNA_ABUNDANCE:
+            return "m(HGNC:MIR" + n + ")";
+        case ABUNDANCE:
+            return "a(CHEBI:\"compound " + n + "\")";
+        case COMPLEX_ABUNDANCE:
+            return "complex(" + p + ",p(HGNC:"
+                    + symbol(random.nextInt(Integer.MAX_VALUE)) + "))";
+        case KINASE_ACTIVITY:
+            return "kin(" + p + ")";
+        case BIOLOGICAL_PROCESS:
+            return "bp(GOBP:\"" + PROCESSES[n % PROCESSES.length] + " "
+                    + n + "\")";
+        case PATHOLOGY:
+            return "path(MESHD:\"" + DISEASES[n % DISEASES.length] + " "
+                    + n + "\")";
+        case COMPOSITE_ABUNDANCE:
+            return "composite(a(CHEBI:\"compound " + n + "\")," + p + ")";
+        case TRANSLOCATION:
+            return "tloc(" + p + ",MESHCL:Cytoplasm,MESHCL:\"Cell Nucleus\")";
+        case DEGRADATION:
+            return "deg(" + p + ")";
+        case REACTION:
+            return "rxn(reactants(a(CHEBI:\"compound " + n + "\")),"
+                    + "products(a(CHEBI:\"product " + n + "\")))";
+        default:
+            return p;
+        }
+    }
+
+    /**
+     * Returns a gene-symbol-like name unique to {@code n}, three letters
+     * followed by the index in base 36.
+     */
+    private static String symbol(final int n) {
+        final int h = (n * 0x9E3779B1) >>> 8;
+        final StringBuilder sb = new StringBuilder(10);
+        sb.append((char) ('A' + h % 26));
+        sb.append((char) ('A' + (h / 26) % 26));
+        sb.append((char) ('A' + (h / 676) % 26));
+        sb.append(Integer.toString(n, 36).toUpperCase());
+        return sb.toString();
+    }
+
+    private static String longForm(final String label, final int variant) {
+        final String[][] forms = {
+                { "p(", "proteinAbundance(" }, { "r(", "rnaAbundance(" },
+                { "g(", "geneAbundance(" }, { "a(", "abundance(" },
+                { "kin(", "kinaseActivity(" }, { "bp(", "biologicalProcess(" },
+                { "path(", "pathology(" }, { "deg(", "degradation(" },
+                { "tloc(", "translocation(" }, { "m(", "microRNAAbundance(" },
+                { "complex(", "complexAbundance(" },
+                { "composite(", "compositeAbundance(" },
+                { "rxn(", "reaction(" } };
+        String ret = label;
+        for (final String[] form : forms) {
+            if (ret.startsWith(form[0])) {
+                ret = form[1] + ret.substring(form[0].length());
+                break;
+            }
+        }
+        return variant == 1 ? ret : ret.replace("HGNC:", "EGID:");
+    }
+
+    private static RelationshipType relationship(final KamNode source,
+            final KamNode target, final Random random) {
+        final FunctionType s = source.getFunction();
+        final FunctionType t = target.getFunction();
+        // structural edges where the end points call for them
+        if (random.nextBoolean()) {
+            if (s == FunctionType.COMPLEX_ABUNDANCE
+                    && t == FunctionType.PROTEIN_ABUNDANCE) {
+                return RelationshipType.HAS_COMPONENT;
+            }
+            if (s == FunctionType.PROTEIN_ABUNDANCE
+                    && t == FunctionType.KINASE_ACTIVITY) {
+                return RelationshipType.ACTS_IN;
+            }
+            if (s == FunctionType.GENE_ABUNDANCE
+                    && t == FunctionType.RNA_ABUNDANCE) {
+                return RelationshipType.TRANSCRIBED_TO;
+            }
+            if (s == FunctionType.RNA_ABUNDANCE
+                    && t == FunctionType.PROTEIN_ABUNDANCE) {
+                return RelationshipType.TRANSLATED_TO;
+            }
+        }
+        return pick(random, RELATIONSHIPS, RELATIONSHIP_WEIGHTS);
+    }
+
+    private BelTerm term(final KamNode node) {
+        final BelTerm term = new BelTerm();
+        term.setId(node.getId().replace(":n:", ":t:") + ".0");
+        term.setLabel(node.getLabel());
+        return term;
+    }
+
+    private Citation citation(final int c) {
+        final Random random = new Random(seed + 31L * c);
+        final Citation citation = new Citation();
+        citation.setCitationType(CitationType.PUBMED);
+        citation.setId(Integer.toString(10000000 + c));
+        citation.setName("Synthetic study " + c);
+        citation.setPublicationDate(published);
+        final int authors = 1 + random.nextInt(3);
+        for (int i = 0; i < authors; i++) {
+            citation.getAuthors().add(AUTHORS[random.nextInt(
+                    AUTHORS.length)]);
+        }
+        return citation;
+    }
+
+    private static Annotation annotation(final AnnotationType type,
+            final String value) {
+        final Annotation annotation = new Annotation();
+        annotation.setId(type.getId() + ":" + value);
+        annotation.setAnnotationType(type);
+        annotation.setValue(value);
+        return annotation;
+    }
+
+    private static AnnotationType annotationType(final String name,
+            final String description) {
+        final AnnotationType type = new AnnotationType();
+        type.setId(name);
+        type.setName(name);
+        type.setDescription(description);
+        return type;
+    }
+
+    /**
+     * Draws a node with probability proportional to its weight.
+     */
+    private int draw(final Random random) {
+        final double u = random.nextDouble() * cumulative[nodes - 1];
+        int r = Arrays.binarySearch(cumulative, u);
+        if (r < 0) {
+            r = -r - 1;
+        }
+        return byRank[Math.min(r, nodes - 1)];
+    }
+
+    private Random random(final int n, final int stream) {
+        return new Random(seed * 0x9E3779B97F4A7C15L + n * 4L + stream);
+    }
+
+    private static <T> T pick(final Random random, final T[] values,
+            final int[] weights) {
+        int total = 0;
+        for (final int w : weights) {
+            total += w;
+        }
+        int r = random.nextInt(total);
+        for (int i = 0; i < values.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int edges = 0;
+        long seed = 1;
+        File target = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-edges".equals(args[i])) {
+                    edges = Integer.parseInt(args[++i]);
+                } else if ("-seed".equals(args[i])) {
+                    seed = Long.parseLong(args[++i]);
+                } else if ("-out".equals(args[i])) {
+                    target = new File(args[++i]);
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // unknown, missing or malformed option
+            edges = 0;
+        }
+        if (edges < 1) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        final SyntheticKam generator = new SyntheticKam(edges, seed);
+        if (target == null) {
+            target = new File(generator.getKam().getName()
+                    + KamSnapshot.EXTENSION);
+        }
+        final long start = System.currentTimeMillis();
+        final int written = generator.write(target);
+        System.out.println("Wrote " + generator.nodeCount() + " nodes and "
+                + written + " edges to " + target + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
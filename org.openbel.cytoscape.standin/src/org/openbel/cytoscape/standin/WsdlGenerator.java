@@ -0,0 +1,266 @@
+/*
+ * BEL Framework Web API Stand-in
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.standin;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.SchemaOutputResolver;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Result;
+import javax.xml.transform.dom.DOMResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * {@link WsdlGenerator} describes the {@link StandInWebAPI stand-in endpoint}
+ * with a document/literal SOAP 1.1 WSDL laid out the way the BEL Framework
+ * publishes its own, so the generated client binds to it unchanged.
+ *
+ * <p>
+ * Operations are found from the {@code create*Request} methods of the
+ * model's {@code ObjectFactory}; each is named after its request element
+ * without the {@code Request} suffix.  The schemas generated by JAXB are
+ * inlined into the WSDL types.
+ * </p>
+ */
+final class WsdlGenerator {
+    static final String NAMESPACE = "http://belframework.org/ws/schemas";
+    static final String SERVICE = "WebAPIService";
+    static final String PORT = "WebAPISoap11";
+    static final String PORT_TYPE = "WebAPI";
+
+    private static final String WSDL = "http://schemas.xmlsoap.org/wsdl/";
+    private static final String SOAP = "http://schemas.xmlsoap.org/wsdl/soap/";
+    private static final String HTTP = "http://schemas.xmlsoap.org/soap/http";
+    private static final String REQUEST = "Request";
+    private static final String RESPONSE = "Response";
+
+    /**
+     * Generates the WSDL.
+     *
+     * @param context the {@link JAXBContext context} of the Web API model
+     * @param factory the model's {@code ObjectFactory} class
+     * @param location the address of the endpoint
+     * @return the WSDL {@link Document document}
+     * @throws IOException Thrown if the schemas cannot be generated
+     */
+    static Document generate(final JAXBContext context, final Class<?> factory,
+            final String location) throws IOException {
+        final Document doc;
+        try {
+            final DocumentBuilderFactory dbf =
+                    DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            doc = dbf.newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+
+        final Element definitions = wsdl(doc, "definitions");
+        definitions.setAttribute("targetNamespace", NAMESPACE);
+        definitions.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                "xmlns:tns", NAMESPACE);
+        definitions.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                "xmlns:soap", SOAP);
+        doc.appendChild(definitions);
+
+        final Element types = wsdl(doc, "types");
+        definitions.appendChild(types);
+        for (final Document schema : schemas(context)) {
+            final Element root = (Element) doc.importNode(
+                    schema.getDocumentElement(), true);
+            // every schema is inline, drop the file references
+            final NodeList imports = root.getElementsByTagNameNS(
+                    XMLConstants.W3C_XML_SCHEMA_NS_URI, "import");
+            for (int i = 0; i < imports.getLength(); i++) {
+                ((Element) imports.item(i)).removeAttribute("schemaLocation");
+            }
+            types.appendChild(root);
+        }
+
+        final Map<String, QName> operations = operations(context, factory);
+        for (final Map.Entry<String, QName> op : operations.entrySet()) {
+            definitions.appendChild(message(doc, op.getValue()));
+            definitions.appendChild(message(doc, response(op.getValue())));
+        }
+
+        final Element portType = wsdl(doc, "portType");
+        portType.setAttribute("name", PORT_TYPE);
+        definitions.appendChild(portType);
+        for (final Map.Entry<String, QName> op : operations.entrySet()) {
+            final Element operation = wsdl(doc, "operation");
+            operation.setAttribute("name", op.getKey());
+            operation.appendChild(io(doc, "input", op.getValue()));
+            operation.appendChild(io(doc, "output", response(op.getValue())));
+            portType.appendChild(operation);
+        }
+
+        final Element binding = wsdl(doc, "binding");
+        binding.setAttribute("name", PORT);
+        binding.setAttribute("type", "tns:" + PORT_TYPE);
+        final Element soapBinding = soap(doc, "binding");
+        soapBinding.setAttribute("style", "document");
+        soapBinding.setAttribute("transport", HTTP);
+        binding.appendChild(soapBinding);
+        definitions.appendChild(binding);
+        for (final Map.Entry<String, QName> op : operations.entrySet()) {
+            final Element operation = wsdl(doc, "operation");
+            operation.setAttribute("name", op.getKey());
+            final Element soapOperation = soap(doc, "operation");
+            soapOperation.setAttribute("soapAction", "");
+            operation.appendChild(soapOperation);
+            for (final String io : new String[] { "input", "output" }) {
+                final QName element = io.equals("input")
+                        ? op.getValue() : response(op.getValue());
+                final Element e = wsdl(doc, io);
+                e.setAttribute("name", element.getLocalPart());
+                final Element body = soap(doc, "body");
+                body.setAttribute("use", "literal");
+                e.appendChild(body);
+                operation.appendChild(e);
+            }
+            binding.appendChild(operation);
+        }
+
+        final Element service = wsdl(doc, "service");
+        service.setAttribute("name", SERVICE);
+        final Element port = wsdl(doc, "port");
+        port.setAttribute("name", PORT);
+        port.setAttribute("binding", "tns:" + PORT);
+        final Element address = soap(doc, "address");
+        address.setAttribute("location", location);
+        port.appendChild(address);
+        service.appendChild(port);
+        definitions.appendChild(service);
+        return doc;
+    }
+
+    private static List<Document> schemas(final JAXBContext context)
+            throws IOException {
+        final List<DOMResult> results = new ArrayList<DOMResult>();
+        context.generateSchema(new SchemaOutputResolver() {
+            @Override
+            public Result createOutput(final String namespaceUri,
+                    final String suggestedFileName) {
+                final DOMResult result = new DOMResult();
+                result.setSystemId(suggestedFileName);
+                results.add(result);
+                return result;
+            }
+        });
+
+        final List<Document> ret = new ArrayList<Document>(results.size());
+        for (final DOMResult result : results) {
+            final Node node = result.getNode();
+            ret.add(node instanceof Document
+                    ? (Document) node : node.getOwnerDocument());
+        }
+        return ret;
+    }
+
+    /**
+     * Finds the request element of each operation, keyed and sorted by
+     * operation name.
+     */
+    private static Map<String, QName> operations(final JAXBContext context,
+            final Class<?> factory) throws IOException {
+        final JAXBIntrospector introspector = context.createJAXBIntrospector();
+        final Map<String, QName> ret = new TreeMap<String, QName>();
+        try {
+            final Object instance = factory.getDeclaredConstructor()
+                    .newInstance();
+            for (final Method m : factory.getMethods()) {
+                if (!m.getName().startsWith("create")
+                        || !m.getName().endsWith(REQUEST)
+                        || m.getParameterTypes().length != 0) {
+                    continue;
+                }
+                final QName element = introspector.getElementName(
+                        m.invoke(instance));
+                if (element == null) {
+                    continue;
+                }
+                final String local = element.getLocalPart();
+                ret.put(local.substring(0, local.length() - REQUEST.length()),
+                        element);
+            }
+        } catch (InvocationTargetException e) {
+            throw new IOException("Cannot inspect " + factory.getName(),
+                    e.getCause());
+        } catch (NoSuchMethodException e) {
+            throw new IOException("Cannot inspect " + factory.getName(), e);
+        } catch (InstantiationException e) {
+            throw new IOException("Cannot inspect " + factory.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Cannot inspect " + factory.getName(), e);
+        }
+        return ret;
+    }
+
+    private static QName response(final QName request) {
+        final String local = request.getLocalPart();
+        return new QName(request.getNamespaceURI(), local.substring(0,
+                local.length() - REQUEST.length()) + RESPONSE);
+    }
+
+    private static Element message(final Document doc, final QName element) {
+        final Element message = wsdl(doc, "message");
+        message.setAttribute("name", element.getLocalPart());
+        final Element part = wsdl(doc, "part");
+        part.setAttribute("name", element.getLocalPart());
+        part.setAttribute("element", "tns:" + element.getLocalPart());
+        message.appendChild(part);
+        return message;
+    }
+
+    private static Element io(final Document doc, final String name,
+            final QName element) {
+        final Element e = wsdl(doc, name);
+        e.setAttribute("name", element.getLocalPart());
+        e.setAttribute("message", "tns:" + element.getLocalPart());
+        return e;
+    }
+
+    private static Element wsdl(final Document doc, final String name) {
+        return doc.createElementNS(WSDL, "wsdl:" + name);
+    }
+
+    private static Element soap(final Document doc, final String name) {
+        return doc.createElementNS(SOAP, "soap:" + name);
+    }
+
+    private WsdlGenerator() {
+        // static utility
+    }
+}
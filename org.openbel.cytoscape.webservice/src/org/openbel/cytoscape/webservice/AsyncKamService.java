@@ -0,0 +1,158 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link AsyncKamService} is the asynchronous companion of
+ * {@link KamService}.  Each operation is issued on the request pool, bounded
+ * by {@link Configuration#getRequestThreads()}, and returns immediately with
+ * a {@link KamFuture future} of its result.
+ *
+ * <p>
+ * Futures can be {@link KamFuture#cancel(boolean) cancelled}, which
+ * interrupts the running request, given a
+ * {@link KamFuture#timeout(long, java.util.concurrent.TimeUnit) timeout},
+ * and {@link KamFuture#compose(KamFuture.Continuation) composed} with
+ * dependent operations.  Arguments are validated when the request runs, so
+ * an invalid argument fails the future with an
+ * {@link IllegalArgumentException}.
+ * </p>
+ */
+public interface AsyncKamService {
+
+    /**
+     * @see KamService#findKamNodesByNamespaceValues(KamHandle, DialectHandle,
+     * List, NodeFilter)
+     */
+    KamFuture<List<KamNode>> findKamNodesByNamespaceValues(
+            KamHandle kamHandle, DialectHandle dialectHandle,
+            List<NamespaceValue> namespaceValues, NodeFilter nodeFilter);
+
+    /**
+     * @see KamService#findNamespaceValues(Collection, Collection)
+     */
+    KamFuture<List<NamespaceValue>> findNamespaceValues(
+            Collection<String> patterns, Collection<Namespace> namespaces);
+
+    /**
+     * Finds {@link KamNode kam nodes} whose {@link NamespaceValue namespace
+     * values} match java regex {@code patterns}.  The namespace values are
+     * found first and the kam nodes are requested as soon as they arrive.
+     * If no namespace values match, the future completes with an empty
+     * {@link List list}.
+     *
+     * @param kamHandle
+     *            the {@link KamHandle kam handle} that identifies a loaded
+     *            {@link Kam kam}
+     * @param dialectHandle
+     *            the {@link DialectHandle dialect handle} that identifies a
+     *            loaded dialect, can be null
+     * @param patterns
+     *            java regex patterns, can not be null or empty
+     * @param namespaces
+     *            {@link Namespace}s, can be null or empty
+     * @param nodeFilter
+     *            the optional {@link NodeFilter node filter} to further
+     *            restrict the results, can be null
+     * @return the {@link KamFuture future} {@link List} of {@link KamNode kam
+     *         nodes}
+     */
+    KamFuture<List<KamNode>> findKamNodesByNamespacePatterns(
+            KamHandle kamHandle, DialectHandle dialectHandle,
+            Collection<String> patterns, Collection<Namespace> namespaces,
+            NodeFilter nodeFilter);
+
+    /**
+     * @see KamService#getAllNamespaces()
+     */
+    KamFuture<List<NamespaceDescriptor>> getAllNamespaces();
+
+    /**
+     * @see KamService#getCatalog()
+     */
+    KamFuture<List<Kam>> getCatalog();
+
+    /**
+     * @see KamService#getDefaultDialect(KamHandle)
+     */
+    KamFuture<DialectHandle> getDefaultDialect(KamHandle kamHandle);
+
+    /**
+     * @see KamService#loadKam(Kam)
+     */
+    KamFuture<LoadKamResponse> loadKam(Kam kam);
+
+    /**
+     * @see KamService#getSupportingTerms(KamNode)
+     */
+    KamFuture<List<BelTerm>> getSupportingTerms(KamNode node);
+
+    /**
+     * @see KamService#getSupportingEvidence(KamEdge)
+     */
+    KamFuture<List<BelStatement>> getSupportingEvidence(KamEdge edge);
+
+    /**
+     * @see KamService#findKamNodesByFunction(KamHandle, DialectHandle,
+     * FunctionType)
+     */
+    KamFuture<List<KamNode>> findKamNodesByFunction(KamHandle kamHandle,
+            DialectHandle dialectHandle, FunctionType function);
+
+    /**
+     * @see KamService#findKamNodesByPatterns(KamHandle, DialectHandle,
+     * String, NodeFilter)
+     */
+    KamFuture<List<KamNode>> findKamNodesByPatterns(KamHandle kamHandle,
+            DialectHandle dialectHandle, String regex, NodeFilter nf);
+
+    /**
+     * @see KamService#getAdjacentKamEdges(DialectHandle, KamNode,
+     * EdgeDirectionType, EdgeFilter)
+     */
+    KamFuture<List<KamEdge>> getAdjacentKamEdges(DialectHandle dialectHandle,
+            KamNode node, EdgeDirectionType direction, EdgeFilter ef);
+
+    /**
+     * @see KamService#interconnect(DialectHandle, Collection, Integer)
+     */
+    KamFuture<List<SimplePath>> interconnect(DialectHandle dialectHandle,
+            Collection<KamNode> sources, Integer maxDepth);
+}
@@ -0,0 +1,171 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link BoundedCache} is a least-recently-used cache bounded both by the
+ * number of entries and by the sum of the approximate weight of its values.
+ * When either bound is exceeded the least recently accessed entries are
+ * evicted.
+ *
+ * <p>
+ * All operations are synchronized on the cache instance.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+class BoundedCache<K, V> {
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private int maxEntries;
+    private long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs the cache with its bounds.
+     *
+     * @param maxEntries the maximum number of entries, must be positive
+     * @param maxWeight the maximum total weight, must be positive
+     */
+    BoundedCache(final int maxEntries, final long maxWeight) {
+        // access-ordered so iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+        resize(maxEntries, maxWeight);
+    }
+
+    /**
+     * Retrieves the value for {@code key}, marking it as recently used.
+     *
+     * @param key the key
+     * @return the cached value, or {@code null} if not cached
+     */
+    synchronized V get(final K key) {
+        final Entry<V> e = entries.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.value;
+    }
+
+    /**
+     * Caches {@code value} for {@code key} and evicts entries until the cache
+     * is back within its bounds.  A value heavier than the whole cache is not
+     * stored.
+     *
+     * @param key the key
+     * @param value the value
+     * @param valueWeight the approximate weight of {@code value}
+     */
+    synchronized void put(final K key, final V value, final long valueWeight) {
+        if (valueWeight > maxWeight) {
+            remove(key);
+            return;
+        }
+
+        final Entry<V> old = entries.put(key, new Entry<V>(value, valueWeight));
+        if (old != null) {
+            weight -= old.weight;
+        }
+        weight += valueWeight;
+        evict();
+    }
+
+    /**
+     * Removes the entry for {@code key}, if any.
+     *
+     * @param key the key
+     */
+    synchronized void remove(final K key) {
+        final Entry<V> old = entries.remove(key);
+        if (old != null) {
+            weight -= old.weight;
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Changes the bounds of this cache, evicting entries if necessary.
+     *
+     * @param maxEntries the maximum number of entries, must be positive
+     * @param maxWeight the maximum total weight, must be positive
+     */
+    synchronized void resize(final int maxEntries, final long maxWeight) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries is not positive");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight is not positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long weight() {
+        return weight;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<K, Entry<V>>> it =
+                entries.entrySet().iterator();
+        while (it.hasNext()
+                && (entries.size() > maxEntries || weight > maxWeight)) {
+            weight -= it.next().getValue().weight;
+            it.remove();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+
+        private Entry(final V value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+
+/**
+ * {@link BulkRequests} fans {@link KamService kam service} operations over
+ * many elements out to a bounded pool of request threads.  The pool is sized
+ * by {@link Configuration#getRequestThreads()}.
+ */
+final class BulkRequests {
+    // how often the calling thread checks for cancellation
+    private static final long POLL_MS = 250;
+    private static ThreadPoolExecutor pool;
+
+    /**
+     * Retrieves the edges adjacent to each of {@code nodes} by issuing one
+     * single-node request per distinct node against {@code service}.
+     *
+     * @see KamService#getAdjacentKamEdges(DialectHandle, Collection,
+     * EdgeDirectionType, EdgeFilter, RequestMonitor)
+     */
+    static List<KamEdge> getAdjacentKamEdges(final KamService service,
+            final DialectHandle dialectHandle,
+            final Collection<KamNode> nodes,
+            final EdgeDirectionType direction, final EdgeFilter ef,
+            final RequestMonitor monitor) {
+        if (nodes == null) {
+            throw new IllegalArgumentException("nodes is null");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("direction is null");
+        }
+
+        // a node selected twice only needs to be requested once
+        final Map<String, KamNode> distinct =
+                new LinkedHashMap<String, KamNode>();
+        for (final KamNode node : nodes) {
+            distinct.put(node.getId(), node);
+        }
+
+        final CompletionService<List<KamEdge>> requests =
+                new ExecutorCompletionService<List<KamEdge>>(getPool());
+        final List<Future<List<KamEdge>>> futures =
+                new ArrayList<Future<List<KamEdge>>>(distinct.size());
+        for (final KamNode node : distinct.values()) {
+            futures.add(requests.submit(new Callable<List<KamEdge>>() {
+                @Override
+                public List<KamEdge> call() throws Exception {
+                    return service.getAdjacentKamEdges(dialectHandle, node,
+                            direction, ef);
+                }
+            }));
+        }
+
+        final Map<String, KamEdge> edges = new LinkedHashMap<String, KamEdge>();
+        final int total = futures.size();
+        int completed = 0;
+        try {
+            while (completed < total) {
+                if (monitor != null && monitor.isCanceled()) {
+                    break;
+                }
+
+                final Future<List<KamEdge>> done = requests.poll(POLL_MS,
+                        TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    continue;
+                }
+
+                completed++;
+                for (final KamEdge edge : done.get()) {
+                    edges.put(edge.getId(), edge);
+                }
+                if (monitor != null) {
+                    monitor.requestCompleted(completed, total);
+                }
+            }
+        } catch (InterruptedException e) {
+            // treat as cancellation, keep the interrupt for the caller
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            // abandon anything still outstanding
+            for (final Future<List<KamEdge>> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return new ArrayList<KamEdge>(edges.values());
+    }
+
+    /**
+     * Returns the request pool, creating or resizing it to match the current
+     * {@link Configuration}.
+     *
+     * @return the request pool
+     */
+    static synchronized ThreadPoolExecutor getPool() {
+        final int threads = Configuration.getInstance().getRequestThreads();
+        if (pool == null) {
+            pool = new ThreadPoolExecutor(threads, threads, 60L,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new RequestThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+        } else if (threads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(threads);
+            pool.setCorePoolSize(threads);
+        } else if (threads < pool.getMaximumPoolSize()) {
+            pool.setCorePoolSize(threads);
+            pool.setMaximumPoolSize(threads);
+        }
+        return pool;
+    }
+
+    /**
+     * Creates named daemon threads so that outstanding requests never keep
+     * Cytoscape from exiting.
+     */
+    private static final class RequestThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "BEL Framework request "
+                    + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private BulkRequests() {
+        // static utility
+    }
+}
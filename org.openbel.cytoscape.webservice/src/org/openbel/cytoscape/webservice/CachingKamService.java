@@ -0,0 +1,516 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link CachingKamService} is a read-through cache in front of another
+ * {@link KamService}.  Supporting terms, supporting evidence, unfiltered
+ * adjacency and namespace lookups are served from a {@link BoundedCache} that
+ * is bounded by entry count and approximate size in bytes, see
+ * {@link Configuration#getCacheEntries()} and
+ * {@link Configuration#getCacheSize()}.
+ *
+ * <p>
+ * Element ids handed out by the Web API are scoped to the KAM they were
+ * loaded from, so entries are keyed by the id of the {@link KamNode node} or
+ * {@link KamEdge edge} together with the name and generation of that KAM.
+ * The KAM of an element is learned from the handles and results that pass
+ * through this service.  Whenever a {@link Kam} passes through
+ * {@link #getCatalog()} or {@link #loadKam(Kam)} with a different compile
+ * time than previously seen, the generation of that KAM is advanced; entries
+ * cached for the old KAM become unreachable and age out of the cache while
+ * entries of other KAMs are kept.  Entries for elements whose KAM is not
+ * known are dropped whenever any KAM is recompiled.  Namespace lookups do not
+ * depend on a KAM and are only dropped by {@link #reloadClientConnector()}.
+ * </p>
+ *
+ * <p>
+ * Cached lists are copied on the way out so that callers are free to modify
+ * the results.
+ * </p>
+ */
+class CachingKamService extends DelegatingKamService {
+    private static final CyLogger log = CyLogger
+            .getLogger(CachingKamService.class);
+    private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+    private static final String TERMS = "terms";
+    private static final String EVIDENCE = "evidence";
+    private static final String ADJACENT = "adjacent";
+    private static final String NAMESPACE_VALUES = "namespaceValues";
+    private static final String NAMESPACES = "namespaces";
+    private static final int MAX_TRACKED_ELEMENTS = 200000;
+
+    private final BoundedCache<CacheKey, List<?>> cache;
+    private final Map<String, Long> compileTimes = new HashMap<String, Long>();
+    private final Map<String, Integer> generations =
+            new HashMap<String, Integer>();
+    private int unscopedGeneration;
+    private final Map<String, String> handleKams =
+            new HashMap<String, String>();
+    private final BoundedCache<String, String> elementKams =
+            new BoundedCache<String, String>(MAX_TRACKED_ELEMENTS,
+                    MAX_TRACKED_ELEMENTS);
+
+    /**
+     * Constructs the cache in front of {@code delegate} using the bounds of
+     * the current {@link Configuration}.
+     *
+     * @param delegate the {@link KamService} to read through to
+     */
+    CachingKamService(final KamService delegate) {
+        super(delegate);
+        final Configuration cfg = Configuration.getInstance();
+        this.cache = new BoundedCache<CacheKey, List<?>>(
+                cfg.getCacheEntries(), cfg.getCacheSize() * BYTES_PER_MEGABYTE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The connection may now point at a different server so the cache is
+     * emptied and resized to the current {@link Configuration}.
+     * </p>
+     */
+    @Override
+    public void reloadClientConnector() {
+        final Configuration cfg = Configuration.getInstance();
+        cache.clear();
+        synchronized (handleKams) {
+            handleKams.clear();
+        }
+        elementKams.clear();
+        cache.resize(cfg.getCacheEntries(),
+                cfg.getCacheSize() * BYTES_PER_MEGABYTE);
+        super.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        final List<Kam> kams = super.getCatalog();
+        if (kams != null) {
+            for (final Kam kam : kams) {
+                observe(kam);
+            }
+        }
+        return kams;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        if (kam != null) {
+            observe(kam);
+        }
+        final LoadKamResponse response = super.loadKam(kam);
+        if (kam != null && response != null && response.getHandle() != null) {
+            learnHandle(response.getHandle().getHandle(), kam.getName());
+        }
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        final DialectHandle dialect = super.getDefaultDialect(kamHandle);
+        if (dialect != null) {
+            learnHandle(dialect.getHandle(), kamOf(kamHandle));
+        }
+        return dialect;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return learnNodes(kamHandle, super.findKamNodesByNamespaceValues(
+                kamHandle, dialectHandle, namespaceValues, nodeFilter));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        return learnNodes(kamHandle, super.findKamNodesByFunction(kamHandle,
+                dialectHandle, function));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        return learnNodes(kamHandle, super.findKamNodesByPatterns(kamHandle,
+                dialectHandle, regex, nf));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        final List<SimplePath> paths = super.interconnect(dialectHandle,
+                sources, maxDepth);
+        final String kam = kamOf(dialectHandle);
+        if (kam != null && paths != null) {
+            for (final SimplePath path : paths) {
+                learnEdges(kam, path.getEdges());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        if (node == null || node.getId() == null) {
+            return super.getSupportingTerms(node);
+        }
+
+        final CacheKey key = elementKey(kamOf(node.getId()), TERMS,
+                node.getId());
+        List<BelTerm> terms = cached(key);
+        if (terms == null) {
+            terms = super.getSupportingTerms(node);
+            if (terms != null) {
+                store(key, terms, PayloadSizes.of(terms));
+            }
+        }
+        return copy(terms);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        if (edge == null || edge.getId() == null) {
+            return super.getSupportingEvidence(edge);
+        }
+
+        final CacheKey key = elementKey(kamOf(edge.getId()), EVIDENCE,
+                edge.getId());
+        List<BelStatement> statements = cached(key);
+        if (statements == null) {
+            statements = super.getSupportingEvidence(edge);
+            if (statements != null) {
+                store(key, statements, PayloadSizes.of(statements));
+            }
+        }
+        return copy(statements);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Only unfiltered requests are cached; {@link EdgeFilter edge filters} do
+     * not define equality.
+     * </p>
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        final String kam = kamOf(dialectHandle);
+        if (ef != null || node == null || node.getId() == null
+                || direction == null) {
+            return learnEdges(kam, super.getAdjacentKamEdges(dialectHandle,
+                    node, direction, ef));
+        }
+
+        final String dialect = dialectHandle == null ? ""
+                : dialectHandle.getHandle();
+        final CacheKey key = elementKey(kam, ADJACENT, node.getId(),
+                direction.name(), dialect);
+        List<KamEdge> edges = cached(key);
+        if (edges == null) {
+            edges = learnEdges(kam, super.getAdjacentKamEdges(dialectHandle,
+                    node, direction, ef));
+            if (edges != null) {
+                store(key, edges, PayloadSizes.of(edges));
+            }
+        }
+        return copy(edges);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        if (patterns == null || patterns.isEmpty()) {
+            return super.findNamespaceValues(patterns, namespaces);
+        }
+
+        final StringBuilder id = new StringBuilder();
+        for (final String pattern : patterns) {
+            id.append(pattern).append('\n');
+        }
+        id.append('\n');
+        if (namespaces != null) {
+            for (final Namespace ns : namespaces) {
+                id.append(ns.getResourceLocation()).append('\n');
+            }
+        }
+
+        final CacheKey key = new CacheKey(null, 0, NAMESPACE_VALUES,
+                id.toString());
+        List<NamespaceValue> values = cached(key);
+        if (values == null) {
+            values = super.findNamespaceValues(patterns, namespaces);
+            if (values != null) {
+                store(key, values, PayloadSizes.of(values));
+            }
+        }
+        return copy(values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        final CacheKey key = new CacheKey(null, 0, NAMESPACES, "");
+        List<NamespaceDescriptor> descriptors = cached(key);
+        if (descriptors == null) {
+            descriptors = super.getAllNamespaces();
+            if (descriptors != null) {
+                store(key, descriptors, PayloadSizes.of(descriptors));
+            }
+        }
+        return copy(descriptors);
+    }
+
+    /**
+     * Records the compile time of {@code kam} and advances its generation if
+     * the KAM was recompiled since it was last seen.
+     *
+     * @param kam the {@link Kam kam} reported by the Web API
+     */
+    private void observe(final Kam kam) {
+        final XMLGregorianCalendar lastCompiled = kam.getLastCompiled();
+        if (kam.getName() == null || lastCompiled == null) {
+            return;
+        }
+
+        final Long compiled = lastCompiled.toGregorianCalendar()
+                .getTimeInMillis();
+        synchronized (compileTimes) {
+            final Long previous = compileTimes.put(kam.getName(), compiled);
+            if (previous != null && !previous.equals(compiled)) {
+                final Integer generation = generations.get(kam.getName());
+                generations.put(kam.getName(),
+                        generation == null ? 1 : generation + 1);
+                unscopedGeneration++;
+                log.info("KAM " + kam.getName() + " was recompiled, "
+                        + "discarding cached responses");
+            }
+        }
+    }
+
+    /**
+     * Builds the key of a request about an element of the KAM named
+     * {@code kam}, {@code null} if the KAM of the element is not known.
+     */
+    private CacheKey elementKey(final String kam, final String operation,
+            final String... parts) {
+        synchronized (compileTimes) {
+            if (kam == null) {
+                return new CacheKey(null, unscopedGeneration, operation,
+                        parts);
+            }
+            final Integer generation = generations.get(kam);
+            return new CacheKey(kam, generation == null ? 0 : generation,
+                    operation, parts);
+        }
+    }
+
+    private void learnHandle(final String handle, final String kam) {
+        if (handle != null && kam != null) {
+            synchronized (handleKams) {
+                handleKams.put(handle, kam);
+            }
+        }
+    }
+
+    private String kamOf(final KamHandle kamHandle) {
+        return kamHandle == null ? null : kamOfHandle(kamHandle.getHandle());
+    }
+
+    private String kamOf(final DialectHandle dialectHandle) {
+        return dialectHandle == null ? null : kamOfHandle(dialectHandle
+                .getHandle());
+    }
+
+    private String kamOfHandle(final String handle) {
+        synchronized (handleKams) {
+            return handleKams.get(handle);
+        }
+    }
+
+    private String kamOf(final String elementId) {
+        return elementKams.get(elementId);
+    }
+
+    private List<KamNode> learnNodes(final KamHandle kamHandle,
+            final List<KamNode> nodes) {
+        final String kam = kamOf(kamHandle);
+        if (kam != null && nodes != null) {
+            for (final KamNode node : nodes) {
+                learn(kam, node);
+            }
+        }
+        return nodes;
+    }
+
+    private List<KamEdge> learnEdges(final String kam,
+            final List<KamEdge> edges) {
+        if (kam != null && edges != null) {
+            for (final KamEdge edge : edges) {
+                if (edge.getId() != null) {
+                    elementKams.put(edge.getId(), kam, 1);
+                }
+                learn(kam, edge.getSource());
+                learn(kam, edge.getTarget());
+            }
+        }
+        return edges;
+    }
+
+    private void learn(final String kam, final KamNode node) {
+        if (node != null && node.getId() != null) {
+            elementKams.put(node.getId(), kam, 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> cached(final CacheKey key) {
+        return (List<T>) cache.get(key);
+    }
+
+    private void store(final CacheKey key, final List<?> value,
+            final long size) {
+        cache.put(key, new ArrayList<Object>(value), size);
+    }
+
+    private static <T> List<T> copy(final List<T> list) {
+        if (list == null) {
+            return null;
+        }
+        return new ArrayList<T>(list);
+    }
+
+    /**
+     * Cache key made of the KAM name and generation, the operation and the
+     * identifying parts of the request.
+     */
+    private static final class CacheKey {
+        private final String kam;
+        private final int generation;
+        private final String operation;
+        private final String[] parts;
+        private final int hash;
+
+        private CacheKey(final String kam, final int generation,
+                final String operation, final String... parts) {
+            this.kam = kam;
+            this.generation = generation;
+            this.operation = operation;
+            this.parts = parts;
+
+            int h = kam == null ? 0 : kam.hashCode();
+            h = 31 * h + generation;
+            h = 31 * h + operation.hashCode();
+            for (final String part : parts) {
+                h = 31 * h + (part == null ? 0 : part.hashCode());
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return hash == other.hash && generation == other.generation
+                    && (kam == null ? other.kam == null : kam.equals(other.kam))
+                    && operation.equals(other.operation)
+                    && Arrays.equals(parts, other.parts);
+        }
+    }
+}
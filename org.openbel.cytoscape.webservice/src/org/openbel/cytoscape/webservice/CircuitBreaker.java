@@ -0,0 +1,164 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link CircuitBreaker} stops requests to the Web API while it is failing.
+ *
+ * <p>
+ * The breaker starts {@link State#CLOSED closed}.  After
+ * {@value #FAILURE_THRESHOLD} consecutive transport failures, or when a
+ * connection attempt fails, it {@link State#OPEN opens} and requests fail
+ * fast for a backoff period.  The backoff starts at
+ * {@value #INITIAL_BACKOFF} ms and doubles with every failed retry, up to
+ * {@value #MAX_BACKOFF} ms.  Once the backoff has elapsed a single caller
+ * is let through as a trial, the breaker is then
+ * {@link State#HALF_OPEN half-open} until the trial succeeds or fails.  A
+ * trial that ends before reaching the Web API must be
+ * {@link #trialAborted() aborted} so that the breaker does not stay
+ * half-open.
+ * </p>
+ */
+class CircuitBreaker {
+    private static final CyLogger log = CyLogger
+            .getLogger(CircuitBreaker.class);
+    static final int FAILURE_THRESHOLD = 3;
+    static final long INITIAL_BACKOFF = 1000;
+    static final long MAX_BACKOFF = 60000;
+
+    /**
+     * The states of a {@link CircuitBreaker}.
+     */
+    enum State {
+        /** Requests are let through. */
+        CLOSED,
+        /** Requests fail fast until the backoff has elapsed. */
+        OPEN,
+        /** A trial request is in flight, other requests fail fast. */
+        HALF_OPEN
+    }
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long backoff;
+    private long retryAt;
+
+    /**
+     * Lets a request through or fails it fast.
+     *
+     * @return {@code true} if the caller is the trial of a half-open breaker
+     * and should check the connection before issuing its request
+     * @throws ServiceUnavailableException Thrown if the breaker is open or a
+     * trial is already in flight
+     */
+    synchronized boolean acquire() {
+        switch (state) {
+        case CLOSED:
+            return false;
+        case OPEN:
+            if (now() >= retryAt) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            break;
+        case HALF_OPEN:
+            break;
+        }
+        throw new ServiceUnavailableException(
+                "The BEL Framework Web API is unavailable, retrying in "
+                        + Math.max(0, retryAt - now())
+                        / 1000 + " s", retryAt);
+    }
+
+    /**
+     * Records a request that reached the Web API, closing the breaker.
+     */
+    synchronized void success() {
+        if (state != State.CLOSED) {
+            log.info("BEL Framework Web API is available again");
+        }
+        state = State.CLOSED;
+        failures = 0;
+        backoff = 0;
+    }
+
+    /**
+     * Records a request that failed at the transport level.  A failed trial
+     * reopens the breaker, otherwise it opens after
+     * {@value #FAILURE_THRESHOLD} consecutive failures.
+     */
+    synchronized void failure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    /**
+     * Records a trial that ended without reaching the Web API.  A half-open
+     * breaker is reopened for the current backoff so that another caller
+     * can try again.
+     */
+    synchronized void trialAborted() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            retryAt = now() + backoff;
+        }
+    }
+
+    /**
+     * Opens the breaker at once, used when a connection attempt fails.
+     */
+    synchronized void trip() {
+        failures++;
+        open();
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return the {@link State state}
+     */
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current time in milliseconds, overridden by tests.
+     *
+     * @return the current time in milliseconds
+     */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private void open() {
+        backoff = backoff == 0 ? INITIAL_BACKOFF : Math.min(backoff * 2,
+                MAX_BACKOFF);
+        retryAt = now() + backoff;
+        if (state != State.OPEN) {
+            log.warn("BEL Framework Web API is unavailable, retrying in "
+                    + backoff + " ms");
+        }
+        state = State.OPEN;
+    }
+}
@@ -19,8 +19,11 @@
  */
 package org.openbel.cytoscape.webservice;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 
 import javax.xml.namespace.QName;
 import javax.xml.ws.BindingProvider;
@@ -32,6 +35,7 @@ import cytoscape.data.webservice.CyWebServiceEvent;
 import cytoscape.data.webservice.CyWebServiceException;
 import cytoscape.data.webservice.WebServiceClientImpl;
 import cytoscape.data.webservice.WebServiceClientManager;
+import cytoscape.logger.CyLogger;
 
 /**
  * {@link ClientConnector} defines the BELFramework webservice to register with
@@ -45,9 +49,16 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
     private static final String DISPLAY_NAME = "BEL Framework Web Services Connection";
     private static final String REQUEST_TIMEOUT_KEY =
             "com.sun.xml.internal.ws.request.timeout";
+    // upper bound for the health probe, in milliseconds
+    private static final int PROBE_TIMEOUT = 5000;
+    private static final CyLogger log = CyLogger
+            .getLogger(ClientConnector.class);
     private static final Configuration cfg = Configuration.getInstance();
     private static ClientConnector instance;
-    private boolean valid = false;
+    private volatile boolean valid = false;
+    private volatile WebAPIService service;
+    private volatile WebAPIPool pool;
+    private final CircuitBreaker breaker = new CircuitBreaker();
 
     public static synchronized ClientConnector getInstance() {
         if (instance == null) {
@@ -58,11 +69,12 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
     }
 
     /**
-     * Private constructor for singleton instance.
+     * Private constructor for singleton instance.  The connection is not
+     * configured until {@link #reconfigure()} is called, or until the first
+     * request finds it invalid.
      */
     private ClientConnector() {
         super(CLIENT, DISPLAY_NAME);
-        configure();
     }
 
     /**
@@ -72,37 +84,157 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
      */
     public synchronized void reconfigure() {
         configure();
+        if (valid) {
+            breaker.success();
+        }
         
         // reload client connector in kam service after reconfigure
         KamServiceFactory.getInstance().getKAMService().reloadClientConnector();
     }
 
     /**
-     * Configures webservice settings and validates connection.
+     * Reconfigures if the connection is not valid, after checking with a
+     * {@link #probe() health probe} that the Web API is reachable.
+     *
+     * @return {@code true} if the connection is valid
+     */
+    synchronized boolean reconnect() {
+        if (valid) {
+            // another caller reconnected while we waited
+            return true;
+        }
+        boolean trial = false;
+        if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            // another caller failed to reconnect while we waited, fail fast
+            // unless its backoff has already elapsed
+            trial = breaker.acquire();
+        }
+        try {
+            if (!probe()) {
+                return false;
+            }
+            reconfigure();
+            return valid;
+        } catch (RuntimeException e) {
+            if (trial) {
+                breaker.trialAborted();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that the configured WSDL URL answers, without downloading or
+     * parsing the WSDL.  The probe waits at most {@value #PROBE_TIMEOUT} ms
+     * or the configured timeout, whichever is shorter.
+     *
+     * @return {@code true} if the Web API answered
+     */
+    boolean probe() {
+        final int timeout = (int) Math.min(PROBE_TIMEOUT,
+                cfg.getTimeout() * 1000L);
+        URLConnection conn = null;
+        try {
+            conn = new URL(cfg.getWSDLURL()).openConnection();
+            conn.setConnectTimeout(timeout);
+            conn.setReadTimeout(timeout);
+            if (conn instanceof HttpURLConnection) {
+                final int code = ((HttpURLConnection) conn).getResponseCode();
+                return code >= 200 && code < 400;
+            }
+            conn.connect();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (conn instanceof HttpURLConnection) {
+                ((HttpURLConnection) conn).disconnect();
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link CircuitBreaker breaker} guarding requests on this
+     * connection.
+     *
+     * @return the {@link CircuitBreaker breaker}
+     */
+    CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Configures webservice settings and validates connection.  The service
+     * is built from a local copy of the WSDL kept by the {@link WsdlCache}.
+     *
+     * <p>
+     * The client stub registered with the cytoscape webservice manager is
+     * backed by a {@link WebAPIPool pool} of
+     * {@link Configuration#getClientPoolSize()} stubs, so it can be used by
+     * concurrent requests.
+     * </p>
      */
     private void configure() {
+        if (pool != null) {
+            // stubs in use finish their request and are then discarded
+            pool.close();
+            pool = null;
+        }
+
         URL wsdlURL;
         try {
-            wsdlURL = new URL(cfg.getWSDLURL());
+            wsdlURL = WsdlCache.resolve(cfg.getWSDLURL());
         } catch (MalformedURLException e) {
             valid = false;
             return;
+        } catch (IOException e) {
+            log.warn("Unable to fetch WSDL from " + cfg.getWSDLURL(), e);
+            valid = false;
+            return;
         }
 
         try {
-            // setup stub and configure timeout
-            WebAPI stub = new WebAPIService(wsdlURL, new QName(
-                    "http://belframework.org/ws/schemas", "WebAPIService"))
-                    .getWebAPISoap11();
-            setClientStub(stub);
-            ((BindingProvider) stub).getRequestContext().put(
-                    REQUEST_TIMEOUT_KEY, cfg.getTimeout() * 1000);
+            service = new WebAPIService(wsdlURL, new QName(
+                    "http://belframework.org/ws/schemas", "WebAPIService"));
+            pool = new WebAPIPool(this, cfg.getClientPoolSize(),
+                    cfg.getTimeout() * 1000L);
+            // create the first stub now to validate the connection
+            pool.release(pool.borrow(), false);
+            setClientStub(pool.getWebAPI());
             valid = true;
         } catch (Throwable e) {
             valid = false;
         }
     }
 
+    /**
+     * Creates a new client stub for the configured Web API, with the
+     * configured request timeout.
+     *
+     * @return the new {@link WebAPI stub}
+     */
+    WebAPI createStub() {
+        final WebAPIService s = service;
+        final WebAPI stub;
+        // port creation is not documented as thread-safe
+        synchronized (s) {
+            stub = s.getWebAPISoap11();
+        }
+        ((BindingProvider) stub).getRequestContext().put(
+                REQUEST_TIMEOUT_KEY, cfg.getTimeout() * 1000);
+        return stub;
+    }
+
+    /**
+     * Returns the {@link WebAPIPool pool} of client stubs.
+     *
+     * @return the {@link WebAPIPool pool}, or {@code null} if the connection
+     * is not configured
+     */
+    WebAPIPool getClientPool() {
+        return pool;
+    }
+
     /**
      * Returns {@code true} if the webservice connection is valid,
      * {@code false} if not.
@@ -19,10 +19,18 @@
  */
 package org.openbel.cytoscape.webservice;
 
+import java.io.File;
 import java.io.IOException;
 
+import javax.swing.SwingConstants;
+
+import org.openbel.cytoscape.webservice.dialog.MetricsPanel;
+
+import cytoscape.Cytoscape;
 import cytoscape.data.webservice.WebServiceClientManager;
+import cytoscape.logger.CyLogger;
 import cytoscape.plugin.CytoscapePlugin;
+import cytoscape.view.cytopanels.CytoPanelImp;
 
 /**
  * The {@link CytoscapePlugin cytoscape plugin} class for the BELFramework
@@ -33,13 +41,55 @@ import cytoscape.plugin.CytoscapePlugin;
  */
 public class ClientPlugin extends CytoscapePlugin {
     public static final String KAM_PLUGIN_SUBMENU = "KAM Navigator";
+    private static final CyLogger log = CyLogger.getLogger(ClientPlugin.class);
 
     /**
      * Default no-arg plugin construtor to initialize this plugin.
      */
     public ClientPlugin() {
         onCytoscapeStart();
-        WebServiceClientManager.registerClient(ClientConnector.getInstance());
+        KamServiceMetrics.getInstance().schedule(
+                Configuration.getInstance().getMetricsInterval());
+        installMetricsPanel();
+        startRecording();
+
+        final ClientConnector connector = ClientConnector.getInstance();
+        WebServiceClientManager.registerClient(connector);
+
+        // reaching the Web API can be slow, do not hold up cytoscape startup
+        final Thread init = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                connector.reconfigure();
+            }
+        }, "BEL Framework connector init");
+        init.setDaemon(true);
+        init.start();
+    }
+
+    /**
+     * Adds the {@link MetricsPanel metrics panel} to the south cytopanel.
+     */
+    private static void installMetricsPanel() {
+        final CytoPanelImp panel = (CytoPanelImp) Cytoscape.getDesktop()
+                .getCytoPanel(SwingConstants.SOUTH);
+        panel.add(MetricsPanel.TITLE, new MetricsPanel());
+    }
+
+    /**
+     * Starts {@link TrafficRecorder recording} Web API traffic if the
+     * {@value TrafficRecorder#RECORD_PROPERTY} system property names a file.
+     */
+    private static void startRecording() {
+        final String file = System.getProperty(TrafficRecorder.RECORD_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        try {
+            TrafficRecorder.getInstance().start(new File(file));
+        } catch (IOException e) {
+            log.warn("Unable to record Web API traffic to " + file, e);
+        }
     }
 
     /**
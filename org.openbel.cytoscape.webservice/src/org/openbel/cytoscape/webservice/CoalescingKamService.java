@@ -0,0 +1,362 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+
+/**
+ * {@link CoalescingKamService} lets concurrent identical requests share one
+ * call to another {@link KamService}.  The first caller of a request issues
+ * it, callers arriving while it is in flight wait for and receive the same
+ * result or exception.  Nothing is kept once the call completes, repeated
+ * requests are left to the {@link CachingKamService}.
+ *
+ * <p>
+ * Requests are identical when they name the same operation, handles and
+ * arguments; {@link KamNode nodes} and {@link KamEdge edges} compare by id.
+ * Requests with a {@link NodeFilter node filter} or
+ * {@link EdgeFilter edge filter} are never coalesced, filters do not define
+ * equality.  Each caller receives its own copy of a list result.
+ * </p>
+ */
+class CoalescingKamService extends DelegatingKamService {
+    private static final char SEPARATOR = '\u0000';
+    private static final char ABSENT = '\u0001';
+
+    private final ConcurrentMap<String, FutureTask<?>> inFlight =
+            new ConcurrentHashMap<String, FutureTask<?>>();
+
+    /**
+     * Constructs the coalescing layer in front of {@code delegate}.
+     *
+     * @param delegate the {@link KamService} issuing the requests
+     */
+    CoalescingKamService(final KamService delegate) {
+        super(delegate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        return coalesceList(key("catalog"), new Callable<List<Kam>>() {
+            @Override
+            public List<Kam> call() {
+                return delegate.getCatalog();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        return coalesceList(key("namespaces"),
+                new Callable<List<NamespaceDescriptor>>() {
+                    @Override
+                    public List<NamespaceDescriptor> call() {
+                        return delegate.getAllNamespaces();
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        if (kamHandle == null) {
+            return super.getDefaultDialect(kamHandle);
+        }
+        return coalesce(key("dialect", kamHandle.getHandle()),
+                new Callable<DialectHandle>() {
+                    @Override
+                    public DialectHandle call() {
+                        return delegate.getDefaultDialect(kamHandle);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        if (node == null || node.getId() == null) {
+            return super.getSupportingTerms(node);
+        }
+        return coalesceList(key("terms", node.getId()),
+                new Callable<List<BelTerm>>() {
+                    @Override
+                    public List<BelTerm> call() {
+                        return delegate.getSupportingTerms(node);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        if (edge == null || edge.getId() == null) {
+            return super.getSupportingEvidence(edge);
+        }
+        return coalesceList(key("evidence", edge.getId()),
+                new Callable<List<BelStatement>>() {
+                    @Override
+                    public List<BelStatement> call() {
+                        return delegate.getSupportingEvidence(edge);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        if (ef != null || node == null || node.getId() == null
+                || direction == null) {
+            return super.getAdjacentKamEdges(dialectHandle, node, direction,
+                    ef);
+        }
+        return coalesceList(
+                key("adjacent", handle(dialectHandle), node.getId(),
+                        direction.name()), new Callable<List<KamEdge>>() {
+                    @Override
+                    public List<KamEdge> call() {
+                        return delegate.getAdjacentKamEdges(dialectHandle,
+                                node, direction, ef);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        if (kamHandle == null || function == null) {
+            return super.findKamNodesByFunction(kamHandle, dialectHandle,
+                    function);
+        }
+        return coalesceList(
+                key("function", kamHandle.getHandle(), handle(dialectHandle),
+                        function.name()), new Callable<List<KamNode>>() {
+                    @Override
+                    public List<KamNode> call() {
+                        return delegate.findKamNodesByFunction(kamHandle,
+                                dialectHandle, function);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        if (nf != null || kamHandle == null || regex == null) {
+            return super.findKamNodesByPatterns(kamHandle, dialectHandle,
+                    regex, nf);
+        }
+        return coalesceList(
+                key("patterns", kamHandle.getHandle(), handle(dialectHandle),
+                        regex), new Callable<List<KamNode>>() {
+                    @Override
+                    public List<KamNode> call() {
+                        return delegate.findKamNodesByPatterns(kamHandle,
+                                dialectHandle, regex, nf);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        if (nodeFilter != null || kamHandle == null || namespaceValues == null) {
+            return super.findKamNodesByNamespaceValues(kamHandle,
+                    dialectHandle, namespaceValues, nodeFilter);
+        }
+
+        final List<String> parts = new ArrayList<String>();
+        parts.add(kamHandle.getHandle());
+        parts.add(handle(dialectHandle));
+        for (final NamespaceValue value : namespaceValues) {
+            parts.add(value.getNamespace() == null ? null : value
+                    .getNamespace().getResourceLocation());
+            parts.add(value.getValue());
+        }
+        return coalesceList(
+                key("namespaceNodes", parts.toArray(new String[parts.size()])),
+                new Callable<List<KamNode>>() {
+                    @Override
+                    public List<KamNode> call() {
+                        return delegate.findKamNodesByNamespaceValues(
+                                kamHandle, dialectHandle, namespaceValues,
+                                nodeFilter);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        if (patterns == null) {
+            return super.findNamespaceValues(patterns, namespaces);
+        }
+
+        final List<String> parts = new ArrayList<String>(patterns);
+        // keeps patterns and namespaces apart
+        parts.add(null);
+        if (namespaces != null) {
+            for (final Namespace ns : namespaces) {
+                parts.add(ns.getResourceLocation());
+            }
+        }
+        return coalesceList(
+                key("namespaceValues", parts.toArray(new String[parts.size()])),
+                new Callable<List<NamespaceValue>>() {
+                    @Override
+                    public List<NamespaceValue> call() {
+                        return delegate.findNamespaceValues(patterns,
+                                namespaces);
+                    }
+                });
+    }
+
+    /**
+     * Runs {@code call} unless an identical request identified by
+     * {@code key} is in flight, in which case its outcome is shared.
+     */
+    private <T> T coalesce(final String key, final Callable<T> call) {
+        final FutureTask<T> task = new FutureTask<T>(call);
+        @SuppressWarnings("unchecked")
+        final FutureTask<T> running = (FutureTask<T>) inFlight.putIfAbsent(
+                key, task);
+        if (running != null) {
+            return outcome(running);
+        }
+
+        try {
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return outcome(task);
+    }
+
+    /**
+     * Same as {@link #coalesce(String, Callable)}, copying the shared list
+     * for each caller.
+     */
+    private <T> List<T> coalesceList(final String key,
+            final Callable<List<T>> call) {
+        final List<T> list = coalesce(key, call);
+        return list == null ? null : new ArrayList<T>(list);
+    }
+
+    /**
+     * Waits for {@code task}, rethrowing the exception of the call if any.
+     * The wait is bounded by the request timeout of the call, an interrupt
+     * is kept for the caller rather than abandoning the shared result.
+     */
+    private static <T> T outcome(final FutureTask<T> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String handle(final DialectHandle dialectHandle) {
+        return dialectHandle == null ? null : dialectHandle.getHandle();
+    }
+
+    private static String key(final String operation, final String... parts) {
+        final StringBuilder key = new StringBuilder(operation);
+        for (final String part : parts) {
+            key.append(SEPARATOR);
+            if (part == null) {
+                key.append(ABSENT);
+            } else {
+                key.append(part);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -41,12 +41,36 @@ public class Configuration {
             "Stores configuration for the BELFramework Web Service cytoscape plugin.";
     private static final String WSDL_KEY = "WSDL_URL";
     private static final String TIMEOUT_KEY = "TIMEOUT";
+    private static final String CACHE_ENTRIES_KEY = "CACHE_MAX_ENTRIES";
+    private static final String CACHE_SIZE_KEY = "CACHE_MAX_SIZE_MB";
+    private static final String CATALOG_TTL_KEY = "CATALOG_TTL";
+    private static final String REQUEST_THREADS_KEY = "REQUEST_THREADS";
+    private static final String CLIENT_POOL_SIZE_KEY = "CLIENT_POOL_SIZE";
+    private static final String METRICS_INTERVAL_KEY = "METRICS_DUMP_INTERVAL";
+    private static final String SEARCH_BATCH_KEY = "SEARCH_BATCH_SIZE";
+    private static final String SEARCH_CACHE_KEY = "SEARCH_CACHE_NODES";
     private static final String DEFAULT_WSDL_URL =
             "http://localhost:8080/openbel-ws/belframework.wsdl";
     private static final int DEFAULT_TIMEOUT = 120;
+    private static final int DEFAULT_CACHE_ENTRIES = 10000;
+    private static final int DEFAULT_CACHE_SIZE = 32;
+    private static final int DEFAULT_CATALOG_TTL = 300;
+    private static final int DEFAULT_REQUEST_THREADS = 4;
+    private static final int DEFAULT_CLIENT_POOL_SIZE = 4;
+    private static final int DEFAULT_METRICS_INTERVAL = 300;
+    private static final int DEFAULT_SEARCH_BATCH = 500;
+    private static final int DEFAULT_SEARCH_CACHE = 200000;
     private static Configuration instance;
     private String wsdlURL;
     private Integer timeout;
+    private Integer cacheEntries = DEFAULT_CACHE_ENTRIES;
+    private Integer cacheSize = DEFAULT_CACHE_SIZE;
+    private Integer catalogTTL = DEFAULT_CATALOG_TTL;
+    private Integer requestThreads = DEFAULT_REQUEST_THREADS;
+    private Integer clientPoolSize = DEFAULT_CLIENT_POOL_SIZE;
+    private Integer metricsInterval = DEFAULT_METRICS_INTERVAL;
+    private Integer searchBatchSize = DEFAULT_SEARCH_BATCH;
+    private Integer searchCacheNodes = DEFAULT_SEARCH_CACHE;
 
     /**
      * Gets the singleton {@link Configuration} instance.  If the singleton
@@ -70,6 +94,14 @@ public class Configuration {
         if (instance != null) {
             instance.wsdlURL = DEFAULT_WSDL_URL;
             instance.timeout = DEFAULT_TIMEOUT;
+            instance.cacheEntries = DEFAULT_CACHE_ENTRIES;
+            instance.cacheSize = DEFAULT_CACHE_SIZE;
+            instance.catalogTTL = DEFAULT_CATALOG_TTL;
+            instance.requestThreads = DEFAULT_REQUEST_THREADS;
+            instance.clientPoolSize = DEFAULT_CLIENT_POOL_SIZE;
+            instance.metricsInterval = DEFAULT_METRICS_INTERVAL;
+            instance.searchBatchSize = DEFAULT_SEARCH_BATCH;
+            instance.searchCacheNodes = DEFAULT_SEARCH_CACHE;
         }
     }
 
@@ -108,6 +140,151 @@ public class Configuration {
         }
     }
 
+    /**
+     * Returns the maximum number of responses held by the
+     * {@link KamService kam service} cache.
+     *
+     * @return the maximum number of cache entries
+     */
+    public Integer getCacheEntries() {
+        return cacheEntries;
+    }
+
+    public void setCacheEntries(final Integer cacheEntries) {
+        if (cacheEntries != null && cacheEntries > 0) {
+            this.cacheEntries = cacheEntries;
+        } else {
+            this.cacheEntries = DEFAULT_CACHE_ENTRIES;
+        }
+    }
+
+    /**
+     * Returns the approximate size, in megabytes, the
+     * {@link KamService kam service} cache may grow to.
+     *
+     * @return the maximum cache size in megabytes
+     */
+    public Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(final Integer cacheSize) {
+        if (cacheSize != null && cacheSize > 0) {
+            this.cacheSize = cacheSize;
+        } else {
+            this.cacheSize = DEFAULT_CACHE_SIZE;
+        }
+    }
+
+    /**
+     * Returns the number of seconds a cached KAM catalog is considered fresh.
+     *
+     * @return the KAM catalog time-to-live in seconds
+     */
+    public Integer getCatalogTTL() {
+        return catalogTTL;
+    }
+
+    public void setCatalogTTL(final Integer catalogTTL) {
+        if (catalogTTL != null) {
+            this.catalogTTL = catalogTTL;
+        } else {
+            this.catalogTTL = DEFAULT_CATALOG_TTL;
+        }
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests used by bulk
+     * {@link KamService kam service} operations.
+     *
+     * @return the number of request threads
+     */
+    public Integer getRequestThreads() {
+        return requestThreads;
+    }
+
+    public void setRequestThreads(final Integer requestThreads) {
+        if (requestThreads != null && requestThreads > 0) {
+            this.requestThreads = requestThreads;
+        } else {
+            this.requestThreads = DEFAULT_REQUEST_THREADS;
+        }
+    }
+
+    /**
+     * Returns the maximum number of Web API client stubs held by the
+     * {@link ClientConnector}, which bounds the number of requests that can
+     * be in flight at once.
+     *
+     * @return the client stub pool size
+     */
+    public Integer getClientPoolSize() {
+        return clientPoolSize;
+    }
+
+    public void setClientPoolSize(final Integer clientPoolSize) {
+        if (clientPoolSize != null && clientPoolSize > 0) {
+            this.clientPoolSize = clientPoolSize;
+        } else {
+            this.clientPoolSize = DEFAULT_CLIENT_POOL_SIZE;
+        }
+    }
+
+    /**
+     * Returns the number of seconds between dumps of the
+     * {@link KamServiceMetrics kam service metrics} to the Cytoscape
+     * configuration directory, {@code 0} disables the dumps.
+     *
+     * @return the metrics dump interval in seconds
+     */
+    public Integer getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public void setMetricsInterval(final Integer metricsInterval) {
+        if (metricsInterval != null) {
+            this.metricsInterval = metricsInterval;
+        } else {
+            this.metricsInterval = DEFAULT_METRICS_INTERVAL;
+        }
+    }
+
+    /**
+     * Returns the number of identifiers resolved per request when searching
+     * for kam nodes by a list of identifiers.
+     *
+     * @return the search batch size
+     */
+    public Integer getSearchBatchSize() {
+        return searchBatchSize;
+    }
+
+    public void setSearchBatchSize(final Integer searchBatchSize) {
+        if (searchBatchSize != null && searchBatchSize > 0) {
+            this.searchBatchSize = searchBatchSize;
+        } else {
+            this.searchBatchSize = DEFAULT_SEARCH_BATCH;
+        }
+    }
+
+    /**
+     * Returns the total number of kam nodes kept by the cache of search
+     * results.
+     *
+     * @return the search cache size in nodes
+     */
+    public Integer getSearchCacheNodes() {
+        return searchCacheNodes;
+    }
+
+    public void setSearchCacheNodes(final Integer searchCacheNodes) {
+        if (searchCacheNodes != null && searchCacheNodes > 0) {
+            this.searchCacheNodes = searchCacheNodes;
+        } else {
+            this.searchCacheNodes = DEFAULT_SEARCH_CACHE;
+        }
+    }
+
     /**
      * Saves the configuration state of the webservice client plugin to the
      * plugin properties file {@code belframework-webservice.props}.
@@ -127,6 +304,14 @@ public class Configuration {
         final Properties cfgprops = new Properties();
         cfgprops.put(WSDL_KEY, wsdlURL);
         cfgprops.put(TIMEOUT_KEY, timeout.toString());
+        cfgprops.put(CACHE_ENTRIES_KEY, cacheEntries.toString());
+        cfgprops.put(CACHE_SIZE_KEY, cacheSize.toString());
+        cfgprops.put(CATALOG_TTL_KEY, catalogTTL.toString());
+        cfgprops.put(REQUEST_THREADS_KEY, requestThreads.toString());
+        cfgprops.put(CLIENT_POOL_SIZE_KEY, clientPoolSize.toString());
+        cfgprops.put(METRICS_INTERVAL_KEY, metricsInterval.toString());
+        cfgprops.put(SEARCH_BATCH_KEY, searchBatchSize.toString());
+        cfgprops.put(SEARCH_CACHE_KEY, searchCacheNodes.toString());
         cfgprops.store(new FileWriter(cfg), COMMENTS);
     }
 
@@ -157,21 +342,48 @@ public class Configuration {
                 wsdlURL = DEFAULT_WSDL_URL;
             }
 
-            String timeoutProperty = cfgprops.getProperty(TIMEOUT_KEY);
-            if (timeoutProperty != null) {
-                String remainder = timeoutProperty.replaceFirst("\\d+", "");
-
-                if (remainder.isEmpty()) {
-                    // the timeout property can be parsed as an integer
-                    timeout = Integer.parseInt(timeoutProperty);
-                } else {
-                    timeout = DEFAULT_TIMEOUT;
-                }
-            } else {
-                timeout = DEFAULT_TIMEOUT;
-            }
+            timeout = parseInteger(cfgprops, TIMEOUT_KEY, DEFAULT_TIMEOUT);
+            setCacheEntries(parseInteger(cfgprops, CACHE_ENTRIES_KEY,
+                    DEFAULT_CACHE_ENTRIES));
+            setCacheSize(parseInteger(cfgprops, CACHE_SIZE_KEY,
+                    DEFAULT_CACHE_SIZE));
+            catalogTTL = parseInteger(cfgprops, CATALOG_TTL_KEY,
+                    DEFAULT_CATALOG_TTL);
+            setRequestThreads(parseInteger(cfgprops, REQUEST_THREADS_KEY,
+                    DEFAULT_REQUEST_THREADS));
+            setClientPoolSize(parseInteger(cfgprops, CLIENT_POOL_SIZE_KEY,
+                    DEFAULT_CLIENT_POOL_SIZE));
+            metricsInterval = parseInteger(cfgprops, METRICS_INTERVAL_KEY,
+                    DEFAULT_METRICS_INTERVAL);
+            setSearchBatchSize(parseInteger(cfgprops, SEARCH_BATCH_KEY,
+                    DEFAULT_SEARCH_BATCH));
+            setSearchCacheNodes(parseInteger(cfgprops, SEARCH_CACHE_KEY,
+                    DEFAULT_SEARCH_CACHE));
         } else {
             Configuration.resetToDefaults();
         }
     }
+
+    /**
+     * Parses a non-negative integer property, falling back to
+     * {@code defaultValue} if the property is missing or malformed.
+     *
+     * @param props the {@link Properties properties} to read from
+     * @param key the property key
+     * @param defaultValue the value to use if the property cannot be parsed
+     * @return the parsed property value
+     */
+    private static Integer parseInteger(final Properties props,
+            final String key, final int defaultValue) {
+        String property = props.getProperty(key);
+        if (property != null) {
+            String remainder = property.replaceFirst("\\d+", "");
+
+            if (remainder.isEmpty()) {
+                // the property can be parsed as an integer
+                return Integer.parseInt(property);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -0,0 +1,288 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link DefaultAsyncKamService} issues the operations of a
+ * {@link KamService} on the shared request pool so that the calling thread
+ * never blocks.
+ */
+class DefaultAsyncKamService implements AsyncKamService {
+
+    private final KamService kamService;
+
+    DefaultAsyncKamService(final KamService kamService) {
+        if (kamService == null) {
+            throw new IllegalArgumentException("kamService is null");
+        }
+        this.kamService = kamService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<KamNode>> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByNamespaceValues(kamHandle,
+                        dialectHandle, namespaceValues, nodeFilter);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<NamespaceValue>> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        return submit(new Callable<List<NamespaceValue>>() {
+            @Override
+            public List<NamespaceValue> call() throws Exception {
+                return kamService.findNamespaceValues(patterns, namespaces);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<KamNode>> findKamNodesByNamespacePatterns(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces,
+            final NodeFilter nodeFilter) {
+        return findNamespaceValues(patterns, namespaces).compose(
+                new KamFuture.Continuation<List<NamespaceValue>, List<KamNode>>() {
+                    @Override
+                    public KamFuture<List<KamNode>> apply(
+                            final List<NamespaceValue> values) {
+                        if (values == null || values.isEmpty()) {
+                            // nothing found, different from a failure
+                            return KamFuture.<List<KamNode>> completed(
+                                    new ArrayList<KamNode>());
+                        }
+                        return findKamNodesByNamespaceValues(kamHandle,
+                                dialectHandle, values, nodeFilter);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<NamespaceDescriptor>> getAllNamespaces() {
+        return submit(new Callable<List<NamespaceDescriptor>>() {
+            @Override
+            public List<NamespaceDescriptor> call() throws Exception {
+                return kamService.getAllNamespaces();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<Kam>> getCatalog() {
+        return submit(new Callable<List<Kam>>() {
+            @Override
+            public List<Kam> call() throws Exception {
+                return kamService.getCatalog();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<DialectHandle> getDefaultDialect(
+            final KamHandle kamHandle) {
+        return submit(new Callable<DialectHandle>() {
+            @Override
+            public DialectHandle call() throws Exception {
+                return kamService.getDefaultDialect(kamHandle);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<LoadKamResponse> loadKam(final Kam kam) {
+        return submit(new Callable<LoadKamResponse>() {
+            @Override
+            public LoadKamResponse call() throws Exception {
+                return kamService.loadKam(kam);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<BelTerm>> getSupportingTerms(final KamNode node) {
+        return submit(new Callable<List<BelTerm>>() {
+            @Override
+            public List<BelTerm> call() throws Exception {
+                return kamService.getSupportingTerms(node);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<BelStatement>> getSupportingEvidence(
+            final KamEdge edge) {
+        return submit(new Callable<List<BelStatement>>() {
+            @Override
+            public List<BelStatement> call() throws Exception {
+                return kamService.getSupportingEvidence(edge);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<KamNode>> findKamNodesByFunction(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final FunctionType function) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByFunction(kamHandle,
+                        dialectHandle, function);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<KamNode>> findKamNodesByPatterns(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final String regex, final NodeFilter nf) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByPatterns(kamHandle,
+                        dialectHandle, regex, nf);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<KamEdge>> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        return submit(new Callable<List<KamEdge>>() {
+            @Override
+            public List<KamEdge> call() throws Exception {
+                return kamService.getAdjacentKamEdges(dialectHandle, node,
+                        direction, ef);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamFuture<List<SimplePath>> interconnect(
+            final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        return submit(new Callable<List<SimplePath>>() {
+            @Override
+            public List<SimplePath> call() throws Exception {
+                return kamService.interconnect(dialectHandle, sources,
+                        maxDepth);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code request} on the request pool, completing the returned
+     * future with its outcome.
+     */
+    private static <T> KamFuture<T> submit(final Callable<T> request) {
+        final KamFuture<T> future = new KamFuture<T>();
+        try {
+            future.setWork(BulkRequests.getPool().submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        // cancelled or timed out while queued
+                        return;
+                    }
+                    try {
+                        future.complete(request.call());
+                    } catch (Throwable t) {
+                        future.fail(t);
+                    }
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+}
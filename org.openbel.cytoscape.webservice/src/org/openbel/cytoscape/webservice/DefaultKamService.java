@@ -22,8 +22,6 @@ package org.openbel.cytoscape.webservice;
 import java.util.Collection;
 import java.util.List;
 
-import javax.swing.JOptionPane;
-
 import org.openbel.framework.ws.model.BelStatement;
 import org.openbel.framework.ws.model.BelTerm;
 import org.openbel.framework.ws.model.DialectHandle;
@@ -65,7 +63,6 @@ import org.openbel.framework.ws.model.ObjectFactory;
 import org.openbel.framework.ws.model.SimplePath;
 import org.openbel.framework.ws.model.WebAPI;
 
-import cytoscape.Cytoscape;
 import cytoscape.data.webservice.WebServiceClientManager;
 import cytoscape.logger.CyLogger;
 
@@ -73,7 +70,8 @@ import cytoscape.logger.CyLogger;
  * {@link DefaultKamService} implements an API wrapper around the {@link WebAPI
  * BEL Framework Web API}. This lightweight class reuses the same webservice
  * stub instance obtained from the {@link WebServiceClientManager cytoscape
- * webservice manager}.
+ * webservice manager}.  That stub borrows a pooled stub for each request, so
+ * this class may be called from several threads at once.
  * 
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
@@ -90,7 +88,8 @@ class DefaultKamService implements KamService {
     /**
      * Retrieves the webservice client from the
      * {@link WebServiceClientManager cytoscape webservice manager} and holds
-     * the client stub.
+     * the client stub, {@link TrafficRecorder recorded} while recording is
+     * on.
      */
     DefaultKamService() {
         reloadClientConnector();
@@ -107,7 +106,8 @@ class DefaultKamService implements KamService {
             return;
         }
 
-        webAPI = clientConnector.getClientStub();
+        webAPI = TrafficRecorder.getInstance().wrap(
+                clientConnector.getClientStub());
     }
 
     /**
@@ -393,6 +393,18 @@ class DefaultKamService implements KamService {
         return res.getKamEdges();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final Collection<KamNode> nodes,
+            final EdgeDirectionType direction, final EdgeFilter ef,
+            final RequestMonitor monitor) {
+        return BulkRequests.getAdjacentKamEdges(this, dialectHandle, nodes,
+                direction, ef, monitor);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -423,27 +435,45 @@ class DefaultKamService implements KamService {
     }
 
     /**
-     * Checks for a valid connection and errors out if not.
+     * Checks for a valid connection and errors out if not.  Fails fast while
+     * the connection's {@link CircuitBreaker} is open; otherwise an invalid
+     * connection is reconfigured once a health probe shows the Web API is
+     * reachable.
      *
-     * @throws RuntimeException Thrown to fail the existing request
+     * @throws ServiceUnavailableException Thrown to fail the existing request
      */
     protected void checkValid() {
-        if (webAPI == null || !clientConnector.isValid()) {
-            // attempt to reconfigure to see if WSDL is now up
-            clientConnector.reconfigure();
+        final ClientConnector connector = clientConnector;
+        if (connector == null) {
+            throw new ServiceUnavailableException(
+                    "No BEL Framework Web API client is registered", 0);
         }
-        
-        // if reconfigure fails
-        if (webAPI == null || !clientConnector.isValid()) {
-            // TODO move this message dialog out of the Kam service, UI
-            // has no place here
-            JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
-                    "Error connecting to the BELFramework Web Services.\n" +
-                            "Please check the BELFramework Web Services Configuration.",
-                    "Connection Error", JOptionPane.ERROR_MESSAGE);
-            // TODO make this in a checked(?) exception so that layers using
-            // the kam service can create their own UI errors
-            throw new RuntimeException("Connection error.");
+
+        final CircuitBreaker breaker = connector.getCircuitBreaker();
+        final boolean trial = breaker.acquire();
+        try {
+            if (webAPI == null || !connector.isValid()) {
+                if (!connector.reconnect()) {
+                    breaker.trip();
+                    throw new ServiceUnavailableException(
+                            "Error connecting to the BEL Framework Web API at "
+                                    + Configuration.getInstance()
+                                            .getWSDLURL(), 0);
+                }
+            } else if (trial) {
+                if (!connector.probe()) {
+                    breaker.failure();
+                    throw new ServiceUnavailableException(
+                            "The BEL Framework Web API is unavailable", 0);
+                }
+                // the server answered the probe
+                breaker.success();
+            }
+        } catch (RuntimeException e) {
+            if (trial) {
+                breaker.trialAborted();
+            }
+            throw e;
         }
     }
 }
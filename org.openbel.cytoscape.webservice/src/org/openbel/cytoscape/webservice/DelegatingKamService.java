@@ -0,0 +1,192 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link DelegatingKamService} forwards every call to another
+ * {@link KamService}.  Decorators installed by the {@link KamServiceFactory}
+ * extend this class and override only the operations they are interested in.
+ */
+abstract class DelegatingKamService implements KamService {
+
+    protected final KamService delegate;
+
+    DelegatingKamService(final KamService delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reloadClientConnector() {
+        delegate.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return delegate.findKamNodesByNamespaceValues(kamHandle,
+                dialectHandle, namespaceValues, nodeFilter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        return delegate.findNamespaceValues(patterns, namespaces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        return delegate.getAllNamespaces();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        return delegate.getCatalog();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        return delegate.getDefaultDialect(kamHandle);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        return delegate.loadKam(kam);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        return delegate.getSupportingTerms(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        return delegate.getSupportingEvidence(edge);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        return delegate.findKamNodesByFunction(kamHandle, dialectHandle,
+                function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        return delegate.findKamNodesByPatterns(kamHandle, dialectHandle, regex,
+                nf);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        return delegate.getAdjacentKamEdges(dialectHandle, node, direction, ef);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Issues single-node requests through this service so that decorators
+     * see each node.
+     * </p>
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final Collection<KamNode> nodes,
+            final EdgeDirectionType direction, final EdgeFilter ef,
+            final RequestMonitor monitor) {
+        return BulkRequests.getAdjacentKamEdges(this, dialectHandle, nodes,
+                direction, ef, monitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        return delegate.interconnect(dialectHandle, sources, maxDepth);
+    }
+}
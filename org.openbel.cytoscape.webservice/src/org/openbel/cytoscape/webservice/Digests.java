@@ -0,0 +1,88 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Static helpers that name cached files and entries by the SHA-1 digest of
+ * their key.
+ */
+public final class Digests {
+
+    /**
+     * Returns the SHA-1 digest of {@code s} in hex.
+     *
+     * @param s the string to digest, encoded as UTF-8
+     * @return the 40 character hex digest
+     */
+    public static String sha1(final String s) {
+        final MessageDigest md = sha1();
+        update(md, s);
+        return hex(md.digest());
+    }
+
+    /**
+     * Returns the SHA-1 digest of {@code lines} in hex, each line is
+     * terminated by a line feed.
+     *
+     * @param lines the strings to digest in iteration order, encoded as UTF-8
+     * @return the 40 character hex digest
+     */
+    public static String sha1(final Iterable<String> lines) {
+        final MessageDigest md = sha1();
+        for (final String line : lines) {
+            update(md, line);
+            md.update((byte) '\n');
+        }
+        return hex(md.digest());
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(final MessageDigest md, final String s) {
+        try {
+            md.update(s.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] hash) {
+        final StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (final byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private Digests() {
+        // static helpers only
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+/**
+ * Static helpers that recognize faults of the BEL Framework Web API.
+ */
+public final class Faults {
+    // fault strings of the BEL Framework Web API for handles it does not know
+    private static final String UNKNOWN_KAM_FAULT =
+            "handle does not specify a loaded KAM";
+    private static final String UNKNOWN_DIALECT_FAULT =
+            "handle does not specify a loaded dialect";
+
+    /**
+     * Returns {@code true} if {@code e} is the fault the Web API reports for
+     * an unknown or expired kam or dialect handle, e.g. after it unloaded the
+     * KAM.  The KAM can then be loaded again.
+     *
+     * @param e the {@link WebServiceException exception} thrown by a request
+     * @return {@code true} if {@code e} reports an invalid handle
+     */
+    public static boolean isInvalidHandle(final WebServiceException e) {
+        if (!(e instanceof SOAPFaultException)) {
+            return false;
+        }
+        final SOAPFault fault = ((SOAPFaultException) e).getFault();
+        final String faultString = fault == null ? null : fault
+                .getFaultString();
+        return faultString != null
+                && (faultString.contains(UNKNOWN_KAM_FAULT) || faultString
+                        .contains(UNKNOWN_DIALECT_FAULT));
+    }
+
+    private Faults() {
+        // static helpers only
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link KamFuture} is the pending result of an {@link AsyncKamService}
+ * operation.
+ *
+ * <p>
+ * Besides blocking with {@link #get()}, callers can register a
+ * {@link Callback callback} that runs once the result is available, and can
+ * {@link #compose(Continuation) compose} dependent operations so that the
+ * next request is issued as soon as the previous one completes without a
+ * thread waiting in between.  Cancelling a future interrupts the request
+ * currently running on its behalf, including any stage of a composition.
+ * </p>
+ *
+ * @param <T> the result type
+ */
+public class KamFuture<T> implements Future<T> {
+    // shared daemon timer that expires futures with a timeout
+    private static final Timer timeouts = new Timer(
+            "BEL Framework request timeout", true);
+
+    private final List<Callback<? super T>> callbacks =
+            new ArrayList<Callback<? super T>>();
+    private Future<?> work;
+    private boolean done;
+    private boolean canceled;
+    private T result;
+    private Throwable failure;
+
+    KamFuture() {
+    }
+
+    /**
+     * Creates a {@link KamFuture} that has already completed with
+     * {@code result}.
+     *
+     * @param result the result
+     * @return the completed {@link KamFuture}
+     */
+    public static <T> KamFuture<T> completed(final T result) {
+        final KamFuture<T> f = new KamFuture<T>();
+        f.complete(result);
+        return f;
+    }
+
+    /**
+     * Registers {@code callback} to run once this future completes.  If it is
+     * already complete the callback runs immediately on the calling thread,
+     * otherwise it runs on the thread that completes the future.
+     *
+     * @param callback the {@link Callback callback}
+     */
+    public void addCallback(final Callback<? super T> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback is null");
+        }
+
+        synchronized (this) {
+            if (!done) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        notify(callback);
+    }
+
+    /**
+     * Composes a dependent operation.  Once this future completes
+     * {@code next} is applied to its result, and the returned future
+     * completes with the outcome of the operation it started.  A failure or
+     * cancellation of this future is passed on without applying
+     * {@code next}.
+     *
+     * @param next the {@link Continuation continuation}
+     * @return the {@link KamFuture future} of the dependent operation
+     */
+    public <U> KamFuture<U> compose(final Continuation<? super T, U> next) {
+        if (next == null) {
+            throw new IllegalArgumentException("next is null");
+        }
+
+        final KamFuture<U> composed = new KamFuture<U>();
+        composed.setWork(this);
+        addCallback(new Callback<T>() {
+            @Override
+            public void completed(final T value) {
+                final KamFuture<U> stage;
+                try {
+                    stage = next.apply(value);
+                } catch (RuntimeException e) {
+                    composed.fail(e);
+                    return;
+                }
+
+                // cancelling the composition now cancels the new stage
+                composed.setWork(stage);
+                stage.addCallback(new Callback<U>() {
+                    @Override
+                    public void completed(final U u) {
+                        composed.complete(u);
+                    }
+
+                    @Override
+                    public void failed(final Throwable t) {
+                        composed.fail(t);
+                    }
+                });
+            }
+
+            @Override
+            public void failed(final Throwable t) {
+                composed.fail(t);
+            }
+        });
+        return composed;
+    }
+
+    /**
+     * Fails this future with a {@link TimeoutException} and interrupts its
+     * request if it has not completed within {@code timeout}.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the {@link TimeUnit unit} of {@code timeout}
+     * @return this future
+     */
+    public KamFuture<T> timeout(final long timeout, final TimeUnit unit) {
+        if (unit == null) {
+            throw new IllegalArgumentException("unit is null");
+        }
+
+        final TimerTask expire = new TimerTask() {
+            @Override
+            public void run() {
+                final Future<?> w;
+                synchronized (KamFuture.this) {
+                    w = work;
+                }
+                if (fail(new TimeoutException("request timed out after "
+                        + unit.toMillis(timeout) + " ms")) && w != null) {
+                    w.cancel(true);
+                }
+            }
+        };
+        timeouts.schedule(expire, Math.max(0, unit.toMillis(timeout)));
+        addCallback(new Callback<T>() {
+            @Override
+            public void completed(final T value) {
+                expire.cancel();
+            }
+
+            @Override
+            public void failed(final Throwable t) {
+                expire.cancel();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final Future<?> w;
+        final List<Callback<? super T>> notified;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            canceled = true;
+            w = work;
+            notified = settle(null, new CancellationException());
+        }
+        if (w != null) {
+            w.cancel(mayInterruptIfRunning);
+        }
+        for (final Callback<? super T> callback : notified) {
+            notify(callback);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isCancelled() {
+        return canceled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized T get() throws InterruptedException,
+            ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return outcome();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized T get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return outcome();
+    }
+
+    /**
+     * Sets the work running on behalf of this future, which is cancelled
+     * along with it.
+     *
+     * @param w the running work
+     */
+    void setWork(final Future<?> w) {
+        final boolean cancel;
+        synchronized (this) {
+            work = w;
+            cancel = canceled;
+        }
+        if (cancel) {
+            w.cancel(true);
+        }
+    }
+
+    /**
+     * Completes this future with {@code value}.
+     *
+     * @return {@code true} if this call completed the future
+     */
+    boolean complete(final T value) {
+        return finish(value, null);
+    }
+
+    /**
+     * Completes this future with the failure {@code t}.
+     *
+     * @return {@code true} if this call completed the future
+     */
+    boolean fail(final Throwable t) {
+        return finish(null, t);
+    }
+
+    private boolean finish(final T value, final Throwable t) {
+        final List<Callback<? super T>> notified;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            notified = settle(value, t);
+        }
+        for (final Callback<? super T> callback : notified) {
+            notify(callback);
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome, must be called holding the lock.
+     *
+     * @return the callbacks to notify once the lock is released
+     */
+    private List<Callback<? super T>> settle(final T value, final Throwable t) {
+        done = true;
+        result = value;
+        failure = t;
+        notifyAll();
+
+        final List<Callback<? super T>> notified =
+                new ArrayList<Callback<? super T>>(callbacks);
+        callbacks.clear();
+        return notified;
+    }
+
+    private void notify(final Callback<? super T> callback) {
+        final T value;
+        final Throwable t;
+        synchronized (this) {
+            value = result;
+            t = failure;
+        }
+        if (t == null) {
+            callback.completed(value);
+        } else {
+            callback.failed(t);
+        }
+    }
+
+    private T outcome() throws ExecutionException {
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Receives the outcome of a {@link KamFuture}.  Callbacks should return
+     * quickly since they run on the thread that completed the future.
+     *
+     * @param <T> the result type
+     */
+    public interface Callback<T> {
+
+        /**
+         * Called with the result of a successful operation.
+         *
+         * @param result the result
+         */
+        void completed(T result);
+
+        /**
+         * Called when the operation failed, timed out or was cancelled.
+         *
+         * @param t the failure, a {@link CancellationException} if cancelled
+         * or a {@link TimeoutException} if timed out
+         */
+        void failed(Throwable t);
+    }
+
+    /**
+     * Starts a dependent operation from the result of a previous one.
+     *
+     * @param <T> the result type of the previous operation
+     * @param <U> the result type of the dependent operation
+     */
+    public interface Continuation<T, U> {
+
+        /**
+         * Starts the dependent operation.
+         *
+         * @param result the result of the previous operation
+         * @return the {@link KamFuture future} of the dependent operation
+         */
+        KamFuture<U> apply(T result);
+    }
+}
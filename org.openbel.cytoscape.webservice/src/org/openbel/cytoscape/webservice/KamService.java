@@ -226,6 +226,40 @@ public interface KamService {
     List<KamEdge> getAdjacentKamEdges(DialectHandle dialectHandle,
             KamNode node, EdgeDirectionType direction, EdgeFilter ef);
 
+    /**
+     * Retrieves {@link KamEdge kam edges} that are adjacent to any of the
+     * given {@link KamNode kam nodes}.  The per-node requests run concurrently
+     * on a pool bounded by {@link Configuration#getRequestThreads()}.
+     * 
+     * <p>
+     * Edges adjacent to more than one of the nodes are returned once.  If the
+     * {@code monitor} reports cancellation, outstanding requests are
+     * abandoned and the edges retrieved so far are returned.
+     * </p>
+     * 
+     * @param dialectHandle
+     *            the {@link DialectHandle dialect handle} that identifies a
+     *            loaded dialect, can be null
+     * @param nodes
+     *            the {@link KamNode kam nodes} to find adjacent
+     *            {@link KamEdge kam edges} for
+     * @param direction
+     *            the {@link EdgeDirectionType edge direction}
+     * @param ef
+     *            the optional {@link EdgeFilter edge filter}
+     * @param monitor
+     *            the optional {@link RequestMonitor monitor} notified as each
+     *            node completes, can be null
+     * @return the {@link List} of distinct {@link KamEdge kam edges}, which
+     *         will not be {@code null}, but may be empty
+     * @throws IllegalArgumentException
+     *             Thrown if the {@code nodes} or {@code direction} parameter
+     *             is {@code null}
+     */
+    List<KamEdge> getAdjacentKamEdges(DialectHandle dialectHandle,
+            Collection<KamNode> nodes, EdgeDirectionType direction,
+            EdgeFilter ef, RequestMonitor monitor);
+
     /**
      * Retrieves {@link SimplePath SimplePaths} between the given source nodes.
      * 
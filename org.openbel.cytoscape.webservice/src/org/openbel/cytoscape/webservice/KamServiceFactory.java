@@ -19,6 +19,11 @@
  */
 package org.openbel.cytoscape.webservice;
 
+import java.io.File;
+import java.io.IOException;
+
+import cytoscape.logger.CyLogger;
+
 /**
  * {@link KamServiceFactory} creates the {@link KamService service interface} to
  * the BEL Framework Web API.
@@ -31,8 +36,23 @@ package org.openbel.cytoscape.webservice;
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
 public class KamServiceFactory {
+	/**
+	 * System property naming a {@link TrafficRecorder recording} to
+	 * {@link ReplayKamService replay} instead of calling the Web API.
+	 */
+	public static final String REPLAY_PROPERTY = "belframework.replay";
+	/**
+	 * System property that, set to {@code none}, replays responses as fast
+	 * as possible instead of with their recorded latency.
+	 */
+	public static final String REPLAY_LATENCY_PROPERTY =
+			"belframework.replay.latency";
+	private static final CyLogger log = CyLogger
+			.getLogger(KamServiceFactory.class);
 	private static KamServiceFactory instance;
 	private KamService kamService;
+	private KamService uncachedKamService;
+	private AsyncKamService asyncKamService;
 
 	/**
 	 * Retrieve the singleton instance of {@link KamServiceFactory}.
@@ -57,9 +77,63 @@ public class KamServiceFactory {
 	}
 
 	/**
-	 * Private constructor for singleton.
+	 * Retrieve the single instance {@link AsyncKamService}.  Its operations
+	 * are issued against the {@link #getKAMService() kam service}.
+	 *
+	 * @return the {@link AsyncKamService async kam service}
+	 */
+	public AsyncKamService getAsyncKAMService() {
+		return asyncKamService;
+	}
+
+	/**
+	 * Retrieve the {@link KamService} below the caching layers, for bulk
+	 * requests whose results are kept elsewhere and would only evict the
+	 * cached lookups of the {@link #getKAMService() kam service}.
+	 *
+	 * @return the uncached {@link KamService kam service}
+	 */
+	KamService getUncachedKAMService() {
+		return uncachedKamService;
+	}
+
+	/**
+	 * Private constructor for singleton.  The {@link DefaultKamService} is
+	 * timed by a {@link MetricsKamService} and wrapped by a
+	 * {@link CoalescingKamService} so that concurrent identical
+	 * requests share one call, by a {@link CachingKamService} so that
+	 * repeated lookups do not go back to the Web API, and by a
+	 * {@link SnapshotKamService} so that KAMs with a local snapshot are
+	 * answered without the Web API.
+	 *
+	 * <p>
+	 * If the {@value #REPLAY_PROPERTY} system property is set the
+	 * {@link DefaultKamService} is replaced by a {@link ReplayKamService}.
+	 * </p>
 	 */
 	private KamServiceFactory() {
-		this.kamService = new DefaultKamService();
+		this.uncachedKamService = new CoalescingKamService(
+				new MetricsKamService(createWebAPIService()));
+		this.kamService = new SnapshotKamService(new CachingKamService(
+				uncachedKamService));
+		this.asyncKamService = new DefaultAsyncKamService(kamService);
+	}
+
+	private static KamService createWebAPIService() {
+		final String replay = System.getProperty(REPLAY_PROPERTY);
+		if (replay != null && !replay.isEmpty()) {
+			final boolean originalLatency = !"none".equals(System
+					.getProperty(REPLAY_LATENCY_PROPERTY));
+			try {
+				final KamService ret = new ReplayKamService(new File(replay),
+						originalLatency);
+				log.info("Replaying Web API traffic from " + replay);
+				return ret;
+			} catch (IOException e) {
+				log.warn("Unable to replay " + replay
+						+ ", using the Web API", e);
+			}
+		}
+		return new DefaultKamService();
 	}
 }
@@ -0,0 +1,422 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import cytoscape.CytoscapeInit;
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link KamServiceMetrics} collects call counts, error counts, latency
+ * histograms and response sizes of the {@link KamService kam service}
+ * requests sent to the Web API, per operation and KAM.
+ *
+ * <p>
+ * The metrics are published as a JMX MBean named {@value #OBJECT_NAME} and
+ * appended to {@value #DUMP_FILE} in the Cytoscape configuration directory
+ * every {@link Configuration#getMetricsInterval()} seconds.  Latency
+ * percentiles are read from log-scaled histogram buckets and are accurate
+ * to within a fifth of the reported value.
+ * </p>
+ */
+public class KamServiceMetrics implements KamServiceMetricsMBean {
+    public static final String OBJECT_NAME =
+            "org.openbel.cytoscape.webservice:type=KamServiceMetrics";
+    public static final String DUMP_FILE = "belframework-metrics.csv";
+    private static final CyLogger log = CyLogger
+            .getLogger(KamServiceMetrics.class);
+    private static final String CSV_HEADER = "timestamp,operation,kam,calls,"
+            + "errors,p50_ms,p95_ms,p99_ms,max_ms,mean_items,mean_bytes";
+    private static KamServiceMetrics instance;
+
+    private final ConcurrentMap<String, Stats> stats =
+            new ConcurrentHashMap<String, Stats>();
+    private Timer timer;
+
+    public static synchronized KamServiceMetrics getInstance() {
+        if (instance == null) {
+            instance = new KamServiceMetrics();
+            instance.register();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param operation the {@link KamService} operation
+     * @param kam the name and compile time of the KAM the request was
+     * issued against, or {@code null} if not known
+     * @param nanos the latency in nanoseconds
+     * @param response the response, used to estimate its size
+     * @param failed {@code true} if the request threw
+     */
+    void record(final String operation, final String kam, final long nanos,
+            final Object response, final boolean failed) {
+        final String k = kam == null ? "" : kam;
+        final String key = operation + '\u0000' + k;
+        Stats s = stats.get(key);
+        if (s == null) {
+            final Stats created = new Stats(operation, k);
+            s = stats.putIfAbsent(key, created);
+            if (s == null) {
+                s = created;
+            }
+        }
+        s.record(nanos, PayloadSizes.count(response),
+                PayloadSizes.of(response), failed);
+    }
+
+    /**
+     * Returns a snapshot of the metrics, sorted by operation and KAM.
+     *
+     * @return the {@link OperationMetrics metrics}, one per operation and KAM
+     */
+    public List<OperationMetrics> getMetrics() {
+        final List<OperationMetrics> ret = new ArrayList<OperationMetrics>();
+        for (final Stats s : stats.values()) {
+            ret.add(s.snapshot());
+        }
+        Collections.sort(ret, new Comparator<OperationMetrics>() {
+            @Override
+            public int compare(OperationMetrics a, OperationMetrics b) {
+                final int c = a.getOperation().compareTo(b.getOperation());
+                return c != 0 ? c : a.getKam().compareTo(b.getKam());
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCallCount() {
+        long calls = 0;
+        for (final OperationMetrics m : getMetrics()) {
+            calls += m.getCalls();
+        }
+        return calls;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrorCount() {
+        long errors = 0;
+        for (final OperationMetrics m : getMetrics()) {
+            errors += m.getErrors();
+        }
+        return errors;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getOperationSummaries() {
+        final List<OperationMetrics> metrics = getMetrics();
+        final String[] ret = new String[metrics.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = metrics.get(i).toString();
+        }
+        return ret;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void dump() throws IOException {
+        final List<OperationMetrics> metrics = getMetrics();
+        if (metrics.isEmpty()) {
+            return;
+        }
+
+        final File file = new File(CytoscapeInit.getConfigDirectory(),
+                DUMP_FILE);
+        final boolean header = !file.exists() || file.length() == 0;
+        final BufferedWriter out = new BufferedWriter(new FileWriter(file,
+                true));
+        try {
+            if (header) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            }
+            final long now = System.currentTimeMillis();
+            for (final OperationMetrics m : metrics) {
+                out.write(String.format(Locale.US,
+                        "%d,%s,%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.0f", now,
+                        m.getOperation(), csv(m.getKam()), m.getCalls(),
+                        m.getErrors(), m.getP50Millis(), m.getP95Millis(),
+                        m.getP99Millis(), m.getMaxMillis(), m.getMeanItems(),
+                        m.getMeanBytes()));
+                out.newLine();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Schedules the periodic dump, replacing any earlier schedule.
+     *
+     * @param intervalSeconds the seconds between dumps, {@code 0} or less to
+     * stop dumping
+     */
+    public synchronized void schedule(final int intervalSeconds) {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        if (intervalSeconds <= 0) {
+            return;
+        }
+
+        final long period = intervalSeconds * 1000L;
+        timer = new Timer("BEL Framework metrics", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    dump();
+                } catch (IOException e) {
+                    log.warn("Error writing " + DUMP_FILE, e);
+                }
+            }
+        }, period, period);
+    }
+
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // metrics are not essential
+            log.warn("Unable to register kam service metrics", e);
+        }
+    }
+
+    private static String csv(final String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private KamServiceMetrics() {
+        // singleton. use get instance
+    }
+
+    /**
+     * An immutable snapshot of the metrics of one operation and KAM.
+     */
+    public static final class OperationMetrics {
+        private final String operation;
+        private final String kam;
+        private final long calls;
+        private final long errors;
+        private final double p50;
+        private final double p95;
+        private final double p99;
+        private final double max;
+        private final double meanItems;
+        private final double meanBytes;
+
+        private OperationMetrics(final String operation, final String kam,
+                final long calls, final long errors, final double p50,
+                final double p95, final double p99, final double max,
+                final double meanItems, final double meanBytes) {
+            this.operation = operation;
+            this.kam = kam;
+            this.calls = calls;
+            this.errors = errors;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+            this.meanItems = meanItems;
+            this.meanBytes = meanBytes;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return the KAM name, empty if the operation is not tied to a
+         * known KAM
+         */
+        public String getKam() {
+            return kam;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getP50Millis() {
+            return p50;
+        }
+
+        public double getP95Millis() {
+            return p95;
+        }
+
+        public double getP99Millis() {
+            return p99;
+        }
+
+        public double getMaxMillis() {
+            return max;
+        }
+
+        /**
+         * @return the mean number of elements per successful response
+         */
+        public double getMeanItems() {
+            return meanItems;
+        }
+
+        /**
+         * @return the mean estimated size in bytes per successful response
+         */
+        public double getMeanBytes() {
+            return meanBytes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s [%s] calls=%d errors=%d "
+                    + "p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms "
+                    + "items=%.1f bytes=%.0f", operation, kam, calls,
+                    errors, p50, p95, p99, max, meanItems, meanBytes);
+        }
+    }
+
+    /**
+     * Running metrics of one operation and KAM.
+     */
+    private static final class Stats {
+        // buckets are a quarter power of two microseconds wide
+        private static final int BUCKETS_PER_DOUBLING = 4;
+        private static final int BUCKETS = 128;
+
+        private final String operation;
+        private final String kam;
+        private final long[] buckets = new long[BUCKETS];
+        private long calls;
+        private long errors;
+        private long maxNanos;
+        private long items;
+        private long bytes;
+
+        private Stats(final String operation, final String kam) {
+            this.operation = operation;
+            this.kam = kam;
+        }
+
+        private synchronized void record(final long nanos, final int count,
+                final long size, final boolean failed) {
+            calls++;
+            if (failed) {
+                errors++;
+            } else {
+                items += count;
+                bytes += size;
+            }
+            maxNanos = Math.max(maxNanos, nanos);
+            buckets[bucket(nanos)]++;
+        }
+
+        private synchronized OperationMetrics snapshot() {
+            final long succeeded = calls - errors;
+            return new OperationMetrics(operation, kam, calls, errors,
+                    percentile(0.50), percentile(0.95), percentile(0.99),
+                    maxNanos / 1e6, succeeded == 0 ? 0 : (double) items
+                            / succeeded, succeeded == 0 ? 0 : (double) bytes
+                            / succeeded);
+        }
+
+        /**
+         * Returns the upper bound, in milliseconds, of the bucket holding
+         * the {@code p} quantile.
+         */
+        private double percentile(final double p) {
+            if (calls == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(p * calls);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundMicros(i), maxNanos / 1e3) / 1e3;
+                }
+            }
+            return maxNanos / 1e6;
+        }
+
+        private static int bucket(final long nanos) {
+            final double micros = Math.max(1, nanos / 1e3);
+            final int i = (int) Math.ceil(BUCKETS_PER_DOUBLING
+                    * Math.log(micros) / Math.log(2));
+            return Math.min(BUCKETS - 1, Math.max(0, i));
+        }
+
+        private static double upperBoundMicros(final int bucket) {
+            return Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.IOException;
+
+/**
+ * Management interface publishing the {@link KamServiceMetrics metrics} of
+ * the {@link KamService kam service} requests sent to the Web API.
+ */
+public interface KamServiceMetricsMBean {
+
+    /**
+     * @return the number of requests sent since the last reset
+     */
+    long getCallCount();
+
+    /**
+     * @return the number of requests that failed since the last reset
+     */
+    long getErrorCount();
+
+    /**
+     * @return one line per operation and KAM with counts, latency
+     * percentiles and response sizes
+     */
+    String[] getOperationSummaries();
+
+    /**
+     * Discards the metrics collected so far.
+     */
+    void reset();
+
+    /**
+     * Appends the current metrics to the metrics file.
+     *
+     * @throws IOException Thrown if the file could not be written
+     */
+    void dump() throws IOException;
+}
@@ -0,0 +1,669 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openbel.framework.ws.model.Annotation;
+import org.openbel.framework.ws.model.AnnotationType;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.Citation;
+import org.openbel.framework.ws.model.CitationType;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.FunctionTypeFilterCriteria;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.RelationshipType;
+import org.openbel.framework.ws.model.RelationshipTypeFilterCriteria;
+
+/**
+ * {@link KamSnapshot} is a read-only, memory-mapped copy of a whole
+ * {@link Kam KAM} exported to a local file.
+ *
+ * <p>
+ * A snapshot file starts with a header followed by {@value #SECTIONS}
+ * sections.  All numbers are big-endian.  The header is:
+ * </p>
+ * <pre>
+ * int     magic ("KAMS")
+ * int     version
+ * UTF     kam id, kam name, kam description
+ * long    kam compile time in milliseconds, -1 if unknown
+ * int     node, edge, string, term and statement counts
+ * long[]  offset of each section
+ * long[]  length of each section
+ * </pre>
+ *
+ * <p>
+ * Nodes and edges are addressed by int indices.  Strings, including enum
+ * names, are interned in a dictionary and referenced by index, -1 for
+ * {@code null}.  The sections are:
+ * </p>
+ * <ol start="0">
+ * <li>string offsets, {@code int[strings + 1]} into the string data</li>
+ * <li>string data, UTF-8</li>
+ * <li>nodes, {@code (id, label, function)} string indices per node</li>
+ * <li>node index, {@code (id hash, node)} pairs sorted by hash</li>
+ * <li>edges, {@code (id, source node, target node, relationship)} per
+ * edge</li>
+ * <li>edge index, {@code (id hash, edge)} pairs sorted by hash</li>
+ * <li>outgoing offsets, {@code int[nodes + 1]} into the outgoing edges</li>
+ * <li>outgoing edges, edge indices grouped by source node</li>
+ * <li>incoming offsets, {@code int[nodes + 1]} into the incoming edges</li>
+ * <li>incoming edges, edge indices grouped by target node</li>
+ * <li>term offsets, {@code int[nodes + 1]} into the terms</li>
+ * <li>terms, {@code (id, label)} string indices grouped by node</li>
+ * <li>statement offsets, {@code int[edges + 1]} into the statements</li>
+ * <li>statements, {@code long} offsets into the statement data grouped by
+ * edge</li>
+ * <li>statement data, encoded {@link BelStatement statements}</li>
+ * </ol>
+ *
+ * <p>
+ * Adjacency is stored in compressed sparse row form, so finding the edges
+ * of a node is two array reads and no search.  Instances are safe for use
+ * by multiple threads.
+ * </p>
+ */
+public final class KamSnapshot {
+    static final int MAGIC = 0x4B414D53;
+    static final int VERSION = 1;
+    public static final String EXTENSION = ".kams";
+    static final Charset UTF8 = Charset.forName("UTF-8");
+    public static final int NULL = -1;
+
+    static final int STRING_OFFSETS = 0;
+    static final int STRING_DATA = 1;
+    static final int NODES = 2;
+    static final int NODE_INDEX = 3;
+    static final int EDGES = 4;
+    static final int EDGE_INDEX = 5;
+    static final int OUT_OFFSETS = 6;
+    static final int OUT_EDGES = 7;
+    static final int IN_OFFSETS = 8;
+    static final int IN_EDGES = 9;
+    static final int TERM_OFFSETS = 10;
+    static final int TERMS = 11;
+    static final int STATEMENT_OFFSETS = 12;
+    static final int STATEMENTS = 13;
+    static final int STATEMENT_DATA = 14;
+    static final int SECTIONS = 15;
+
+    static final int NODE_INTS = 3;
+    static final int EDGE_INTS = 4;
+    static final int TERM_INTS = 2;
+    static final int INDEX_INTS = 2;
+
+    private final File file;
+    private final Kam kam;
+    private final long compiled;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringData;
+    private final IntBuffer nodes;
+    private final IntBuffer nodeIndex;
+    private final IntBuffer edges;
+    private final IntBuffer edgeIndex;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outEdges;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inEdges;
+    private final IntBuffer termOffsets;
+    private final IntBuffer terms;
+    private final IntBuffer statementOffsets;
+    private final ByteBuffer statements;
+    private final ByteBuffer statementData;
+    // decoded enum names by string index
+    private final Map<Integer, FunctionType> functions =
+            new ConcurrentHashMap<Integer, FunctionType>();
+    private final Map<Integer, RelationshipType> relationships =
+            new ConcurrentHashMap<Integer, RelationshipType>();
+
+    /**
+     * Returns the name of the snapshot file for a KAM, made of its name and
+     * compile time so that a recompiled KAM never matches an old snapshot.
+     *
+     * @param name the KAM name
+     * @param compiled the KAM compile time in milliseconds
+     * @return the file name
+     */
+    static String fileName(final String name, final long compiled) {
+        return name.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + compiled
+                + EXTENSION;
+    }
+
+    /**
+     * Returns the compile time of {@code kam} in milliseconds.
+     *
+     * @param kam the {@link Kam kam}
+     * @return the compile time, or {@value #NULL} if unknown
+     */
+    static long compileTime(final Kam kam) {
+        final XMLGregorianCalendar lastCompiled = kam.getLastCompiled();
+        if (lastCompiled == null) {
+            return NULL;
+        }
+        return lastCompiled.toGregorianCalendar().getTimeInMillis();
+    }
+
+    /**
+     * Opens and maps the snapshot {@code file}.
+     *
+     * @param file the snapshot file
+     * @return the {@link KamSnapshot snapshot}
+     * @throws IOException Thrown if the file cannot be read or is not a
+     * snapshot of a supported version
+     */
+    public static KamSnapshot open(final File file) throws IOException {
+        return new KamSnapshot(file);
+    }
+
+    private KamSnapshot(final File file) throws IOException {
+        this.file = file;
+
+        final long[] offsets = new long[SECTIONS];
+        final long[] lengths = new long[SECTIONS];
+        final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a KAM snapshot");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported version "
+                        + version);
+            }
+
+            kam = new Kam();
+            kam.setId(in.readUTF());
+            kam.setName(in.readUTF());
+            kam.setDescription(in.readUTF());
+            compiled = in.readLong();
+            kam.setLastCompiled(toCalendar(compiled));
+
+            nodeCount = in.readInt();
+            edgeCount = in.readInt();
+            // string, term and statement counts are implied by the sections
+            in.readInt();
+            in.readInt();
+            in.readInt();
+            for (int i = 0; i < SECTIONS; i++) {
+                offsets[i] = in.readLong();
+            }
+            for (int i = 0; i < SECTIONS; i++) {
+                lengths[i] = in.readLong();
+            }
+        } finally {
+            in.close();
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel ch = raf.getChannel();
+            stringOffsets = map(ch, offsets, lengths, STRING_OFFSETS)
+                    .asIntBuffer();
+            stringData = map(ch, offsets, lengths, STRING_DATA);
+            nodes = map(ch, offsets, lengths, NODES).asIntBuffer();
+            nodeIndex = map(ch, offsets, lengths, NODE_INDEX).asIntBuffer();
+            edges = map(ch, offsets, lengths, EDGES).asIntBuffer();
+            edgeIndex = map(ch, offsets, lengths, EDGE_INDEX).asIntBuffer();
+            outOffsets = map(ch, offsets, lengths, OUT_OFFSETS).asIntBuffer();
+            outEdges = map(ch, offsets, lengths, OUT_EDGES).asIntBuffer();
+            inOffsets = map(ch, offsets, lengths, IN_OFFSETS).asIntBuffer();
+            inEdges = map(ch, offsets, lengths, IN_EDGES).asIntBuffer();
+            termOffsets = map(ch, offsets, lengths, TERM_OFFSETS)
+                    .asIntBuffer();
+            terms = map(ch, offsets, lengths, TERMS).asIntBuffer();
+            statementOffsets = map(ch, offsets, lengths, STATEMENT_OFFSETS)
+                    .asIntBuffer();
+            statements = map(ch, offsets, lengths, STATEMENTS);
+            statementData = map(ch, offsets, lengths, STATEMENT_DATA);
+        } finally {
+            // mappings stay valid after the channel is closed
+            raf.close();
+        }
+
+        if (nodes.limit() != nodeCount * NODE_INTS
+                || edges.limit() != edgeCount * EDGE_INTS
+                || nodeIndex.limit() != nodeCount * INDEX_INTS
+                || edgeIndex.limit() != edgeCount * INDEX_INTS
+                || outOffsets.limit() != nodeCount + 1
+                || statementOffsets.limit() != edgeCount + 1) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns a copy of the {@link Kam kam} this snapshot was exported from.
+     *
+     * @return the {@link Kam kam}
+     */
+    public Kam getKam() {
+        final Kam copy = new Kam();
+        copy.setId(kam.getId());
+        copy.setName(kam.getName());
+        copy.setDescription(kam.getDescription());
+        copy.setLastCompiled(kam.getLastCompiled());
+        return copy;
+    }
+
+    public long getCompileTime() {
+        return compiled;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Finds the index of the node with the Web API id {@code id}.
+     *
+     * @param id the {@link KamNode kam node} id
+     * @return the node index, or {@value #NULL} if not in this snapshot
+     */
+    public int findNode(final String id) {
+        return search(nodeIndex, nodes, NODE_INTS, id);
+    }
+
+    /**
+     * Finds the index of the edge with the Web API id {@code id}.
+     *
+     * @param id the {@link KamEdge kam edge} id
+     * @return the edge index, or {@value #NULL} if not in this snapshot
+     */
+    public int findEdge(final String id) {
+        return search(edgeIndex, edges, EDGE_INTS, id);
+    }
+
+    public KamNode node(final int n) {
+        final int base = n * NODE_INTS;
+        final KamNode node = new KamNode();
+        node.setId(string(nodes.get(base)));
+        node.setLabel(string(nodes.get(base + 1)));
+        node.setFunction(function(nodes.get(base + 2)));
+        return node;
+    }
+
+    public KamEdge edge(final int e) {
+        final int base = e * EDGE_INTS;
+        final KamEdge edge = new KamEdge();
+        edge.setId(string(edges.get(base)));
+        edge.setSource(node(edges.get(base + 1)));
+        edge.setTarget(node(edges.get(base + 2)));
+        edge.setRelationship(relationship(edges.get(base + 3)));
+        return edge;
+    }
+
+    /**
+     * Returns the nodes with {@code function}.
+     *
+     * @param function the {@link FunctionType function}
+     * @return the {@link List list} of {@link KamNode kam nodes}
+     */
+    public List<KamNode> nodesByFunction(final FunctionType function) {
+        final List<KamNode> ret = new ArrayList<KamNode>();
+        for (int n = 0; n < nodeCount; n++) {
+            if (function(nodes.get(n * NODE_INTS + 2)) == function) {
+                ret.add(node(n));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the nodes whose label matches {@code regex} and that pass
+     * {@code nf}.
+     *
+     * @param regex the java regex
+     * @param nf the optional {@link NodeFilter node filter}
+     * @return the {@link List list} of {@link KamNode kam nodes}
+     */
+    public List<KamNode> nodesByPattern(final Pattern regex, final NodeFilter nf) {
+        final List<KamNode> ret = new ArrayList<KamNode>();
+        for (int n = 0; n < nodeCount; n++) {
+            final String label = string(nodes.get(n * NODE_INTS + 1));
+            if (label != null && regex.matcher(label).matches()) {
+                final KamNode node = node(n);
+                if (accept(nf, node.getFunction())) {
+                    ret.add(node);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the edges adjacent to node {@code n} that pass {@code ef}.
+     *
+     * @param n the node index
+     * @param direction the {@link EdgeDirectionType direction}
+     * @param ef the optional {@link EdgeFilter edge filter}
+     * @return the {@link List list} of {@link KamEdge kam edges}
+     */
+    public List<KamEdge> adjacent(final int n, final EdgeDirectionType direction,
+            final EdgeFilter ef) {
+        final List<KamEdge> ret = new ArrayList<KamEdge>();
+        if (direction != EdgeDirectionType.REVERSE) {
+            addEdges(outOffsets, outEdges, n, ef, ret);
+        }
+        if (direction != EdgeDirectionType.FORWARD) {
+            addEdges(inOffsets, inEdges, n, ef, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the edges between any two of {@code ns}.
+     *
+     * @param ns the node indices
+     * @return the edge indices
+     */
+    public List<Integer> edgesAmong(final Collection<Integer> ns) {
+        final List<Integer> ret = new ArrayList<Integer>();
+        for (final int n : ns) {
+            for (int i = outOffsets.get(n), end = outOffsets.get(n + 1);
+                    i < end; i++) {
+                final int e = outEdges.get(i);
+                if (ns.contains(edges.get(e * EDGE_INTS + 2))) {
+                    ret.add(e);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the index of the source node of edge {@code e}.
+     *
+     * @param e the edge index
+     * @return the node index
+     */
+    public int source(final int e) {
+        return edges.get(e * EDGE_INTS + 1);
+    }
+
+    /**
+     * Returns the index of the target node of edge {@code e}.
+     *
+     * @param e the edge index
+     * @return the node index
+     */
+    public int target(final int e) {
+        return edges.get(e * EDGE_INTS + 2);
+    }
+
+    /**
+     * Returns the supporting terms of node {@code n}.
+     *
+     * @param n the node index
+     * @return the {@link List list} of {@link BelTerm BEL terms}
+     */
+    public List<BelTerm> terms(final int n) {
+        final int start = termOffsets.get(n);
+        final int end = termOffsets.get(n + 1);
+        final List<BelTerm> ret = new ArrayList<BelTerm>(end - start);
+        for (int i = start; i < end; i++) {
+            final BelTerm term = new BelTerm();
+            term.setId(string(terms.get(i * TERM_INTS)));
+            term.setLabel(string(terms.get(i * TERM_INTS + 1)));
+            ret.add(term);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the supporting statements of edge {@code e}.
+     *
+     * @param e the edge index
+     * @return the {@link List list} of {@link BelStatement statements}
+     */
+    public List<BelStatement> statements(final int e) {
+        final int start = statementOffsets.get(e);
+        final int end = statementOffsets.get(e + 1);
+        final List<BelStatement> ret = new ArrayList<BelStatement>(end - start);
+        for (int i = start; i < end; i++) {
+            final ByteBuffer buf = statementData.duplicate();
+            buf.position((int) statements.getLong(i * 8));
+            ret.add(readStatement(buf));
+        }
+        return ret;
+    }
+
+    private void addEdges(final IntBuffer offsets, final IntBuffer adjacent,
+            final int n, final EdgeFilter ef, final List<KamEdge> ret) {
+        for (int i = offsets.get(n), end = offsets.get(n + 1); i < end; i++) {
+            final KamEdge edge = edge(adjacent.get(i));
+            if (accept(ef, edge.getRelationship())) {
+                ret.add(edge);
+            }
+        }
+    }
+
+    private BelStatement readStatement(final ByteBuffer buf) {
+        final BelStatement stmt = new BelStatement();
+        stmt.setId(string(buf.getInt()));
+        stmt.setSubjectTerm(readTerm(buf));
+        stmt.setRelationship(relationship(buf.getInt()));
+        stmt.setObjectTerm(readTerm(buf));
+        if (buf.get() != 0) {
+            stmt.setObjectStatement(readStatement(buf));
+        }
+
+        if (buf.get() != 0) {
+            final Citation citation = new Citation();
+            final String type = string(buf.getInt());
+            if (type != null) {
+                citation.setCitationType(CitationType.valueOf(type));
+            }
+            citation.setId(string(buf.getInt()));
+            citation.setName(string(buf.getInt()));
+            citation.setComment(string(buf.getInt()));
+            citation.setPublicationDate(toCalendar(buf.getLong()));
+            for (int i = buf.getInt(); i > 0; i--) {
+                citation.getAuthors().add(string(buf.getInt()));
+            }
+            stmt.setCitation(citation);
+        }
+
+        for (int i = buf.getInt(); i > 0; i--) {
+            final Annotation annotation = new Annotation();
+            annotation.setId(string(buf.getInt()));
+            final int typeId = buf.getInt();
+            final int typeName = buf.getInt();
+            if (typeId != NULL || typeName != NULL) {
+                final AnnotationType type = new AnnotationType();
+                type.setId(string(typeId));
+                type.setName(string(typeName));
+                annotation.setAnnotationType(type);
+            }
+            annotation.setValue(string(buf.getInt()));
+            stmt.getAnnotations().add(annotation);
+        }
+        return stmt;
+    }
+
+    private BelTerm readTerm(final ByteBuffer buf) {
+        final int id = buf.getInt();
+        final int label = buf.getInt();
+        if (id == NULL && label == NULL) {
+            return null;
+        }
+        final BelTerm term = new BelTerm();
+        term.setId(string(id));
+        term.setLabel(string(label));
+        return term;
+    }
+
+    /**
+     * Decodes the interned string at {@code index}.
+     */
+    private String string(final int index) {
+        if (index == NULL) {
+            return null;
+        }
+        final int start = stringOffsets.get(index);
+        final byte[] bytes = new byte[stringOffsets.get(index + 1) - start];
+        final ByteBuffer buf = stringData.duplicate();
+        buf.position(start);
+        buf.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private FunctionType function(final int index) {
+        if (index == NULL) {
+            return null;
+        }
+        FunctionType function = functions.get(index);
+        if (function == null) {
+            function = FunctionType.valueOf(string(index));
+            functions.put(index, function);
+        }
+        return function;
+    }
+
+    private RelationshipType relationship(final int index) {
+        if (index == NULL) {
+            return null;
+        }
+        RelationshipType relationship = relationships.get(index);
+        if (relationship == null) {
+            relationship = RelationshipType.valueOf(string(index));
+            relationships.put(index, relationship);
+        }
+        return relationship;
+    }
+
+    /**
+     * Binary searches an index of {@code (id hash, row)} pairs for the first
+     * entry with the hash of {@code id}, then compares ids of the rows with
+     * that hash.  Only colliding rows have their id decoded.
+     */
+    private int search(final IntBuffer index, final IntBuffer rows,
+            final int width, final String id) {
+        final int hash = id.hashCode();
+        final int entries = index.limit() / INDEX_INTS;
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (index.get(mid * INDEX_INTS) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        for (int i = low; i < entries && index.get(i * INDEX_INTS) == hash;
+                i++) {
+            final int row = index.get(i * INDEX_INTS + 1);
+            if (id.equals(string(rows.get(row * width)))) {
+                return row;
+            }
+        }
+        return NULL;
+    }
+
+    private static boolean accept(final NodeFilter nf,
+            final FunctionType function) {
+        if (nf == null) {
+            return true;
+        }
+        for (final FunctionTypeFilterCriteria c : nf.getFunctionTypeCriteria()) {
+            final boolean include = c.isIsInclude() == null || c.isIsInclude();
+            if (c.getValueSet().contains(function) != include) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean accept(final EdgeFilter ef,
+            final RelationshipType relationship) {
+        if (ef == null) {
+            return true;
+        }
+        for (final RelationshipTypeFilterCriteria c : ef
+                .getRelationshipCriteria()) {
+            final boolean include = c.isIsInclude() == null || c.isIsInclude();
+            if (c.getValueSet().contains(relationship) != include) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer map(final FileChannel ch, final long[] offsets,
+            final long[] lengths, final int section) throws IOException {
+        if (lengths[section] > Integer.MAX_VALUE) {
+            throw new IOException("snapshot section " + section
+                    + " is too large to map");
+        }
+        return ch.map(MapMode.READ_ONLY, offsets[section], lengths[section]);
+    }
+
+    private static XMLGregorianCalendar toCalendar(final long millis) {
+        if (millis == NULL) {
+            return null;
+        }
+        final GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(millis);
+        try {
+            return DatatypeFactory.newInstance().newXMLGregorianCalendar(cal);
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
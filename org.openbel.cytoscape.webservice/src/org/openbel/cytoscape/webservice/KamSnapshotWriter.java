@@ -0,0 +1,981 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.openbel.cytoscape.webservice.KamSnapshot.NULL;
+import static org.openbel.cytoscape.webservice.KamSnapshot.UTF8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openbel.framework.ws.model.Annotation;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.Citation;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+
+/**
+ * {@link KamSnapshotWriter} writes a {@link KamSnapshot KAM snapshot} from
+ * nodes, edges, terms and evidence handed to it in any number of steps.
+ *
+ * <p>
+ * Each step is appended to spool files in a work directory next to the
+ * snapshot and recorded in a journal once it is on disk.  Opening a writer
+ * for a {@link Kam} whose export was interrupted truncates the spool files
+ * to the last completed step, so callers can skip the steps reported by
+ * {@link #isDone(String)} and carry on.  Only the string dictionary and the
+ * node id map are held in memory; {@link #finish()} streams the spool files
+ * into the final snapshot layout.
+ * </p>
+ *
+ * <p>
+ * All methods are synchronized, steps may be added from several threads.
+ * </p>
+ */
+public final class KamSnapshotWriter {
+    private static final String PART = ".part";
+    private static final String TMP = ".tmp";
+    private static final String JOURNAL = "journal";
+
+    private static final int STRINGS = 0;
+    private static final int NODES = 1;
+    private static final int EDGES = 2;
+    private static final int TERMS = 3;
+    private static final int STATEMENTS = 4;
+    private static final int BLOBS = 5;
+    private static final String[] SPOOLS = { "strings", "nodes", "edges",
+            "terms", "statements", "blobs" };
+
+    // spooled record sizes in bytes
+    private static final int STRING_HEADER = 5;
+    private static final int NODE_RECORD = KamSnapshot.NODE_INTS * 4;
+    private static final int EDGE_RECORD = KamSnapshot.EDGE_INTS * 4;
+    private static final int TERM_RECORD = 12;
+    private static final int STATEMENT_RECORD = 12;
+
+    private final Kam kam;
+    private final File target;
+    private final File work;
+    private final Spool[] spools = new Spool[SPOOLS.length];
+    private final Set<String> done = new HashSet<String>();
+    private final Map<String, Integer> interned = new HashMap<String, Integer>();
+    private final Map<String, Integer> nodeIds = new HashMap<String, Integer>();
+    // position of each string record in the strings spool
+    private long[] stringPositions = new long[1024];
+    private int stringCount;
+    private int nodeCount;
+    private int edgeCount;
+    private int termCount;
+    private int statementCount;
+    private Writer journal;
+
+    /**
+     * Returns the snapshot file for {@code kam}.
+     *
+     * @param kam the {@link Kam kam}
+     * @return the snapshot {@link File file}, which may not exist yet
+     * @throws IllegalArgumentException Thrown if {@code kam} has no compile
+     * time
+     */
+    public static File getSnapshotFile(final Kam kam) {
+        if (kam == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+        final long compiled = KamSnapshot.compileTime(kam);
+        if (compiled == NULL) {
+            throw new IllegalArgumentException("kam has no compile time");
+        }
+        return new File(SnapshotKamService.getDirectory(),
+                KamSnapshot.fileName(kam.getName(), compiled));
+    }
+
+    /**
+     * Opens a writer for {@code kam}, resuming an interrupted export if one
+     * exists.
+     *
+     * @param kam the {@link Kam kam} being exported
+     * @return the {@link KamSnapshotWriter writer}
+     * @throws IOException Thrown if the work directory cannot be prepared
+     */
+    public static KamSnapshotWriter open(final Kam kam) throws IOException {
+        return new KamSnapshotWriter(kam, getSnapshotFile(kam));
+    }
+
+    /**
+     * Opens a writer for {@code kam} that writes to {@code target} instead
+     * of the snapshot directory, resuming an interrupted export if one
+     * exists.
+     *
+     * @param kam the {@link Kam kam} being exported
+     * @param target the snapshot {@link File file}
+     * @return the {@link KamSnapshotWriter writer}
+     * @throws IOException Thrown if the work directory cannot be prepared
+     */
+    public static KamSnapshotWriter open(final Kam kam, final File target)
+            throws IOException {
+        if (kam == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("target is null");
+        }
+        return new KamSnapshotWriter(kam, target.getAbsoluteFile());
+    }
+
+    private KamSnapshotWriter(final Kam kam, final File target)
+            throws IOException {
+        this.kam = kam;
+        this.target = target;
+        this.work = new File(target.getParentFile(), target.getName() + PART);
+        if (!work.isDirectory() && !work.mkdirs()) {
+            throw new IOException("Unable to create " + work);
+        }
+
+        final long[] lengths = readJournal();
+        for (int i = 0; i < spools.length; i++) {
+            spools[i] = new Spool(new File(work, SPOOLS[i]), lengths[i]);
+        }
+        rebuild();
+        journal = new FileWriter(new File(work, JOURNAL), true);
+    }
+
+    /**
+     * Returns {@code true} if the step {@code key} was completed, possibly
+     * by an earlier, interrupted export.
+     *
+     * @param key the step key
+     * @return {@code true} if done
+     */
+    public synchronized boolean isDone(final String key) {
+        return done.contains(key);
+    }
+
+    /**
+     * Returns the keys of the completed steps.
+     *
+     * @return a copy of the completed step keys
+     */
+    public synchronized Set<String> getDone() {
+        return new HashSet<String>(done);
+    }
+
+    /**
+     * Returns the number of nodes written so far.
+     *
+     * @return the node count
+     */
+    public synchronized int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Reads back written nodes, in the order they were added.
+     *
+     * @param from the first node index, inclusive
+     * @param to the last node index, exclusive
+     * @return the {@link KamNode kam nodes}
+     * @throws IOException Thrown if the spool files cannot be read
+     */
+    public synchronized List<KamNode> getNodes(final int from, final int to)
+            throws IOException {
+        if (from < 0 || to > nodeCount || from > to) {
+            throw new IllegalArgumentException("invalid node range");
+        }
+
+        final RandomAccessFile in = spools[NODES].reader();
+        in.seek((long) from * NODE_RECORD);
+        final List<KamNode> ret = new ArrayList<KamNode>(to - from);
+        for (int n = from; n < to; n++) {
+            final KamNode node = new KamNode();
+            node.setId(readString(in.readInt()));
+            node.setLabel(readString(in.readInt()));
+            final String function = readString(in.readInt());
+            if (function != null) {
+                node.setFunction(FunctionType.valueOf(function));
+            }
+            ret.add(node);
+        }
+        return ret;
+    }
+
+    /**
+     * Writes {@code nodes} as the step {@code key}.  Nodes already written
+     * are skipped.
+     *
+     * @param key the step key
+     * @param nodes the {@link KamNode kam nodes}
+     * @throws IOException Thrown if the step could not be written
+     */
+    public synchronized void addNodes(final String key,
+            final List<KamNode> nodes) throws IOException {
+        for (final KamNode node : nodes) {
+            addNode(node);
+        }
+        checkpoint(key);
+    }
+
+    /**
+     * Writes the supporting terms of nodes and the edges with their
+     * supporting evidence as the step {@code key}.  Edge end points that
+     * were not written before are added as nodes.
+     *
+     * @param key the step key
+     * @param terms the {@link BelTerm terms} of each {@link KamNode node}
+     * @param evidence the {@link BelStatement evidence} of each
+     * {@link KamEdge edge}, each edge must be given once per export
+     * @throws IOException Thrown if the step could not be written
+     */
+    public synchronized void addChunk(final String key,
+            final Map<KamNode, List<BelTerm>> terms,
+            final Map<KamEdge, List<BelStatement>> evidence)
+            throws IOException {
+        final Spool t = spools[TERMS];
+        for (final Map.Entry<KamNode, List<BelTerm>> e : terms.entrySet()) {
+            final int n = addNode(e.getKey());
+            for (final BelTerm term : e.getValue()) {
+                t.writeInt(n);
+                t.writeInt(intern(term.getId()));
+                t.writeInt(intern(term.getLabel()));
+                termCount++;
+            }
+        }
+
+        final Spool s = spools[STATEMENTS];
+        final Spool b = spools[BLOBS];
+        for (final Map.Entry<KamEdge, List<BelStatement>> e : evidence
+                .entrySet()) {
+            final int edge = addEdge(e.getKey());
+            for (final BelStatement stmt : e.getValue()) {
+                s.writeInt(edge);
+                s.writeLong(b.length());
+                writeStatement(b, stmt);
+                statementCount++;
+            }
+        }
+        checkpoint(key);
+    }
+
+    /**
+     * Assembles the snapshot from the spool files and removes the work
+     * directory.
+     *
+     * @return the snapshot {@link File file}
+     * @throws IOException Thrown if the snapshot could not be written
+     */
+    public synchronized File finish() throws IOException {
+        for (final Spool spool : spools) {
+            spool.flush();
+        }
+
+        final long stringBytes = spools[STRINGS].length()
+                - (long) stringCount * STRING_HEADER;
+        if (stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("too many strings for a snapshot");
+        }
+
+        final long[] lengths = new long[KamSnapshot.SECTIONS];
+        lengths[KamSnapshot.STRING_OFFSETS] = (stringCount + 1L) * 4;
+        lengths[KamSnapshot.STRING_DATA] = stringBytes;
+        lengths[KamSnapshot.NODES] = (long) nodeCount * NODE_RECORD;
+        lengths[KamSnapshot.NODE_INDEX] = (long) nodeCount
+                * KamSnapshot.INDEX_INTS * 4;
+        lengths[KamSnapshot.EDGES] = (long) edgeCount * EDGE_RECORD;
+        lengths[KamSnapshot.EDGE_INDEX] = (long) edgeCount
+                * KamSnapshot.INDEX_INTS * 4;
+        lengths[KamSnapshot.OUT_OFFSETS] = (nodeCount + 1L) * 4;
+        lengths[KamSnapshot.OUT_EDGES] = (long) edgeCount * 4;
+        lengths[KamSnapshot.IN_OFFSETS] = (nodeCount + 1L) * 4;
+        lengths[KamSnapshot.IN_EDGES] = (long) edgeCount * 4;
+        lengths[KamSnapshot.TERM_OFFSETS] = (nodeCount + 1L) * 4;
+        lengths[KamSnapshot.TERMS] = (long) termCount
+                * KamSnapshot.TERM_INTS * 4;
+        lengths[KamSnapshot.STATEMENT_OFFSETS] = (edgeCount + 1L) * 4;
+        lengths[KamSnapshot.STATEMENTS] = (long) statementCount * 8;
+        lengths[KamSnapshot.STATEMENT_DATA] = spools[BLOBS].length();
+
+        final long[] offsets = new long[KamSnapshot.SECTIONS];
+        long offset = header(offsets, lengths).length;
+        for (int i = 0; i < KamSnapshot.SECTIONS; i++) {
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+
+        final File tmp = new File(target.getParentFile(), target.getName()
+                + TMP);
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+        try {
+            out.write(header(offsets, lengths));
+            writeStrings(out);
+            copy(spools[NODES], out);
+            writeNodeIndex(out);
+            copy(spools[EDGES], out);
+            writeEdgeIndex(out);
+            writeAdjacency(out);
+            writeTerms(out);
+            writeStatements(out);
+            copy(spools[BLOBS], out);
+        } finally {
+            out.close();
+        }
+
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Unable to replace " + target);
+        }
+        if (!tmp.renameTo(target)) {
+            throw new IOException("Unable to rename " + tmp + " to " + target);
+        }
+
+        close();
+        for (final String name : SPOOLS) {
+            new File(work, name).delete();
+        }
+        new File(work, JOURNAL).delete();
+        work.delete();
+        return target;
+    }
+
+    /**
+     * Closes the spool files.  The work directory is kept so that the
+     * export can be resumed.
+     *
+     * @throws IOException Thrown if a spool file could not be closed
+     */
+    public synchronized void close() throws IOException {
+        for (final Spool spool : spools) {
+            spool.close();
+        }
+        journal.close();
+    }
+
+    private int addNode(final KamNode node) throws IOException {
+        final Integer existing = nodeIds.get(node.getId());
+        if (existing != null) {
+            return existing;
+        }
+
+        final Spool nodes = spools[NODES];
+        nodes.writeInt(append(node.getId()));
+        nodes.writeInt(intern(node.getLabel()));
+        nodes.writeInt(intern(node.getFunction() == null ? null : node
+                .getFunction().name()));
+        nodeIds.put(node.getId(), nodeCount);
+        return nodeCount++;
+    }
+
+    private int addEdge(final KamEdge edge) throws IOException {
+        final int source = addNode(edge.getSource());
+        final int target = addNode(edge.getTarget());
+
+        final Spool edges = spools[EDGES];
+        edges.writeInt(append(edge.getId()));
+        edges.writeInt(source);
+        edges.writeInt(target);
+        edges.writeInt(intern(edge.getRelationship() == null ? null : edge
+                .getRelationship().name()));
+        return edgeCount++;
+    }
+
+    /**
+     * Encodes {@code stmt} in the layout read by {@link KamSnapshot}.
+     */
+    private void writeStatement(final Spool b, final BelStatement stmt)
+            throws IOException {
+        b.writeInt(append(stmt.getId()));
+        writeTerm(b, stmt.getSubjectTerm());
+        b.writeInt(intern(stmt.getRelationship() == null ? null : stmt
+                .getRelationship().name()));
+        writeTerm(b, stmt.getObjectTerm());
+        if (stmt.getObjectStatement() != null) {
+            b.writeByte(1);
+            writeStatement(b, stmt.getObjectStatement());
+        } else {
+            b.writeByte(0);
+        }
+
+        final Citation citation = stmt.getCitation();
+        if (citation != null) {
+            b.writeByte(1);
+            b.writeInt(intern(citation.getCitationType() == null ? null
+                    : citation.getCitationType().name()));
+            b.writeInt(intern(citation.getId()));
+            b.writeInt(intern(citation.getName()));
+            b.writeInt(intern(citation.getComment()));
+            b.writeLong(citation.getPublicationDate() == null ? NULL
+                    : citation.getPublicationDate().toGregorianCalendar()
+                            .getTimeInMillis());
+            b.writeInt(citation.getAuthors().size());
+            for (final String author : citation.getAuthors()) {
+                b.writeInt(intern(author));
+            }
+        } else {
+            b.writeByte(0);
+        }
+
+        b.writeInt(stmt.getAnnotations().size());
+        for (final Annotation annotation : stmt.getAnnotations()) {
+            b.writeInt(intern(annotation.getId()));
+            if (annotation.getAnnotationType() != null) {
+                b.writeInt(intern(annotation.getAnnotationType().getId()));
+                b.writeInt(intern(annotation.getAnnotationType().getName()));
+            } else {
+                b.writeInt(NULL);
+                b.writeInt(NULL);
+            }
+            b.writeInt(intern(annotation.getValue()));
+        }
+    }
+
+    private void writeTerm(final Spool b, final BelTerm term)
+            throws IOException {
+        if (term == null) {
+            b.writeInt(NULL);
+            b.writeInt(NULL);
+        } else {
+            b.writeInt(intern(term.getId()));
+            b.writeInt(intern(term.getLabel()));
+        }
+    }
+
+    /**
+     * Adds a string that is not expected to repeat, such as an element id.
+     */
+    private int append(final String s) throws IOException {
+        return s == null ? NULL : writeString(s, false);
+    }
+
+    /**
+     * Adds a string once, returning the index of an earlier copy if any.
+     */
+    private int intern(final String s) throws IOException {
+        if (s == null) {
+            return NULL;
+        }
+        final Integer index = interned.get(s);
+        if (index != null) {
+            return index;
+        }
+        final int added = writeString(s, true);
+        interned.put(s, added);
+        return added;
+    }
+
+    private int writeString(final String s, final boolean intern)
+            throws IOException {
+        final Spool strings = spools[STRINGS];
+        if (stringCount == stringPositions.length) {
+            stringPositions = Arrays.copyOf(stringPositions,
+                    stringCount * 2);
+        }
+        stringPositions[stringCount] = strings.length();
+
+        final byte[] bytes = s.getBytes(UTF8);
+        strings.writeByte(intern ? 1 : 0);
+        strings.writeInt(bytes.length);
+        strings.write(bytes);
+        return stringCount++;
+    }
+
+    private String readString(final int index) throws IOException {
+        if (index == NULL) {
+            return null;
+        }
+        final RandomAccessFile in = spools[STRINGS].reader();
+        in.seek(stringPositions[index] + 1);
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Makes the spool files durable and then records step {@code key} with
+     * the spool lengths it ends at.
+     */
+    private void checkpoint(final String key) throws IOException {
+        final StringBuilder line = new StringBuilder(key);
+        for (final Spool spool : spools) {
+            spool.sync();
+            line.append(' ').append(spool.length());
+        }
+        journal.write(line.append('\n').toString());
+        journal.flush();
+        done.add(key);
+    }
+
+    /**
+     * Reads the completed steps from the journal.
+     *
+     * @return the spool lengths at the last completed step
+     */
+    private long[] readJournal() throws IOException {
+        final long[] lengths = new long[SPOOLS.length];
+        final File file = new File(work, JOURNAL);
+        if (!file.exists()) {
+            return lengths;
+        }
+
+        final BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String[] tokens = line.split(" ");
+                if (tokens.length != SPOOLS.length + 1) {
+                    // torn write of the last line
+                    break;
+                }
+                done.add(tokens[0]);
+                for (int i = 0; i < lengths.length; i++) {
+                    lengths[i] = Long.parseLong(tokens[i + 1]);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return lengths;
+    }
+
+    /**
+     * Restores the in-memory state from the spool files of an interrupted
+     * export.
+     */
+    private void rebuild() throws IOException {
+        final DataInputStream strings = spools[STRINGS].stream();
+        try {
+            long position = 0;
+            final long length = spools[STRINGS].length();
+            while (position < length) {
+                final boolean isInterned = strings.readByte() != 0;
+                final byte[] bytes = new byte[strings.readInt()];
+                strings.readFully(bytes);
+                if (stringCount == stringPositions.length) {
+                    stringPositions = Arrays.copyOf(stringPositions,
+                            stringCount * 2);
+                }
+                stringPositions[stringCount] = position;
+                if (isInterned) {
+                    interned.put(new String(bytes, UTF8), stringCount);
+                }
+                stringCount++;
+                position += STRING_HEADER + bytes.length;
+            }
+        } finally {
+            strings.close();
+        }
+
+        nodeCount = (int) (spools[NODES].length() / NODE_RECORD);
+        final DataInputStream nodes = spools[NODES].stream();
+        try {
+            for (int n = 0; n < nodeCount; n++) {
+                nodeIds.put(readString(nodes.readInt()), n);
+                nodes.readInt();
+                nodes.readInt();
+            }
+        } finally {
+            nodes.close();
+        }
+
+        edgeCount = (int) (spools[EDGES].length() / EDGE_RECORD);
+        termCount = (int) (spools[TERMS].length() / TERM_RECORD);
+        statementCount = (int) (spools[STATEMENTS].length()
+                / STATEMENT_RECORD);
+    }
+
+    private byte[] header(final long[] offsets, final long[] lengths)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(KamSnapshot.MAGIC);
+        out.writeInt(KamSnapshot.VERSION);
+        out.writeUTF(kam.getId() == null ? "" : kam.getId());
+        out.writeUTF(kam.getName() == null ? "" : kam.getName());
+        out.writeUTF(kam.getDescription() == null ? "" : kam
+                .getDescription());
+        out.writeLong(KamSnapshot.compileTime(kam));
+        out.writeInt(nodeCount);
+        out.writeInt(edgeCount);
+        out.writeInt(stringCount);
+        out.writeInt(termCount);
+        out.writeInt(statementCount);
+        for (final long offset : offsets) {
+            out.writeLong(offset);
+        }
+        for (final long length : lengths) {
+            out.writeLong(length);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the string offsets and string data, each in one pass over the
+     * strings spool.
+     */
+    private void writeStrings(final DataOutputStream out) throws IOException {
+        DataInputStream in = spools[STRINGS].stream();
+        try {
+            int offset = 0;
+            for (int i = 0; i < stringCount; i++) {
+                out.writeInt(offset);
+                in.readByte();
+                final int length = in.readInt();
+                skip(in, length);
+                offset += length;
+            }
+            out.writeInt(offset);
+        } finally {
+            in.close();
+        }
+
+        in = spools[STRINGS].stream();
+        try {
+            final byte[] buffer = new byte[8192];
+            for (int i = 0; i < stringCount; i++) {
+                in.readByte();
+                int remaining = in.readInt();
+                while (remaining > 0) {
+                    final int n = Math.min(remaining, buffer.length);
+                    in.readFully(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeNodeIndex(final DataOutputStream out) throws IOException {
+        final long[] keys = new long[nodeCount];
+        int i = 0;
+        for (final Map.Entry<String, Integer> e : nodeIds.entrySet()) {
+            keys[i++] = key(e.getKey().hashCode(), e.getValue());
+        }
+        writeIndex(keys, out);
+    }
+
+    /**
+     * Hashes edge ids in one pass; edge ids were appended in edge order so
+     * the strings spool is read sequentially.
+     */
+    private void writeEdgeIndex(final DataOutputStream out) throws IOException {
+        final long[] keys = new long[edgeCount];
+        final DataInputStream edges = spools[EDGES].stream();
+        final DataInputStream strings = spools[STRINGS].stream();
+        try {
+            int next = 0;
+            for (int e = 0; e < edgeCount; e++) {
+                final int id = edges.readInt();
+                skip(edges, EDGE_RECORD - 4);
+                if (id == NULL) {
+                    keys[e] = key(0, e);
+                    continue;
+                }
+                for (; next < id; next++) {
+                    strings.readByte();
+                    skip(strings, strings.readInt());
+                }
+                strings.readByte();
+                final byte[] bytes = new byte[strings.readInt()];
+                strings.readFully(bytes);
+                next++;
+                keys[e] = key(new String(bytes, UTF8).hashCode(), e);
+            }
+        } finally {
+            edges.close();
+            strings.close();
+        }
+        writeIndex(keys, out);
+    }
+
+    /**
+     * Writes outgoing and incoming adjacency in compressed sparse row form
+     * with a counting pass and a fill pass over the edges spool.
+     */
+    private void writeAdjacency(final DataOutputStream out) throws IOException {
+        final int[] outOffsets = new int[nodeCount + 1];
+        final int[] inOffsets = new int[nodeCount + 1];
+        DataInputStream edges = spools[EDGES].stream();
+        try {
+            for (int e = 0; e < edgeCount; e++) {
+                edges.readInt();
+                outOffsets[edges.readInt() + 1]++;
+                inOffsets[edges.readInt() + 1]++;
+                edges.readInt();
+            }
+        } finally {
+            edges.close();
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            outOffsets[n + 1] += outOffsets[n];
+            inOffsets[n + 1] += inOffsets[n];
+        }
+
+        final int[] outEdges = new int[edgeCount];
+        final int[] inEdges = new int[edgeCount];
+        final int[] outFill = Arrays.copyOf(outOffsets, nodeCount);
+        final int[] inFill = Arrays.copyOf(inOffsets, nodeCount);
+        edges = spools[EDGES].stream();
+        try {
+            for (int e = 0; e < edgeCount; e++) {
+                edges.readInt();
+                outEdges[outFill[edges.readInt()]++] = e;
+                inEdges[inFill[edges.readInt()]++] = e;
+                edges.readInt();
+            }
+        } finally {
+            edges.close();
+        }
+
+        writeInts(outOffsets, out);
+        writeInts(outEdges, out);
+        writeInts(inOffsets, out);
+        writeInts(inEdges, out);
+    }
+
+    private void writeTerms(final DataOutputStream out) throws IOException {
+        final int[] offsets = new int[nodeCount + 1];
+        DataInputStream terms = spools[TERMS].stream();
+        try {
+            for (int t = 0; t < termCount; t++) {
+                offsets[terms.readInt() + 1]++;
+                terms.readInt();
+                terms.readInt();
+            }
+        } finally {
+            terms.close();
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+
+        final int[] rows = new int[termCount * KamSnapshot.TERM_INTS];
+        final int[] fill = Arrays.copyOf(offsets, nodeCount);
+        terms = spools[TERMS].stream();
+        try {
+            for (int t = 0; t < termCount; t++) {
+                final int row = fill[terms.readInt()]++
+                        * KamSnapshot.TERM_INTS;
+                rows[row] = terms.readInt();
+                rows[row + 1] = terms.readInt();
+            }
+        } finally {
+            terms.close();
+        }
+
+        writeInts(offsets, out);
+        writeInts(rows, out);
+    }
+
+    private void writeStatements(final DataOutputStream out)
+            throws IOException {
+        final int[] offsets = new int[edgeCount + 1];
+        DataInputStream statements = spools[STATEMENTS].stream();
+        try {
+            for (int s = 0; s < statementCount; s++) {
+                offsets[statements.readInt() + 1]++;
+                statements.readLong();
+            }
+        } finally {
+            statements.close();
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[e + 1] += offsets[e];
+        }
+
+        final long[] positions = new long[statementCount];
+        final int[] fill = Arrays.copyOf(offsets, edgeCount);
+        statements = spools[STATEMENTS].stream();
+        try {
+            for (int s = 0; s < statementCount; s++) {
+                positions[fill[statements.readInt()]++] = statements
+                        .readLong();
+            }
+        } finally {
+            statements.close();
+        }
+
+        writeInts(offsets, out);
+        for (final long position : positions) {
+            out.writeLong(position);
+        }
+    }
+
+    private static long key(final int hash, final int row) {
+        // sorts by hash, then row
+        return ((long) hash << 32) | (row & 0xffffffffL);
+    }
+
+    private static void writeIndex(final long[] keys,
+            final DataOutputStream out) throws IOException {
+        Arrays.sort(keys);
+        for (final long key : keys) {
+            out.writeInt((int) (key >> 32));
+            out.writeInt((int) key);
+        }
+    }
+
+    private static void writeInts(final int[] values,
+            final DataOutputStream out) throws IOException {
+        for (final int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void copy(final Spool spool, final DataOutputStream out)
+            throws IOException {
+        final DataInputStream in = spool.stream();
+        try {
+            final byte[] buffer = new byte[1 << 16];
+            long remaining = spool.length();
+            while (remaining > 0) {
+                final int n = (int) Math.min(remaining, buffer.length);
+                in.readFully(buffer, 0, n);
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void skip(final DataInputStream in, final int n)
+            throws IOException {
+        int remaining = n;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("unexpected end of spool file");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * An append-only spool file that tracks its length and can be read back
+     * once flushed.
+     */
+    private static final class Spool {
+        private final File file;
+        private final FileOutputStream fos;
+        private final DataOutputStream out;
+        private long length;
+        private RandomAccessFile reader;
+
+        private Spool(final File file, final long keep) throws IOException {
+            this.file = file;
+
+            // drop anything written after the last completed step
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(keep);
+            } finally {
+                raf.close();
+            }
+            this.length = keep;
+            this.fos = new FileOutputStream(file, true);
+            this.out = new DataOutputStream(new BufferedOutputStream(fos,
+                    1 << 16));
+        }
+
+        private long length() {
+            return length;
+        }
+
+        private void writeByte(final int v) throws IOException {
+            out.writeByte(v);
+            length += 1;
+        }
+
+        private void writeInt(final int v) throws IOException {
+            out.writeInt(v);
+            length += 4;
+        }
+
+        private void writeLong(final long v) throws IOException {
+            out.writeLong(v);
+            length += 8;
+        }
+
+        private void write(final byte[] bytes) throws IOException {
+            out.write(bytes);
+            length += bytes.length;
+        }
+
+        private void flush() throws IOException {
+            out.flush();
+        }
+
+        private void sync() throws IOException {
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        /**
+         * Returns a random access reader, flushing pending writes first.
+         */
+        private RandomAccessFile reader() throws IOException {
+            out.flush();
+            if (reader == null) {
+                reader = new RandomAccessFile(file, "r");
+            }
+            return reader;
+        }
+
+        /**
+         * Opens a sequential reader from the start, flushing pending writes
+         * first.
+         */
+        private DataInputStream stream() throws IOException {
+            out.flush();
+            return new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file), 1 << 16));
+        }
+
+        private void close() throws IOException {
+            out.close();
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+}
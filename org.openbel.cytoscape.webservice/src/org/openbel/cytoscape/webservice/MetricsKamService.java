@@ -0,0 +1,352 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link MetricsKamService} times every request passed to another
+ * {@link KamService} and records it in the {@link KamServiceMetrics}.
+ *
+ * <p>
+ * Requests are attributed to the KAM whose {@link KamHandle kam handle} or
+ * {@link DialectHandle dialect handle} they carry; handles are matched to
+ * the KAM name and compile time as they are handed out by
+ * {@link #loadKam(Kam)} and {@link #getDefaultDialect(KamHandle)}, so a
+ * recompiled KAM is recorded apart from its earlier build.  Only the
+ * {@value #MAX_HANDLES} most recently used handles are remembered.  Requests
+ * for a single element carry no handle and are recorded without a KAM.
+ * </p>
+ */
+class MetricsKamService extends DelegatingKamService {
+    static final int MAX_HANDLES = 256;
+    private final KamServiceMetrics metrics = KamServiceMetrics.getInstance();
+    // kam and dialect handles to kam names and compile times
+    private final BoundedCache<String, String> kamNames =
+            new BoundedCache<String, String>(MAX_HANDLES, MAX_HANDLES);
+
+    /**
+     * Constructs the instrumentation in front of {@code delegate}.
+     *
+     * @param delegate the {@link KamService} to time
+     */
+    MetricsKamService(final KamService delegate) {
+        super(delegate);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Handles are issued by the server, so the known handles are forgotten.
+     * </p>
+     */
+    @Override
+    public void reloadClientConnector() {
+        kamNames.clear();
+        super.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        final long start = System.nanoTime();
+        List<KamNode> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.findKamNodesByNamespaceValues(kamHandle,
+                    dialectHandle, namespaceValues, nodeFilter);
+            failed = false;
+            return ret;
+        } finally {
+            record("findKamNodesByNamespaceValues", kamName(kamHandle),
+                    start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        final long start = System.nanoTime();
+        List<NamespaceValue> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.findNamespaceValues(patterns, namespaces);
+            failed = false;
+            return ret;
+        } finally {
+            record("findNamespaceValues", null, start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        final long start = System.nanoTime();
+        List<NamespaceDescriptor> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getAllNamespaces();
+            failed = false;
+            return ret;
+        } finally {
+            record("getAllNamespaces", null, start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        final long start = System.nanoTime();
+        List<Kam> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getCatalog();
+            failed = false;
+            return ret;
+        } finally {
+            record("getCatalog", null, start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        final long start = System.nanoTime();
+        DialectHandle ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getDefaultDialect(kamHandle);
+            failed = false;
+            final String kam = kamName(kamHandle);
+            if (ret != null && ret.getHandle() != null && kam != null) {
+                kamNames.put(ret.getHandle(), kam, 1);
+            }
+            return ret;
+        } finally {
+            record("getDefaultDialect", kamName(kamHandle), start, ret,
+                    failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        final long start = System.nanoTime();
+        LoadKamResponse ret = null;
+        boolean failed = true;
+        try {
+            ret = super.loadKam(kam);
+            failed = false;
+            if (ret != null && ret.getHandle() != null
+                    && ret.getHandle().getHandle() != null
+                    && kam.getName() != null) {
+                kamNames.put(ret.getHandle().getHandle(), label(kam), 1);
+            }
+            return ret;
+        } finally {
+            record("loadKam", kam == null ? null : label(kam), start, ret,
+                    failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        final long start = System.nanoTime();
+        List<BelTerm> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getSupportingTerms(node);
+            failed = false;
+            return ret;
+        } finally {
+            record("getSupportingTerms", null, start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        final long start = System.nanoTime();
+        List<BelStatement> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getSupportingEvidence(edge);
+            failed = false;
+            return ret;
+        } finally {
+            record("getSupportingEvidence", null, start, ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        final long start = System.nanoTime();
+        List<KamNode> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.findKamNodesByFunction(kamHandle, dialectHandle,
+                    function);
+            failed = false;
+            return ret;
+        } finally {
+            record("findKamNodesByFunction", kamName(kamHandle), start, ret,
+                    failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        final long start = System.nanoTime();
+        List<KamNode> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.findKamNodesByPatterns(kamHandle, dialectHandle,
+                    regex, nf);
+            failed = false;
+            return ret;
+        } finally {
+            record("findKamNodesByPatterns", kamName(kamHandle), start, ret,
+                    failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        final long start = System.nanoTime();
+        List<KamEdge> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.getAdjacentKamEdges(dialectHandle, node, direction,
+                    ef);
+            failed = false;
+            return ret;
+        } finally {
+            record("getAdjacentKamEdges", dialectName(dialectHandle), start,
+                    ret, failed);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        final long start = System.nanoTime();
+        List<SimplePath> ret = null;
+        boolean failed = true;
+        try {
+            ret = super.interconnect(dialectHandle, sources, maxDepth);
+            failed = false;
+            return ret;
+        } finally {
+            record("interconnect", dialectName(dialectHandle), start, ret,
+                    failed);
+        }
+    }
+
+    private void record(final String operation, final String kam,
+            final long start, final Object response, final boolean failed) {
+        metrics.record(operation, kam, System.nanoTime() - start, response,
+                failed);
+    }
+
+    /**
+     * Labels {@code kam} by its name and, if known, its compile time.
+     */
+    private static String label(final Kam kam) {
+        final XMLGregorianCalendar lastCompiled = kam.getLastCompiled();
+        if (kam.getName() == null || lastCompiled == null) {
+            return kam.getName();
+        }
+        return kam.getName() + '@' + lastCompiled.toXMLFormat();
+    }
+
+    private String kamName(final KamHandle kamHandle) {
+        if (kamHandle == null || kamHandle.getHandle() == null) {
+            return null;
+        }
+        return kamNames.get(kamHandle.getHandle());
+    }
+
+    private String dialectName(final DialectHandle dialectHandle) {
+        if (dialectHandle == null || dialectHandle.getHandle() == null) {
+            return null;
+        }
+        return kamNames.get(dialectHandle.getHandle());
+    }
+}
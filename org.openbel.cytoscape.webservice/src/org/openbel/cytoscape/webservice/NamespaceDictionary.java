@@ -0,0 +1,664 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.xml.ws.WebServiceException;
+
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+
+import cytoscape.CytoscapeInit;
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link NamespaceDictionary} keeps the {@link NamespaceDescriptor namespaces}
+ * of the Web API and the values of each namespace under the Cytoscape
+ * configuration directory, so identifiers can be resolved to
+ * {@link NamespaceValue namespace values} without asking the server.
+ *
+ * <p>
+ * The namespaces are fetched once per session and
+ * {@link Configuration#getWSDLURL() WSDL URL}; the stored copy is used when
+ * the server cannot be reached.  The values of a namespace are downloaded the
+ * first time it is used, in batches of values sharing their first character
+ * so that a download can be canceled between requests, and kept as a sorted,
+ * front-coded index keyed by its resource location.
+ * </p>
+ *
+ * <p>
+ * Stored values are revalidated when the namespaces are fetched: a namespace
+ * whose descriptor differs from the stored copy, for instance because the
+ * server imported it again under a new id, has its stored values dropped so
+ * that they are downloaded again on next use.  Values of a namespace whose
+ * descriptor is unchanged are kept.
+ * </p>
+ *
+ * <p>
+ * The namespaces and the values are guarded separately.  Concurrent callers
+ * needing the values of the same namespace share a single read or download,
+ * while other namespaces load independently.
+ * </p>
+ *
+ * <p>
+ * This object is a singleton.
+ * </p>
+ */
+public final class NamespaceDictionary {
+    private static final CyLogger log = CyLogger
+            .getLogger(NamespaceDictionary.class);
+    private static final String DIRECTORY = "namespace-dictionary";
+    private static final String VALUES = ".values";
+    private static final int MAGIC = 0x42454c4e;
+    private static final int VERSION = 1;
+    // namespace values held in memory, least recently used dropped first
+    private static final int MAX_LOADED = 4;
+    // how often a caller waiting for another's download checks for cancel
+    private static final long POLL_MS = 250;
+    // value patterns of the download batches, together matching any value
+    private static final List<String> BATCHES;
+    static {
+        final List<String> batches = new ArrayList<String>();
+        for (char c = '0'; c <= '9'; c++) {
+            batches.add(c + ".*");
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            batches.add("[" + c + Character.toLowerCase(c) + "].*");
+        }
+        batches.add("[^0-9A-Za-z].*");
+        BATCHES = Collections.unmodifiableList(batches);
+    }
+    private static NamespaceDictionary instance;
+
+    // guarded by itself
+    private final Map<String, List<NamespaceDescriptor>> namespaces =
+            new HashMap<String, List<NamespaceDescriptor>>();
+    // reads and downloads in progress by resource location
+    private final ConcurrentMap<String, FutureTask<String[]>> loading =
+            new ConcurrentHashMap<String, FutureTask<String[]>>();
+    // guarded by itself
+    private final Map<String, String[]> values =
+            new LinkedHashMap<String, String[]>(MAX_LOADED, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, String[]> eldest) {
+                    return size() > MAX_LOADED;
+                }
+            };
+
+    public static synchronized NamespaceDictionary getInstance() {
+        if (instance == null) {
+            instance = new NamespaceDictionary();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the namespaces of the Web API, fetching them only the first
+     * time they are asked for with the current
+     * {@link Configuration#getWSDLURL() WSDL URL}.
+     *
+     * @return the {@link NamespaceDescriptor namespaces}
+     * @throws WebServiceException Thrown if the namespaces can neither be
+     * fetched nor read from the stored copy
+     */
+    public List<NamespaceDescriptor> getNamespaces() {
+        synchronized (namespaces) {
+            return new ArrayList<NamespaceDescriptor>(fetchNamespaces());
+        }
+    }
+
+    private List<NamespaceDescriptor> fetchNamespaces() {
+        final String wsdlUrl = Configuration.getInstance().getWSDLURL();
+        List<NamespaceDescriptor> ret = namespaces.get(wsdlUrl);
+        if (ret != null) {
+            return ret;
+        }
+
+        final File file = new File(getDirectory(), "namespaces-"
+                + Digests.sha1(wsdlUrl) + ".properties");
+        try {
+            ret = KamServiceFactory.getInstance().getKAMService()
+                    .getAllNamespaces();
+            if (ret == null) {
+                ret = new ArrayList<NamespaceDescriptor>();
+            }
+            if (file.exists()) {
+                revalidate(file, ret);
+            }
+            writeNamespaces(file, wsdlUrl, ret);
+        } catch (WebServiceException e) {
+            if (!file.exists()) {
+                throw e;
+            }
+            log.warn("Unable to fetch namespaces, using stored copy");
+            ret = readNamespaces(file);
+        } catch (IOException e) {
+            log.warn("Unable to store namespaces", e);
+        }
+
+        namespaces.put(wsdlUrl, ret);
+        return ret;
+    }
+
+    /**
+     * Drops the stored values of each namespace in {@code fetched} whose
+     * descriptor differs from the one stored in {@code file}.
+     */
+    private void revalidate(final File file,
+            final List<NamespaceDescriptor> fetched) {
+        final Map<String, String> stored = new HashMap<String, String>();
+        try {
+            for (final NamespaceDescriptor desc : readNamespaces(file)) {
+                final Namespace ns = desc.getNamespace();
+                if (ns != null && ns.getResourceLocation() != null) {
+                    stored.put(ns.getResourceLocation(), describe(desc));
+                }
+            }
+        } catch (WebServiceException e) {
+            log.warn("Unable to read stored namespaces", e);
+        }
+
+        for (final NamespaceDescriptor desc : fetched) {
+            final Namespace ns = desc.getNamespace();
+            if (ns == null || ns.getResourceLocation() == null) {
+                continue;
+            }
+            final String location = ns.getResourceLocation();
+            final String previous = stored.get(location);
+            if (previous == null || previous.equals(describe(desc))) {
+                continue;
+            }
+
+            log.info("Namespace " + location + " changed, dropping its "
+                    + "stored values");
+            synchronized (values) {
+                values.remove(location);
+            }
+            final File valuesFile = new File(getDirectory(),
+                    Digests.sha1(location) + VALUES);
+            if (valuesFile.exists() && !valuesFile.delete()) {
+                log.warn("Unable to delete " + valuesFile);
+            }
+        }
+    }
+
+    /**
+     * Resolves {@code identifiers} to values of {@code namespace}.  An
+     * identifier matches the values it is a prefix of, like the
+     * {@code identifier.*} patterns of a namespace value search.  With
+     * {@code exactMatch} an identifier that is itself a value matches only
+     * that value.
+     *
+     * @param namespace the {@link Namespace namespace}, not {@code null}
+     * @param identifiers the identifiers, not {@code null}
+     * @param exactMatch {@code true} to prefer exact matches over prefixes
+     * @return the {@link Resolution resolution} of {@code identifiers}
+     * @throws IOException Thrown if the values of {@code namespace} are
+     * neither stored nor available from the Web API
+     */
+    public Resolution resolve(final Namespace namespace,
+            final Collection<String> identifiers, final boolean exactMatch)
+            throws IOException {
+        return resolve(namespace, identifiers, exactMatch, null);
+    }
+
+    /**
+     * Resolves {@code identifiers} to values of {@code namespace}, reporting
+     * the progress of a download of its values to {@code monitor}.
+     *
+     * @param namespace the {@link Namespace namespace}, not {@code null}
+     * @param identifiers the identifiers, not {@code null}
+     * @param exactMatch {@code true} to prefer exact matches over prefixes
+     * @param monitor the optional {@link RequestMonitor monitor} that is told
+     * about each downloaded batch and can cancel the download
+     * @return the {@link Resolution resolution} of {@code identifiers}
+     * @throws InterruptedIOException Thrown if {@code monitor} canceled the
+     * download, nothing is stored then
+     * @throws IOException Thrown if the values of {@code namespace} are
+     * neither stored nor available from the Web API
+     * @see #resolve(Namespace, Collection, boolean)
+     */
+    public Resolution resolve(final Namespace namespace,
+            final Collection<String> identifiers, final boolean exactMatch,
+            final RequestMonitor monitor) throws IOException {
+        if (namespace == null) {
+            throw new IllegalArgumentException("namespace is null");
+        }
+        if (identifiers == null) {
+            throw new IllegalArgumentException("identifiers is null");
+        }
+
+        return match(namespace, getValues(namespace, monitor), identifiers,
+                exactMatch);
+    }
+
+    /**
+     * Matches {@code identifiers} against the {@code sorted} values of
+     * {@code namespace}.
+     */
+    static Resolution match(final Namespace namespace, final String[] sorted,
+            final Collection<String> identifiers, final boolean exactMatch) {
+        final List<NamespaceValue> resolved = new ArrayList<NamespaceValue>();
+        final List<String> unmatched = new ArrayList<String>();
+        for (final String identifier : identifiers) {
+            int i = Arrays.binarySearch(sorted, identifier);
+            if (i >= 0 && exactMatch) {
+                resolved.add(value(namespace, sorted[i]));
+                continue;
+            }
+
+            // values with the identifier as prefix sort right after it
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i == sorted.length || !sorted[i].startsWith(identifier)) {
+                unmatched.add(identifier);
+                continue;
+            }
+            while (i < sorted.length && sorted[i].startsWith(identifier)) {
+                resolved.add(value(namespace, sorted[i]));
+                i++;
+            }
+        }
+        return new Resolution(resolved, unmatched);
+    }
+
+    /**
+     * Returns the sorted values of {@code namespace}, reading or downloading
+     * them if they are not held in memory.  A caller finding the values
+     * already being loaded waits for that load instead.
+     */
+    private String[] getValues(final Namespace namespace,
+            final RequestMonitor monitor) throws IOException {
+        final String location = namespace.getResourceLocation();
+        if (location == null) {
+            throw new IOException("Namespace " + namespace.getPrefix()
+                    + " has no resource location");
+        }
+
+        while (true) {
+            synchronized (values) {
+                final String[] ret = values.get(location);
+                if (ret != null) {
+                    return ret;
+                }
+            }
+
+            final FutureTask<String[]> load = new FutureTask<String[]>(
+                    new Callable<String[]>() {
+                        @Override
+                        public String[] call() throws IOException {
+                            return load(namespace, monitor);
+                        }
+                    });
+            FutureTask<String[]> current = loading.putIfAbsent(location, load);
+            if (current == null) {
+                current = load;
+                try {
+                    load.run();
+                } finally {
+                    loading.remove(location, load);
+                }
+            }
+
+            try {
+                return await(current, location, monitor);
+            } catch (InterruptedIOException e) {
+                if (current == load
+                        || (monitor != null && monitor.isCanceled())) {
+                    throw e;
+                }
+                // the caller that was loading the values canceled, retry
+            }
+        }
+    }
+
+    /**
+     * Reads the stored values of {@code namespace}, or downloads and stores
+     * them, and holds them in memory.
+     */
+    private String[] load(final Namespace namespace,
+            final RequestMonitor monitor) throws IOException {
+        final String location = namespace.getResourceLocation();
+        final File file = new File(getDirectory(), Digests.sha1(location)
+                + VALUES);
+        String[] ret = null;
+        if (file.exists()) {
+            try {
+                ret = readValues(file, location);
+            } catch (IOException e) {
+                log.warn("Unable to read stored values of " + location
+                        + ", downloading again", e);
+            }
+        }
+        if (ret == null) {
+            ret = download(namespace, monitor);
+            writeValues(file, location, ret);
+        }
+
+        synchronized (values) {
+            values.put(location, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Waits for {@code load}, giving up if {@code monitor} cancels.
+     */
+    private static String[] await(final FutureTask<String[]> load,
+            final String location, final RequestMonitor monitor)
+            throws IOException {
+        while (true) {
+            if (monitor != null && monitor.isCanceled()) {
+                throw new InterruptedIOException("Loading values of "
+                        + location + " was canceled");
+            }
+
+            try {
+                return load.get(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted loading values "
+                        + "of " + location);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Downloads the values of {@code namespace} one {@link #BATCHES batch} at
+     * a time.  Overlapping batches are harmless, the values are sorted and
+     * made distinct.  The batches bypass the {@link CachingKamService cache},
+     * the values are kept here.
+     */
+    private static String[] download(final Namespace namespace,
+            final RequestMonitor monitor) throws IOException {
+        final KamService kamService = KamServiceFactory.getInstance()
+                .getUncachedKAMService();
+        final List<Namespace> namespaces = Collections
+                .singletonList(namespace);
+        final Set<String> sorted = new TreeSet<String>();
+        for (int i = 0; i < BATCHES.size(); i++) {
+            if (monitor != null && monitor.isCanceled()) {
+                throw new InterruptedIOException("Download of "
+                        + namespace.getResourceLocation() + " was canceled");
+            }
+
+            final List<NamespaceValue> nsValues;
+            try {
+                nsValues = kamService.findNamespaceValues(
+                        Collections.singletonList(BATCHES.get(i)), namespaces);
+            } catch (WebServiceException e) {
+                throw new IOException("Unable to download values of "
+                        + namespace.getResourceLocation(), e);
+            }
+            if (nsValues != null) {
+                for (final NamespaceValue value : nsValues) {
+                    if (value.getValue() != null) {
+                        sorted.add(value.getValue());
+                    }
+                }
+            }
+            if (monitor != null) {
+                monitor.requestCompleted(i + 1, BATCHES.size());
+            }
+        }
+        return sorted.toArray(new String[sorted.size()]);
+    }
+
+    /**
+     * Writes sorted {@code values} front-coded; each value is stored as the
+     * length of the prefix it shares with the previous value and the rest.
+     * The file is written aside and renamed so a partial file is never read.
+     */
+    static void writeValues(final File file, final String location,
+            final String[] values) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(location);
+            out.writeInt(values.length);
+            String previous = "";
+            for (final String value : values) {
+                final int shared = sharedPrefix(previous, value);
+                out.writeShort(shared);
+                out.writeUTF(value.substring(shared));
+                previous = value;
+            }
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to replace " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    static String[] readValues(final File file, final String location)
+            throws IOException {
+        final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a namespace dictionary");
+            }
+            if (!location.equals(in.readUTF())) {
+                throw new IOException(file + " holds another namespace");
+            }
+
+            final String[] ret = new String[in.readInt()];
+            String previous = "";
+            for (int i = 0; i < ret.length; i++) {
+                final int shared = in.readUnsignedShort();
+                ret[i] = previous.substring(0, shared) + in.readUTF();
+                previous = ret[i];
+            }
+            return ret;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeNamespaces(final File file, final String wsdlUrl,
+            final List<NamespaceDescriptor> descriptors) throws IOException {
+        final Properties props = new Properties();
+        for (int i = 0; i < descriptors.size(); i++) {
+            final NamespaceDescriptor desc = descriptors.get(i);
+            final Namespace ns = desc.getNamespace();
+            setIfPresent(props, i + ".name", desc.getName());
+            if (ns != null) {
+                setIfPresent(props, i + ".id", ns.getId());
+                setIfPresent(props, i + ".prefix", ns.getPrefix());
+                setIfPresent(props, i + ".resourceLocation",
+                        ns.getResourceLocation());
+            }
+        }
+        props.setProperty("count", String.valueOf(descriptors.size()));
+
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, wsdlUrl);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static List<NamespaceDescriptor> readNamespaces(final File file) {
+        final Properties props = new Properties();
+        try {
+            final InputStream in = new FileInputStream(file);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new WebServiceException("Unable to read " + file, e);
+        }
+
+        final int count = Integer.parseInt(props.getProperty("count", "0"));
+        final List<NamespaceDescriptor> ret =
+                new ArrayList<NamespaceDescriptor>(count);
+        for (int i = 0; i < count; i++) {
+            final NamespaceDescriptor desc = new NamespaceDescriptor();
+            desc.setName(props.getProperty(i + ".name"));
+            if (props.containsKey(i + ".resourceLocation")) {
+                final Namespace ns = new Namespace();
+                ns.setId(props.getProperty(i + ".id"));
+                ns.setPrefix(props.getProperty(i + ".prefix"));
+                ns.setResourceLocation(props
+                        .getProperty(i + ".resourceLocation"));
+                desc.setNamespace(ns);
+            }
+            ret.add(desc);
+        }
+        return ret;
+    }
+
+    /**
+     * Describes the stored fields of {@code desc} for comparison.
+     */
+    private static String describe(final NamespaceDescriptor desc) {
+        final Namespace ns = desc.getNamespace();
+        return desc.getName() + '\n' + ns.getId() + '\n' + ns.getPrefix();
+    }
+
+    private static void setIfPresent(final Properties props, final String key,
+            final String value) {
+        if (value != null) {
+            props.setProperty(key, value);
+        }
+    }
+
+    private static NamespaceValue value(final Namespace namespace,
+            final String value) {
+        final NamespaceValue ret = new NamespaceValue();
+        ret.setNamespace(namespace);
+        ret.setValue(value);
+        return ret;
+    }
+
+    private static int sharedPrefix(final String a, final String b) {
+        final int max = Math.min(Math.min(a.length(), b.length()), 0xffff);
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static File getDirectory() {
+        final File dir = new File(CytoscapeInit.getConfigDirectory(),
+                DIRECTORY);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            log.warn("Unable to create " + dir);
+        }
+        return dir;
+    }
+
+    private NamespaceDictionary() {
+        // singleton. use get instance
+    }
+
+    /**
+     * The result of {@link NamespaceDictionary#resolve(Namespace, Collection,
+     * boolean) resolving} identifiers.
+     */
+    public static final class Resolution {
+        private final List<NamespaceValue> values;
+        private final List<String> unmatched;
+
+        private Resolution(final List<NamespaceValue> values,
+                final List<String> unmatched) {
+            this.values = values;
+            this.unmatched = unmatched;
+        }
+
+        /**
+         * Returns the values the identifiers matched.
+         *
+         * @return the {@link NamespaceValue namespace values}
+         */
+        public List<NamespaceValue> getValues() {
+            return values;
+        }
+
+        /**
+         * Returns the identifiers that matched no value, in the order given.
+         *
+         * @return the unmatched identifiers
+         */
+        public List<String> getUnmatched() {
+            return unmatched;
+        }
+    }
+}
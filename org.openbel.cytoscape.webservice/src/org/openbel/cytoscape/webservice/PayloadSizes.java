@@ -0,0 +1,177 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+
+import org.openbel.framework.ws.model.Annotation;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.Citation;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link PayloadSizes} estimates the heap size of Web API responses.  The
+ * estimates count strings and a fixed overhead per object; they are meant
+ * for bounding caches and comparing responses, not for exact accounting.
+ */
+final class PayloadSizes {
+    // approximate cost of an object header plus a few references
+    static final int OBJECT_OVERHEAD = 32;
+
+    /**
+     * Estimates the size of a response.
+     *
+     * @param response a Web API model object or a {@link Collection} of them,
+     * can be {@code null}
+     * @return the estimated size in bytes
+     */
+    static long of(final Object response) {
+        if (response == null) {
+            return 0;
+        }
+        if (response instanceof Collection) {
+            long size = OBJECT_OVERHEAD;
+            for (final Object o : (Collection<?>) response) {
+                size += of(o);
+            }
+            return size;
+        }
+        if (response instanceof String) {
+            return of((String) response);
+        }
+        if (response instanceof KamNode) {
+            return of((KamNode) response);
+        }
+        if (response instanceof KamEdge) {
+            return of((KamEdge) response);
+        }
+        if (response instanceof BelTerm) {
+            return of((BelTerm) response);
+        }
+        if (response instanceof BelStatement) {
+            return of((BelStatement) response);
+        }
+        if (response instanceof NamespaceValue) {
+            final NamespaceValue value = (NamespaceValue) response;
+            return OBJECT_OVERHEAD + of(value.getValue())
+                    + of(value.getNamespace());
+        }
+        if (response instanceof NamespaceDescriptor) {
+            final NamespaceDescriptor nd = (NamespaceDescriptor) response;
+            return OBJECT_OVERHEAD + of(nd.getName()) + of(nd.getNamespace());
+        }
+        if (response instanceof Kam) {
+            final Kam kam = (Kam) response;
+            return OBJECT_OVERHEAD + of(kam.getId()) + of(kam.getName())
+                    + of(kam.getDescription());
+        }
+        if (response instanceof SimplePath) {
+            final SimplePath path = (SimplePath) response;
+            return OBJECT_OVERHEAD + of(path.getSource())
+                    + of(path.getTarget()) + of(path.getEdges());
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    /**
+     * Returns the number of elements of a response.
+     *
+     * @param response a Web API response, can be {@code null}
+     * @return the size of a {@link Collection} response, {@code 1} for any
+     * other response and {@code 0} for {@code null}
+     */
+    static int count(final Object response) {
+        if (response == null) {
+            return 0;
+        }
+        if (response instanceof Collection) {
+            return ((Collection<?>) response).size();
+        }
+        return 1;
+    }
+
+    static long of(final String s) {
+        return s == null ? 0 : OBJECT_OVERHEAD + 2L * s.length();
+    }
+
+    static long of(final Namespace ns) {
+        if (ns == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + of(ns.getId()) + of(ns.getPrefix())
+                + of(ns.getResourceLocation());
+    }
+
+    static long of(final KamNode node) {
+        if (node == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + of(node.getId()) + of(node.getLabel());
+    }
+
+    static long of(final KamEdge edge) {
+        if (edge == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + of(edge.getId()) + of(edge.getSource())
+                + of(edge.getTarget());
+    }
+
+    static long of(final BelTerm term) {
+        if (term == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + of(term.getId()) + of(term.getLabel());
+    }
+
+    static long of(final BelStatement stmt) {
+        if (stmt == null) {
+            return 0;
+        }
+
+        long size = OBJECT_OVERHEAD + of(stmt.getId())
+                + of(stmt.getSubjectTerm()) + of(stmt.getObjectTerm())
+                + of(stmt.getObjectStatement());
+
+        final Citation citation = stmt.getCitation();
+        if (citation != null) {
+            size += OBJECT_OVERHEAD + of(citation.getId())
+                    + of(citation.getName()) + of(citation.getComment());
+            for (final String author : citation.getAuthors()) {
+                size += of(author);
+            }
+        }
+        for (final Annotation annotation : stmt.getAnnotations()) {
+            size += OBJECT_OVERHEAD + of(annotation.getValue());
+        }
+        return size;
+    }
+
+    private PayloadSizes() {
+        // prevent instantiation
+    }
+}
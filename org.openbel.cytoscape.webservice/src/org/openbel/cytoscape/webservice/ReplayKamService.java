@@ -0,0 +1,175 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.ws.WebServiceException;
+
+import org.openbel.cytoscape.webservice.TrafficRecording.Record;
+import org.openbel.framework.ws.model.WebAPI;
+
+/**
+ * {@link ReplayKamService} answers from a recording made by the
+ * {@link TrafficRecorder} instead of the Web API.
+ *
+ * <p>
+ * A request is answered with the response recorded for the same operation
+ * and request.  Requests recorded more than once are answered with their
+ * responses in the order they were recorded, and then with the last one
+ * again, so a KAM that was recorded loading is replayed loading.  Requests
+ * that were never recorded fail with a {@link WebServiceException}, as do
+ * requests that failed when recorded.
+ * </p>
+ *
+ * <p>
+ * Responses are delayed by the latency they were recorded with, or returned
+ * as fast as possible.
+ * </p>
+ */
+public class ReplayKamService extends DefaultKamService {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private final Map<String, Deque<Record>> responses =
+            new HashMap<String, Deque<Record>>();
+    private final boolean originalLatency;
+
+    /**
+     * Creates a service replaying {@code recording}.
+     *
+     * @param recording the recording {@link File file}
+     * @param originalLatency {@code true} to delay each response by its
+     * recorded latency, {@code false} to answer as fast as possible
+     * @throws IOException Thrown if the recording cannot be read
+     */
+    public ReplayKamService(final File recording,
+            final boolean originalLatency) throws IOException {
+        if (recording == null) {
+            throw new IllegalArgumentException("recording is null");
+        }
+        this.originalLatency = originalLatency;
+        for (final Record record : TrafficRecording.read(recording)) {
+            final String key = key(record.operation, record.request);
+            Deque<Record> queue = responses.get(key);
+            if (queue == null) {
+                queue = new ArrayDeque<Record>();
+                responses.put(key, queue);
+            }
+            queue.add(record);
+        }
+        this.webAPI = (WebAPI) Proxy.newProxyInstance(
+                WebAPI.class.getClassLoader(), new Class<?>[] { WebAPI.class },
+                new ReplayingHandler());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The replay has no client connector to reload.
+     * </p>
+     */
+    @Override
+    public void reloadClientConnector() {
+        // nothing to reload
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The replay is always available.
+     * </p>
+     */
+    @Override
+    protected void checkValid() {
+        // always valid
+    }
+
+    /**
+     * Returns the next recorded response for a request.
+     */
+    private Record next(final String key) {
+        synchronized (responses) {
+            final Deque<Record> queue = responses.get(key);
+            if (queue == null) {
+                return null;
+            }
+            return queue.size() > 1 ? queue.poll() : queue.peek();
+        }
+    }
+
+    private static String key(final String operation, final byte[] request) {
+        return operation + '\n' + new String(request, UTF8);
+    }
+
+    /**
+     * Answers each {@link WebAPI} operation from the recording.
+     */
+    private final class ReplayingHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(final Object p, final Method method,
+                final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+
+            final String operation = method.getName();
+            final Record record;
+            try {
+                record = next(key(operation, TrafficRecording.marshal(
+                        args[0], method.getParameterTypes()[0])));
+            } catch (JAXBException e) {
+                throw new WebServiceException("Unable to replay "
+                        + operation, e);
+            }
+            if (record == null) {
+                throw new WebServiceException("No recorded response for "
+                        + operation);
+            }
+
+            if (originalLatency) {
+                TimeUnit.NANOSECONDS.sleep(record.nanos);
+            }
+            if (record.failed) {
+                throw new WebServiceException(new String(record.response,
+                        UTF8));
+            }
+            try {
+                return TrafficRecording.unmarshal(record.response,
+                        method.getReturnType());
+            } catch (JAXBException e) {
+                throw new WebServiceException("Unable to replay "
+                        + operation, e);
+            }
+        }
+    }
+}
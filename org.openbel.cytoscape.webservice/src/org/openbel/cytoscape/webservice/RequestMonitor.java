@@ -0,0 +1,46 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link RequestMonitor} receives progress from, and can cancel, a
+ * {@link KamService kam service} operation that is made up of many requests.
+ *
+ * <p>
+ * Both methods are called from the thread that invoked the operation.
+ * </p>
+ */
+public interface RequestMonitor {
+
+    /**
+     * Called each time one of the requests completes.
+     *
+     * @param completed the number of requests completed so far
+     * @param total the total number of requests
+     */
+    void requestCompleted(int completed, int total);
+
+    /**
+     * Returns {@code true} if the operation should stop issuing requests.
+     *
+     * @return {@code true} if canceled, {@code false} otherwise
+     */
+    boolean isCanceled();
+}
@@ -0,0 +1,61 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * {@link ServiceUnavailableException} is thrown by the {@link KamService}
+ * when the BEL Framework Web API cannot be reached.  It is thrown without
+ * contacting the Web API while the connection's {@link CircuitBreaker} is
+ * open.
+ *
+ * <p>
+ * The service layer does not report the error to the user; callers decide
+ * how to present it.
+ * </p>
+ */
+public class ServiceUnavailableException extends WebServiceException {
+    private static final long serialVersionUID = -3204914384725043307L;
+    private final long retryAt;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message the detail message
+     * @param retryAt the time in milliseconds since the epoch at which the
+     * connection will be tried again, or {@code 0} if unknown
+     */
+    public ServiceUnavailableException(final String message,
+            final long retryAt) {
+        super(message);
+        this.retryAt = retryAt;
+    }
+
+    /**
+     * Returns the time at which the connection will be tried again.
+     *
+     * @return the time in milliseconds since the epoch, or {@code 0} if
+     * unknown
+     */
+    public long getRetryAt() {
+        return retryAt;
+    }
+}
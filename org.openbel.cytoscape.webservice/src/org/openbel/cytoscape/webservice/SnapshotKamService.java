@@ -0,0 +1,514 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.ws.WebServiceException;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+import cytoscape.CytoscapeInit;
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link SnapshotKamService} answers from local {@link KamSnapshot KAM
+ * snapshots} and forwards everything else to another {@link KamService}.
+ *
+ * <p>
+ * A snapshot is selected when a {@link Kam} with the same name and compile
+ * time is {@link #loadKam(Kam) loaded}, so a recompiled KAM never uses an
+ * outdated snapshot.  The KAM handle and dialect handle handed out for a
+ * snapshot are local; node and edge lookups, adjacency, supporting terms and
+ * evidence, and depth one interconnects are answered from the snapshot
+ * without contacting the Web API.  Operations the snapshot cannot answer,
+ * such as namespace lookups, load the KAM on the Web API on first use and
+ * are forwarded with the real handles.  If the Web API has since unloaded
+ * the KAM it is loaded again and the request is retried once.
+ * </p>
+ *
+ * <p>
+ * If the Web API catalog cannot be retrieved the KAMs of the snapshots on
+ * disk are returned instead, so snapshotted KAMs can be navigated while the
+ * server is down.
+ * </p>
+ */
+class SnapshotKamService extends DelegatingKamService {
+    private static final CyLogger log = CyLogger
+            .getLogger(SnapshotKamService.class);
+    private static final String DIRECTORY = "kam-snapshots";
+    private static final String HANDLE_PREFIX = "snapshot:";
+
+    // loaded snapshots by local handle
+    private final Map<String, Loaded> loaded = new HashMap<String, Loaded>();
+    // snapshot files that could not be opened, not retried
+    private final Set<File> broken = new HashSet<File>();
+    private final File directory;
+
+    SnapshotKamService(final KamService delegate) {
+        this(delegate, getDirectory());
+    }
+
+    SnapshotKamService(final KamService delegate, final File directory) {
+        super(delegate);
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory snapshot files are read from.
+     *
+     * @return the snapshot directory
+     */
+    static File getDirectory() {
+        return new File(CytoscapeInit.getConfigDirectory(), DIRECTORY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        try {
+            return delegate.getCatalog();
+        } catch (RuntimeException e) {
+            final List<Kam> kams = new ArrayList<Kam>();
+            for (final KamSnapshot snapshot : openAll()) {
+                kams.add(snapshot.getKam());
+            }
+            if (kams.isEmpty()) {
+                throw e;
+            }
+            log.warn("Web API catalog unavailable, using KAM snapshots", e);
+            return kams;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        if (kam == null) {
+            throw new IllegalArgumentException("kam is null");
+        }
+
+        final KamSnapshot snapshot = find(kam);
+        if (snapshot == null) {
+            return delegate.loadKam(kam);
+        }
+
+        final String handle = HANDLE_PREFIX + snapshot.getFile().getName();
+        synchronized (loaded) {
+            if (!loaded.containsKey(handle)) {
+                loaded.put(handle, new Loaded(kam, snapshot));
+            }
+        }
+
+        final KamHandle kamHandle = new KamHandle();
+        kamHandle.setHandle(handle);
+        final LoadKamResponse res = new LoadKamResponse();
+        res.setHandle(kamHandle);
+        res.setLoadStatus(KAMLoadStatus.COMPLETE);
+        return res;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        if (loaded(kamHandle) == null) {
+            return delegate.getDefaultDialect(kamHandle);
+        }
+
+        // the dialect of a snapshot is identified by the snapshot handle
+        final DialectHandle dialectHandle = new DialectHandle();
+        dialectHandle.setHandle(kamHandle.getHandle());
+        return dialectHandle;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        final Loaded l = loaded(kamHandle);
+        if (l == null) {
+            return delegate.findKamNodesByNamespaceValues(kamHandle,
+                    dialectHandle, namespaceValues, nodeFilter);
+        }
+
+        // namespace values are not part of the snapshot
+        return l.forward(new RemoteOperation<List<KamNode>>() {
+            @Override
+            public List<KamNode> execute(final KamHandle remoteKamHandle,
+                    final DialectHandle remoteDialectHandle) {
+                return delegate.findKamNodesByNamespaceValues(
+                        remoteKamHandle, remoteDialectHandle,
+                        namespaceValues, nodeFilter);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+
+        for (final Loaded l : loaded()) {
+            final int n = l.snapshot.findNode(node.getId());
+            if (n != KamSnapshot.NULL) {
+                return l.snapshot.terms(n);
+            }
+        }
+        return delegate.getSupportingTerms(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge is null");
+        }
+
+        for (final Loaded l : loaded()) {
+            final int e = l.snapshot.findEdge(edge.getId());
+            if (e != KamSnapshot.NULL) {
+                return l.snapshot.statements(e);
+            }
+        }
+        return delegate.getSupportingEvidence(edge);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        final Loaded l = loaded(kamHandle);
+        if (l == null) {
+            return delegate.findKamNodesByFunction(kamHandle, dialectHandle,
+                    function);
+        }
+        if (function == null) {
+            throw new IllegalArgumentException("function is null");
+        }
+        return l.snapshot.nodesByFunction(function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        final Loaded l = loaded(kamHandle);
+        if (l == null) {
+            return delegate.findKamNodesByPatterns(kamHandle, dialectHandle,
+                    regex, nf);
+        }
+        if (regex == null) {
+            throw new IllegalArgumentException("regex is null");
+        }
+        return l.snapshot.nodesByPattern(Pattern.compile(regex), nf);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        if (node == null) {
+            throw new IllegalArgumentException("node is null");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("direction is null");
+        }
+
+        final Loaded l = loaded(dialectHandle);
+        if (l != null) {
+            final int n = l.snapshot.findNode(node.getId());
+            if (n == KamSnapshot.NULL) {
+                // not a node of this kam
+                return new ArrayList<KamEdge>();
+            }
+            return l.snapshot.adjacent(n, direction, ef);
+        }
+
+        return delegate.getAdjacentKamEdges(dialectHandle, node, direction,
+                ef);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        final Loaded l = loaded(dialectHandle);
+        if (l == null) {
+            return delegate.interconnect(dialectHandle, sources, maxDepth);
+        }
+        if (maxDepth == null || maxDepth != 1) {
+            // deeper paths are searched by the Web API
+            return l.forward(new RemoteOperation<List<SimplePath>>() {
+                @Override
+                public List<SimplePath> execute(
+                        final KamHandle remoteKamHandle,
+                        final DialectHandle remoteDialectHandle) {
+                    return delegate.interconnect(remoteDialectHandle,
+                            sources, maxDepth);
+                }
+            });
+        }
+        if (sources == null) {
+            throw new IllegalArgumentException("sources is null");
+        }
+
+        final Set<Integer> ns = new HashSet<Integer>();
+        for (final KamNode source : sources) {
+            final int n = l.snapshot.findNode(source.getId());
+            if (n != KamSnapshot.NULL) {
+                ns.add(n);
+            }
+        }
+
+        final List<SimplePath> paths = new ArrayList<SimplePath>();
+        for (final int e : l.snapshot.edgesAmong(ns)) {
+            final KamEdge edge = l.snapshot.edge(e);
+            final SimplePath path = new SimplePath();
+            path.setSource(edge.getSource());
+            path.setTarget(edge.getTarget());
+            path.getEdges().add(edge);
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    private Loaded loaded(final KamHandle kamHandle) {
+        return kamHandle == null ? null : loaded(kamHandle.getHandle());
+    }
+
+    private Loaded loaded(final DialectHandle dialectHandle) {
+        return dialectHandle == null ? null
+                : loaded(dialectHandle.getHandle());
+    }
+
+    private Loaded loaded(final String handle) {
+        if (handle == null || !handle.startsWith(HANDLE_PREFIX)) {
+            return null;
+        }
+        synchronized (loaded) {
+            return loaded.get(handle);
+        }
+    }
+
+    private List<Loaded> loaded() {
+        synchronized (loaded) {
+            return new ArrayList<Loaded>(loaded.values());
+        }
+    }
+
+    /**
+     * Finds the snapshot for {@code kam} by name and compile time.
+     *
+     * @return the {@link KamSnapshot snapshot}, or {@code null} if there is
+     * none or it cannot be read
+     */
+    private KamSnapshot find(final Kam kam) {
+        final long compiled = KamSnapshot.compileTime(kam);
+        if (kam.getName() == null || compiled == KamSnapshot.NULL) {
+            return null;
+        }
+
+        final File file = new File(directory, KamSnapshot.fileName(
+                kam.getName(), compiled));
+        for (final Loaded l : loaded()) {
+            if (l.snapshot.getFile().equals(file)) {
+                return l.snapshot;
+            }
+        }
+        return open(file);
+    }
+
+    private List<KamSnapshot> openAll() {
+        final List<KamSnapshot> snapshots = new ArrayList<KamSnapshot>();
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return snapshots;
+        }
+        for (final File file : files) {
+            if (file.getName().endsWith(KamSnapshot.EXTENSION)) {
+                final KamSnapshot snapshot = open(file);
+                if (snapshot != null) {
+                    snapshots.add(snapshot);
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    private KamSnapshot open(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        synchronized (broken) {
+            if (broken.contains(file)) {
+                return null;
+            }
+        }
+
+        try {
+            return KamSnapshot.open(file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable KAM snapshot " + file, e);
+            synchronized (broken) {
+                broken.add(file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A request forwarded to the Web API with the handles of a snapshot's KAM.
+     */
+    private interface RemoteOperation<T> {
+
+        T execute(KamHandle remoteKamHandle, DialectHandle remoteDialectHandle);
+    }
+
+    /**
+     * A snapshot loaded in place of a {@link Kam}, with the Web API handles
+     * of that KAM once they are needed.
+     */
+    private final class Loaded {
+        private final Kam kam;
+        private final KamSnapshot snapshot;
+        private KamHandle remoteKamHandle;
+        private DialectHandle remoteDialectHandle;
+
+        private Loaded(final Kam kam, final KamSnapshot snapshot) {
+            this.kam = kam;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Loads the KAM on the Web API, waiting for the load to complete.
+         */
+        private synchronized KamHandle remoteKamHandle() {
+            if (remoteKamHandle == null) {
+                LoadKamResponse res = delegate.loadKam(kam);
+                while (res.getLoadStatus() == KAMLoadStatus.IN_PROCESS) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(
+                                "Interrupted loading " + kam.getName(), e);
+                    }
+                    res = delegate.loadKam(kam);
+                }
+                if (res.getLoadStatus() != KAMLoadStatus.COMPLETE) {
+                    throw new IllegalStateException("Failed to load "
+                            + kam.getName());
+                }
+                remoteKamHandle = res.getHandle();
+            }
+            return remoteKamHandle;
+        }
+
+        private synchronized DialectHandle remoteDialectHandle() {
+            if (remoteDialectHandle == null) {
+                remoteDialectHandle = delegate
+                        .getDefaultDialect(remoteKamHandle());
+            }
+            return remoteDialectHandle;
+        }
+
+        /**
+         * Runs {@code operation} with the Web API handles of the KAM.  If the
+         * Web API rejects them the KAM is loaded again and the operation is
+         * retried once.
+         */
+        private <T> T forward(final RemoteOperation<T> operation) {
+            DialectHandle dialectHandle = remoteDialectHandle();
+            try {
+                return operation.execute(remoteKamHandle(), dialectHandle);
+            } catch (WebServiceException e) {
+                if (!Faults.isInvalidHandle(e)) {
+                    throw e;
+                }
+                log.info("Web API unloaded " + kam.getName()
+                        + ", loading it again");
+                release(dialectHandle);
+            }
+
+            dialectHandle = remoteDialectHandle();
+            return operation.execute(remoteKamHandle(), dialectHandle);
+        }
+
+        /**
+         * Drops the Web API handles so the next request loads the KAM again.
+         * Nothing happens if another request already did so.
+         */
+        private synchronized void release(final DialectHandle dialectHandle) {
+            if (remoteDialectHandle == dialectHandle) {
+                remoteKamHandle = null;
+                remoteDialectHandle = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+
+import javax.xml.bind.JAXBException;
+
+import org.openbel.cytoscape.webservice.TrafficRecording.Record;
+import org.openbel.framework.ws.model.WebAPI;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link TrafficRecorder} records every Web API request made by the plugin,
+ * with its response and timing, to a recording that a
+ * {@link ReplayKamService} can later serve.
+ *
+ * <p>
+ * Recording is off until {@link #start(File)} is called, or until the
+ * plugin starts with the {@value #RECORD_PROPERTY} system property naming a
+ * recording file.  Requests are
+ * recorded below the caches, so a recording holds what was actually sent
+ * to the Web API.
+ * </p>
+ */
+public class TrafficRecorder {
+    public static final String RECORD_PROPERTY = "belframework.record";
+    public static final String EXTENSION = "belrec";
+    private static final CyLogger log = CyLogger
+            .getLogger(TrafficRecorder.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static TrafficRecorder instance;
+
+    private volatile TrafficRecording.Writer writer;
+    private File file;
+
+    public static synchronized TrafficRecorder getInstance() {
+        if (instance == null) {
+            instance = new TrafficRecorder();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Starts recording to {@code file}, appending if it is already a
+     * recording.  A recording in progress is stopped first.
+     *
+     * @param file the recording {@link File file}
+     * @throws IOException Thrown if the file cannot be opened for appending
+     */
+    public synchronized void start(final File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file is null");
+        }
+        stop();
+        this.writer = new TrafficRecording.Writer(file);
+        this.file = file;
+        log.info("Recording Web API traffic to " + file);
+    }
+
+    /**
+     * Stops recording.  Does nothing if not recording.
+     */
+    public synchronized void stop() {
+        final TrafficRecording.Writer w = writer;
+        if (w == null) {
+            return;
+        }
+        writer = null;
+        try {
+            w.close();
+        } catch (IOException e) {
+            log.warn("Error closing recording " + file, e);
+        }
+        log.info("Stopped recording Web API traffic to " + file);
+    }
+
+    public boolean isRecording() {
+        return writer != null;
+    }
+
+    /**
+     * Returns the file being recorded to.
+     *
+     * @return the recording {@link File file}, or {@code null} if not
+     * recording
+     */
+    public synchronized File getFile() {
+        return writer == null ? null : file;
+    }
+
+    /**
+     * Returns a {@link WebAPI} that calls {@code webAPI} and records each
+     * call while recording is on.
+     *
+     * @param webAPI the {@link WebAPI} to record, can be {@code null}
+     * @return the recording {@link WebAPI}, or {@code null} if
+     * {@code webAPI} is {@code null}
+     */
+    WebAPI wrap(final WebAPI webAPI) {
+        if (webAPI == null) {
+            return null;
+        }
+        return (WebAPI) Proxy.newProxyInstance(WebAPI.class.getClassLoader(),
+                new Class<?>[] { WebAPI.class }, new RecordingHandler(webAPI));
+    }
+
+    private void record(final Method method, final Object request,
+            final long startedAt, final long nanos, final Object response,
+            final Throwable failure) {
+        final TrafficRecording.Writer w = writer;
+        if (w == null) {
+            return;
+        }
+
+        try {
+            final byte[] req = TrafficRecording.marshal(request,
+                    method.getParameterTypes()[0]);
+            final byte[] res;
+            if (failure == null) {
+                res = TrafficRecording.marshal(response,
+                        method.getReturnType());
+            } else {
+                res = String.valueOf(failure.getMessage()).getBytes(UTF8);
+            }
+            w.append(new Record(method.getName(), startedAt, nanos,
+                    failure != null, req, res));
+        } catch (JAXBException e) {
+            log.warn("Unable to record " + method.getName(), e);
+        } catch (IOException e) {
+            log.warn("Error writing recording " + file
+                    + ", recording stopped", e);
+            stop();
+        }
+    }
+
+    /**
+     * Invokes each {@link WebAPI} operation and records it.
+     */
+    private final class RecordingHandler implements InvocationHandler {
+        private final WebAPI webAPI;
+
+        private RecordingHandler(final WebAPI webAPI) {
+            this.webAPI = webAPI;
+        }
+
+        @Override
+        public Object invoke(final Object p, final Method method,
+                final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            if (writer == null) {
+                try {
+                    return method.invoke(webAPI, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            final long startedAt = System.currentTimeMillis();
+            final long start = System.nanoTime();
+            try {
+                final Object ret = method.invoke(webAPI, args);
+                record(method, args[0], startedAt, System.nanoTime() - start,
+                        ret, null);
+                return ret;
+            } catch (InvocationTargetException e) {
+                record(method, args[0], startedAt, System.nanoTime() - start,
+                        null, e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+
+    private TrafficRecorder() {
+        // singleton. use get instance
+    }
+}
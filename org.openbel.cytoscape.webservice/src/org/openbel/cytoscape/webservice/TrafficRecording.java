@@ -0,0 +1,298 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openbel.framework.ws.model.ObjectFactory;
+
+/**
+ * {@link TrafficRecording} reads and writes recordings of Web API traffic.
+ *
+ * <p>
+ * A recording starts with a header and is followed by one record per
+ * request, each written as its lengths and the deflated record, so records are
+ * only ever appended and a recording cut short by a crash can still be read
+ * up to its last complete record.  A record holds the {@link WebAPI}
+ * operation, when it started, how long it took, whether it failed, and the
+ * request and the response (or failure message) marshalled as XML.
+ * </p>
+ */
+final class TrafficRecording {
+    private static final int MAGIC = 0x42454c52;
+    private static final int VERSION = 1;
+    private static final String NAMESPACE =
+            "http://belframework.org/ws/schemas";
+    private static JAXBContext context;
+
+    /**
+     * A recorded request.
+     */
+    static final class Record {
+        final String operation;
+        final long startedAt;
+        final long nanos;
+        final boolean failed;
+        final byte[] request;
+        final byte[] response;
+
+        Record(final String operation, final long startedAt,
+                final long nanos, final boolean failed, final byte[] request,
+                final byte[] response) {
+            this.operation = operation;
+            this.startedAt = startedAt;
+            this.nanos = nanos;
+            this.failed = failed;
+            this.request = request;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Appends {@link Record records} to a recording.
+     */
+    static final class Writer {
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater();
+
+        /**
+         * Opens {@code file} for appending, writing the header if the file
+         * is new or empty.  A record left incomplete by an earlier crash is
+         * cut off first.
+         *
+         * @throws IOException Thrown if the file is not a recording or cannot
+         * be opened
+         */
+        Writer(final File file) throws IOException {
+            final boolean empty = !file.exists() || file.length() == 0;
+            if (!empty) {
+                truncateIncomplete(file);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file, true)));
+            if (empty) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.flush();
+            }
+        }
+
+        /**
+         * Appends a record and flushes it to disk.
+         */
+        synchronized void append(final Record record) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream data = new DataOutputStream(bytes);
+            data.writeUTF(record.operation);
+            data.writeLong(record.startedAt);
+            data.writeLong(record.nanos);
+            data.writeBoolean(record.failed);
+            data.writeInt(record.request.length);
+            data.write(record.request);
+            data.writeInt(record.response.length);
+            data.write(record.response);
+            data.close();
+
+            final byte[] raw = bytes.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            final ByteArrayOutputStream deflated = new ByteArrayOutputStream(
+                    raw.length / 4 + 64);
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                deflated.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            out.writeInt(raw.length);
+            out.writeInt(deflated.size());
+            deflated.writeTo(out);
+            out.flush();
+        }
+
+        synchronized void close() throws IOException {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Reads every complete {@link Record record} of a recording.
+     *
+     * @param file the recording {@link File file}
+     * @return the {@link Record records} in the order they were written
+     * @throws IOException Thrown if the file is not a recording or cannot be
+     * read
+     */
+    static List<Record> read(final File file) throws IOException {
+        final List<Record> ret = new ArrayList<Record>();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        final Inflater inflater = new Inflater();
+        try {
+            checkHeader(in);
+            while (true) {
+                final byte[] raw;
+                try {
+                    raw = new byte[in.readInt()];
+                    final byte[] deflated = new byte[in.readInt()];
+                    in.readFully(deflated);
+                    inflater.reset();
+                    inflater.setInput(deflated);
+                    if (inflater.inflate(raw) != raw.length) {
+                        throw new IOException("Corrupt record in " + file);
+                    }
+                } catch (EOFException e) {
+                    // end of the recording, or a record cut short
+                    break;
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupt record in " + file, e);
+                }
+
+                final DataInputStream data = new DataInputStream(
+                        new ByteArrayInputStream(raw));
+                final String operation = data.readUTF();
+                final long startedAt = data.readLong();
+                final long nanos = data.readLong();
+                final boolean failed = data.readBoolean();
+                final byte[] request = new byte[data.readInt()];
+                data.readFully(request);
+                final byte[] response = new byte[data.readInt()];
+                data.readFully(response);
+                ret.add(new Record(operation, startedAt, nanos, failed,
+                        request, response));
+            }
+        } finally {
+            inflater.end();
+            in.close();
+        }
+        return ret;
+    }
+
+    /**
+     * Marshals a Web API request or response to XML.
+     *
+     * @param value the model object
+     * @param type the declared type of the object
+     * @return the XML bytes
+     * @throws JAXBException Thrown if the object cannot be marshalled
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    static byte[] marshal(final Object value, final Class<?> type)
+            throws JAXBException {
+        final Marshaller m = context().createMarshaller();
+        m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        m.marshal(new JAXBElement(new QName(NAMESPACE, type.getSimpleName()),
+                type, value), out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Unmarshals XML written by {@link #marshal(Object, Class)}.
+     *
+     * @param xml the XML bytes
+     * @param type the declared type of the object
+     * @return the model object
+     * @throws JAXBException Thrown if the XML cannot be unmarshalled
+     */
+    static <T> T unmarshal(final byte[] xml, final Class<T> type)
+            throws JAXBException {
+        return context().createUnmarshaller().unmarshal(
+                new StreamSource(new ByteArrayInputStream(xml)), type)
+                .getValue();
+    }
+
+    private static synchronized JAXBContext context() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(ObjectFactory.class);
+        }
+        return context;
+    }
+
+    /**
+     * Cuts {@code file} after its last complete record.
+     */
+    private static void truncateIncomplete(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final long length = raf.length();
+            if (length < 8 || raf.readInt() != MAGIC
+                    || raf.readInt() != VERSION) {
+                throw new IOException("Not a Web API recording");
+            }
+            long end = raf.getFilePointer();
+            while (end + 8 <= length) {
+                raf.seek(end + 4);
+                final long next = end + 8 + raf.readInt();
+                if (next > length) {
+                    break;
+                }
+                end = next;
+            }
+            raf.setLength(end);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void checkHeader(final DataInputStream in)
+            throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Web API recording");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported recording version "
+                        + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a Web API recording", e);
+        }
+    }
+
+    private TrafficRecording() {
+        // static utility
+    }
+}
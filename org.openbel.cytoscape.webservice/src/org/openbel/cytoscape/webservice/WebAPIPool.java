@@ -0,0 +1,272 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import org.openbel.framework.ws.model.WebAPI;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link WebAPIPool} holds a bounded pool of {@link WebAPI Web API} client
+ * stubs.  JAX-WS proxies are not guaranteed to be thread-safe and share their
+ * request context, so each concurrent request borrows a stub of its own and
+ * returns it once the request completes.
+ *
+ * <p>
+ * Stubs are created lazily up to the pool size.  A stub whose requests fail
+ * at the transport level {@value #MAX_FAILURES} times in a row is discarded
+ * and replaced by a fresh one on demand.  SOAP faults are reported by the
+ * server and do not count against the stub.  Both outcomes are reported to
+ * the connector's {@link CircuitBreaker}.
+ * </p>
+ */
+final class WebAPIPool {
+    private static final CyLogger log = CyLogger.getLogger(WebAPIPool.class);
+    static final int MAX_FAILURES = 2;
+
+    private final ClientConnector connector;
+    private final int size;
+    private final long waitMillis;
+    private final LinkedBlockingQueue<PooledStub> idle =
+            new LinkedBlockingQueue<PooledStub>();
+    private final WebAPI proxy;
+    private int created;
+    private long borrows;
+    private long discarded;
+    private boolean closed;
+
+    /**
+     * Constructs the pool.
+     *
+     * @param connector the {@link ClientConnector} that creates stubs
+     * @param size the maximum number of stubs, must be positive
+     * @param waitMillis how long to wait for a stub when all are in use
+     */
+    WebAPIPool(final ClientConnector connector, final int size,
+            final long waitMillis) {
+        if (connector == null) {
+            throw new IllegalArgumentException("connector is null");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("size is not positive");
+        }
+        this.connector = connector;
+        this.size = size;
+        this.waitMillis = waitMillis;
+        this.proxy = (WebAPI) Proxy.newProxyInstance(
+                WebAPI.class.getClassLoader(), new Class<?>[] { WebAPI.class },
+                new BorrowingHandler());
+    }
+
+    /**
+     * Returns a {@link WebAPI} that borrows a pooled stub for each request,
+     * so it can be shared by any number of threads.
+     *
+     * @return the pooled {@link WebAPI}
+     */
+    WebAPI getWebAPI() {
+        return proxy;
+    }
+
+    /**
+     * Borrows a stub, creating one if the pool has not reached its size and
+     * otherwise waiting for one to be returned.
+     *
+     * @return the borrowed stub
+     * @throws WebServiceException Thrown if no stub became available in time
+     * or the pool is closed
+     */
+    PooledStub borrow() {
+        PooledStub stub = idle.poll();
+        if (stub == null) {
+            stub = create();
+        }
+        if (stub == null) {
+            try {
+                stub = idle.poll(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WebServiceException(
+                        "Interrupted waiting for a Web API client", e);
+            }
+        }
+        if (stub == null) {
+            throw new WebServiceException("No Web API client available after "
+                    + waitMillis + " ms");
+        }
+
+        synchronized (this) {
+            borrows++;
+        }
+        return stub;
+    }
+
+    /**
+     * Returns a borrowed stub.  Stubs that have failed too often, or that
+     * are returned after the pool was closed, are discarded.
+     *
+     * @param stub the borrowed stub
+     * @param failed {@code true} if the request failed at the transport level
+     */
+    void release(final PooledStub stub, final boolean failed) {
+        if (failed) {
+            stub.failures++;
+        } else {
+            stub.failures = 0;
+        }
+
+        synchronized (this) {
+            if (closed || stub.failures >= MAX_FAILURES) {
+                created--;
+                discarded++;
+                if (!closed) {
+                    log.warn("Discarding failing Web API client after "
+                            + stub.failures + " failures");
+                }
+                return;
+            }
+        }
+        idle.offer(stub);
+    }
+
+    /**
+     * Closes the pool, stubs are no longer handed out and borrowed stubs are
+     * discarded when returned.
+     */
+    synchronized void close() {
+        closed = true;
+        created -= idle.size();
+        idle.clear();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized int created() {
+        return created;
+    }
+
+    int idle() {
+        return idle.size();
+    }
+
+    synchronized long borrows() {
+        return borrows;
+    }
+
+    synchronized long discarded() {
+        return discarded;
+    }
+
+    private PooledStub create() {
+        synchronized (this) {
+            if (closed) {
+                throw new WebServiceException("Web API client pool is closed");
+            }
+            if (created >= size) {
+                return null;
+            }
+            created++;
+        }
+
+        try {
+            return new PooledStub(connector.createStub());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                created--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A pooled stub and its health.
+     */
+    static final class PooledStub {
+        private final WebAPI stub;
+        // consecutive transport failures, only touched by the borrower
+        private int failures;
+
+        private PooledStub(final WebAPI stub) {
+            this.stub = stub;
+        }
+
+        WebAPI getStub() {
+            return stub;
+        }
+    }
+
+    /**
+     * Invokes each {@link WebAPI} operation on a borrowed stub.
+     */
+    private final class BorrowingHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(final Object p, final Method method,
+                final Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+
+            final CircuitBreaker breaker = connector.getCircuitBreaker();
+            PooledStub stub = null;
+            boolean recorded = false;
+            boolean failed = false;
+            try {
+                stub = borrow();
+                final Object ret = method.invoke(stub.getStub(), args);
+                breaker.success();
+                recorded = true;
+                return ret;
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                failed = cause instanceof WebServiceException
+                        && !(cause instanceof SOAPFaultException);
+                if (failed) {
+                    breaker.failure();
+                } else {
+                    // a fault means the server answered
+                    breaker.success();
+                }
+                recorded = true;
+                throw cause;
+            } finally {
+                if (!recorded) {
+                    // the request never reached the server
+                    breaker.trialAborted();
+                }
+                if (stub != null) {
+                    release(stub, failed);
+                }
+            }
+        }
+    }
+}
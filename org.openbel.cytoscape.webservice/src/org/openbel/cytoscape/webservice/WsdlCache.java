@@ -0,0 +1,321 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import cytoscape.CytoscapeInit;
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link WsdlCache} keeps local copies of the Web API WSDL and the schemas it
+ * imports under the Cytoscape configuration directory, one directory per
+ * {@link Configuration#getWSDLURL() WSDL URL}.
+ *
+ * <p>
+ * Each document is revalidated with a conditional request, so an unchanged
+ * WSDL is not downloaded again.  Import locations in the local copies are
+ * rewritten to the local files, which lets the JAX-WS runtime build the
+ * service without fetching anything.  If the server cannot be reached the
+ * cached copies are used as they are.
+ * </p>
+ */
+final class WsdlCache {
+    private static final CyLogger log = CyLogger.getLogger(WsdlCache.class);
+    private static final String DIRECTORY = "wsdl-cache";
+    private static final String INDEX = "index.properties";
+    private static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+    private static final String WSDL_NS = "http://schemas.xmlsoap.org/wsdl/";
+    private static final String FILE = ".file";
+    private static final String ETAG = ".etag";
+    private static final String LAST_MODIFIED = ".lastModified";
+
+    /**
+     * Returns a local copy of the WSDL at {@code wsdlUrl}, revalidating it
+     * and its imported schemas first.  WSDL URLs that are not served over
+     * HTTP are returned as they are.
+     *
+     * @param wsdlUrl the WSDL URL
+     * @return the {@link URL} of the local copy
+     * @throws IOException Thrown if the WSDL is neither reachable nor cached
+     */
+    static synchronized URL resolve(final String wsdlUrl) throws IOException {
+        final URL url = new URL(wsdlUrl);
+        if (!isHttp(url)) {
+            return url;
+        }
+
+        final File dir = new File(new File(CytoscapeInit.getConfigDirectory(),
+                DIRECTORY), Digests.sha1(wsdlUrl));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        final Properties index = new Properties();
+        final File indexFile = new File(dir, INDEX);
+        if (indexFile.exists()) {
+            final InputStream in = new FileInputStream(indexFile);
+            try {
+                index.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        final String name = cache(url, dir, index,
+                new HashMap<String, String>());
+
+        final OutputStream out = new FileOutputStream(indexFile);
+        try {
+            index.store(out, wsdlUrl);
+        } finally {
+            out.close();
+        }
+        return new File(dir, name).toURI().toURL();
+    }
+
+    /**
+     * Revalidates the document at {@code url} and the documents it imports.
+     *
+     * @return the name of the rewritten local copy
+     */
+    private static String cache(final URL url, final File dir,
+            final Properties index, final Map<String, String> visited)
+            throws IOException {
+        final String key = url.toExternalForm();
+        final String cached = visited.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String name = index.getProperty(key + FILE);
+        if (name == null) {
+            name = "doc" + countDocuments(index) + ".xml";
+            index.setProperty(key + FILE, name);
+        }
+        visited.put(key, name);
+
+        // the document as served, kept to rewrite imports again later
+        final File raw = new File(dir, name + ".orig");
+        byte[] body;
+        try {
+            body = download(url, index, key, raw.exists());
+        } catch (IOException e) {
+            if (!raw.exists()) {
+                throw e;
+            }
+            log.warn("Unable to revalidate " + url + ", using cached copy");
+            body = null;
+        }
+        if (body != null) {
+            write(raw, body);
+        } else {
+            body = read(raw);
+        }
+
+        final Document doc = parse(body);
+        rewrite(doc, url, XSD_NS, "import", "schemaLocation", dir, index,
+                visited);
+        rewrite(doc, url, XSD_NS, "include", "schemaLocation", dir, index,
+                visited);
+        rewrite(doc, url, WSDL_NS, "import", "location", dir, index, visited);
+
+        final OutputStream out = new FileOutputStream(new File(dir, name));
+        try {
+            TransformerFactory.newInstance().newTransformer()
+                    .transform(new DOMSource(doc), new StreamResult(out));
+        } catch (TransformerException e) {
+            throw new IOException("Unable to write " + name, e);
+        } finally {
+            out.close();
+        }
+        return name;
+    }
+
+    /**
+     * Caches each document referenced by the {@code attribute} of
+     * {@code ns:localName} elements and points the attribute at the local
+     * copy.
+     */
+    private static void rewrite(final Document doc, final URL base,
+            final String ns, final String localName, final String attribute,
+            final File dir, final Properties index,
+            final Map<String, String> visited) throws IOException {
+        final NodeList elements = doc.getElementsByTagNameNS(ns, localName);
+        for (int i = 0; i < elements.getLength(); i++) {
+            final Element e = (Element) elements.item(i);
+            final String location = e.getAttribute(attribute);
+            if (location.length() == 0) {
+                continue;
+            }
+
+            final URL url = new URL(base, location);
+            if (isHttp(url)) {
+                e.setAttribute(attribute, cache(url, dir, index, visited));
+            }
+        }
+    }
+
+    /**
+     * Fetches {@code url}, conditionally if a cached copy exists, and
+     * records the validators of a fetched document in {@code index}.
+     *
+     * @return the document, or {@code null} if the cached copy is current
+     */
+    private static byte[] download(final URL url, final Properties index,
+            final String key, final boolean conditional) throws IOException {
+        final int timeout = Configuration.getInstance().getTimeout() * 1000;
+        final HttpURLConnection conn = (HttpURLConnection) url
+                .openConnection();
+        try {
+            conn.setConnectTimeout(timeout);
+            conn.setReadTimeout(timeout);
+            if (conditional) {
+                final String etag = index.getProperty(key + ETAG);
+                if (etag != null) {
+                    conn.setRequestProperty("If-None-Match", etag);
+                }
+                final String modified = index.getProperty(key + LAST_MODIFIED);
+                if (modified != null) {
+                    conn.setIfModifiedSince(Long.parseLong(modified));
+                }
+            }
+
+            final int code = conn.getResponseCode();
+            if (conditional && code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return null;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " fetching " + url);
+            }
+
+            final InputStream in = conn.getInputStream();
+            final byte[] body;
+            try {
+                body = readFully(in);
+            } finally {
+                in.close();
+            }
+
+            setOrRemove(index, key + ETAG, conn.getHeaderField("ETag"));
+            final long lastModified = conn.getLastModified();
+            setOrRemove(index, key + LAST_MODIFIED, lastModified == 0 ? null
+                    : String.valueOf(lastModified));
+            return body;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static Document parse(final byte[] body) throws IOException {
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        try {
+            return dbf.newDocumentBuilder().parse(
+                    new ByteArrayInputStream(body));
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Unable to parse WSDL", e);
+        } catch (SAXException e) {
+            throw new IOException("Unable to parse WSDL", e);
+        }
+    }
+
+    private static int countDocuments(final Properties index) {
+        int count = 0;
+        for (final Object key : index.keySet()) {
+            if (((String) key).endsWith(FILE)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void setOrRemove(final Properties index, final String key,
+            final String value) {
+        if (value == null) {
+            index.remove(key);
+        } else {
+            index.setProperty(key, value);
+        }
+    }
+
+    private static boolean isHttp(final URL url) {
+        final String protocol = url.getProtocol();
+        return "http".equalsIgnoreCase(protocol)
+                || "https".equalsIgnoreCase(protocol);
+    }
+
+    private static byte[] read(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(final File file, final byte[] bytes)
+            throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private WsdlCache() {
+        // prevent instantiation
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice.dialog;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.openbel.cytoscape.webservice.KamServiceMetrics;
+import org.openbel.cytoscape.webservice.KamServiceMetrics.OperationMetrics;
+
+/**
+ * {@link MetricsPanel} shows the {@link KamServiceMetrics metrics} of the
+ * requests sent to the BELFramework Web API.  The table is refreshed every
+ * {@value #REFRESH_MILLIS} ms while the panel is showing.
+ */
+public class MetricsPanel extends JPanel implements ActionListener {
+    private static final long serialVersionUID = -1803419566013829517L;
+    public static final String TITLE = "BELFramework Metrics";
+    private static final int REFRESH_MILLIS = 2000;
+
+    private final MetricsTableModel model = new MetricsTableModel();
+    private final JButton resetBtn = new JButton("Reset");
+    private final Timer refresh = new Timer(REFRESH_MILLIS, this);
+
+    public MetricsPanel() {
+        super(new BorderLayout());
+        setName(TITLE);
+
+        final JTable table = new JTable(model);
+        table.setShowGrid(true);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        final JPanel bp = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        resetBtn.addActionListener(this);
+        bp.add(resetBtn);
+        add(bp, BorderLayout.SOUTH);
+
+        refresh.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Refreshes the table, or resets the metrics when the reset button is
+     * pressed.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == resetBtn) {
+            KamServiceMetrics.getInstance().reset();
+        } else if (!isShowing()) {
+            return;
+        }
+        model.setMetrics(KamServiceMetrics.getInstance().getMetrics());
+    }
+
+    /**
+     * The {@link AbstractTableModel table model} for the metrics, one row per
+     * operation and KAM.
+     */
+    private static final class MetricsTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 4617096270546932357L;
+        private final String[] headers = new String[] { "Operation", "KAM",
+                "Calls", "Errors", "p50 (ms)", "p95 (ms)", "p99 (ms)",
+                "Max (ms)", "Mean Items", "Mean Bytes" };
+        private List<OperationMetrics> metrics =
+                new ArrayList<OperationMetrics>();
+
+        private void setMetrics(final List<OperationMetrics> metrics) {
+            this.metrics = metrics;
+            fireTableDataChanged();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getColumnCount() {
+            return headers.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getColumnName(int column) {
+            return headers[column];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+            case 0:
+            case 1:
+                return String.class;
+            case 2:
+            case 3:
+                return Long.class;
+            default:
+                return Double.class;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getRowCount() {
+            return metrics.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object getValueAt(int row, int column) {
+            final OperationMetrics m = metrics.get(row);
+            switch (column) {
+            case 0:
+                return m.getOperation();
+            case 1:
+                return m.getKam();
+            case 2:
+                return m.getCalls();
+            case 3:
+                return m.getErrors();
+            case 4:
+                return round(m.getP50Millis());
+            case 5:
+                return round(m.getP95Millis());
+            case 6:
+                return round(m.getP99Millis());
+            case 7:
+                return round(m.getMaxMillis());
+            case 8:
+                return round(m.getMeanItems());
+            case 9:
+                return (double) Math.round(m.getMeanBytes());
+            default:
+                return null;
+            }
+        }
+
+        private static double round(final double d) {
+            return Math.round(d * 10) / 10.0;
+        }
+    }
+}
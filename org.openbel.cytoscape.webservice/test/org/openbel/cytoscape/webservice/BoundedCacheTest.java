@@ -0,0 +1,114 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests the eviction of {@link BoundedCache}.
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsedEntryBeyondMaxEntries() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(2, 100);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+        // touch a so b becomes the least recently used
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C", 1);
+
+        assertEquals(2, cache.size());
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void evictsUntilWithinMaxWeight() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(10, 10);
+        cache.put("a", "A", 4);
+        cache.put("b", "B", 4);
+        cache.put("c", "C", 4);
+
+        assertEquals(8, cache.weight());
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void doesNotStoreValueHeavierThanCache() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(10, 10);
+        cache.put("a", "A", 1);
+        cache.put("a", "heavy", 11);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    public void replacingEntryReplacesItsWeight() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(10, 10);
+        cache.put("a", "A", 3);
+        cache.put("a", "A2", 5);
+
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.weight());
+        assertEquals("A2", cache.get("a"));
+    }
+
+    @Test
+    public void shrinkingEvicts() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(10, 100);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+        cache.put("c", "C", 1);
+        cache.resize(1, 100);
+
+        assertEquals(1, cache.size());
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        final BoundedCache<String, String> cache =
+                new BoundedCache<String, String>(10, 100);
+        cache.put("a", "A", 1);
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxEntries() {
+        new BoundedCache<String, String>(0, 100);
+    }
+}
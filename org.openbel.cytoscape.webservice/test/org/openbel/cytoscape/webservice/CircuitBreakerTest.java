@@ -0,0 +1,170 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openbel.cytoscape.webservice.CircuitBreaker.State;
+import org.openbel.framework.ws.model.GetCatalogRequest;
+
+/**
+ * Tests the state transitions of {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+    private long time;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        time = 0;
+        breaker = new CircuitBreaker() {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    @Test
+    public void staysClosedBelowThreshold() {
+        for (int i = 1; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.failure();
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquire());
+
+        breaker.success();
+        breaker.failure();
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensAtThresholdAndFailsFast() {
+        open();
+        assertUnavailable();
+
+        time = CircuitBreaker.INITIAL_BACKOFF - 1;
+        assertUnavailable();
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        open();
+        time = CircuitBreaker.INITIAL_BACKOFF;
+        assertTrue(breaker.acquire());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        // only one trial at a time
+        assertUnavailable();
+
+        breaker.success();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquire());
+    }
+
+    @Test
+    public void failedTrialReopensWithLongerBackoff() {
+        open();
+        time = CircuitBreaker.INITIAL_BACKOFF;
+        assertTrue(breaker.acquire());
+
+        breaker.failure();
+        assertEquals(State.OPEN, breaker.getState());
+        time += 2 * CircuitBreaker.INITIAL_BACKOFF - 1;
+        assertUnavailable();
+        time++;
+        assertTrue(breaker.acquire());
+    }
+
+    @Test
+    public void abortedTrialReopensWithSameBackoff() {
+        open();
+        time = CircuitBreaker.INITIAL_BACKOFF;
+        assertTrue(breaker.acquire());
+
+        breaker.trialAborted();
+        assertEquals(State.OPEN, breaker.getState());
+        time += CircuitBreaker.INITIAL_BACKOFF;
+        assertTrue(breaker.acquire());
+    }
+
+    @Test
+    public void abortIsIgnoredUnlessHalfOpen() {
+        breaker.trialAborted();
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void tripOpensAtOnce() {
+        breaker.trip();
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        for (int i = 0; i < 20; i++) {
+            breaker.trip();
+        }
+        time = CircuitBreaker.MAX_BACKOFF;
+        assertTrue(breaker.acquire());
+    }
+
+    @Test
+    public void pooledTrialFailingBeforeServerReleasesBreaker()
+            throws InterruptedException {
+        final ClientConnector connector = ClientConnector.getInstance();
+        final CircuitBreaker shared = connector.getCircuitBreaker();
+        shared.success();
+        shared.trip();
+        Thread.sleep(CircuitBreaker.INITIAL_BACKOFF);
+        assertTrue(shared.acquire());
+
+        // the connector is not configured so creating a stub fails
+        final WebAPIPool pool = new WebAPIPool(connector, 1, 10);
+        try {
+            pool.getWebAPI().getCatalog(new GetCatalogRequest());
+            fail("expected the stub creation to fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(State.OPEN, shared.getState());
+        assertEquals(0, pool.created());
+    }
+
+    private void open() {
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.failure();
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    private void assertUnavailable() {
+        try {
+            breaker.acquire();
+            fail("expected the breaker to fail fast");
+        } catch (ServiceUnavailableException e) {
+            // expected
+        }
+    }
+}
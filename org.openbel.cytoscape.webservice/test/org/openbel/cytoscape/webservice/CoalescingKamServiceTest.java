@@ -0,0 +1,164 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.KamNode;
+
+/**
+ * Tests that {@link CoalescingKamService} shares concurrent identical
+ * requests.
+ */
+public class CoalescingKamServiceTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile RuntimeException failure;
+
+    @Test
+    public void concurrentIdenticalRequestsShareOneCall() throws Exception {
+        final KamService service = new CoalescingKamService(
+                blockingDelegate());
+        final Request first = new Request(service, "n1");
+        final Request second = new Request(service, "n1");
+        first.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        second.start();
+        awaitWaiting(second);
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(1, calls.get());
+        assertEquals("n1", first.terms.get(0).getId());
+        assertEquals(first.terms.get(0).getId(), second.terms.get(0).getId());
+        // each caller gets its own copy
+        assertNotSame(first.terms, second.terms);
+    }
+
+    @Test
+    public void concurrentCallersShareFailure() throws Exception {
+        failure = new IllegalStateException("down");
+        final KamService service = new CoalescingKamService(
+                blockingDelegate());
+        final Request first = new Request(service, "n1");
+        final Request second = new Request(service, "n1");
+        first.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        second.start();
+        awaitWaiting(second);
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(1, calls.get());
+        assertSame(failure, first.error);
+        assertSame(failure, second.error);
+    }
+
+    @Test
+    public void completedRequestsAreNotKept() {
+        release.countDown();
+        final KamService service = new CoalescingKamService(
+                blockingDelegate());
+        service.getSupportingTerms(node("n1"));
+        service.getSupportingTerms(node("n1"));
+        service.getSupportingTerms(node("n2"));
+
+        assertEquals(3, calls.get());
+    }
+
+    private KamService blockingDelegate() {
+        return (KamService) Proxy.newProxyInstance(
+                KamService.class.getClassLoader(),
+                new Class<?>[] { KamService.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy,
+                            final Method method, final Object[] args)
+                            throws Throwable {
+                        if (!method.getName().equals("getSupportingTerms")) {
+                            throw new UnsupportedOperationException();
+                        }
+                        calls.incrementAndGet();
+                        entered.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        if (failure != null) {
+                            throw failure;
+                        }
+                        final BelTerm term = new BelTerm();
+                        term.setId(((KamNode) args[0]).getId());
+                        final List<BelTerm> terms = new ArrayList<BelTerm>();
+                        terms.add(term);
+                        return terms;
+                    }
+                });
+    }
+
+    private static void awaitWaiting(final Thread thread)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static KamNode node(final String id) {
+        final KamNode node = new KamNode();
+        node.setId(id);
+        return node;
+    }
+
+    private static final class Request extends Thread {
+        private final KamService service;
+        private final String id;
+        private List<BelTerm> terms;
+        private RuntimeException error;
+
+        private Request(final KamService service, final String id) {
+            this.service = service;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            try {
+                terms = service.getSupportingTerms(node(id));
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.openbel.cytoscape.webservice.KamFuture.Continuation;
+
+/**
+ * Tests composition, timeouts and cancellation of {@link KamFuture}.
+ */
+public class KamFutureTest {
+
+    @Test
+    public void composeChainsResults() throws Exception {
+        final KamFuture<Integer> first = new KamFuture<Integer>();
+        final KamFuture<String> composed = first.compose(
+                new Continuation<Integer, String>() {
+                    @Override
+                    public KamFuture<String> apply(final Integer result) {
+                        return KamFuture.completed("#" + result);
+                    }
+                });
+        assertFalse(composed.isDone());
+
+        first.complete(7);
+        assertEquals("#7", composed.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void composeWaitsForLaterStage() throws Exception {
+        final KamFuture<String> second = new KamFuture<String>();
+        final KamFuture<String> composed = KamFuture.completed(1).compose(
+                new Continuation<Integer, String>() {
+                    @Override
+                    public KamFuture<String> apply(final Integer result) {
+                        return second;
+                    }
+                });
+        assertFalse(composed.isDone());
+
+        second.complete("done");
+        assertEquals("done", composed.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void composePropagatesFailure() throws Exception {
+        final KamFuture<Integer> first = new KamFuture<Integer>();
+        final KamFuture<String> composed = first.compose(
+                new Continuation<Integer, String>() {
+                    @Override
+                    public KamFuture<String> apply(final Integer result) {
+                        fail("continuation ran after a failure");
+                        return null;
+                    }
+                });
+        final IllegalStateException cause = new IllegalStateException();
+        first.fail(cause);
+
+        try {
+            composed.get(1, TimeUnit.SECONDS);
+            fail("expected the failure to propagate");
+        } catch (ExecutionException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    @Test
+    public void composeFailsWhenContinuationThrows() throws Exception {
+        final IllegalStateException cause = new IllegalStateException();
+        final KamFuture<String> composed = KamFuture.completed(1).compose(
+                new Continuation<Integer, String>() {
+                    @Override
+                    public KamFuture<String> apply(final Integer result) {
+                        throw cause;
+                    }
+                });
+
+        try {
+            composed.get(1, TimeUnit.SECONDS);
+            fail("expected the continuation failure");
+        } catch (ExecutionException e) {
+            assertSame(cause, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancellingCompositionCancelsCurrentStage() {
+        final KamFuture<String> second = new KamFuture<String>();
+        final KamFuture<String> composed = KamFuture.completed(1).compose(
+                new Continuation<Integer, String>() {
+                    @Override
+                    public KamFuture<String> apply(final Integer result) {
+                        return second;
+                    }
+                });
+
+        assertTrue(composed.cancel(true));
+        assertTrue(second.isCancelled());
+        try {
+            composed.get();
+            fail("expected the composition to be cancelled");
+        } catch (CancellationException e) {
+            // expected
+        } catch (Exception e) {
+            fail("unexpected " + e);
+        }
+    }
+
+    @Test
+    public void timeoutFailsPendingFuture() throws Exception {
+        final KamFuture<String> future = new KamFuture<String>();
+        future.timeout(10, TimeUnit.MILLISECONDS);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the future to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertFalse(future.complete("late"));
+    }
+
+    @Test
+    public void timeoutCancelsWork() throws Exception {
+        final KamFuture<String> work = new KamFuture<String>();
+        final KamFuture<String> future = new KamFuture<String>();
+        future.setWork(work);
+        future.timeout(10, TimeUnit.MILLISECONDS);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected the future to time out");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        // the work is cancelled right after the future fails
+        try {
+            work.get(5, TimeUnit.SECONDS);
+            fail("expected the work to be cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void completedFutureIgnoresTimeout() throws Exception {
+        final KamFuture<String> future = new KamFuture<String>();
+        future.timeout(50, TimeUnit.MILLISECONDS);
+        future.complete("ok");
+
+        Thread.sleep(100);
+        assertEquals("ok", future.get());
+    }
+}
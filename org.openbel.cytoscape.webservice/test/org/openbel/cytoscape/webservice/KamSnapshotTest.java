@@ -0,0 +1,211 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.RelationshipType;
+
+/**
+ * Tests writing, reading and resuming {@link KamSnapshot KAM snapshots}.
+ */
+public class KamSnapshotTest {
+    private static final long COMPILED = 1300000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final KamNode a = node("a", "p(HGNC:A)",
+            FunctionType.PROTEIN_ABUNDANCE);
+    private final KamNode b = node("b", "p(HGNC:B)",
+            FunctionType.PROTEIN_ABUNDANCE);
+    private final KamNode c = node("c", "bp(GO:C)",
+            FunctionType.BIOLOGICAL_PROCESS);
+
+    @Test
+    public void roundTrip() throws Exception {
+        final File target = new File(folder.getRoot(), "test.kams");
+        final KamSnapshotWriter writer = KamSnapshotWriter.open(kam(),
+                target);
+        writer.addNodes("nodes", Arrays.asList(a, b));
+        writer.addChunk("chunk", terms(a, "t1", "A"), evidence(
+                edge("ab", a, b), "s1"));
+        writer.addChunk("chunk2", terms(b, "t2", "B"), evidence(
+                edge("bc", b, c), "s2"));
+        final KamSnapshot snapshot = KamSnapshot.open(writer.finish());
+
+        assertFalse(new File(folder.getRoot(), "test.kams.part").exists());
+        assertEquals("test", snapshot.getKam().getName());
+        assertEquals(COMPILED, snapshot.getCompileTime());
+        assertEquals(3, snapshot.nodeCount());
+        assertEquals(2, snapshot.edgeCount());
+
+        final int na = snapshot.findNode("a");
+        final int nb = snapshot.findNode("b");
+        assertEquals("p(HGNC:A)", snapshot.node(na).getLabel());
+        assertEquals(FunctionType.BIOLOGICAL_PROCESS,
+                snapshot.node(snapshot.findNode("c")).getFunction());
+        assertEquals(KamSnapshot.NULL, snapshot.findNode("missing"));
+
+        final List<KamEdge> out = snapshot.adjacent(nb,
+                EdgeDirectionType.FORWARD, null);
+        assertEquals(1, out.size());
+        assertEquals("bc", out.get(0).getId());
+        assertEquals(2, snapshot.adjacent(nb, EdgeDirectionType.BOTH, null)
+                .size());
+
+        final int ab = snapshot.findEdge("ab");
+        assertEquals(na, snapshot.source(ab));
+        assertEquals(nb, snapshot.target(ab));
+        assertEquals("A", snapshot.terms(na).get(0).getLabel());
+        final BelStatement stmt = snapshot.statements(ab).get(0);
+        assertEquals("s1", stmt.getId());
+        assertEquals("A", stmt.getSubjectTerm().getLabel());
+        assertEquals(RelationshipType.INCREASES, stmt.getRelationship());
+    }
+
+    @Test
+    public void resumesAfterTruncatedJournal() throws Exception {
+        final File target = new File(folder.getRoot(), "test.kams");
+        final KamSnapshotWriter first = KamSnapshotWriter.open(kam(), target);
+        first.addNodes("nodes", Arrays.asList(a, b));
+        first.addChunk("chunk", terms(a, "t1", "A"), evidence(
+                edge("ab", a, b), "s1"));
+        first.close();
+
+        // an interrupted step: spooled bytes and a torn journal line
+        final File work = new File(folder.getRoot(), "test.kams.part");
+        append(new File(work, "nodes"), new byte[7]);
+        append(new File(work, "strings"), new byte[3]);
+        final FileWriter journal = new FileWriter(new File(work, "journal"),
+                true);
+        journal.write("chunk2 12");
+        journal.close();
+
+        final KamSnapshotWriter second = KamSnapshotWriter.open(kam(), target);
+        assertTrue(second.isDone("nodes"));
+        assertTrue(second.isDone("chunk"));
+        assertFalse(second.isDone("chunk2"));
+        assertEquals(2, second.nodeCount());
+        assertEquals("b", second.getNodes(1, 2).get(0).getId());
+
+        second.addChunk("chunk2", terms(b, "t2", "B"), evidence(
+                edge("bc", b, c), "s2"));
+        final KamSnapshot snapshot = KamSnapshot.open(second.finish());
+
+        assertEquals(3, snapshot.nodeCount());
+        assertEquals(2, snapshot.edgeCount());
+        assertEquals("s1", snapshot.statements(snapshot.findEdge("ab")).get(0)
+                .getId());
+        assertEquals("B", snapshot.terms(snapshot.findNode("b")).get(0)
+                .getLabel());
+    }
+
+    private static Kam kam() throws Exception {
+        final GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(COMPILED);
+        final Kam kam = new Kam();
+        kam.setId("1");
+        kam.setName("test");
+        kam.setLastCompiled(DatatypeFactory.newInstance()
+                .newXMLGregorianCalendar(cal));
+        return kam;
+    }
+
+    private static KamNode node(final String id, final String label,
+            final FunctionType function) {
+        final KamNode node = new KamNode();
+        node.setId(id);
+        node.setLabel(label);
+        node.setFunction(function);
+        return node;
+    }
+
+    private static KamEdge edge(final String id, final KamNode source,
+            final KamNode target) {
+        final KamEdge edge = new KamEdge();
+        edge.setId(id);
+        edge.setSource(source);
+        edge.setTarget(target);
+        edge.setRelationship(RelationshipType.INCREASES);
+        return edge;
+    }
+
+    private static Map<KamNode, List<BelTerm>> terms(final KamNode node,
+            final String id, final String label) {
+        final BelTerm term = new BelTerm();
+        term.setId(id);
+        term.setLabel(label);
+        final Map<KamNode, List<BelTerm>> ret =
+                new HashMap<KamNode, List<BelTerm>>();
+        ret.put(node, Collections.singletonList(term));
+        return ret;
+    }
+
+    private static Map<KamEdge, List<BelStatement>> evidence(
+            final KamEdge edge, final String id) {
+        final BelTerm subject = new BelTerm();
+        subject.setId(edge.getSource().getId());
+        subject.setLabel(edge.getSource().getId().toUpperCase());
+        final BelStatement stmt = new BelStatement();
+        stmt.setId(id);
+        stmt.setSubjectTerm(subject);
+        stmt.setRelationship(edge.getRelationship());
+        final Map<KamEdge, List<BelStatement>> ret =
+                new HashMap<KamEdge, List<BelStatement>>();
+        ret.put(edge, Collections.singletonList(stmt));
+        return ret;
+    }
+
+    private static void append(final File file, final byte[] bytes)
+            throws IOException {
+        final FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceValue;
+
+/**
+ * Tests the stored values and the matching of {@link NamespaceDictionary}.
+ */
+public class NamespaceDictionaryTest {
+    private static final String LOCATION =
+            "http://resource.belframework.org/namespace/hgnc.belns";
+
+    @Test
+    public void readsFrontCodedValuesAsWritten() throws IOException {
+        final String[] values = { "", "AKT", "AKT1", "AKT1S1", "AKT2", "B",
+                "\u00e9t\u00e9" };
+        final File file = File.createTempFile("values", ".values");
+        try {
+            NamespaceDictionary.writeValues(file, LOCATION, values);
+            assertArrayEquals(values,
+                    NamespaceDictionary.readValues(file, LOCATION));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void refusesValuesOfAnotherLocation() throws IOException {
+        final File file = File.createTempFile("values", ".values");
+        try {
+            NamespaceDictionary.writeValues(file, LOCATION, new String[0]);
+            NamespaceDictionary.readValues(file, LOCATION + ".other");
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void matchesValuesWithIdentifierAsPrefix() {
+        final NamespaceDictionary.Resolution res = match(false, "AKT", "ZZZ");
+
+        assertEquals(Arrays.asList("AKT", "AKT1", "AKT2"),
+                values(res.getValues()));
+        assertEquals(Arrays.asList("ZZZ"), res.getUnmatched());
+    }
+
+    @Test
+    public void exactMatchPrefersTheIdentifier() {
+        final NamespaceDictionary.Resolution res = match(true, "AKT", "AKT3");
+
+        assertEquals(Arrays.asList("AKT"), values(res.getValues()));
+        assertEquals(Arrays.asList("AKT3"), res.getUnmatched());
+    }
+
+    @Test
+    public void exactMatchFallsBackToPrefix() {
+        final NamespaceDictionary.Resolution res = match(true, "AK");
+
+        assertEquals(Arrays.asList("AKT", "AKT1", "AKT2"),
+                values(res.getValues()));
+        assertTrue(res.getUnmatched().isEmpty());
+    }
+
+    private static NamespaceDictionary.Resolution match(
+            final boolean exactMatch, final String... identifiers) {
+        final Namespace namespace = new Namespace();
+        namespace.setResourceLocation(LOCATION);
+        final String[] sorted = { "ABL1", "AKT", "AKT1", "AKT2", "BRAF" };
+        return NamespaceDictionary.match(namespace, sorted,
+                Arrays.asList(identifiers), exactMatch);
+    }
+
+    private static List<String> values(final List<NamespaceValue> values) {
+        final List<String> ret = new ArrayList<String>();
+        for (final NamespaceValue value : values) {
+            ret.add(value.getValue());
+        }
+        return ret;
+    }
+}
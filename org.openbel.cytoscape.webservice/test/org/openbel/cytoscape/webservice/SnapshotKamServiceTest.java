@@ -0,0 +1,209 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * Tests that {@link SnapshotKamService} loads a KAM on the Web API again
+ * when the Web API has unloaded it.
+ */
+public class SnapshotKamServiceTest {
+    private static final long COMPILED = 1300000000000L;
+    private static final String UNKNOWN_KAM =
+            "The handle does not specify a loaded KAM";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // the handle of the KAM loaded on the Web API, null once unloaded
+    private String loadedHandle;
+    private int loads;
+    private String fault;
+
+    private KamService service;
+    private KamHandle kamHandle;
+    private DialectHandle dialectHandle;
+
+    @Before
+    public void loadSnapshot() throws Exception {
+        final KamSnapshotWriter writer = KamSnapshotWriter.open(kam(),
+                new File(folder.getRoot(), KamSnapshot.fileName("test",
+                        COMPILED)));
+        final KamNode node = new KamNode();
+        node.setId("a");
+        node.setLabel("p(HGNC:A)");
+        writer.addNodes("nodes", Collections.singletonList(node));
+        writer.finish();
+
+        service = new SnapshotKamService(webApi(), folder.getRoot());
+        kamHandle = service.loadKam(kam()).getHandle();
+        dialectHandle = service.getDefaultDialect(kamHandle);
+    }
+
+    @Test
+    public void reloadsKamUnloadedByWebApi() {
+        assertEquals("remote1", find().get(0).getId());
+
+        loadedHandle = null;
+        assertEquals("remote2", find().get(0).getId());
+        assertEquals("remote2", find().get(0).getId());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    public void reloadsKamUnloadedByWebApiForDeepInterconnect() {
+        assertEquals(1, interconnect().size());
+
+        loadedHandle = null;
+        assertEquals(1, interconnect().size());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    public void rethrowsOtherFaults() {
+        find();
+        fault = "Unexpected server error";
+        try {
+            find();
+            fail("expected SOAPFaultException");
+        } catch (SOAPFaultException e) {
+            assertEquals(1, loads);
+        }
+    }
+
+    private List<KamNode> find() {
+        return service.findKamNodesByNamespaceValues(kamHandle,
+                dialectHandle, Collections.<NamespaceValue> emptyList(),
+                null);
+    }
+
+    private List<SimplePath> interconnect() {
+        return service.interconnect(dialectHandle,
+                Collections.<KamNode> emptyList(), 2);
+    }
+
+    /**
+     * A Web API that answers with a node or path identifying the handle used
+     * and rejects handles of a KAM it has unloaded.
+     */
+    private KamService webApi() {
+        return (KamService) Proxy.newProxyInstance(
+                KamService.class.getClassLoader(),
+                new Class<?>[] { KamService.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy,
+                            final Method method, final Object[] args)
+                            throws Throwable {
+                        final String name = method.getName();
+                        if (name.equals("loadKam")) {
+                            loadedHandle = "remote" + (++loads);
+                            final KamHandle handle = new KamHandle();
+                            handle.setHandle(loadedHandle);
+                            final LoadKamResponse res = new LoadKamResponse();
+                            res.setHandle(handle);
+                            res.setLoadStatus(KAMLoadStatus.COMPLETE);
+                            return res;
+                        }
+                        if (name.equals("getDefaultDialect")) {
+                            final DialectHandle handle = new DialectHandle();
+                            handle.setHandle(((KamHandle) args[0])
+                                    .getHandle());
+                            return handle;
+                        }
+
+                        final String handle;
+                        if (name.equals("findKamNodesByNamespaceValues")) {
+                            handle = ((KamHandle) args[0]).getHandle();
+                        } else if (name.equals("interconnect")) {
+                            handle = ((DialectHandle) args[0]).getHandle();
+                        } else {
+                            throw new UnsupportedOperationException(name);
+                        }
+                        if (fault != null) {
+                            throw fault(fault);
+                        }
+                        if (!handle.equals(loadedHandle)) {
+                            throw fault(UNKNOWN_KAM);
+                        }
+                        if (name.equals("interconnect")) {
+                            return Collections.singletonList(
+                                    new SimplePath());
+                        }
+                        final KamNode node = new KamNode();
+                        node.setId(handle);
+                        return Collections.singletonList(node);
+                    }
+                });
+    }
+
+    private static SOAPFaultException fault(final String faultString) {
+        final SOAPFault fault = (SOAPFault) Proxy.newProxyInstance(
+                SOAPFault.class.getClassLoader(),
+                new Class<?>[] { SOAPFault.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy,
+                            final Method method, final Object[] args) {
+                        if (method.getName().equals("getFaultString")) {
+                            return faultString;
+                        }
+                        throw new UnsupportedOperationException();
+                    }
+                });
+        return new SOAPFaultException(fault);
+    }
+
+    private static Kam kam() throws Exception {
+        final GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(COMPILED);
+        final Kam kam = new Kam();
+        kam.setId("1");
+        kam.setName("test");
+        kam.setLastCompiled(DatatypeFactory.newInstance()
+                .newXMLGregorianCalendar(cal));
+        return kam;
+    }
+}